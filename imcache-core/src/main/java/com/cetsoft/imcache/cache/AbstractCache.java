@@ -38,6 +38,11 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
    */
   protected EvictionListener<K, V> evictionListener;
 
+  /**
+   * The latencies, null if latencies are not recorded.
+   */
+  protected volatile CacheLatencies latencies;
+
   /**
    * Instantiates a new abstract cache.
    *
@@ -88,6 +93,45 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
     this.evictionListener = evictionListener;
   }
 
+  /**
+   * Gets the latencies.
+   *
+   * @return the latencies, or null if latencies are not recorded
+   */
+  public CacheLatencies getLatencies() {
+    return latencies;
+  }
+
+  /**
+   * Sets the latencies. Latencies of the operations are recorded as long as they are set.
+   *
+   * @param latencies the latencies, or null to stop recording
+   */
+  public void setLatencies(final CacheLatencies latencies) {
+    this.latencies = latencies;
+  }
+
+  /**
+   * Starts timing an operation.
+   *
+   * @return the start time, or zero if latencies are not recorded
+   */
+  protected long startTiming() {
+    return latencies == null ? 0 : System.nanoTime();
+  }
+
+  /**
+   * Records the latency of an operation started at the given time.
+   *
+   * @param operation the operation
+   * @param startTime the start time
+   */
+  protected void recordLatency(final CacheOperation operation, final long startTime) {
+    final CacheLatencies latencies = this.latencies;
+    if (latencies != null && startTime != 0) {
+      latencies.record(operation, System.nanoTime() - startTime);
+    }
+  }
 
   public String getName() {
     return name;
@@ -17,8 +17,16 @@ package com.cetsoft.imcache.cache;
 
 import com.cetsoft.imcache.cache.search.IndexHandler;
 import com.cetsoft.imcache.cache.search.Query;
+import com.cetsoft.imcache.cache.search.QueryPlanner;
+import com.cetsoft.imcache.cache.search.filter.Filter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * The Class AbstractSearchableCache.
@@ -50,19 +58,98 @@ public abstract class AbstractSearchableCache<K, V> extends AbstractCache<K, V>
   }
 
 
+  /**
+   * Executes the query. Values are fetched in the order of the keys only until they are enough for
+   * the offset and the limit of the query, filtering each batch of fetched values. Parallel queries
+   * fetch and filter the values on a parallel stream whose per task results are merged in order.
+   *
+   * @param query the query
+   * @return the values
+   */
   @SuppressWarnings("unchecked")
   public List<V> execute(Query query) {
+    if (query.isParallel()) {
+      return stream(query).collect(Collectors.toList());
+    }
+    query = plan(query);
     List<K> keys = indexHandler.execute(query);
-    List<V> values = new ArrayList<V>(keys.size());
-    for (K key : keys) {
-      V value = get(key);
-      if (value != null) {
-        values.add(value);
+    final Filter filter = query.getFilter();
+    final int wanted = (int) Math.min((long) query.getOffset() + query.getLimit(),
+        Integer.MAX_VALUE);
+    List<V> values = new ArrayList<V>(Math.min(keys.size(), wanted));
+    int position = 0;
+    while (position < keys.size() && values.size() < wanted) {
+      final int end = (int) Math.min((long) position + wanted - values.size(), keys.size());
+      List<V> batch = new ArrayList<V>(end - position);
+      for (K key : keys.subList(position, end)) {
+        V value = get(key);
+        if (value != null) {
+          batch.add(value);
+        }
       }
+      position = end;
+      if (filter != null) {
+        List<Object> filtered = filter.filter((List<Object>) batch);
+        batch = query.getOrderBy() == null ? (List<V>) filtered : retainOrder(batch, filtered);
+      }
+      values.addAll(batch);
     }
-    if (query.getFilter() != null) {
-      values = (List<V>) query.getFilter().filter((List<Object>) values);
+    if (values.size() > wanted || query.getOffset() > 0) {
+      values = new ArrayList<V>(values.subList(Math.min(query.getOffset(), values.size()),
+          Math.min(wanted, values.size())));
     }
     return values;
   }
+
+
+  public Stream<V> stream(Query query) {
+    query = plan(query);
+    final Filter filter = query.getFilter();
+    final List<K> keys = indexHandler.execute(query);
+    Stream<V> values = (query.isParallel() ? keys.parallelStream() : keys.stream()).map(this::get)
+        .filter(Objects::nonNull);
+    if (filter != null) {
+      values = values.filter(filter::matches);
+    }
+    if (query.getOffset() > 0) {
+      values = values.skip(query.getOffset());
+    }
+    if (query.getLimit() < Integer.MAX_VALUE) {
+      values = values.limit(query.getLimit());
+    }
+    return values;
+  }
+
+  /**
+   * Plans the query with the index handler if it is a query planner, so that the filters on the
+   * indexed attributes are met on the indexes before the values are fetched.
+   *
+   * @param query the query
+   * @return the planned query
+   */
+  protected Query plan(Query query) {
+    if (indexHandler instanceof QueryPlanner) {
+      return ((QueryPlanner) indexHandler).plan(query);
+    }
+    return query;
+  }
+
+  /**
+   * Returns the filtered values in the order of the values.
+   *
+   * @param values the values
+   * @param filtered the filtered values
+   * @return the filtered values in order
+   */
+  private List<V> retainOrder(List<V> values, List<Object> filtered) {
+    Set<Object> retained = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+    retained.addAll(filtered);
+    List<V> result = new ArrayList<V>(filtered.size());
+    for (V value : values) {
+      if (retained.contains(value)) {
+        result.add(value);
+      }
+    }
+    return result;
+  }
 }
@@ -16,6 +16,8 @@
 package com.cetsoft.imcache.cache;
 
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * The Interface Cache.
@@ -43,6 +45,47 @@ public interface Cache<K, V> {
    */
   void put(K key, V value, TimeUnit timeUnit, long duration);
 
+  /**
+   * Puts the value with the specified key if the key is not already associated with a value. The
+   * check and the put are done atomically.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the existing value, or null if the value was put
+   */
+  V putIfAbsent(K key, V value);
+
+  /**
+   * Replaces the value for the specified key only if it is currently mapped to the old value. The
+   * check and the replace are done atomically.
+   *
+   * @param key the key
+   * @param oldValue the expected value
+   * @param newValue the new value
+   * @return true, if the value was replaced
+   */
+  boolean replace(K key, V oldValue, V newValue);
+
+  /**
+   * Computes a value with the mapping function if the specified key is not already associated with
+   * a value. If the function returns null, nothing is put.
+   *
+   * @param key the key
+   * @param mappingFunction the mapping function
+   * @return the current (existing or computed) value, or null
+   */
+  V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction);
+
+  /**
+   * Computes a new value for the specified key from its current value, which is null if the key is
+   * absent. If the function returns null, the key is invalidated.
+   *
+   * @param key the key
+   * @param remappingFunction the remapping function
+   * @return the new value, or null
+   */
+  V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction);
+
   /**
    * Gets the value with the specified key.
    *
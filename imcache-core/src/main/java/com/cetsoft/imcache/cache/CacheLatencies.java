@@ -0,0 +1,81 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache;
+
+import com.cetsoft.imcache.concurrent.LatencyHistogram;
+import com.cetsoft.imcache.concurrent.LatencySnapshot;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The Class CacheLatencies keeps a latency histogram in nanoseconds for each cache operation.
+ */
+public class CacheLatencies {
+
+  /**
+   * The histograms.
+   */
+  private final Map<CacheOperation, LatencyHistogram> histograms =
+      new EnumMap<>(CacheOperation.class);
+
+  /**
+   * Instantiates a new cache latencies.
+   */
+  public CacheLatencies() {
+    for (CacheOperation operation : CacheOperation.values()) {
+      histograms.put(operation, new LatencyHistogram());
+    }
+  }
+
+  /**
+   * Records the latency of the operation.
+   *
+   * @param operation the operation
+   * @param latency the latency in nanoseconds
+   */
+  public void record(final CacheOperation operation, final long latency) {
+    histograms.get(operation).record(latency);
+  }
+
+  /**
+   * Takes a snapshot of the latencies of the operation.
+   *
+   * @param operation the operation
+   * @return the snapshot
+   */
+  public LatencySnapshot snapshot(final CacheOperation operation) {
+    return histograms.get(operation).snapshot();
+  }
+
+  /**
+   * Takes a snapshot of the latencies of the operation and resets them.
+   *
+   * @param operation the operation
+   * @return the snapshot
+   */
+  public LatencySnapshot snapshotAndReset(final CacheOperation operation) {
+    return histograms.get(operation).snapshotAndReset();
+  }
+
+  /**
+   * Resets the latencies of all operations.
+   */
+  public void reset() {
+    for (LatencyHistogram histogram : histograms.values()) {
+      histogram.reset();
+    }
+  }
+}
@@ -50,6 +50,52 @@ public interface CacheStats {
    */
   long getEvictionCount();
 
+  /**
+   * Number of times cache was evicted for the given cause
+   *
+   * @param cause the eviction cause
+   * @return eviction count
+   */
+  long getEvictionCount(EvictionCause cause);
+
+  /**
+   * Number of times the cache loader failed to load a value, either by throwing an exception or
+   * by returning null
+   *
+   * @return load failure count
+   */
+  long getLoadFailureCount();
+
+  /**
+   * Total time spent in the cache loader in nanoseconds, including failed loads
+   *
+   * @return total load time
+   */
+  long getTotalLoadTime();
+
+  /**
+   * Average time spent in the cache loader in nanoseconds
+   *
+   * @return average load penalty
+   */
+  double averageLoadPenalty();
+
+  /**
+   * Number of times a value was written to cache
+   *
+   * @return put count
+   */
+  long getPutCount();
+
+  /**
+   * Total number of serialized bytes written to cache over its lifetime. Overwritten, invalidated
+   * and evicted values aren't subtracted, so it isn't the size of what the cache holds. Caches that
+   * keep values without serializing them report zero.
+   *
+   * @return bytes written
+   */
+  long getBytesWritten();
+
   /**
    * Number of times cache was requested
    *
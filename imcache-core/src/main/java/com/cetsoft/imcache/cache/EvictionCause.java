@@ -0,0 +1,42 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache;
+
+/**
+ * The enum EvictionCause tells why an item left the cache.
+ */
+public enum EvictionCause {
+
+  /**
+   * The item was invalidated by the user.
+   */
+  EXPLICIT,
+
+  /**
+   * The item was replaced by a new value for the same key.
+   */
+  REPLACED,
+
+  /**
+   * The item expired.
+   */
+  EXPIRED,
+
+  /**
+   * The item was evicted to keep the cache within its capacity.
+   */
+  SIZE
+}
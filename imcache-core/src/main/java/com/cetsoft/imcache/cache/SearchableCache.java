@@ -17,6 +17,7 @@ package com.cetsoft.imcache.cache;
 
 import com.cetsoft.imcache.cache.search.Query;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * The Interface SearchableCache provides query execution for the caches.
@@ -33,4 +34,13 @@ public interface SearchableCache<K, V> extends Cache<K, V> {
    * @return the list
    */
   List<V> execute(Query query);
+
+  /**
+   * Gets the items as a result of query execution lazily. Items are fetched from the cache and
+   * filtered one by one as the stream is consumed, so short-circuiting operations stop fetching.
+   *
+   * @param query the query
+   * @return the stream
+   */
+  Stream<V> stream(Query query);
 }
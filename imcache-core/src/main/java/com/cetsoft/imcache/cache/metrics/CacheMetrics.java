@@ -0,0 +1,154 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache.metrics;
+
+import com.cetsoft.imcache.cache.Cache;
+import com.cetsoft.imcache.cache.CacheStats;
+import com.cetsoft.imcache.cache.EvictionCause;
+import com.cetsoft.imcache.cache.ImcacheException;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The Class CacheMetrics exports the stats, the size and the metrics of a cache as MBeans or to a
+ * meter registry. Metrics are read when they are polled, so exporting costs nothing on the cache
+ * operations.
+ */
+public final class CacheMetrics {
+
+  /**
+   * The domain of the MBeans.
+   */
+  public static final String JMX_DOMAIN = "com.cetsoft.imcache";
+
+  /**
+   * Instantiates a new cache metrics.
+   */
+  private CacheMetrics() {
+  }
+
+  /**
+   * Gets the metrics of the cache by their names.
+   *
+   * @param cache the cache
+   * @return the metrics
+   */
+  public static Map<String, Supplier<Number>> of(final Cache<?, ?> cache) {
+    final Map<String, Supplier<Number>> metrics = new LinkedHashMap<>();
+    metrics.put("size", cache::size);
+    metrics.put("hitCount", () -> cache.stats().getHitCount());
+    metrics.put("missCount", () -> cache.stats().getMissCount());
+    metrics.put("requestCount", () -> cache.stats().getRequestCount());
+    metrics.put("hitRate", () -> rate(cache.stats().getHitCount(), cache.stats()));
+    metrics.put("missRate", () -> rate(cache.stats().getMissCount(), cache.stats()));
+    metrics.put("loadCount", () -> cache.stats().getLoadCount());
+    metrics.put("loadFailureCount", () -> cache.stats().getLoadFailureCount());
+    metrics.put("totalLoadTime", () -> cache.stats().getTotalLoadTime());
+    metrics.put("averageLoadPenalty", () -> cache.stats().averageLoadPenalty());
+    metrics.put("putCount", () -> cache.stats().getPutCount());
+    metrics.put("bytesWritten", () -> cache.stats().getBytesWritten());
+    metrics.put("evictionCount", () -> cache.stats().getEvictionCount());
+    for (final EvictionCause cause : EvictionCause.values()) {
+      final String name = "evictionCount" + cause.name().charAt(0)
+          + cause.name().substring(1).toLowerCase(Locale.ROOT);
+      metrics.put(name, () -> cache.stats().getEvictionCount(cause));
+    }
+    if (cache instanceof MetricSource) {
+      metrics.putAll(((MetricSource) cache).metrics());
+    }
+    return metrics;
+  }
+
+  /**
+   * Registers the metrics of the cache as gauges to the meter registry.
+   *
+   * @param cache the cache
+   * @param registry the registry
+   */
+  public static void bindTo(final Cache<?, ?> cache, final MeterRegistryAdapter registry) {
+    for (final Entry<String, Supplier<Number>> metric : of(cache).entrySet()) {
+      registry.gauge(cache.getName(), metric.getKey(), metric.getValue());
+    }
+  }
+
+  /**
+   * Registers the metrics of the cache as an MBean named after the cache. An MBean already
+   * registered with the same name is replaced.
+   *
+   * @param cache the cache
+   * @return the object name of the MBean
+   */
+  public static ObjectName registerMBean(final Cache<?, ?> cache) {
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      final ObjectName objectName = objectName(cache);
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+      server.registerMBean(new CacheMetricsMBean(of(cache)), objectName);
+      return objectName;
+    } catch (JMException e) {
+      throw new ImcacheException(e);
+    }
+  }
+
+  /**
+   * Unregisters the MBean of the cache if there is one.
+   *
+   * @param cache the cache
+   */
+  public static void unregisterMBean(final Cache<?, ?> cache) {
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      final ObjectName objectName = objectName(cache);
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+    } catch (JMException e) {
+      throw new ImcacheException(e);
+    }
+  }
+
+  /**
+   * Gets the object name of the MBean of the cache.
+   *
+   * @param cache the cache
+   * @return the object name
+   * @throws JMException if the name of the cache is not a valid object name
+   */
+  public static ObjectName objectName(final Cache<?, ?> cache) throws JMException {
+    return new ObjectName(JMX_DOMAIN + ":type=Cache,name=" + ObjectName.quote(cache.getName()));
+  }
+
+  /**
+   * Calculates the rate of the count in the requests, zero if there are no requests.
+   *
+   * @param count the count
+   * @param stats the stats
+   * @return the rate
+   */
+  private static double rate(final long count, final CacheStats stats) {
+    final long requestCount = stats.getRequestCount();
+    return requestCount == 0 ? 0 : (double) count / requestCount;
+  }
+}
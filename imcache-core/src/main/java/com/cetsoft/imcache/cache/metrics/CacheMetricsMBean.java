@@ -0,0 +1,100 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache.metrics;
+
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+
+/**
+ * The Class CacheMetricsMBean exposes metrics as read only attributes of an MBean.
+ */
+class CacheMetricsMBean implements DynamicMBean {
+
+  /**
+   * The metrics.
+   */
+  private final Map<String, Supplier<Number>> metrics;
+
+  /**
+   * The MBean info.
+   */
+  private final MBeanInfo info;
+
+  /**
+   * Instantiates a new cache metrics MBean.
+   *
+   * @param metrics the metrics
+   */
+  CacheMetricsMBean(final Map<String, Supplier<Number>> metrics) {
+    this.metrics = metrics;
+    final MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[metrics.size()];
+    int i = 0;
+    for (final String name : metrics.keySet()) {
+      attributes[i++] = new MBeanAttributeInfo(name, Number.class.getName(), name, true, false,
+          false);
+    }
+    this.info = new MBeanInfo(getClass().getName(), "imcache metrics", attributes, null,
+        new MBeanOperationInfo[0], null);
+  }
+
+  @Override
+  public Object getAttribute(final String attribute) throws AttributeNotFoundException {
+    final Supplier<Number> metric = metrics.get(attribute);
+    if (metric == null) {
+      throw new AttributeNotFoundException(attribute);
+    }
+    return metric.get();
+  }
+
+  @Override
+  public void setAttribute(final Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException(attribute.getName() + " is read only");
+  }
+
+  @Override
+  public AttributeList getAttributes(final String[] attributes) {
+    final AttributeList attributeList = new AttributeList();
+    for (final String attribute : attributes) {
+      final Supplier<Number> metric = metrics.get(attribute);
+      if (metric != null) {
+        attributeList.add(new Attribute(attribute, metric.get()));
+      }
+    }
+    return attributeList;
+  }
+
+  @Override
+  public AttributeList setAttributes(final AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(final String actionName, final Object[] params, final String[] signature) {
+    throw new UnsupportedOperationException(actionName);
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    return info;
+  }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache.metrics;
+
+import java.util.function.Supplier;
+
+/**
+ * The interface MeterRegistryAdapter connects caches to a meter registry. An adapter for Micrometer
+ * would register each metric as a gauge, for example
+ * {@code Gauge.builder("imcache." + metricName, value, v -> v.get().doubleValue())
+ * .tag("cache", cacheName).register(registry)}.
+ */
+public interface MeterRegistryAdapter {
+
+  /**
+   * Registers a gauge for the metric of the cache.
+   *
+   * @param cacheName the cache name
+   * @param metricName the metric name
+   * @param value the value of the metric
+   */
+  void gauge(String cacheName, String metricName, Supplier<Number> value);
+
+  /**
+   * Removes the gauges of the cache.
+   *
+   * @param cacheName the cache name
+   */
+  void remove(String cacheName);
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache.metrics;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The interface MetricSource is implemented by caches that have metrics beyond their stats and
+ * size, such as the memory of the off heap caches.
+ */
+public interface MetricSource {
+
+  /**
+   * Gets the metrics by their names. Values are read each time the suppliers are called.
+   *
+   * @return the metrics
+   */
+  Map<String, Supplier<Number>> metrics();
+}
@@ -15,6 +15,9 @@
  */
 package com.cetsoft.imcache.cache.search;
 
+import static com.cetsoft.imcache.cache.util.ArgumentUtils.checkNotEmpty;
+import static com.cetsoft.imcache.cache.util.ArgumentUtils.checkPositive;
+
 import com.cetsoft.imcache.cache.search.criteria.Criteria;
 import com.cetsoft.imcache.cache.search.filter.Filter;
 
@@ -30,6 +33,31 @@ public class CacheQuery implements Query {
 
   private Filter filter;
 
+  /**
+   * The limit.
+   */
+  private int limit = Integer.MAX_VALUE;
+
+  /**
+   * The offset.
+   */
+  private int offset;
+
+  /**
+   * The attribute the results are ordered by.
+   */
+  private String orderBy;
+
+  /**
+   * Whether the results are in descending order.
+   */
+  private boolean descending;
+
+  /**
+   * Whether the query is executed in parallel.
+   */
+  private boolean parallel;
+
   /**
    * Instantiates a new cache query.
    */
@@ -63,4 +91,57 @@ public class CacheQuery implements Query {
     return this.filter;
   }
 
+  public int getLimit() {
+    return this.limit;
+  }
+
+  public Query setLimit(int limit) {
+    checkPositive(limit, "limit must be positive");
+    this.limit = limit;
+    return this;
+  }
+
+  public int getOffset() {
+    return this.offset;
+  }
+
+  public Query setOffset(int offset) {
+    if (offset < 0) {
+      throw new IllegalArgumentException("offset can't be negative");
+    }
+    this.offset = offset;
+    return this;
+  }
+
+  public String getOrderBy() {
+    return this.orderBy;
+  }
+
+  public boolean isDescending() {
+    return this.descending;
+  }
+
+  public Query orderBy(String attributeName) {
+    checkNotEmpty(attributeName, "attribute name can't be empty");
+    this.orderBy = attributeName;
+    this.descending = false;
+    return this;
+  }
+
+  public Query orderByDescending(String attributeName) {
+    checkNotEmpty(attributeName, "attribute name can't be empty");
+    this.orderBy = attributeName;
+    this.descending = true;
+    return this;
+  }
+
+  public boolean isParallel() {
+    return this.parallel;
+  }
+
+  public Query setParallel(boolean parallel) {
+    this.parallel = parallel;
+    return this;
+  }
+
 }
@@ -15,26 +15,56 @@
  */
 package com.cetsoft.imcache.cache.search;
 
-import static com.cetsoft.imcache.cache.util.ReflectionUtils.getFieldValue;
+import static com.cetsoft.imcache.cache.util.ReflectionUtils.fieldAccessor;
 
 import com.cetsoft.imcache.cache.search.criteria.AndCriteria;
 import com.cetsoft.imcache.cache.search.criteria.ArithmeticCriteria;
+import com.cetsoft.imcache.cache.search.criteria.BetweenCriteria;
 import com.cetsoft.imcache.cache.search.criteria.Criteria;
 import com.cetsoft.imcache.cache.search.criteria.DiffCriteria;
+import com.cetsoft.imcache.cache.search.criteria.ETCriteria;
+import com.cetsoft.imcache.cache.search.criteria.GTCriteria;
+import com.cetsoft.imcache.cache.search.criteria.GTETCriteria;
+import com.cetsoft.imcache.cache.search.criteria.LTCriteria;
+import com.cetsoft.imcache.cache.search.criteria.LTETCriteria;
 import com.cetsoft.imcache.cache.search.criteria.OrCriteria;
+import com.cetsoft.imcache.cache.search.filter.AndFilter;
+import com.cetsoft.imcache.cache.search.filter.ArithmeticFilter;
+import com.cetsoft.imcache.cache.search.filter.DiffFilter;
+import com.cetsoft.imcache.cache.search.filter.ETFilter;
+import com.cetsoft.imcache.cache.search.filter.Filter;
+import com.cetsoft.imcache.cache.search.filter.GTETFilter;
+import com.cetsoft.imcache.cache.search.filter.GTFilter;
+import com.cetsoft.imcache.cache.search.filter.LTETFilter;
+import com.cetsoft.imcache.cache.search.filter.LTFilter;
+import com.cetsoft.imcache.cache.search.filter.OrFilter;
+import com.cetsoft.imcache.cache.search.index.BitmapHashIndex;
+import com.cetsoft.imcache.cache.search.index.BitmapIndex;
+import com.cetsoft.imcache.cache.search.index.BitmapRangeIndex;
 import com.cetsoft.imcache.cache.search.index.CacheIndex;
+import com.cetsoft.imcache.cache.search.index.CompressedBitmap;
 import com.cetsoft.imcache.cache.search.index.IndexNotFoundException;
+import com.cetsoft.imcache.cache.search.index.IndexStorage;
 import com.cetsoft.imcache.cache.search.index.IndexType;
+import com.cetsoft.imcache.cache.search.index.KeyIds;
 import com.cetsoft.imcache.cache.search.index.NonUniqueHashIndex;
+import com.cetsoft.imcache.cache.search.index.NumericRangeIndex;
 import com.cetsoft.imcache.cache.search.index.RangeIndex;
+import com.cetsoft.imcache.cache.search.index.SortedIndex;
 import com.cetsoft.imcache.cache.search.index.UniqueHashIndex;
-import java.lang.reflect.Field;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 /**
  * The Class DefaultIndexHandler implements basic query execution.
@@ -42,69 +72,500 @@ import java.util.concurrent.ConcurrentHashMap;
  * @param <K> the key type
  * @param <V> the value type
  */
-public class DefaultIndexHandler<K, V> implements IndexHandler<K, V> {
+public class DefaultIndexHandler<K, V> implements IndexHandler<K, V>, QueryPlanner {
 
   /**
-   * Fields for the object.
+   * The Constant UNIQUE_EQUALITY_COST.
    */
-  private final Map<String, Field> fields = new ConcurrentHashMap<>();
+  private static final int UNIQUE_EQUALITY_COST = 0;
+  /**
+   * The Constant EQUALITY_COST.
+   */
+  private static final int EQUALITY_COST = 1;
+  /**
+   * The Constant BETWEEN_COST.
+   */
+  private static final int BETWEEN_COST = 2;
+  /**
+   * The Constant RANGE_COST.
+   */
+  private static final int RANGE_COST = 3;
+  /**
+   * The extractors of the indexed attributes.
+   */
+  private final Map<String, Function<? super V, ?>> extractors = new ConcurrentHashMap<>();
+  /**
+   * The indexed attributes whose keys are read from the fields with their names.
+   */
+  private final Set<String> fieldAttributes = ConcurrentHashMap.newKeySet();
   /**
    * The indexes.
    */
   protected Map<String, CacheIndex> indexes;
+  /**
+   * The ids of the indexed keys, null unless the indexes are stored as bitmaps.
+   */
+  protected final KeyIds keyIds;
+  /**
+   * The modification counters of the indexes, bumped after every change to an index.
+   */
+  private final Map<String, AtomicLong> modifications = new ConcurrentHashMap<>();
+  /**
+   * The cached results of the queries keyed by their canonical forms, null unless the results
+   * are cached.
+   */
+  private final Cache<List<Object>, CachedResult> queryCache;
 
   /**
    * Instantiates a new simple query executor.
    */
   public DefaultIndexHandler() {
+    this(IndexStorage.KEY_SET);
+  }
+
+  /**
+   * Instantiates a new simple query executor storing its non unique and range indexes as given.
+   *
+   * @param indexStorage the index storage
+   */
+  public DefaultIndexHandler(final IndexStorage indexStorage) {
+    this(indexStorage, 0);
+  }
+
+  /**
+   * Instantiates a new simple query executor storing its non unique and range indexes as given
+   * and caching the results of up to the given number of queries. A cached result is used until
+   * one of the indexes it was met on is modified.
+   *
+   * @param indexStorage the index storage
+   * @param queryCacheSize the maximum number of cached query results, 0 to not cache results
+   */
+  public DefaultIndexHandler(final IndexStorage indexStorage, final int queryCacheSize) {
+    if (queryCacheSize < 0) {
+      throw new IllegalArgumentException("query cache size can't be negative");
+    }
     indexes = new ConcurrentHashMap<>();
+    keyIds = indexStorage == IndexStorage.BITMAP ? new KeyIds() : null;
+    queryCache = queryCacheSize == 0 ? null
+        : Caffeine.newBuilder().maximumSize(queryCacheSize).<List<Object>, CachedResult>build();
   }
 
 
   public void addIndex(final String attributeName, final IndexType type) {
+    addIndex(attributeName, type, fieldAccessor(attributeName));
+    fieldAttributes.add(attributeName);
+  }
+
+  /**
+   * Adds the index whose keys are extracted from the values by the given extractor rather than
+   * read from the field with the attribute name.
+   *
+   * @param attributeName the attribute name
+   * @param type the type
+   * @param extractor the extractor
+   */
+  public void addIndex(final String attributeName, final IndexType type,
+      final Function<? super V, ?> extractor) {
+    fieldAttributes.remove(attributeName);
+    extractors.put(attributeName, extractor);
     if (type == IndexType.UNIQUE_HASH) {
       indexes.put(attributeName, new UniqueHashIndex());
     } else if (type == IndexType.NON_UNIQUE_HASH) {
-      indexes.put(attributeName, new NonUniqueHashIndex());
+      indexes.put(attributeName,
+          keyIds == null ? new NonUniqueHashIndex() : new BitmapHashIndex(keyIds));
     } else if (type == IndexType.RANGE_INDEX) {
-      indexes.put(attributeName, new RangeIndex());
+      indexes.put(attributeName, keyIds == null ? new RangeIndex() : new BitmapRangeIndex(keyIds));
+    } else if (type == IndexType.NUMERIC_RANGE) {
+      indexes.put(attributeName, new NumericRangeIndex());
     }
+    modifications.computeIfAbsent(attributeName, (a) -> new AtomicLong()).incrementAndGet();
   }
 
 
   public void add(final K key, final V value) {
-    for (final String attributeName : indexes.keySet()) {
-      final Object indexedKey = getFieldValue(attributeName, value);
-      if (indexedKey == null) {
-        throw new NullPointerException();
+    if (keyIds != null) {
+      keyIds.acquire(key);
+    }
+    try {
+      for (final String attributeName : indexes.keySet()) {
+        final Object indexedKey = getExtractor(attributeName).apply(value);
+        if (indexedKey == null) {
+          throw new NullPointerException();
+        }
+        indexes.get(attributeName).put(indexedKey, key);
+        modified(attributeName);
+      }
+    } catch (RuntimeException e) {
+      if (keyIds != null) {
+        keyIds.release(key);
       }
-      indexes.get(attributeName).put(indexedKey, key);
+      throw e;
     }
   }
 
 
   public void remove(final K key, final V value) {
-    for (final String attributeName : indexes.keySet()) {
-      final Object indexedKey = getFieldValue(attributeName, value);
-      if (indexedKey == null) {
-        throw new NullPointerException();
+    try {
+      for (final String attributeName : indexes.keySet()) {
+        final Object indexedKey = getExtractor(attributeName).apply(value);
+        if (indexedKey == null) {
+          throw new NullPointerException();
+        }
+        indexes.get(attributeName).remove(indexedKey, key);
+        modified(attributeName);
       }
-      indexes.get(attributeName).remove(indexedKey, key);
+    } finally {
+      if (keyIds != null) {
+        keyIds.release(key);
+      }
+    }
+  }
+
+  /**
+   * Bumps the modification counter of the index of the attribute.
+   *
+   * @param attributeName the attribute name
+   */
+  private void modified(final String attributeName) {
+    final AtomicLong modification = modifications.get(attributeName);
+    if (modification != null) {
+      modification.incrementAndGet();
+    }
+  }
+
+  /**
+   * Gets the extractor of the attribute, reading the field with the attribute name for the indexes
+   * added without an extractor.
+   *
+   * @param attributeName the attribute name
+   * @return the extractor
+   */
+  private Function<? super V, ?> getExtractor(final String attributeName) {
+    final Function<? super V, ?> extractor = extractors.get(attributeName);
+    if (extractor != null) {
+      return extractor;
     }
+    return extractors.computeIfAbsent(attributeName, (a) -> fieldAccessor(attributeName));
   }
 
 
   public void clear() {
     indexes.clear();
+    extractors.clear();
+    fieldAttributes.clear();
+    for (final AtomicLong modification : modifications.values()) {
+      modification.incrementAndGet();
+    }
+    if (queryCache != null) {
+      queryCache.invalidateAll();
+    }
+    if (keyIds != null) {
+      keyIds.clear();
+    }
   }
 
 
   @SuppressWarnings("unchecked")
   public List<K> execute(final Query query) {
-    List<Object> results = execute(query.getCriteria());
+    if (queryCache == null) {
+      return executeQuery(query);
+    }
+    final List<Object> cacheKey = Arrays.asList(canonicalize(query.getCriteria()),
+        query.getOrderBy(), query.isDescending(), getKeyLimit(query));
+    final CachedResult cachedResult = queryCache.getIfPresent(cacheKey);
+    if (cachedResult != null && cachedResult.isCurrent()) {
+      return (List<K>) cachedResult.keys;
+    }
+    final Set<String> attributeNames = new HashSet<>();
+    collectAttributeNames(query.getCriteria(), attributeNames);
+    if (query.getOrderBy() != null) {
+      attributeNames.add(query.getOrderBy());
+    }
+    final CachedResult result = new CachedResult(attributeNames);
+    result.keys = Collections.unmodifiableList(executeQuery(query));
+    queryCache.put(cacheKey, result);
+    return (List<K>) result.keys;
+  }
+
+  /**
+   * Executes the query on the indexes.
+   *
+   * @param query the query
+   * @return the keys
+   */
+  @SuppressWarnings("unchecked")
+  protected List<K> executeQuery(final Query query) {
+    if (query.getOrderBy() != null) {
+      return (List<K>) executeOrdered(query);
+    }
+    final int keyLimit = getKeyLimit(query);
+    if (keyLimit < Integer.MAX_VALUE && query.getCriteria() instanceof ArithmeticCriteria) {
+      return (List<K>) executeArithmetic((ArithmeticCriteria) query.getCriteria(), keyLimit);
+    }
+    List<Object> results;
+    if (keyIds != null) {
+      results = keyIds.getKeys(executeIds(query.getCriteria()));
+    } else {
+      results = execute(query.getCriteria());
+    }
+    if (results.size() > keyLimit) {
+      results = new ArrayList<>(results.subList(0, keyLimit));
+    }
     return (List<K>) results;
   }
 
+  /**
+   * Canonicalizes the criteria into a form that is equal for the criterias meeting the same keys in
+   * the same way, regardless of the order of the inner criterias of and and or criterias.
+   *
+   * @param criteria the criteria
+   * @return the canonical form
+   */
+  protected Object canonicalize(final Criteria criteria) {
+    if (criteria instanceof ArithmeticCriteria) {
+      final ArithmeticCriteria arithmeticCriteria = (ArithmeticCriteria) criteria;
+      return Arrays.asList(criteria.getClass(), arithmeticCriteria.getAttributeName(),
+          arithmeticCriteria.getValue(), criteria instanceof BetweenCriteria
+              ? ((BetweenCriteria) criteria).getUpperBound() : null);
+    } else if (criteria instanceof AndCriteria || criteria instanceof OrCriteria) {
+      final Criteria[] criterias = criteria instanceof AndCriteria
+          ? ((AndCriteria) criteria).getCriterias() : ((OrCriteria) criteria).getCriterias();
+      final Set<Object> canonicalCriterias = new HashSet<>();
+      for (final Criteria innerCriteria : criterias) {
+        canonicalCriterias.add(canonicalize(innerCriteria));
+      }
+      return Arrays.asList(criteria.getClass(), canonicalCriterias);
+    } else if (criteria instanceof DiffCriteria) {
+      final DiffCriteria diffCriteria = (DiffCriteria) criteria;
+      return Arrays.asList(criteria.getClass(), canonicalize(diffCriteria.getLeftCriteria()),
+          canonicalize(diffCriteria.getRightCriteria()));
+    }
+    return criteria;
+  }
+
+  /**
+   * Collects the names of the attributes the criteria is met on.
+   *
+   * @param criteria the criteria
+   * @param attributeNames the attribute names
+   */
+  private static void collectAttributeNames(final Criteria criteria,
+      final Set<String> attributeNames) {
+    if (criteria instanceof ArithmeticCriteria) {
+      attributeNames.add(((ArithmeticCriteria) criteria).getAttributeName());
+    } else if (criteria instanceof AndCriteria || criteria instanceof OrCriteria) {
+      final Criteria[] criterias = criteria instanceof AndCriteria
+          ? ((AndCriteria) criteria).getCriterias() : ((OrCriteria) criteria).getCriterias();
+      for (final Criteria innerCriteria : criterias) {
+        collectAttributeNames(innerCriteria, attributeNames);
+      }
+    } else if (criteria instanceof DiffCriteria) {
+      collectAttributeNames(((DiffCriteria) criteria).getLeftCriteria(), attributeNames);
+      collectAttributeNames(((DiffCriteria) criteria).getRightCriteria(), attributeNames);
+    }
+  }
+
+  /**
+   * Plans the query by pushing the filters on the indexed attributes down into its criteria, so
+   * most of the values they would discard aren't fetched. Each filter of an and filter is pushed
+   * down on its own. The filters are still kept to check the fetched values, as an index may
+   * lag behind a value that is being overwritten.
+   *
+   * @param query the query
+   * @return the planned query
+   */
+  public Query plan(final Query query) {
+    final Filter filter = query.getFilter();
+    if (filter == null) {
+      return query;
+    }
+    final Filter[] filters =
+        filter instanceof AndFilter ? ((AndFilter) filter).getFilters() : new Filter[]{filter};
+    final List<Criteria> criterias = new ArrayList<>();
+    for (final Filter innerFilter : filters) {
+      final Criteria criteria = toCriteria(innerFilter);
+      if (criteria != null) {
+        criterias.add(criteria);
+      }
+    }
+    if (criterias.isEmpty()) {
+      return query;
+    }
+    if (query.getCriteria() != null) {
+      criterias.add(0, query.getCriteria());
+    }
+    final Query plannedQuery = CacheQuery.newQuery()
+        .setCriteria(criterias.size() == 1 ? criterias.get(0)
+            : new AndCriteria(criterias.toArray(new Criteria[0])))
+        .setFilter(filter)
+        .setLimit(query.getLimit()).setOffset(query.getOffset()).setParallel(query.isParallel());
+    if (query.getOrderBy() != null) {
+      if (query.isDescending()) {
+        plannedQuery.orderByDescending(query.getOrderBy());
+      } else {
+        plannedQuery.orderBy(query.getOrderBy());
+      }
+    }
+    return plannedQuery;
+  }
+
+  /**
+   * Converts the filter to a criteria meeting the same values on the indexes. Comparisons are
+   * converted only for the attributes whose indexes read their fields, and comparisons other than
+   * equality only for sorted indexes.
+   *
+   * @param filter the filter
+   * @return the criteria, null if the filter can't be met on the indexes
+   */
+  protected Criteria toCriteria(final Filter filter) {
+    if (filter instanceof ArithmeticFilter) {
+      final ArithmeticFilter arithmeticFilter = (ArithmeticFilter) filter;
+      final String attributeName = arithmeticFilter.getAttributeName();
+      final CacheIndex cacheIndex = indexes.get(attributeName);
+      if (cacheIndex == null || !fieldAttributes.contains(attributeName)) {
+        return null;
+      }
+      final Object value = arithmeticFilter.getValue();
+      if (filter instanceof ETFilter) {
+        return new ETCriteria(attributeName, value);
+      } else if (!(cacheIndex instanceof SortedIndex)) {
+        return null;
+      } else if (filter instanceof GTFilter) {
+        return new GTCriteria(attributeName, value);
+      } else if (filter instanceof GTETFilter) {
+        return new GTETCriteria(attributeName, value);
+      } else if (filter instanceof LTFilter) {
+        return new LTCriteria(attributeName, value);
+      } else if (filter instanceof LTETFilter) {
+        return new LTETCriteria(attributeName, value);
+      }
+      return null;
+    } else if (filter instanceof AndFilter || filter instanceof OrFilter) {
+      final Filter[] filters = filter instanceof AndFilter ? ((AndFilter) filter).getFilters()
+          : ((OrFilter) filter).getFilters();
+      if (filters.length == 0) {
+        return null;
+      }
+      final Criteria[] criterias = new Criteria[filters.length];
+      for (int i = 0; i < filters.length; i++) {
+        criterias[i] = toCriteria(filters[i]);
+        if (criterias[i] == null) {
+          return null;
+        }
+      }
+      return filter instanceof AndFilter ? new AndCriteria(criterias) : new OrCriteria(criterias);
+    } else if (filter instanceof DiffFilter) {
+      final DiffFilter diffFilter = (DiffFilter) filter;
+      final Criteria leftCriteria = toCriteria(diffFilter.getLeftFilter());
+      final Criteria rightCriteria = toCriteria(diffFilter.getRightFilter());
+      if (leftCriteria == null || rightCriteria == null) {
+        return null;
+      }
+      return new DiffCriteria(leftCriteria, rightCriteria);
+    }
+    return null;
+  }
+
+  /**
+   * Executes the query whose results are ordered by an attribute. The sorted index of the
+   * attribute is scanned in order and the keys meeting the criteria are collected until the
+   * results are enough for the offset and the limit of the query.
+   *
+   * @param query the query
+   * @return the keys in order
+   */
+  protected List<Object> executeOrdered(final Query query) {
+    final CacheIndex cacheIndex = indexes.get(query.getOrderBy());
+    if (!(cacheIndex instanceof SortedIndex)) {
+      throw new IndexNotFoundException();
+    }
+    final List<Object> results = new ArrayList<>();
+    final Set<Object> remaining;
+    if (query.getCriteria() == null) {
+      remaining = null;
+    } else {
+      remaining = new HashSet<>(keyIds != null ? keyIds.getKeys(executeIds(query.getCriteria()))
+          : execute(query.getCriteria()));
+      remaining.remove(null);
+      if (remaining.isEmpty()) {
+        return results;
+      }
+    }
+    final Set<Object> visited = remaining == null ? new HashSet<>() : null;
+    final int keyLimit = getKeyLimit(query);
+    ((SortedIndex) cacheIndex).scan(query.isDescending(), key -> {
+      if (remaining == null ? visited.add(key) : remaining.remove(key)) {
+        results.add(key);
+      }
+      return results.size() < keyLimit && (remaining == null || !remaining.isEmpty());
+    });
+    return results;
+  }
+
+  /**
+   * Gets the number of keys enough for the offset and the limit of the query. The keys can't be
+   * limited if the values are to be filtered.
+   *
+   * @param query the query
+   * @return the key limit
+   */
+  protected int getKeyLimit(final Query query) {
+    if (query.getFilter() != null) {
+      return Integer.MAX_VALUE;
+    }
+    return (int) Math.min((long) query.getOffset() + query.getLimit(), Integer.MAX_VALUE);
+  }
+
+  /**
+   * Executes the criteria on the ids of the keys. Criterias on bitmap indexes are met on their
+   * bitmaps, the keys met on the other indexes are converted to their ids, and the results are
+   * combined with bitmap operations.
+   *
+   * @param criteria the criteria
+   * @return the ids
+   */
+  protected CompressedBitmap executeIds(final Criteria criteria) {
+    if (criteria instanceof ArithmeticCriteria) {
+      final ArithmeticCriteria arithmeticCriteria = (ArithmeticCriteria) criteria;
+      final CacheIndex cacheIndex = indexes.get(arithmeticCriteria.getAttributeName());
+      if (cacheIndex == null) {
+        throw new IndexNotFoundException();
+      }
+      if (cacheIndex instanceof BitmapIndex) {
+        final CompressedBitmap ids = arithmeticCriteria.meetsIds((BitmapIndex) cacheIndex);
+        if (ids != null) {
+          return ids;
+        }
+      }
+      return keyIds.getIds(arithmeticCriteria.meets(cacheIndex));
+    } else if (criteria instanceof AndCriteria) {
+      final Criteria[] criterias = ((AndCriteria) criteria).getCriterias().clone();
+      Arrays.sort(criterias, Comparator.comparingInt(this::estimateCost));
+      CompressedBitmap results = null;
+      for (final Criteria innerCriteria : criterias) {
+        final CompressedBitmap result = executeIds(innerCriteria);
+        results = results == null ? result : CompressedBitmap.and(results, result);
+        if (results.isEmpty()) {
+          break;
+        }
+      }
+      return results == null ? new CompressedBitmap() : results;
+    } else if (criteria instanceof OrCriteria) {
+      final CompressedBitmap results = new CompressedBitmap();
+      for (final Criteria innerCriteria : ((OrCriteria) criteria).getCriterias()) {
+        results.addAll(executeIds(innerCriteria));
+      }
+      return results;
+    } else {
+      final DiffCriteria diffCriteria = (DiffCriteria) criteria;
+      final CompressedBitmap leftResult = executeIds(diffCriteria.getLeftCriteria());
+      if (leftResult.isEmpty()) {
+        return leftResult;
+      }
+      return CompressedBitmap.andNot(leftResult, executeIds(diffCriteria.getRightCriteria()));
+    }
+  }
+
   /**
    * Execute.
    *
@@ -138,48 +599,115 @@ public class DefaultIndexHandler<K, V> implements IndexHandler<K, V> {
   }
 
   /**
-   * Execute and.
+   * Execute arithmetic up to the limit. Range criterias on sorted indexes stop scanning the index
+   * as soon as the limit is reached rather than meeting every key and cutting them.
+   *
+   * @param arithmeticCriteria the criteria
+   * @param limit the maximum number of keys to return
+   * @return the list
+   */
+  protected List<Object> executeArithmetic(final ArithmeticCriteria arithmeticCriteria,
+      final int limit) {
+    final CacheIndex cacheIndex = indexes.get(arithmeticCriteria.getAttributeName());
+    if (cacheIndex == null) {
+      throw new IndexNotFoundException();
+    }
+    return arithmeticCriteria.meets(cacheIndex, limit);
+  }
+
+  /**
+   * Execute and. The inner criterias are executed from the cheapest to the most expensive one, each
+   * result is intersected with the results so far by probing the larger of them with the smaller
+   * one, and the execution stops as soon as the intersection is empty.
    *
    * @param andCriteria the criteria
    * @return the list
    */
   protected List<Object> executeAnd(final AndCriteria andCriteria) {
-    List<Object> results = new ArrayList<Object>();
-    for (final Criteria innerCriteria : andCriteria.getCriterias()) {
-      List<Object> result = execute(innerCriteria);
-      results = getObjects(results, result);
+    final Criteria[] criterias = andCriteria.getCriterias().clone();
+    Arrays.sort(criterias, Comparator.comparingInt(this::estimateCost));
+    Set<Object> results = null;
+    for (final Criteria innerCriteria : criterias) {
+      final List<Object> result = execute(innerCriteria);
+      results = results == null ? new HashSet<>(result) : intersect(results, result);
+      if (results.isEmpty()) {
+        break;
+      }
     }
-    return results;
+    return results == null ? new ArrayList<>() : new ArrayList<>(results);
   }
 
-  private List<Object> getObjects(List<Object> results, List<Object> result) {
-    if (results.size() == 0) {
-      results.addAll(result);
-    } else {
-      final List<Object> mergedResults = new ArrayList<>(results.size());
+  /**
+   * Intersects the results with the result.
+   *
+   * @param results the results so far
+   * @param result the result
+   * @return the intersection
+   */
+  private static Set<Object> intersect(final Set<Object> results, final List<Object> result) {
+    if (result.size() <= results.size()) {
+      final Set<Object> intersection = new HashSet<>();
       for (final Object object : result) {
         if (results.contains(object)) {
-          mergedResults.add(object);
+          intersection.add(object);
         }
       }
-      results = mergedResults;
+      return intersection;
     }
+    results.retainAll(new HashSet<>(result));
     return results;
   }
 
   /**
-   * Execute diff.
+   * Estimates the cost of executing the criteria, which is lower for criterias that are expected to
+   * match fewer keys. Unique equality is the cheapest, then equality, between and the other ranges.
+   *
+   * @param criteria the criteria
+   * @return the estimated cost
+   */
+  protected int estimateCost(final Criteria criteria) {
+    if (criteria instanceof ETCriteria) {
+      final CacheIndex cacheIndex = indexes.get(((ETCriteria) criteria).getAttributeName());
+      return cacheIndex instanceof UniqueHashIndex ? UNIQUE_EQUALITY_COST : EQUALITY_COST;
+    } else if (criteria instanceof BetweenCriteria) {
+      return BETWEEN_COST;
+    } else if (criteria instanceof AndCriteria) {
+      int cost = RANGE_COST;
+      for (final Criteria innerCriteria : ((AndCriteria) criteria).getCriterias()) {
+        cost = Math.min(cost, estimateCost(innerCriteria));
+      }
+      return cost;
+    } else if (criteria instanceof OrCriteria) {
+      int cost = 0;
+      for (final Criteria innerCriteria : ((OrCriteria) criteria).getCriterias()) {
+        cost = Math.max(cost, estimateCost(innerCriteria));
+      }
+      return cost;
+    } else if (criteria instanceof DiffCriteria) {
+      return estimateCost(((DiffCriteria) criteria).getLeftCriteria());
+    }
+    return RANGE_COST;
+  }
+
+  /**
+   * Execute diff. The right criteria isn't executed if the left one matches nothing.
    *
    * @param diffCriteria the criteria
    * @return the list
    */
   protected List<Object> executeDiff(final DiffCriteria diffCriteria) {
     final List<Object> leftResult = execute(diffCriteria.getLeftCriteria());
-    final List<Object> rightResult = execute(diffCriteria.getRightCriteria());
-    for (final Object object : rightResult) {
-      leftResult.remove(object);
+    if (leftResult.isEmpty()) {
+      return new ArrayList<>();
     }
-    return leftResult;
+    final Set<Object> rightResult = new HashSet<>(execute(diffCriteria.getRightCriteria()));
+    final List<Object> results = new ArrayList<>(leftResult.size());
+    for (final Object object : leftResult) {
+      if (!rightResult.contains(object)) {
+        results.add(object);
+      }
+    }
+    return results;
   }
 
   /**
@@ -197,4 +725,57 @@ public class DefaultIndexHandler<K, V> implements IndexHandler<K, V> {
     return new ArrayList<>(results);
   }
 
+  /**
+   * The Class CachedResult is the result of a query along with the modification counters of the
+   * indexes it was met on, read before the query was executed.
+   */
+  private final class CachedResult {
+
+    /**
+     * The modification counters.
+     */
+    private final AtomicLong[] counters;
+
+    /**
+     * The values of the modification counters.
+     */
+    private final long[] versions;
+
+    /**
+     * The keys.
+     */
+    private List<?> keys;
+
+    /**
+     * Instantiates a new cached result reading the modification counters of the indexes of the
+     * attributes.
+     *
+     * @param attributeNames the attribute names
+     */
+    CachedResult(final Set<String> attributeNames) {
+      counters = new AtomicLong[attributeNames.size()];
+      versions = new long[attributeNames.size()];
+      int i = 0;
+      for (final String attributeName : attributeNames) {
+        counters[i] = modifications.get(attributeName);
+        versions[i] = counters[i] == null ? 0 : counters[i].get();
+        i++;
+      }
+    }
+
+    /**
+     * Checks if none of the indexes the result was met on is modified since.
+     *
+     * @return true, if the result is current
+     */
+    boolean isCurrent() {
+      for (int i = 0; i < counters.length; i++) {
+        if (counters[i] == null || counters[i].get() != versions[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
 }
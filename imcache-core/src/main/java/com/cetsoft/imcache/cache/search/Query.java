@@ -53,4 +53,82 @@ public interface Query {
    * @return the query
    */
   Query setFilter(Filter filter);
+
+  /**
+   * Gets the maximum number of results, {@link Integer#MAX_VALUE} if the results aren't limited.
+   *
+   * @return the limit
+   */
+  int getLimit();
+
+  /**
+   * Sets the maximum number of results.
+   *
+   * @param limit the limit
+   * @return the query
+   */
+  Query setLimit(int limit);
+
+  /**
+   * Gets the number of results to skip.
+   *
+   * @return the offset
+   */
+  int getOffset();
+
+  /**
+   * Sets the number of results to skip.
+   *
+   * @param offset the offset
+   * @return the query
+   */
+  Query setOffset(int offset);
+
+  /**
+   * Gets the attribute the results are ordered by, null if the results aren't ordered.
+   *
+   * @return the attribute name
+   */
+  String getOrderBy();
+
+  /**
+   * Checks if the results are in descending order.
+   *
+   * @return true, if the results are in descending order
+   */
+  boolean isDescending();
+
+  /**
+   * Orders the results by the given attribute in ascending order. The attribute must have a range
+   * index.
+   *
+   * @param attributeName the attribute name
+   * @return the query
+   */
+  Query orderBy(String attributeName);
+
+  /**
+   * Orders the results by the given attribute in descending order. The attribute must have a range
+   * index.
+   *
+   * @param attributeName the attribute name
+   * @return the query
+   */
+  Query orderByDescending(String attributeName);
+
+  /**
+   * Checks if the values of the results are fetched and filtered in parallel.
+   *
+   * @return true, if the query is executed in parallel
+   */
+  boolean isParallel();
+
+  /**
+   * Sets whether the values of the results are fetched and filtered in parallel on the common
+   * fork join pool, which pays off for queries matching many values of off heap caches.
+   *
+   * @param parallel whether the query is executed in parallel
+   * @return the query
+   */
+  Query setParallel(boolean parallel);
 }
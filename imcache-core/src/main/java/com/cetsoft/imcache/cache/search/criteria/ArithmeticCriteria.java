@@ -15,7 +15,10 @@
  */
 package com.cetsoft.imcache.cache.search.criteria;
 
+import com.cetsoft.imcache.cache.search.index.BitmapIndex;
 import com.cetsoft.imcache.cache.search.index.CacheIndex;
+import com.cetsoft.imcache.cache.search.index.CompressedBitmap;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -52,6 +55,15 @@ public abstract class ArithmeticCriteria extends LogicalCriteria {
     return attributeName;
   }
 
+  /**
+   * Gets the expected value.
+   *
+   * @return the expected value
+   */
+  public Object getValue() {
+    return value;
+  }
+
   /**
    * Meets the given criteria.
    *
@@ -60,4 +72,27 @@ public abstract class ArithmeticCriteria extends LogicalCriteria {
    */
   public abstract List<Object> meets(CacheIndex cacheIndex);
 
+  /**
+   * Meets the given criteria up to the limit. Range criterias stop scanning sorted indexes as soon
+   * as the limit is reached, the others cut the keys they meet.
+   *
+   * @param cacheIndex the cache index
+   * @param limit the maximum number of keys to return
+   * @return the list
+   */
+  public List<Object> meets(CacheIndex cacheIndex, int limit) {
+    final List<Object> result = meets(cacheIndex);
+    return result.size() > limit ? new ArrayList<Object>(result.subList(0, limit)) : result;
+  }
+
+  /**
+   * Meets the given criteria on the ids of a bitmap index.
+   *
+   * @param bitmapIndex the bitmap index
+   * @return the ids, or null if the criteria can only be met on keys
+   */
+  public CompressedBitmap meetsIds(BitmapIndex bitmapIndex) {
+    return null;
+  }
+
 }
@@ -15,7 +15,10 @@
  */
 package com.cetsoft.imcache.cache.search.criteria;
 
+import com.cetsoft.imcache.cache.search.index.BitmapIndex;
 import com.cetsoft.imcache.cache.search.index.CacheIndex;
+import com.cetsoft.imcache.cache.search.index.CompressedBitmap;
+import com.cetsoft.imcache.cache.search.index.SortedIndex;
 import java.util.List;
 
 /**
@@ -42,8 +45,31 @@ public class BetweenCriteria extends ArithmeticCriteria {
   }
 
 
+  /**
+   * Gets the upper bound.
+   *
+   * @return the upper bound
+   */
+  public Object getUpperBound() {
+    return upperBound;
+  }
+
+
   public List<Object> meets(CacheIndex cacheIndex) {
     return cacheIndex.between(value, upperBound);
   }
 
+
+  public List<Object> meets(CacheIndex cacheIndex, int limit) {
+    if (cacheIndex instanceof SortedIndex) {
+      return ((SortedIndex) cacheIndex).range(value, false, upperBound, false, limit);
+    }
+    return super.meets(cacheIndex, limit);
+  }
+
+
+  public CompressedBitmap meetsIds(BitmapIndex bitmapIndex) {
+    return bitmapIndex.betweenIds(value, upperBound);
+  }
+
 }
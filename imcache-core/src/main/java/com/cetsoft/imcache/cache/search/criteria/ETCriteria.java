@@ -15,7 +15,9 @@
  */
 package com.cetsoft.imcache.cache.search.criteria;
 
+import com.cetsoft.imcache.cache.search.index.BitmapIndex;
 import com.cetsoft.imcache.cache.search.index.CacheIndex;
+import com.cetsoft.imcache.cache.search.index.CompressedBitmap;
 import java.util.List;
 
 /**
@@ -38,4 +40,9 @@ public class ETCriteria extends ArithmeticCriteria {
     return cacheIndex.equalsTo(value);
   }
 
+
+  public CompressedBitmap meetsIds(BitmapIndex bitmapIndex) {
+    return bitmapIndex.equalsToIds(value);
+  }
+
 }
@@ -15,7 +15,10 @@
  */
 package com.cetsoft.imcache.cache.search.criteria;
 
+import com.cetsoft.imcache.cache.search.index.BitmapIndex;
 import com.cetsoft.imcache.cache.search.index.CacheIndex;
+import com.cetsoft.imcache.cache.search.index.CompressedBitmap;
+import com.cetsoft.imcache.cache.search.index.SortedIndex;
 import java.util.List;
 
 /**
@@ -38,4 +41,17 @@ public class GTETCriteria extends ArithmeticCriteria {
     return cacheIndex.greaterThanOrEqualsTo(value);
   }
 
+
+  public List<Object> meets(CacheIndex cacheIndex, int limit) {
+    if (cacheIndex instanceof SortedIndex) {
+      return ((SortedIndex) cacheIndex).range(value, true, null, false, limit);
+    }
+    return super.meets(cacheIndex, limit);
+  }
+
+
+  public CompressedBitmap meetsIds(BitmapIndex bitmapIndex) {
+    return bitmapIndex.greaterThanOrEqualsToIds(value);
+  }
+
 }
@@ -15,7 +15,6 @@
  */
 package com.cetsoft.imcache.cache.search.filter;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -48,11 +47,21 @@ public class AndFilter extends LogicalFilter {
 
 
   public List<Object> filter(final List<Object> objects) {
-    List<Object> results = new ArrayList<>();
+    List<Object> results = objects;
     for (final Filter filter : filters) {
-      results = filter.filter(objects);
+      results = filter.filter(results);
     }
     return results;
   }
 
+
+  public boolean matches(final Object object) {
+    for (final Filter filter : filters) {
+      if (!filter.matches(object)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
 }
@@ -32,7 +32,11 @@
  */
 package com.cetsoft.imcache.cache.search.filter;
 
-import static com.cetsoft.imcache.cache.util.ReflectionUtils.getFieldValue;
+import static com.cetsoft.imcache.cache.util.ReflectionUtils.fieldAccessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
 
 /**
  * The Class ArithmeticFilter.
@@ -47,6 +51,10 @@ public abstract class ArithmeticFilter extends LogicalFilter {
    * The attribute name.
    */
   private String attributeName;
+  /**
+   * The accessor of the attribute.
+   */
+  private final Function<Object, Object> attributeAccessor;
 
   /**
    * Instantiates a new equals to filter.
@@ -57,6 +65,7 @@ public abstract class ArithmeticFilter extends LogicalFilter {
   public ArithmeticFilter(final String attributeName, final Object value) {
     this.attributeName = attributeName;
     this.value = value;
+    this.attributeAccessor = fieldAccessor(attributeName);
   }
 
   /**
@@ -68,6 +77,15 @@ public abstract class ArithmeticFilter extends LogicalFilter {
     return attributeName;
   }
 
+  /**
+   * Gets the expected value.
+   *
+   * @return the expected value
+   */
+  public Object getValue() {
+    return value;
+  }
+
   /**
    * Gets the indexed key.
    *
@@ -75,7 +93,18 @@ public abstract class ArithmeticFilter extends LogicalFilter {
    * @return the indexed key
    */
   protected Object getAttributeValue(Object object) {
-    return getFieldValue(attributeName, object);
+    return attributeAccessor.apply(object);
+  }
+
+
+  public List<Object> filter(final List<Object> objects) {
+    final List<Object> result = new ArrayList<Object>(objects.size());
+    for (final Object object : objects) {
+      if (matches(object)) {
+        result.add(object);
+      }
+    }
+    return result;
   }
 
 }
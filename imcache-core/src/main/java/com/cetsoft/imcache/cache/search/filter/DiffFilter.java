@@ -66,4 +66,9 @@ public class DiffFilter extends LogicalFilter {
     return leftResult;
   }
 
+
+  public boolean matches(final Object object) {
+    return leftFilter.matches(object) && !rightFilter.matches(object);
+  }
+
 }
@@ -15,6 +15,7 @@
  */
 package com.cetsoft.imcache.cache.search.filter;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -53,4 +54,15 @@ public interface Filter {
    * @return the list
    */
   List<Object> filter(List<Object> objects);
+
+  /**
+   * Checks if the object meets the filter, so that objects can be filtered one by one. The
+   * built-in filters check the object directly, others filter a list of the object.
+   *
+   * @param object the object
+   * @return true, if the object meets the filter
+   */
+  default boolean matches(Object object) {
+    return !filter(Collections.singletonList(object)).isEmpty();
+  }
 }
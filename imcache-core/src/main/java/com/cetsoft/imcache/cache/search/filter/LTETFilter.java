@@ -15,9 +15,6 @@
  */
 package com.cetsoft.imcache.cache.search.filter;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * The Class LTETFilter is used to retrieve items less than or equals to the given value.
  */
@@ -35,15 +32,9 @@ public class LTETFilter extends ArithmeticFilter {
 
 
   @SuppressWarnings({"rawtypes", "unchecked"})
-  public List<Object> filter(final List<Object> objects) {
-    final List<Object> result = new ArrayList<Object>();
-    for (final Object object : objects) {
-      final Comparable objectValue = (Comparable) getAttributeValue(object);
-      if (objectValue.compareTo(value) <= 0) {
-        result.add(object);
-      }
-    }
-    return result;
+  public boolean matches(final Object object) {
+    final Comparable objectValue = (Comparable) getAttributeValue(object);
+    return objectValue.compareTo(value) <= 0;
   }
 
 }
@@ -56,4 +56,14 @@ public class OrFilter extends LogicalFilter {
     }
     return new ArrayList<>(results);
   }
+
+
+  public boolean matches(final Object object) {
+    for (final Filter filter : filters) {
+      if (filter.matches(object)) {
+        return true;
+      }
+    }
+    return false;
+  }
 }
@@ -0,0 +1,35 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache.search.index;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Class BitmapHashIndex is type of bitmap index where hash indexed value can have one or more
+ * corresponding values.
+ */
+public class BitmapHashIndex extends BitmapIndex {
+
+  /**
+   * Instantiates a new bitmap hash index.
+   *
+   * @param keyIds the key ids
+   */
+  public BitmapHashIndex(final KeyIds keyIds) {
+    super(keyIds);
+    this.map = new ConcurrentHashMap<>();
+  }
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache.search.index;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Class BitmapIndex is type of index where indexed value can have one or more corresponding
+ * values, which are stored as the ids given to them by {@link KeyIds} in compressed bitmaps. The
+ * methods returning ids return bitmaps of their own, which can be combined without copying.
+ */
+public abstract class BitmapIndex extends CacheIndexBase {
+
+  /**
+   * The key ids.
+   */
+  protected final KeyIds keyIds;
+
+  /**
+   * The map.
+   */
+  protected Map<Object, CompressedBitmap> map;
+
+  /**
+   * Instantiates a new bitmap index.
+   *
+   * @param keyIds the key ids
+   */
+  protected BitmapIndex(final KeyIds keyIds) {
+    this.keyIds = keyIds;
+  }
+
+  /**
+   * Puts index on indexedKey. The key must have acquired its id.
+   *
+   * @param indexedKey the indexed key
+   * @param key the key
+   */
+  public void put(final Object indexedKey, final Object key) {
+    final int id = keyIds.getId(key);
+    if (id < 0) {
+      throw new IllegalStateException("No id is acquired for " + key);
+    }
+    while (true) {
+      final CompressedBitmap bitmap = map.computeIfAbsent(indexedKey,
+          k -> new CompressedBitmap());
+      synchronized (bitmap) {
+        if (map.get(indexedKey) == bitmap) {
+          bitmap.add(id);
+          return;
+        }
+      }
+    }
+  }
+
+  public void remove(final Object indexedKey, final Object key) {
+    final int id = keyIds.getId(key);
+    final CompressedBitmap bitmap = map.get(indexedKey);
+    if (id < 0 || bitmap == null) {
+      return;
+    }
+    synchronized (bitmap) {
+      bitmap.remove(id);
+      if (bitmap.isEmpty()) {
+        map.remove(indexedKey, bitmap);
+      }
+    }
+  }
+
+  public List<Object> equalsTo(final Object expectedValue) {
+    return keyIds.getKeys(equalsToIds(expectedValue));
+  }
+
+  /**
+   * Gets the ids of the keys whose indexed value equals to the expected value.
+   *
+   * @param expectedValue the expected value
+   * @return the ids
+   */
+  public CompressedBitmap equalsToIds(final Object expectedValue) {
+    final CompressedBitmap bitmap = map.get(expectedValue);
+    return bitmap == null ? new CompressedBitmap() : copy(bitmap);
+  }
+
+  /**
+   * Gets the ids of the keys whose indexed value is less than the value.
+   *
+   * @param value the value
+   * @return the ids
+   */
+  public CompressedBitmap lessThanIds(final Object value) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Gets the ids of the keys whose indexed value is less than or equals to the value.
+   *
+   * @param value the value
+   * @return the ids
+   */
+  public CompressedBitmap lessThanOrEqualsToIds(final Object value) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Gets the ids of the keys whose indexed value is greater than the value.
+   *
+   * @param value the value
+   * @return the ids
+   */
+  public CompressedBitmap greaterThanIds(final Object value) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Gets the ids of the keys whose indexed value is greater than or equals to the value.
+   *
+   * @param value the value
+   * @return the ids
+   */
+  public CompressedBitmap greaterThanOrEqualsToIds(final Object value) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Gets the ids of the keys whose indexed value is between the bounds.
+   *
+   * @param lowerBound the lower bound
+   * @param upperBound the upper bound
+   * @return the ids
+   */
+  public CompressedBitmap betweenIds(final Object lowerBound, final Object upperBound) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Copies the bitmap.
+   *
+   * @param bitmap the bitmap
+   * @return the copy
+   */
+  protected static CompressedBitmap copy(final CompressedBitmap bitmap) {
+    synchronized (bitmap) {
+      return bitmap.copy();
+    }
+  }
+
+  /**
+   * Unites the bitmaps.
+   *
+   * @param bitmaps the bitmaps
+   * @return the ids in any of the bitmaps
+   */
+  protected static CompressedBitmap union(final Iterable<CompressedBitmap> bitmaps) {
+    final CompressedBitmap result = new CompressedBitmap();
+    for (final CompressedBitmap bitmap : bitmaps) {
+      synchronized (bitmap) {
+        result.addAll(bitmap);
+      }
+    }
+    return result;
+  }
+}
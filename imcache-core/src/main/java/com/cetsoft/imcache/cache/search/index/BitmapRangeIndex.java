@@ -0,0 +1,146 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache.search.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+/**
+ * The Class BitmapRangeIndex is type of bitmap index where tree indexed value can have one or more
+ * corresponding values. Ranges are the unions of the bitmaps of a view of the tree, with the same
+ * bounds as {@link RangeIndex}.
+ */
+public class BitmapRangeIndex extends BitmapIndex implements SortedIndex {
+
+  /**
+   * Instantiates a new bitmap range index.
+   *
+   * @param keyIds the key ids
+   */
+  public BitmapRangeIndex(final KeyIds keyIds) {
+    super(keyIds);
+    this.map = new ConcurrentSkipListMap<>();
+  }
+
+  public List<Object> lessThan(final Object value) {
+    return keyIds.getKeys(lessThanIds(value));
+  }
+
+  public List<Object> lessThanOrEqualsTo(final Object value) {
+    return keyIds.getKeys(lessThanOrEqualsToIds(value));
+  }
+
+  public List<Object> greaterThan(final Object value) {
+    return keyIds.getKeys(greaterThanIds(value));
+  }
+
+  public List<Object> greaterThanOrEqualsTo(final Object value) {
+    return keyIds.getKeys(greaterThanOrEqualsToIds(value));
+  }
+
+  public List<Object> between(final Object lowerBound, final Object upperBound) {
+    return keyIds.getKeys(betweenIds(lowerBound, upperBound));
+  }
+
+  @Override
+  public CompressedBitmap lessThanIds(final Object value) {
+    return union(getMap().headMap(value, false).values());
+  }
+
+  @Override
+  public CompressedBitmap lessThanOrEqualsToIds(final Object value) {
+    return union(getMap().headMap(value, true).values());
+  }
+
+  @Override
+  public CompressedBitmap greaterThanIds(final Object value) {
+    return union(getMap().tailMap(value, false).values());
+  }
+
+  @Override
+  public CompressedBitmap greaterThanOrEqualsToIds(final Object value) {
+    return union(getMap().tailMap(value, true).values());
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public CompressedBitmap betweenIds(final Object lowerBound, final Object upperBound) {
+    if (((Comparable<Object>) lowerBound).compareTo(upperBound) >= 0) {
+      return new CompressedBitmap();
+    }
+    return union(getMap().subMap(lowerBound, false, upperBound, false).values());
+  }
+
+  @SuppressWarnings("unchecked")
+  public List<Object> range(final Object lowerBound, final boolean lowerInclusive,
+      final Object upperBound, final boolean upperInclusive, final int limit) {
+    final List<Object> result = new ArrayList<>();
+    if (lowerBound != null && upperBound != null) {
+      final int comparison = ((Comparable<Object>) lowerBound).compareTo(upperBound);
+      if (comparison > 0 || comparison == 0 && !(lowerInclusive && upperInclusive)) {
+        return result;
+      }
+    }
+    NavigableMap<Object, CompressedBitmap> range = getMap();
+    if (lowerBound != null) {
+      range = range.tailMap(lowerBound, lowerInclusive);
+    }
+    if (upperBound != null) {
+      range = range.headMap(upperBound, upperInclusive);
+    }
+    for (final CompressedBitmap bitmap : range.values()) {
+      copy(bitmap).forEach(id -> {
+        final Object key = result.size() < limit ? keyIds.getKey(id) : null;
+        if (key != null) {
+          result.add(key);
+        }
+      });
+      if (result.size() >= limit) {
+        break;
+      }
+    }
+    return result;
+  }
+
+  public void scan(final boolean descending, final Predicate<Object> visitor) {
+    final NavigableMap<Object, CompressedBitmap> map =
+        descending ? getMap().descendingMap() : getMap();
+    final boolean[] stopped = new boolean[1];
+    for (final CompressedBitmap bitmap : map.values()) {
+      copy(bitmap).forEach(id -> {
+        final Object key = stopped[0] ? null : keyIds.getKey(id);
+        if (key != null && !visitor.test(key)) {
+          stopped[0] = true;
+        }
+      });
+      if (stopped[0]) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Gets the map.
+   *
+   * @return the map
+   */
+  public NavigableMap<Object, CompressedBitmap> getMap() {
+    return (NavigableMap<Object, CompressedBitmap>) this.map;
+  }
+}
@@ -0,0 +1,765 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache.search.index;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * The Class CompressedBitmap is a compressed set of non negative ints in the style of roaring
+ * bitmaps. The ints are split by their upper 16 bits into chunks, a chunk with at most 4096 ints
+ * is a sorted array of their lower 16 bits and a denser chunk is a bitmap of 1024 words, so a
+ * posting takes about 2 bytes in a sparse chunk and at most a bit in a dense one. Intersections,
+ * unions and differences work chunk by chunk on arrays and words.
+ *
+ * <p>The bitmap isn't thread safe.
+ */
+public final class CompressedBitmap {
+
+  /**
+   * The Constant MAX_ARRAY_SIZE is the number of ints a chunk holds as an array at most.
+   */
+  static final int MAX_ARRAY_SIZE = 4096;
+
+  /**
+   * The Constant WORDS is the number of words of a bitmap chunk.
+   */
+  private static final int WORDS = 1024;
+
+  /**
+   * The Constant INITIAL_CHUNKS.
+   */
+  private static final int INITIAL_CHUNKS = 4;
+
+  /**
+   * The upper 16 bits of the chunks in ascending order.
+   */
+  private char[] keys;
+
+  /**
+   * The chunks.
+   */
+  private Chunk[] chunks;
+
+  /**
+   * The number of chunks.
+   */
+  private int size;
+
+  /**
+   * Instantiates a new empty compressed bitmap.
+   */
+  public CompressedBitmap() {
+    this(INITIAL_CHUNKS);
+  }
+
+  /**
+   * Instantiates a new empty compressed bitmap.
+   *
+   * @param capacity the number of chunks
+   */
+  private CompressedBitmap(final int capacity) {
+    keys = new char[capacity];
+    chunks = new Chunk[capacity];
+  }
+
+  /**
+   * Adds the value.
+   *
+   * @param value the non negative value
+   * @return true, if the value wasn't in the bitmap
+   */
+  public boolean add(final int value) {
+    final char key = high(value);
+    int index = indexOf(key);
+    if (index < 0) {
+      index = -index - 1;
+      insert(index, key, new ArrayChunk());
+    }
+    final Chunk chunk = chunks[index];
+    final int cardinality = chunk.cardinality();
+    chunks[index] = chunk.add(low(value));
+    return chunks[index].cardinality() != cardinality;
+  }
+
+  /**
+   * Removes the value.
+   *
+   * @param value the value
+   * @return true, if the value was in the bitmap
+   */
+  public boolean remove(final int value) {
+    final int index = indexOf(high(value));
+    if (index < 0) {
+      return false;
+    }
+    final Chunk chunk = chunks[index];
+    final int cardinality = chunk.cardinality();
+    final Chunk result = chunk.remove(low(value));
+    if (result.cardinality() == 0) {
+      delete(index);
+    } else {
+      chunks[index] = result;
+    }
+    return result.cardinality() != cardinality;
+  }
+
+  /**
+   * Adds the values of the other bitmap.
+   *
+   * @param other the other bitmap
+   */
+  public void addAll(final CompressedBitmap other) {
+    for (int i = 0; i < other.size; i++) {
+      final int index = indexOf(other.keys[i]);
+      if (index < 0) {
+        insert(-index - 1, other.keys[i], other.chunks[i].copy());
+      } else {
+        chunks[index] = chunks[index].or(other.chunks[i]);
+      }
+    }
+  }
+
+  /**
+   * Checks if the value is in the bitmap.
+   *
+   * @param value the value
+   * @return true, if the value is in the bitmap
+   */
+  public boolean contains(final int value) {
+    final int index = indexOf(high(value));
+    return index >= 0 && chunks[index].contains(low(value));
+  }
+
+  /**
+   * Gets the number of values.
+   *
+   * @return the cardinality
+   */
+  public int getCardinality() {
+    int cardinality = 0;
+    for (int i = 0; i < size; i++) {
+      cardinality += chunks[i].cardinality();
+    }
+    return cardinality;
+  }
+
+  /**
+   * Checks if the bitmap is empty.
+   *
+   * @return true, if empty
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Performs the action for each value in ascending order.
+   *
+   * @param action the action
+   */
+  public void forEach(final IntConsumer action) {
+    for (int i = 0; i < size; i++) {
+      chunks[i].forEach(keys[i] << 16, action);
+    }
+  }
+
+  /**
+   * Copies the bitmap.
+   *
+   * @return the copy
+   */
+  public CompressedBitmap copy() {
+    final CompressedBitmap copy = new CompressedBitmap(Math.max(size, INITIAL_CHUNKS));
+    for (int i = 0; i < size; i++) {
+      copy.keys[i] = keys[i];
+      copy.chunks[i] = chunks[i].copy();
+    }
+    copy.size = size;
+    return copy;
+  }
+
+  /**
+   * Intersects the bitmaps.
+   *
+   * @param first the first bitmap
+   * @param second the second bitmap
+   * @return the values in both
+   */
+  public static CompressedBitmap and(final CompressedBitmap first,
+      final CompressedBitmap second) {
+    final CompressedBitmap result = new CompressedBitmap(
+        Math.max(Math.min(first.size, second.size), INITIAL_CHUNKS));
+    int i = 0;
+    int j = 0;
+    while (i < first.size && j < second.size) {
+      if (first.keys[i] < second.keys[j]) {
+        i++;
+      } else if (first.keys[i] > second.keys[j]) {
+        j++;
+      } else {
+        final Chunk chunk = first.chunks[i].and(second.chunks[j]);
+        if (chunk.cardinality() > 0) {
+          result.append(first.keys[i], chunk);
+        }
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Unites the bitmaps.
+   *
+   * @param first the first bitmap
+   * @param second the second bitmap
+   * @return the values in either
+   */
+  public static CompressedBitmap or(final CompressedBitmap first,
+      final CompressedBitmap second) {
+    final CompressedBitmap result = new CompressedBitmap(
+        Math.max(first.size + second.size, INITIAL_CHUNKS));
+    int i = 0;
+    int j = 0;
+    while (i < first.size || j < second.size) {
+      if (j == second.size || i < first.size && first.keys[i] < second.keys[j]) {
+        result.append(first.keys[i], first.chunks[i].copy());
+        i++;
+      } else if (i == first.size || first.keys[i] > second.keys[j]) {
+        result.append(second.keys[j], second.chunks[j].copy());
+        j++;
+      } else {
+        result.append(first.keys[i], first.chunks[i].or(second.chunks[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Subtracts the second bitmap from the first one.
+   *
+   * @param first the first bitmap
+   * @param second the second bitmap
+   * @return the values in the first bitmap but not in the second one
+   */
+  public static CompressedBitmap andNot(final CompressedBitmap first,
+      final CompressedBitmap second) {
+    final CompressedBitmap result = new CompressedBitmap(Math.max(first.size, INITIAL_CHUNKS));
+    int j = 0;
+    for (int i = 0; i < first.size; i++) {
+      while (j < second.size && second.keys[j] < first.keys[i]) {
+        j++;
+      }
+      final Chunk chunk = j < second.size && second.keys[j] == first.keys[i]
+          ? first.chunks[i].andNot(second.chunks[j]) : first.chunks[i].copy();
+      if (chunk.cardinality() > 0) {
+        result.append(first.keys[i], chunk);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(final Object object) {
+    if (this == object) {
+      return true;
+    }
+    if (!(object instanceof CompressedBitmap)) {
+      return false;
+    }
+    final CompressedBitmap other = (CompressedBitmap) object;
+    if (size != other.size) {
+      return false;
+    }
+    for (int i = 0; i < size; i++) {
+      if (keys[i] != other.keys[i] || !chunks[i].sameValues(other.chunks[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    final int[] hash = {size};
+    forEach(value -> hash[0] = 31 * hash[0] + value);
+    return hash[0];
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder builder = new StringBuilder("[");
+    forEach(value -> builder.append(builder.length() > 1 ? "," : "").append(value));
+    return builder.append(']').toString();
+  }
+
+  /**
+   * Finds the chunk of the key.
+   *
+   * @param key the key
+   * @return the index of the chunk, or -(insertion point) - 1 if there is none
+   */
+  private int indexOf(final char key) {
+    return Arrays.binarySearch(keys, 0, size, key);
+  }
+
+  /**
+   * Inserts the chunk.
+   *
+   * @param index the index
+   * @param key the key
+   * @param chunk the chunk
+   */
+  private void insert(final int index, final char key, final Chunk chunk) {
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, size * 2);
+      chunks = Arrays.copyOf(chunks, size * 2);
+    }
+    System.arraycopy(keys, index, keys, index + 1, size - index);
+    System.arraycopy(chunks, index, chunks, index + 1, size - index);
+    keys[index] = key;
+    chunks[index] = chunk;
+    size++;
+  }
+
+  /**
+   * Appends the chunk, whose key is greater than the keys of the others.
+   *
+   * @param key the key
+   * @param chunk the chunk
+   */
+  private void append(final char key, final Chunk chunk) {
+    insert(size, key, chunk);
+  }
+
+  /**
+   * Deletes the chunk.
+   *
+   * @param index the index
+   */
+  private void delete(final int index) {
+    System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+    System.arraycopy(chunks, index + 1, chunks, index, size - index - 1);
+    chunks[--size] = null;
+  }
+
+  /**
+   * Gets the upper 16 bits of the value.
+   *
+   * @param value the value
+   * @return the upper bits
+   */
+  private static char high(final int value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Negative value " + value);
+    }
+    return (char) (value >>> 16);
+  }
+
+  /**
+   * Gets the lower 16 bits of the value.
+   *
+   * @param value the value
+   * @return the lower bits
+   */
+  private static char low(final int value) {
+    return (char) value;
+  }
+
+  /**
+   * The Class Chunk holds the lower 16 bits of the values sharing their upper bits. Operations
+   * return the chunk to be kept, which is a different one when the representation changes.
+   */
+  private abstract static class Chunk {
+
+    /**
+     * Gets the number of values.
+     *
+     * @return the cardinality
+     */
+    abstract int cardinality();
+
+    /**
+     * Adds the value.
+     *
+     * @param value the value
+     * @return the chunk holding the values
+     */
+    abstract Chunk add(char value);
+
+    /**
+     * Removes the value.
+     *
+     * @param value the value
+     * @return the chunk holding the values
+     */
+    abstract Chunk remove(char value);
+
+    /**
+     * Checks if the value is in the chunk.
+     *
+     * @param value the value
+     * @return true, if the value is in the chunk
+     */
+    abstract boolean contains(char value);
+
+    /**
+     * Performs the action for each value in ascending order.
+     *
+     * @param high the upper bits of the values
+     * @param action the action
+     */
+    abstract void forEach(int high, IntConsumer action);
+
+    /**
+     * Copies the chunk.
+     *
+     * @return the copy
+     */
+    abstract Chunk copy();
+
+    /**
+     * Converts the chunk to a bitmap chunk.
+     *
+     * @return the bitmap chunk, a new one if this isn't a bitmap chunk
+     */
+    abstract BitmapChunk toBitmap();
+
+    /**
+     * Intersects the chunks.
+     *
+     * @param other the other chunk
+     * @return the values in both
+     */
+    Chunk and(final Chunk other) {
+      if (this instanceof BitmapChunk && other instanceof BitmapChunk) {
+        final long[] words = ((BitmapChunk) this).words.clone();
+        final long[] otherWords = ((BitmapChunk) other).words;
+        for (int i = 0; i < WORDS; i++) {
+          words[i] &= otherWords[i];
+        }
+        return new BitmapChunk(words).compact();
+      }
+      final ArrayChunk array = (ArrayChunk) (this instanceof ArrayChunk ? this : other);
+      final Chunk probed = array == this ? other : this;
+      final ArrayChunk result = new ArrayChunk(array.cardinality);
+      for (int i = 0; i < array.cardinality; i++) {
+        if (probed.contains(array.values[i])) {
+          result.values[result.cardinality++] = array.values[i];
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Unites the chunks.
+     *
+     * @param other the other chunk
+     * @return the values in either
+     */
+    Chunk or(final Chunk other) {
+      if (this instanceof ArrayChunk && other instanceof ArrayChunk
+          && cardinality() + other.cardinality() <= MAX_ARRAY_SIZE) {
+        final ArrayChunk first = (ArrayChunk) this;
+        final ArrayChunk second = (ArrayChunk) other;
+        final ArrayChunk result = new ArrayChunk(first.cardinality + second.cardinality);
+        int i = 0;
+        int j = 0;
+        while (i < first.cardinality || j < second.cardinality) {
+          final char value;
+          if (j == second.cardinality
+              || i < first.cardinality && first.values[i] < second.values[j]) {
+            value = first.values[i++];
+          } else if (i == first.cardinality || first.values[i] > second.values[j]) {
+            value = second.values[j++];
+          } else {
+            value = first.values[i++];
+            j++;
+          }
+          result.values[result.cardinality++] = value;
+        }
+        return result;
+      }
+      final BitmapChunk result = this instanceof BitmapChunk ? (BitmapChunk) copy() : toBitmap();
+      if (other instanceof BitmapChunk) {
+        final long[] otherWords = ((BitmapChunk) other).words;
+        int cardinality = 0;
+        for (int i = 0; i < WORDS; i++) {
+          result.words[i] |= otherWords[i];
+          cardinality += Long.bitCount(result.words[i]);
+        }
+        result.cardinality = cardinality;
+      } else {
+        final ArrayChunk array = (ArrayChunk) other;
+        for (int i = 0; i < array.cardinality; i++) {
+          result.add(array.values[i]);
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Subtracts the other chunk from this one.
+     *
+     * @param other the other chunk
+     * @return the values in this chunk but not in the other one
+     */
+    Chunk andNot(final Chunk other) {
+      if (this instanceof ArrayChunk) {
+        final ArrayChunk array = (ArrayChunk) this;
+        final ArrayChunk result = new ArrayChunk(array.cardinality);
+        for (int i = 0; i < array.cardinality; i++) {
+          if (!other.contains(array.values[i])) {
+            result.values[result.cardinality++] = array.values[i];
+          }
+        }
+        return result;
+      }
+      final BitmapChunk result = (BitmapChunk) copy();
+      if (other instanceof BitmapChunk) {
+        final long[] otherWords = ((BitmapChunk) other).words;
+        int cardinality = 0;
+        for (int i = 0; i < WORDS; i++) {
+          result.words[i] &= ~otherWords[i];
+          cardinality += Long.bitCount(result.words[i]);
+        }
+        result.cardinality = cardinality;
+      } else {
+        final ArrayChunk array = (ArrayChunk) other;
+        for (int i = 0; i < array.cardinality; i++) {
+          result.clear(array.values[i]);
+        }
+      }
+      return result.compact();
+    }
+
+    /**
+     * Checks if the chunks have the same values.
+     *
+     * @param other the other chunk
+     * @return true, if they have the same values
+     */
+    boolean sameValues(final Chunk other) {
+      if (cardinality() != other.cardinality()) {
+        return false;
+      }
+      return Arrays.equals(toBitmap().words, other.toBitmap().words);
+    }
+  }
+
+  /**
+   * The Class ArrayChunk holds the values in a sorted array.
+   */
+  private static final class ArrayChunk extends Chunk {
+
+    /**
+     * The values, the first cardinality of them are used.
+     */
+    char[] values;
+
+    /**
+     * The cardinality.
+     */
+    int cardinality;
+
+    /**
+     * Instantiates a new empty array chunk.
+     */
+    ArrayChunk() {
+      this(1);
+    }
+
+    /**
+     * Instantiates a new empty array chunk.
+     *
+     * @param capacity the capacity
+     */
+    ArrayChunk(final int capacity) {
+      values = new char[capacity];
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    Chunk add(final char value) {
+      int index = Arrays.binarySearch(values, 0, cardinality, value);
+      if (index >= 0) {
+        return this;
+      }
+      if (cardinality == MAX_ARRAY_SIZE) {
+        return toBitmap().add(value);
+      }
+      index = -index - 1;
+      if (cardinality == values.length) {
+        values = Arrays.copyOf(values, Math.min(MAX_ARRAY_SIZE,
+            cardinality + (cardinality >> 1) + 1));
+      }
+      System.arraycopy(values, index, values, index + 1, cardinality - index);
+      values[index] = value;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Chunk remove(final char value) {
+      final int index = Arrays.binarySearch(values, 0, cardinality, value);
+      if (index >= 0) {
+        System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+        cardinality--;
+      }
+      return this;
+    }
+
+    @Override
+    boolean contains(final char value) {
+      return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+    }
+
+    @Override
+    void forEach(final int high, final IntConsumer action) {
+      for (int i = 0; i < cardinality; i++) {
+        action.accept(high | values[i]);
+      }
+    }
+
+    @Override
+    Chunk copy() {
+      final ArrayChunk copy = new ArrayChunk(Math.max(cardinality, 1));
+      System.arraycopy(values, 0, copy.values, 0, cardinality);
+      copy.cardinality = cardinality;
+      return copy;
+    }
+
+    @Override
+    BitmapChunk toBitmap() {
+      final BitmapChunk bitmap = new BitmapChunk(new long[WORDS]);
+      for (int i = 0; i < cardinality; i++) {
+        bitmap.add(values[i]);
+      }
+      return bitmap;
+    }
+  }
+
+  /**
+   * The Class BitmapChunk holds the values as bits of words.
+   */
+  private static final class BitmapChunk extends Chunk {
+
+    /**
+     * The words.
+     */
+    final long[] words;
+
+    /**
+     * The cardinality.
+     */
+    int cardinality;
+
+    /**
+     * Instantiates a new bitmap chunk.
+     *
+     * @param words the words
+     */
+    BitmapChunk(final long[] words) {
+      this.words = words;
+      for (final long word : words) {
+        cardinality += Long.bitCount(word);
+      }
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    Chunk add(final char value) {
+      final long bit = 1L << value;
+      final int index = value >>> 6;
+      if ((words[index] & bit) == 0) {
+        words[index] |= bit;
+        cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    Chunk remove(final char value) {
+      clear(value);
+      return compact();
+    }
+
+    /**
+     * Clears the bit of the value.
+     *
+     * @param value the value
+     */
+    void clear(final char value) {
+      final long bit = 1L << value;
+      final int index = value >>> 6;
+      if ((words[index] & bit) != 0) {
+        words[index] &= ~bit;
+        cardinality--;
+      }
+    }
+
+    @Override
+    boolean contains(final char value) {
+      return (words[value >>> 6] & 1L << value) != 0;
+    }
+
+    @Override
+    void forEach(final int high, final IntConsumer action) {
+      for (int i = 0; i < WORDS; i++) {
+        long word = words[i];
+        while (word != 0) {
+          action.accept(high | i << 6 | Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+    }
+
+    @Override
+    Chunk copy() {
+      return new BitmapChunk(words.clone());
+    }
+
+    @Override
+    BitmapChunk toBitmap() {
+      return this;
+    }
+
+    /**
+     * Converts the chunk to an array chunk if it is sparse enough.
+     *
+     * @return the chunk holding the values
+     */
+    Chunk compact() {
+      if (cardinality > MAX_ARRAY_SIZE) {
+        return this;
+      }
+      final ArrayChunk array = new ArrayChunk(Math.max(cardinality, 1));
+      forEach(0, value -> array.values[array.cardinality++] = (char) value);
+      return array;
+    }
+  }
+}
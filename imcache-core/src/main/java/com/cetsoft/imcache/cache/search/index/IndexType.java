@@ -33,5 +33,10 @@ public enum IndexType {
   /**
    * The range index.
    */
-  RANGE_INDEX
+  RANGE_INDEX,
+
+  /**
+   * The range index on numbers, kept as primitive longs.
+   */
+  NUMERIC_RANGE
 }
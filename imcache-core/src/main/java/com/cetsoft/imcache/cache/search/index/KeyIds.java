@@ -0,0 +1,226 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache.search.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Class KeyIds assigns dense int ids to the indexed keys, so that indexes can keep their
+ * postings in {@link CompressedBitmap}s. An id is acquired for each indexed value of a key and
+ * released when the value is removed from the indexes. Ids of released keys are reused, which keeps
+ * the ids dense and the bitmaps small.
+ */
+public class KeyIds {
+
+  /**
+   * The Constant INITIAL_CAPACITY.
+   */
+  private static final int INITIAL_CAPACITY = 64;
+
+  /**
+   * The ids of the keys.
+   */
+  private final Map<Object, KeyId> ids = new ConcurrentHashMap<>();
+
+  /**
+   * The keys by their ids.
+   */
+  private volatile Object[] keys = new Object[INITIAL_CAPACITY];
+
+  /**
+   * The released ids.
+   */
+  private int[] freeIds = new int[INITIAL_CAPACITY];
+
+  /**
+   * The number of released ids.
+   */
+  private int freeIdCount;
+
+  /**
+   * The next id never assigned.
+   */
+  private int nextId;
+
+  /**
+   * Acquires the id of the key, assigning one if the key has none.
+   *
+   * @param key the key
+   * @return the id
+   */
+  public int acquire(final Object key) {
+    return ids.compute(key, (k, keyId) -> {
+      if (keyId == null) {
+        return new KeyId(assign(k));
+      }
+      keyId.references++;
+      return keyId;
+    }).id;
+  }
+
+  /**
+   * Releases the id of the key, which can be assigned to another key once the key has released as
+   * many times as it acquired.
+   *
+   * @param key the key
+   */
+  public void release(final Object key) {
+    ids.computeIfPresent(key, (k, keyId) -> {
+      if (--keyId.references > 0) {
+        return keyId;
+      }
+      free(keyId.id);
+      return null;
+    });
+  }
+
+  /**
+   * Gets the id of the key.
+   *
+   * @param key the key
+   * @return the id, or -1 if the key has none
+   */
+  public int getId(final Object key) {
+    final KeyId keyId = ids.get(key);
+    return keyId == null ? -1 : keyId.id;
+  }
+
+  /**
+   * Gets the key of the id.
+   *
+   * @param id the id
+   * @return the key, or null if the id isn't assigned
+   */
+  public Object getKey(final int id) {
+    final Object[] keys = this.keys;
+    return id < keys.length ? keys[id] : null;
+  }
+
+  /**
+   * Gets the keys of the ids.
+   *
+   * @param bitmap the ids
+   * @return the keys
+   */
+  public List<Object> getKeys(final CompressedBitmap bitmap) {
+    final Object[] keys = this.keys;
+    final List<Object> result = new ArrayList<>(bitmap.getCardinality());
+    bitmap.forEach(id -> {
+      final Object key = id < keys.length ? keys[id] : null;
+      if (key != null) {
+        result.add(key);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Gets the ids of the keys. Keys without ids are skipped.
+   *
+   * @param keys the keys
+   * @return the ids
+   */
+  public CompressedBitmap getIds(final List<Object> keys) {
+    final CompressedBitmap bitmap = new CompressedBitmap();
+    for (final Object key : keys) {
+      final int id = key == null ? -1 : getId(key);
+      if (id >= 0) {
+        bitmap.add(id);
+      }
+    }
+    return bitmap;
+  }
+
+  /**
+   * Gets the number of keys with ids.
+   *
+   * @return the size
+   */
+  public int size() {
+    return ids.size();
+  }
+
+  /**
+   * Releases all ids.
+   */
+  public synchronized void clear() {
+    ids.clear();
+    keys = new Object[INITIAL_CAPACITY];
+    freeIdCount = 0;
+    nextId = 0;
+  }
+
+  /**
+   * Assigns an id to the key, reusing a released one if there is any.
+   *
+   * @param key the key
+   * @return the id
+   */
+  private synchronized int assign(final Object key) {
+    final int id = freeIdCount > 0 ? freeIds[--freeIdCount] : nextId++;
+    Object[] keys = this.keys;
+    if (id == keys.length) {
+      keys = Arrays.copyOf(keys, keys.length * 2);
+    }
+    keys[id] = key;
+    this.keys = keys;
+    return id;
+  }
+
+  /**
+   * Frees the id.
+   *
+   * @param id the id
+   */
+  private synchronized void free(final int id) {
+    final Object[] keys = this.keys;
+    keys[id] = null;
+    this.keys = keys;
+    if (freeIdCount == freeIds.length) {
+      freeIds = Arrays.copyOf(freeIds, freeIdCount * 2);
+    }
+    freeIds[freeIdCount++] = id;
+  }
+
+  /**
+   * The Class KeyId is the id of a key and the number of times it is acquired.
+   */
+  private static class KeyId {
+
+    /**
+     * The id.
+     */
+    final int id;
+
+    /**
+     * The number of times the id is acquired and not released.
+     */
+    int references = 1;
+
+    /**
+     * Instantiates a new key id.
+     *
+     * @param id the id
+     */
+    KeyId(final int id) {
+      this.id = id;
+    }
+  }
+}
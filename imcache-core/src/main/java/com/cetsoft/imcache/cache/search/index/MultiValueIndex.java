@@ -41,21 +41,27 @@ public abstract class MultiValueIndex extends CacheIndexBase {
 
 
   public void put(Object indexedKey, Object key) {
-    Set<Object> keyList = map.get(indexedKey);
-    if (keyList == null) {
-      lock.lock();
-      try {
-        keyList = map.get(indexedKey);
-        if (keyList == null) {
-          keyList = new HashSet<Object>(3);
-          map.put(indexedKey, keyList);
+    for (;;) {
+      Set<Object> keyList = map.get(indexedKey);
+      if (keyList == null) {
+        lock.lock();
+        try {
+          keyList = map.get(indexedKey);
+          if (keyList == null) {
+            keyList = new HashSet<Object>(3);
+            map.put(indexedKey, keyList);
+          }
+        } finally {
+          lock.unlock();
+        }
+      }
+      synchronized (keyList) {
+        // the set is detached from the map once it is emptied by a remove
+        if (map.get(indexedKey) == keyList) {
+          keyList.add(key);
+          return;
         }
-      } finally {
-        lock.unlock();
       }
-    }
-    synchronized (keyList) {
-      keyList.add(key);
     }
   }
 
@@ -70,7 +76,7 @@ public abstract class MultiValueIndex extends CacheIndexBase {
       if (keyList.size() == 0) {
         lock.lock();
         try {
-          map.remove(key);
+          map.remove(indexedKey);
         } finally {
           lock.unlock();
         }
@@ -0,0 +1,434 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache.search.index;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * The Class NumericRangeIndex is type of range index on numbers. Indexed values are kept as
+ * primitive longs in sorted blocks next to their keys, so ranges are read with binary searches and
+ * a linear scan of arrays instead of boxed skip list nodes. Integral values are kept as they are
+ * and floating point values are kept as longs ordered like the doubles they encode. The kind of the
+ * index is decided by the first value put to it. Ranges have the same bounds as
+ * {@link RangeIndex}.
+ */
+public class NumericRangeIndex extends CacheIndexBase implements SortedIndex {
+
+  /**
+   * The Constant BLOCK_SIZE.
+   */
+  static final int BLOCK_SIZE = 512;
+  /**
+   * The lock.
+   */
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  /**
+   * The blocks sorted by their values, never empty unless the index is empty.
+   */
+  private final List<Block> blocks = new ArrayList<>();
+  /**
+   * Whether the index is of floating point values, null until the first value is put.
+   */
+  private Boolean floating;
+
+
+  public void put(final Object indexedKey, final Object key) {
+    lock.writeLock().lock();
+    try {
+      if (floating == null) {
+        floating = isFloating(indexedKey);
+      }
+      final long value = encode(indexedKey);
+      if (blocks.isEmpty()) {
+        blocks.add(new Block());
+      }
+      final int blockIndex = findBlock(value, false);
+      final Block block = blocks.get(blockIndex);
+      block.insert(block.upperBound(value), value, key);
+      if (block.size == BLOCK_SIZE) {
+        blocks.add(blockIndex + 1, block.split());
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+
+  public void remove(final Object indexedKey, final Object key) {
+    lock.writeLock().lock();
+    try {
+      if (floating == null) {
+        return;
+      }
+      final long value = encode(indexedKey);
+      for (int i = findBlock(value, true); i < blocks.size(); i++) {
+        final Block block = blocks.get(i);
+        int position = block.lowerBound(value);
+        if (position == block.size) {
+          continue;
+        }
+        for (; position < block.size && block.values[position] == value; position++) {
+          if (block.keys[position].equals(key)) {
+            block.delete(position);
+            if (block.size == 0 && blocks.size() > 1) {
+              blocks.remove(i);
+            }
+            return;
+          }
+        }
+        if (position < block.size) {
+          return;
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+
+  public List<Object> equalsTo(final Object expectedValue) {
+    return range(expectedValue, true, expectedValue, true, RangeIndex.NO_LIMIT);
+  }
+
+
+  public List<Object> lessThan(final Object value) {
+    return range(null, false, value, false, RangeIndex.NO_LIMIT);
+  }
+
+
+  public List<Object> lessThanOrEqualsTo(final Object value) {
+    return range(null, false, value, true, RangeIndex.NO_LIMIT);
+  }
+
+
+  public List<Object> greaterThan(final Object value) {
+    return range(value, false, null, false, RangeIndex.NO_LIMIT);
+  }
+
+
+  public List<Object> greaterThanOrEqualsTo(final Object value) {
+    return range(value, true, null, false, RangeIndex.NO_LIMIT);
+  }
+
+
+  public List<Object> between(final Object lowerBound, final Object upperBound) {
+    return range(lowerBound, false, upperBound, false, RangeIndex.NO_LIMIT);
+  }
+
+  /**
+   * Returns the keys whose indexed values are within the given bounds, in the order of the indexed
+   * values. The scan stops as soon as the limit is reached.
+   *
+   * @param lowerBound the lower bound, null if the range has no lower bound
+   * @param lowerInclusive whether the lower bound is included
+   * @param upperBound the upper bound, null if the range has no upper bound
+   * @param upperInclusive whether the upper bound is included
+   * @param limit the maximum number of keys to return
+   * @return the keys
+   */
+  public List<Object> range(final Object lowerBound, final boolean lowerInclusive,
+      final Object upperBound, final boolean upperInclusive, final int limit) {
+    lock.readLock().lock();
+    try {
+      if (floating == null) {
+        return new ArrayList<>(0);
+      }
+      long low = Long.MIN_VALUE;
+      if (lowerBound != null) {
+        if (isFraction(lowerBound)) {
+          low = (long) Math.floor(((Number) lowerBound).doubleValue()) + 1;
+        } else {
+          low = encodeBound(lowerBound);
+          if (!lowerInclusive) {
+            if (low == Long.MAX_VALUE) {
+              return new ArrayList<>(0);
+            }
+            low++;
+          }
+        }
+      }
+      long high = Long.MAX_VALUE;
+      if (upperBound != null) {
+        if (isFraction(upperBound)) {
+          high = (long) Math.floor(((Number) upperBound).doubleValue());
+        } else {
+          high = encodeBound(upperBound);
+          if (!upperInclusive) {
+            if (high == Long.MIN_VALUE) {
+              return new ArrayList<>(0);
+            }
+            high--;
+          }
+        }
+      }
+      return collect(low, high, limit);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+
+  public void scan(final boolean descending, final Predicate<Object> visitor) {
+    lock.readLock().lock();
+    try {
+      if (descending) {
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+          final Block block = blocks.get(i);
+          for (int position = block.size - 1; position >= 0; position--) {
+            if (!visitor.test(block.keys[position])) {
+              return;
+            }
+          }
+        }
+      } else {
+        for (final Block block : blocks) {
+          for (int position = 0; position < block.size; position++) {
+            if (!visitor.test(block.keys[position])) {
+              return;
+            }
+          }
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Collects the keys of the values within the given inclusive bounds up to the limit.
+   *
+   * @param low the lowest value
+   * @param high the highest value
+   * @param limit the maximum number of keys to return
+   * @return the keys
+   */
+  private List<Object> collect(final long low, final long high, final int limit) {
+    final List<Object> result = new ArrayList<>();
+    if (low > high || blocks.isEmpty()) {
+      return result;
+    }
+    final Set<Object> resultSet = new HashSet<>();
+    for (int i = findBlock(low, true); i < blocks.size(); i++) {
+      final Block block = blocks.get(i);
+      for (int position = block.lowerBound(low); position < block.size; position++) {
+        if (block.values[position] > high) {
+          return result;
+        }
+        if (resultSet.add(block.keys[position])) {
+          result.add(block.keys[position]);
+          if (result.size() >= limit) {
+            return result;
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Finds the block to search for the given value. The first block that can hold the value is
+   * found for searches and the last one for insertions.
+   *
+   * @param value the value
+   * @param first whether the first block holding the value is found
+   * @return the block index
+   */
+  private int findBlock(final long value, final boolean first) {
+    int low = 1;
+    int high = blocks.size() - 1;
+    int found = 0;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      final long firstValue = blocks.get(middle).values[0];
+      if (firstValue < value || !first && firstValue == value) {
+        found = middle;
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Checks if the value is a floating point number.
+   *
+   * @param value the value
+   * @return true, if the value is a floating point number
+   */
+  private static boolean isFloating(final Object value) {
+    return value instanceof Double || value instanceof Float || value instanceof BigDecimal;
+  }
+
+  /**
+   * Checks if the bound is a fraction queried on an index of integers.
+   *
+   * @param bound the bound
+   * @return true, if the bound is a fraction queried on an index of integers
+   */
+  private boolean isFraction(final Object bound) {
+    if (floating || !isFloating(bound)) {
+      return false;
+    }
+    final double value = ((Number) bound).doubleValue();
+    return value != Math.floor(value);
+  }
+
+  /**
+   * Encodes the bound of a range, accepting whole floating point bounds on an index of integers.
+   *
+   * @param bound the bound
+   * @return the long
+   */
+  private long encodeBound(final Object bound) {
+    if (!floating && isFloating(bound)) {
+      return ((Number) bound).longValue();
+    }
+    return encode(bound);
+  }
+
+  /**
+   * Encodes the number as a long of the kind of the index.
+   *
+   * @param value the value
+   * @return the long
+   */
+  private long encode(final Object value) {
+    if (!(value instanceof Number)) {
+      throw new IllegalArgumentException("numeric range index can't index " + value);
+    }
+    final Number number = (Number) value;
+    if (!floating) {
+      if (isFloating(value)) {
+        throw new IllegalArgumentException("numeric range index of integers can't index " + value);
+      }
+      return number.longValue();
+    }
+    final long bits = Double.doubleToLongBits(number.doubleValue() + 0.0d);
+    return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+  }
+
+  /**
+   * The Class Block holds a sorted run of the values and their keys.
+   */
+  private static final class Block {
+
+    /**
+     * The values.
+     */
+    private long[] values = new long[BLOCK_SIZE];
+    /**
+     * The keys.
+     */
+    private Object[] keys = new Object[BLOCK_SIZE];
+    /**
+     * The size.
+     */
+    private int size;
+
+    /**
+     * Returns the position of the first value greater than or equal to the given value.
+     *
+     * @param value the value
+     * @return the position
+     */
+    int lowerBound(final long value) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        final int middle = (low + high) >>> 1;
+        if (values[middle] < value) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * Returns the position of the first value greater than the given value.
+     *
+     * @param value the value
+     * @return the position
+     */
+    int upperBound(final long value) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        final int middle = (low + high) >>> 1;
+        if (values[middle] <= value) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * Inserts the value and the key at the given position.
+     *
+     * @param position the position
+     * @param value the value
+     * @param key the key
+     */
+    void insert(final int position, final long value, final Object key) {
+      System.arraycopy(values, position, values, position + 1, size - position);
+      System.arraycopy(keys, position, keys, position + 1, size - position);
+      values[position] = value;
+      keys[position] = key;
+      size++;
+    }
+
+    /**
+     * Deletes the value and the key at the given position.
+     *
+     * @param position the position
+     */
+    void delete(final int position) {
+      System.arraycopy(values, position + 1, values, position, size - position - 1);
+      System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+      size--;
+      keys[size] = null;
+    }
+
+    /**
+     * Moves the upper half of the block to a new block.
+     *
+     * @return the new block
+     */
+    Block split() {
+      final Block block = new Block();
+      final int half = size / 2;
+      block.size = size - half;
+      System.arraycopy(values, half, block.values, 0, block.size);
+      System.arraycopy(keys, half, block.keys, 0, block.size);
+      for (int i = half; i < size; i++) {
+        keys[i] = null;
+      }
+      size = half;
+      return block;
+    }
+  }
+}
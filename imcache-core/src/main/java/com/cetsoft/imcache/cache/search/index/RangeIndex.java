@@ -16,19 +16,23 @@
 package com.cetsoft.imcache.cache.search.index;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
 
 /**
  * The Class RangeIndex is type of index where tree indexed value can have one or more corresponding
  * values.
  */
-public class RangeIndex extends MultiValueIndex {
+public class RangeIndex extends MultiValueIndex implements SortedIndex {
+
+  /**
+   * The Constant NO_LIMIT.
+   */
+  public static final int NO_LIMIT = Integer.MAX_VALUE;
 
   /**
    * Instantiates a new range index.
@@ -39,98 +43,112 @@ public class RangeIndex extends MultiValueIndex {
 
 
   public List<Object> lessThan(Object value) {
-    NavigableMap<Object, Set<Object>> map = getMap();
-    return lower(map, map.lowerEntry(value));
+    return range(null, false, value, false, NO_LIMIT);
   }
 
 
   public List<Object> lessThanOrEqualsTo(Object value) {
-    List<Object> result = lessThan(value);
-    equalsTo(value, result);
-    return result;
-  }
-
-  /**
-   * Returns list of object which have associated key less than or equal to the current entry.
-   *
-   * @param map the map
-   * @param current the current
-   * @return the list of results
-   */
-  protected List<Object> lower(NavigableMap<Object, Set<Object>> map,
-      Entry<Object, Set<Object>> current) {
-    Set<Object> resultSet = new HashSet<Object>();
-    while (current != null) {
-      synchronized (current) {
-        resultSet.addAll(current.getValue());
-        current = map.lowerEntry(current.getKey());
-      }
-    }
-    return new ArrayList<Object>(resultSet);
+    return range(null, false, value, true, NO_LIMIT);
   }
 
 
   public List<Object> greaterThan(Object value) {
-    NavigableMap<Object, Set<Object>> map = getMap();
-    Entry<Object, Set<Object>> current = map.higherEntry(value);
-    return higher(map, current);
+    return range(value, false, null, false, NO_LIMIT);
   }
 
 
   public List<Object> greaterThanOrEqualsTo(Object value) {
-    List<Object> result = greaterThan(value);
-    equalsTo(value, result);
-    return result;
+    return range(value, true, null, false, NO_LIMIT);
+  }
+
+
+  public List<Object> between(Object lowerBound, Object upperBound) {
+    return range(lowerBound, false, upperBound, false, NO_LIMIT);
   }
 
   /**
-   * Equals to the given value.
+   * Returns the keys whose indexed values are within the given bounds, in the order of the indexed
+   * values. The range is read with a single scan of a view of the map and the scan stops as soon
+   * as the limit is reached.
    *
-   * @param value the value
-   * @param result the result
+   * @param lowerBound the lower bound, null if the range has no lower bound
+   * @param lowerInclusive whether the lower bound is included
+   * @param upperBound the upper bound, null if the range has no upper bound
+   * @param upperInclusive whether the upper bound is included
+   * @param limit the maximum number of keys to return
+   * @return the keys
    */
-  protected void equalsTo(Object value, List<Object> result) {
-    Collection<Object> results = map.get(value);
-    if (results != null) {
-      synchronized (results) {
-        result.addAll(results);
+  @SuppressWarnings("unchecked")
+  public List<Object> range(Object lowerBound, boolean lowerInclusive, Object upperBound,
+      boolean upperInclusive, int limit) {
+    if (lowerBound != null && upperBound != null) {
+      int comparison = ((Comparable<Object>) lowerBound).compareTo(upperBound);
+      if (comparison > 0 || comparison == 0 && !(lowerInclusive && upperInclusive)) {
+        return new ArrayList<Object>(0);
       }
     }
+    return collect(subMap(lowerBound, lowerInclusive, upperBound, upperInclusive), limit);
+  }
+
+  /**
+   * Gets the view of the map within the given bounds.
+   *
+   * @param lowerBound the lower bound, null if the range has no lower bound
+   * @param lowerInclusive whether the lower bound is included
+   * @param upperBound the upper bound, null if the range has no upper bound
+   * @param upperInclusive whether the upper bound is included
+   * @return the view of the map
+   */
+  protected NavigableMap<Object, Set<Object>> subMap(Object lowerBound, boolean lowerInclusive,
+      Object upperBound, boolean upperInclusive) {
+    NavigableMap<Object, Set<Object>> map = getMap();
+    if (lowerBound == null) {
+      return upperBound == null ? map : map.headMap(upperBound, upperInclusive);
+    } else if (upperBound == null) {
+      return map.tailMap(lowerBound, lowerInclusive);
+    }
+    return map.subMap(lowerBound, lowerInclusive, upperBound, upperInclusive);
   }
 
   /**
-   * Returns list of object which have associated key greater than or equal to the current entry..
+   * Collects the keys of the entries of the given view up to the limit.
    *
-   * @param map the map
-   * @param current the current
-   * @return the list of results
+   * @param range the view of the map
+   * @param limit the maximum number of keys to return
+   * @return the keys
    */
-  protected List<Object> higher(NavigableMap<Object, Set<Object>> map,
-      Entry<Object, Set<Object>> current) {
+  protected List<Object> collect(NavigableMap<Object, Set<Object>> range, int limit) {
     Set<Object> resultSet = new HashSet<Object>();
-    while (current != null) {
-      synchronized (current) {
-        resultSet.addAll(current.getValue());
-        current = map.higherEntry(current.getKey());
+    List<Object> result = new ArrayList<Object>();
+    for (Set<Object> keys : range.values()) {
+      synchronized (keys) {
+        for (Object key : keys) {
+          if (resultSet.add(key)) {
+            result.add(key);
+            if (result.size() >= limit) {
+              return result;
+            }
+          }
+        }
       }
     }
-    return new ArrayList<Object>(resultSet);
+    return result;
   }
 
 
-  @SuppressWarnings("unchecked")
-  public List<Object> between(Object lowerBound, Object upperBound) {
-    Set<Object> resultSet = new HashSet<Object>();
-    NavigableMap<Object, Set<Object>> map = getMap();
-    Entry<Object, Set<Object>> current = map.higherEntry(lowerBound);
-    while (current != null
-        && ((Comparable<Object>) current.getKey()).compareTo((Comparable<Object>) upperBound) < 0) {
-      synchronized (current) {
-        resultSet.addAll(current.getValue());
-        current = map.higherEntry(current.getKey());
+  public void scan(boolean descending, Predicate<Object> visitor) {
+    NavigableMap<Object, Set<Object>> map = descending ? getMap().descendingMap() : getMap();
+    for (Set<Object> keys : map.values()) {
+      Object[] snapshot;
+      synchronized (keys) {
+        snapshot = keys.toArray();
+      }
+      for (Object key : snapshot) {
+        if (!visitor.test(key)) {
+          return;
+        }
       }
     }
-    return new ArrayList<Object>(resultSet);
   }
 
   /**
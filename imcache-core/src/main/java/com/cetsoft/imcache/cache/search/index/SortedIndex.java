@@ -0,0 +1,48 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache.search.index;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * The Interface SortedIndex for indexes that can visit their keys in the order of the indexed
+ * values and read ranges of them up to a limit.
+ */
+public interface SortedIndex extends CacheIndex {
+
+  /**
+   * Visits the keys in the order of their indexed values until the visitor returns false.
+   *
+   * @param descending whether the keys are visited in descending order
+   * @param visitor the visitor
+   */
+  void scan(boolean descending, Predicate<Object> visitor);
+
+  /**
+   * Returns the keys whose indexed values are within the given bounds, in the order of the indexed
+   * values. The scan of the index stops as soon as the limit is reached.
+   *
+   * @param lowerBound the lower bound, null if the range has no lower bound
+   * @param lowerInclusive whether the lower bound is included
+   * @param upperBound the upper bound, null if the range has no upper bound
+   * @param upperInclusive whether the upper bound is included
+   * @param limit the maximum number of keys to return
+   * @return the keys
+   */
+  List<Object> range(Object lowerBound, boolean lowerInclusive, Object upperBound,
+      boolean upperInclusive, int limit);
+}
@@ -16,16 +16,33 @@
 package com.cetsoft.imcache.cache.util;
 
 import com.cetsoft.imcache.cache.search.AttributeException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * The type Reflection utils.
  */
 public class ReflectionUtils {
 
-  private static final Map<String, Field> fields = new ConcurrentHashMap<>();
+  /**
+   * The type of the compiled field getters.
+   */
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+  /**
+   * The field accessors of the classes by field name.
+   */
+  private static final ClassValue<Map<String, FieldAccessor>> accessors =
+      new ClassValue<Map<String, FieldAccessor>>() {
+        protected Map<String, FieldAccessor> computeValue(final Class<?> type) {
+          return new ConcurrentHashMap<>();
+        }
+      };
 
   /**
    * Gets field value.
@@ -37,19 +54,126 @@ public class ReflectionUtils {
    */
   public static <T> Object getFieldValue(final String fieldName, final T value)
   {
+    return getFieldAccessor(value.getClass(), fieldName).apply(value);
+  }
+
+  /**
+   * Gets the accessor of the declared field of the given class. Accessors are compiled to method
+   * handles once per class and field.
+   *
+   * @param type the type
+   * @param fieldName the field name
+   * @return the field accessor
+   */
+  public static Function<Object, Object> getFieldAccessor(final Class<?> type,
+      final String fieldName) {
+    final Map<String, FieldAccessor> fieldAccessors = accessors.get(type);
+    FieldAccessor accessor = fieldAccessors.get(fieldName);
+    if (accessor == null) {
+      accessor = fieldAccessors.computeIfAbsent(fieldName, (a) -> compile(type, fieldName));
+    }
+    return accessor;
+  }
+
+  /**
+   * Creates an accessor reading the given field of whatever object it is applied to. The accessor
+   * remembers the last class it has seen, so applying it to objects of the same class costs a
+   * class comparison and a method handle invocation.
+   *
+   * @param fieldName the field name
+   * @return the field accessor
+   */
+  public static Function<Object, Object> fieldAccessor(final String fieldName) {
+    return new CachingFieldAccessor(fieldName);
+  }
+
+  /**
+   * Compiles the accessor of the declared field.
+   *
+   * @param type the type
+   * @param fieldName the field name
+   * @return the field accessor
+   */
+  private static FieldAccessor compile(final Class<?> type, final String fieldName) {
     try {
-      final String fieldDiscriminator = value.getClass() + "." + fieldName;
-      return fields.computeIfAbsent(fieldDiscriminator, (a) -> {
-        try {
-          final Field field = value.getClass().getDeclaredField(fieldName);
-          field.setAccessible(true);
-          return field;
-        } catch (NoSuchFieldException e) {
-          throw new AttributeException(e);
-        }
-      }).get(value);
-    } catch (IllegalAccessException e) {
+      final Field field = type.getDeclaredField(fieldName);
+      field.setAccessible(true);
+      return new FieldAccessor(type,
+          MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE));
+    } catch (NoSuchFieldException | IllegalAccessException e) {
       throw new AttributeException(e);
     }
   }
+
+  /**
+   * The Class FieldAccessor reads a field of a class through a method handle.
+   */
+  private static final class FieldAccessor implements Function<Object, Object> {
+
+    /**
+     * The declaring class.
+     */
+    private final Class<?> type;
+    /**
+     * The getter.
+     */
+    private final MethodHandle getter;
+
+    /**
+     * Instantiates a new field accessor.
+     *
+     * @param type the type
+     * @param getter the getter
+     */
+    FieldAccessor(final Class<?> type, final MethodHandle getter) {
+      this.type = type;
+      this.getter = getter;
+    }
+
+
+    public Object apply(final Object value) {
+      try {
+        return (Object) getter.invokeExact(value);
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new AttributeException(new Exception(e));
+      }
+    }
+  }
+
+  /**
+   * The Class CachingFieldAccessor resolves the accessor of a field by the class of the object and
+   * keeps the last one.
+   */
+  private static final class CachingFieldAccessor implements Function<Object, Object> {
+
+    /**
+     * The field name.
+     */
+    private final String fieldName;
+    /**
+     * The last resolved accessor.
+     */
+    private volatile FieldAccessor last;
+
+    /**
+     * Instantiates a new caching field accessor.
+     *
+     * @param fieldName the field name
+     */
+    CachingFieldAccessor(final String fieldName) {
+      this.fieldName = fieldName;
+    }
+
+
+    public Object apply(final Object value) {
+      FieldAccessor accessor = last;
+      if (accessor == null || accessor.type != value.getClass()) {
+        accessor = (FieldAccessor) getFieldAccessor(value.getClass(), fieldName);
+        last = accessor;
+      }
+      return accessor.apply(value);
+    }
+  }
 }
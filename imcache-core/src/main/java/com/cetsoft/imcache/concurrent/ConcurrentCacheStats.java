@@ -16,17 +16,35 @@
 package com.cetsoft.imcache.concurrent;
 
 import com.cetsoft.imcache.cache.CacheStats;
+import com.cetsoft.imcache.cache.EvictionCause;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Thread safe implementation for cache stats
+ * Thread safe implementation for cache stats. Each cache has its own instance.
  */
 public class ConcurrentCacheStats implements CacheStats {
 
-  private static final LongAdder hitCount = new LongAdder();
-  private static final LongAdder missCount = new LongAdder();
-  private static final LongAdder loadCount = new LongAdder();
-  private static final LongAdder evictionCount = new LongAdder();
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder loadCount = new LongAdder();
+  private final LongAdder loadFailureCount = new LongAdder();
+  private final LongAdder totalLoadTime = new LongAdder();
+  private final LongAdder putCount = new LongAdder();
+  private final LongAdder bytesWritten = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+  private final Map<EvictionCause, LongAdder> evictionCountByCause =
+      new EnumMap<>(EvictionCause.class);
+
+  /**
+   * Instantiates a new concurrent cache stats.
+   */
+  public ConcurrentCacheStats() {
+    for (EvictionCause cause : EvictionCause.values()) {
+      evictionCountByCause.put(cause, new LongAdder());
+    }
+  }
 
   @Override
   public long getHitCount() {
@@ -48,6 +66,37 @@ public class ConcurrentCacheStats implements CacheStats {
     return evictionCount.longValue();
   }
 
+  @Override
+  public long getEvictionCount(final EvictionCause cause) {
+    return evictionCountByCause.get(cause).longValue();
+  }
+
+  @Override
+  public long getLoadFailureCount() {
+    return loadFailureCount.longValue();
+  }
+
+  @Override
+  public long getTotalLoadTime() {
+    return totalLoadTime.longValue();
+  }
+
+  @Override
+  public double averageLoadPenalty() {
+    final long loads = loadCount.longValue() + loadFailureCount.longValue();
+    return loads == 0 ? 0 : totalLoadTime.doubleValue() / loads;
+  }
+
+  @Override
+  public long getPutCount() {
+    return putCount.longValue();
+  }
+
+  @Override
+  public long getBytesWritten() {
+    return bytesWritten.longValue();
+  }
+
   @Override
   public long getRequestCount() {
     return hitCount.longValue() + missCount.longValue();
@@ -90,4 +139,44 @@ public class ConcurrentCacheStats implements CacheStats {
   public void incrementEvictionCount() {
     evictionCount.increment();
   }
+
+  /**
+   * Increment eviction count for the given cause.
+   *
+   * @param cause the eviction cause
+   */
+  public void incrementEvictionCount(final EvictionCause cause) {
+    evictionCount.increment();
+    evictionCountByCause.get(cause).increment();
+  }
+
+  /**
+   * Records a successful load.
+   *
+   * @param loadTime the time spent loading in nanoseconds
+   */
+  public void recordLoadSuccess(final long loadTime) {
+    loadCount.increment();
+    totalLoadTime.add(loadTime);
+  }
+
+  /**
+   * Records a failed load.
+   *
+   * @param loadTime the time spent loading in nanoseconds
+   */
+  public void recordLoadFailure(final long loadTime) {
+    loadFailureCount.increment();
+    totalLoadTime.add(loadTime);
+  }
+
+  /**
+   * Records a put.
+   *
+   * @param bytes the number of serialized bytes written, zero if not serialized
+   */
+  public void recordPut(final long bytes) {
+    putCount.increment();
+    bytesWritten.add(bytes);
+  }
 }
@@ -0,0 +1,171 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The Class LatencyHistogram records latencies into log-bucketed counts. Every power of two is
+ * split into 16 linear sub-buckets, so a recorded value is reported with less than 6.25% error.
+ * Recording threads are spread over a fixed number of striped counts by their ids, as {@link
+ * java.util.concurrent.atomic.LongAdder} spreads its cells, so recording is lock free and rarely
+ * contended while the memory of the histogram doesn't grow with the number of threads. Snapshots
+ * sum the counts of all stripes.
+ */
+public class LatencyHistogram {
+
+  /**
+   * The number of bits used for the sub-buckets of a power of two.
+   */
+  private static final int SUB_BUCKET_BITS = 4;
+
+  /**
+   * The number of sub-buckets of a power of two.
+   */
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * The number of buckets, enough for any positive long.
+   */
+  static final int BUCKET_COUNT = SUB_BUCKET_COUNT
+      + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  /**
+   * The index of the sum of the recorded values in the counts of a stripe.
+   */
+  private static final int SUM_INDEX = BUCKET_COUNT;
+
+  /**
+   * The number of stripes, the lowest power of two not less than the number of processors.
+   */
+  private static final int STRIPE_COUNT =
+      Integer.highestOneBit(Math.max(Runtime.getRuntime().availableProcessors() * 2 - 1, 1));
+
+  /**
+   * The counts of the stripes, each created when a thread first records into it.
+   */
+  private final AtomicReferenceArray<AtomicLongArray> stripes =
+      new AtomicReferenceArray<>(STRIPE_COUNT);
+
+  /**
+   * Records the value. Negative values are recorded as zero.
+   *
+   * @param value the value
+   */
+  public void record(final long value) {
+    final long normalizedValue = Math.max(value, 0);
+    final AtomicLongArray stripeCounts = stripeCounts();
+    stripeCounts.incrementAndGet(bucketIndex(normalizedValue));
+    stripeCounts.addAndGet(SUM_INDEX, normalizedValue);
+  }
+
+  /**
+   * Gets the counts of the stripe of the current thread, creating them if no thread has recorded
+   * into the stripe yet.
+   *
+   * @return the counts of the stripe
+   */
+  private AtomicLongArray stripeCounts() {
+    final long threadId = Thread.currentThread().getId();
+    final int stripe = (int) ((threadId * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPE_COUNT - 1);
+    final AtomicLongArray stripeCounts = stripes.get(stripe);
+    if (stripeCounts != null) {
+      return stripeCounts;
+    }
+    stripes.compareAndSet(stripe, null, new AtomicLongArray(BUCKET_COUNT + 1));
+    return stripes.get(stripe);
+  }
+
+  /**
+   * Takes a snapshot of the recorded values.
+   *
+   * @return the snapshot
+   */
+  public LatencySnapshot snapshot() {
+    return snapshot(false);
+  }
+
+  /**
+   * Takes a snapshot of the recorded values and resets the histogram.
+   *
+   * @return the snapshot
+   */
+  public LatencySnapshot snapshotAndReset() {
+    return snapshot(true);
+  }
+
+  /**
+   * Resets the histogram.
+   */
+  public void reset() {
+    snapshot(true);
+  }
+
+  /**
+   * Sums the counts of all stripes.
+   *
+   * @param reset whether the counts are reset
+   * @return the snapshot
+   */
+  private LatencySnapshot snapshot(final boolean reset) {
+    final long[] bucketCounts = new long[BUCKET_COUNT];
+    long sum = 0;
+    for (int stripe = 0; stripe < STRIPE_COUNT; stripe++) {
+      final AtomicLongArray stripeCounts = stripes.get(stripe);
+      if (stripeCounts == null) {
+        continue;
+      }
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        bucketCounts[i] += reset ? stripeCounts.getAndSet(i, 0) : stripeCounts.get(i);
+      }
+      sum += reset ? stripeCounts.getAndSet(SUM_INDEX, 0) : stripeCounts.get(SUM_INDEX);
+    }
+    return new LatencySnapshot(bucketCounts, sum);
+  }
+
+  /**
+   * Calculates the bucket index of the value.
+   *
+   * @param value the value
+   * @return the bucket index
+   */
+  static int bucketIndex(final long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    final int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    final int shift = magnitude - SUB_BUCKET_BITS;
+    final int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  /**
+   * Calculates the highest value that falls into the bucket.
+   *
+   * @param bucketIndex the bucket index
+   * @return the highest value of the bucket
+   */
+  static long highestValue(final int bucketIndex) {
+    if (bucketIndex < SUB_BUCKET_COUNT) {
+      return bucketIndex;
+    }
+    final int shift = (bucketIndex - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+    final int subBucket = (bucketIndex - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+    final long lowestValue = (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+    return lowestValue + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.concurrent;
+
+/**
+ * The Class LatencySnapshot is an immutable view of the values recorded by a latency histogram.
+ * Percentiles are reported as the highest value of the bucket they fall into.
+ */
+public class LatencySnapshot {
+
+  /**
+   * The bucket counts.
+   */
+  private final long[] bucketCounts;
+
+  /**
+   * The total count.
+   */
+  private final long count;
+
+  /**
+   * The sum of the values.
+   */
+  private final long sum;
+
+  /**
+   * Instantiates a new latency snapshot.
+   *
+   * @param bucketCounts the bucket counts
+   * @param sum the sum of the values
+   */
+  LatencySnapshot(final long[] bucketCounts, final long sum) {
+    this.bucketCounts = bucketCounts;
+    this.sum = sum;
+    long count = 0;
+    for (long bucketCount : bucketCounts) {
+      count += bucketCount;
+    }
+    this.count = count;
+  }
+
+  /**
+   * Gets the number of recorded values.
+   *
+   * @return the count
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Gets the mean of the recorded values.
+   *
+   * @return the mean
+   */
+  public double getMean() {
+    return count == 0 ? 0 : (double) sum / count;
+  }
+
+  /**
+   * Gets the maximum of the recorded values.
+   *
+   * @return the max
+   */
+  public long getMax() {
+    for (int i = bucketCounts.length - 1; i >= 0; i--) {
+      if (bucketCounts[i] > 0) {
+        return LatencyHistogram.highestValue(i);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Gets the value at the given percentile.
+   *
+   * @param percentile the percentile between 0 and 100
+   * @return the value at percentile
+   */
+  public long getValueAtPercentile(final double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    final double ratio = Math.min(Math.max(percentile, 0), 100) / 100;
+    final long rank = Math.max(1, (long) Math.ceil(ratio * count));
+    long cumulativeCount = 0;
+    for (int i = 0; i < bucketCounts.length; i++) {
+      cumulativeCount += bucketCounts[i];
+      if (cumulativeCount >= rank) {
+        return LatencyHistogram.highestValue(i);
+      }
+    }
+    return getMax();
+  }
+
+  /**
+   * Gets the median.
+   *
+   * @return the 50th percentile
+   */
+  public long getP50() {
+    return getValueAtPercentile(50);
+  }
+
+  /**
+   * Gets the 99th percentile.
+   *
+   * @return the 99th percentile
+   */
+  public long getP99() {
+    return getValueAtPercentile(99);
+  }
+
+  /**
+   * Gets the 99.9th percentile.
+   *
+   * @return the 99.9th percentile
+   */
+  public long getP999() {
+    return getValueAtPercentile(99.9);
+  }
+}
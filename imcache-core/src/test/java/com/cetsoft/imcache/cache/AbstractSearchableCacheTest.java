@@ -33,6 +33,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -75,6 +77,28 @@ public class AbstractSearchableCacheTest {
         indexHandler.add(key, value);
       }
 
+      @Override
+      public Item putIfAbsent(Integer key, Item value) {
+        return null;
+      }
+
+      @Override
+      public boolean replace(Integer key, Item oldValue, Item newValue) {
+        return false;
+      }
+
+      @Override
+      public Item computeIfAbsent(Integer key,
+          Function<? super Integer, ? extends Item> mappingFunction) {
+        return null;
+      }
+
+      @Override
+      public Item compute(Integer key,
+          BiFunction<? super Integer, ? super Item, ? extends Item> remappingFunction) {
+        return null;
+      }
+
       @Override
       public Item get(Integer key) {
         return null;
@@ -17,6 +17,7 @@ package com.cetsoft.imcache.cache.concurrent;
 
 import static org.junit.Assert.assertEquals;
 
+import com.cetsoft.imcache.cache.EvictionCause;
 import com.cetsoft.imcache.concurrent.ConcurrentCacheStats;
 import org.junit.Test;
 
@@ -47,4 +48,38 @@ public class ConcurrentCacheStatsTest {
     assertEquals((double) hits/cacheStats.getRequestCount(), cacheStats.hitRate(), 0.001);
     assertEquals((double) misses/cacheStats.getRequestCount(), cacheStats.missRate(), 0.001);
   }
+
+  @Test
+  public void cacheStatsArePerInstance() {
+    final ConcurrentCacheStats cacheStats = new ConcurrentCacheStats();
+    final ConcurrentCacheStats otherCacheStats = new ConcurrentCacheStats();
+    cacheStats.incrementHitCount();
+    cacheStats.incrementEvictionCount(EvictionCause.SIZE);
+    assertEquals(1, cacheStats.getHitCount());
+    assertEquals(0, otherCacheStats.getHitCount());
+    assertEquals(0, otherCacheStats.getEvictionCount());
+  }
+
+  @Test
+  public void loadPutAndEvictionStats() {
+    final ConcurrentCacheStats cacheStats = new ConcurrentCacheStats();
+    cacheStats.recordLoadSuccess(100);
+    cacheStats.recordLoadSuccess(200);
+    cacheStats.recordLoadFailure(300);
+    cacheStats.recordPut(10);
+    cacheStats.recordPut(20);
+    cacheStats.incrementEvictionCount(EvictionCause.EXPIRED);
+    cacheStats.incrementEvictionCount(EvictionCause.EXPIRED);
+    cacheStats.incrementEvictionCount(EvictionCause.EXPLICIT);
+    assertEquals(2, cacheStats.getLoadCount());
+    assertEquals(1, cacheStats.getLoadFailureCount());
+    assertEquals(600, cacheStats.getTotalLoadTime());
+    assertEquals(200, cacheStats.averageLoadPenalty(), 0.001);
+    assertEquals(2, cacheStats.getPutCount());
+    assertEquals(30, cacheStats.getBytesWritten());
+    assertEquals(3, cacheStats.getEvictionCount());
+    assertEquals(2, cacheStats.getEvictionCount(EvictionCause.EXPIRED));
+    assertEquals(1, cacheStats.getEvictionCount(EvictionCause.EXPLICIT));
+    assertEquals(0, cacheStats.getEvictionCount(EvictionCause.SIZE));
+  }
 }
@@ -0,0 +1,114 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.cetsoft.imcache.concurrent.LatencyHistogram;
+import com.cetsoft.imcache.concurrent.LatencySnapshot;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void recordsSmallValuesExactly() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 10; i++) {
+      histogram.record(i);
+    }
+    final LatencySnapshot snapshot = histogram.snapshot();
+    assertEquals(10, snapshot.getCount());
+    assertEquals(5.5, snapshot.getMean(), 0.001);
+    assertEquals(5, snapshot.getP50());
+    assertEquals(10, snapshot.getP99());
+    assertEquals(10, snapshot.getMax());
+  }
+
+  @Test
+  public void percentilesAreWithinBucketError() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 100000; i++) {
+      histogram.record(i * 1000L);
+    }
+    final LatencySnapshot snapshot = histogram.snapshot();
+    assertWithinError(50000000L, snapshot.getP50());
+    assertWithinError(99000000L, snapshot.getP99());
+    assertWithinError(99900000L, snapshot.getP999());
+    assertWithinError(100000000L, snapshot.getMax());
+  }
+
+  @Test
+  public void recordsLargeValues() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(Long.MAX_VALUE);
+    histogram.record(-1);
+    final LatencySnapshot snapshot = histogram.snapshot();
+    assertEquals(2, snapshot.getCount());
+    assertEquals(0, snapshot.getValueAtPercentile(0));
+    assertEquals(Long.MAX_VALUE, snapshot.getMax());
+  }
+
+  @Test
+  public void snapshotAndReset() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(100);
+    histogram.record(200);
+    assertEquals(2, histogram.snapshotAndReset().getCount());
+    assertEquals(0, histogram.snapshot().getCount());
+    assertEquals(0, histogram.snapshot().getP99());
+    histogram.record(300);
+    histogram.reset();
+    assertEquals(0, histogram.snapshot().getCount());
+  }
+
+  @Test
+  public void recordsFromManyThreads() throws InterruptedException {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    final int threads = 4, records = 10000;
+    final CountDownLatch latch = new CountDownLatch(threads);
+    for (int i = 0; i < threads; i++) {
+      new Thread(() -> {
+        for (int j = 0; j < records; j++) {
+          histogram.record(j);
+        }
+        latch.countDown();
+      }).start();
+    }
+    latch.await();
+    assertEquals(threads * records, histogram.snapshot().getCount());
+  }
+
+  @Test
+  public void recordsFromShortLivedThreads() throws InterruptedException {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    final int threads = 500;
+    for (int i = 0; i < threads; i++) {
+      final Thread thread = new Thread(() -> histogram.record(100));
+      thread.start();
+      thread.join();
+    }
+    final LatencySnapshot snapshot = histogram.snapshot();
+    assertEquals(threads, snapshot.getCount());
+    assertEquals(100.0, snapshot.getMean(), 0.0);
+  }
+
+  private void assertWithinError(long expected, long actual) {
+    assertTrue(actual + " is not close to " + expected,
+        Math.abs(actual - expected) <= expected / 16);
+  }
+}
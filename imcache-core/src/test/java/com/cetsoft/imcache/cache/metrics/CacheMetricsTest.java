@@ -0,0 +1,110 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import com.cetsoft.imcache.cache.Cache;
+import com.cetsoft.imcache.cache.EvictionCause;
+import com.cetsoft.imcache.concurrent.ConcurrentCacheStats;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class CacheMetricsTest {
+
+  @Mock
+  Cache<Object, Object> cache;
+
+  ConcurrentCacheStats stats;
+
+  @Before
+  public void setup() {
+    MockitoAnnotations.initMocks(this);
+    stats = new ConcurrentCacheStats();
+    doReturn(stats).when(cache).stats();
+    doReturn(3L).when(cache).size();
+    doReturn("metrics-cache").when(cache).getName();
+  }
+
+  @Test
+  public void of() {
+    stats.incrementHitCount();
+    stats.incrementMissCount();
+    stats.incrementEvictionCount(EvictionCause.EXPIRED);
+    Map<String, Supplier<Number>> metrics = CacheMetrics.of(cache);
+    assertEquals(3L, metrics.get("size").get());
+    assertEquals(1L, metrics.get("hitCount").get());
+    assertEquals(0.5, metrics.get("hitRate").get().doubleValue(), 0.001);
+    assertEquals(1L, metrics.get("evictionCountExpired").get());
+    assertEquals(0L, metrics.get("evictionCountSize").get());
+  }
+
+  @Test
+  public void ofMetricSource() {
+    Cache<Object, Object> sourceCache = mock(MetricSourceCache.class);
+    Map<String, Supplier<Number>> sourceMetrics = new HashMap<>();
+    sourceMetrics.put("usedMemory", () -> 42L);
+    doReturn(sourceMetrics).when((MetricSource) sourceCache).metrics();
+    assertEquals(42L, CacheMetrics.of(sourceCache).get("usedMemory").get());
+  }
+
+  @Test
+  public void bindTo() {
+    final Map<String, Supplier<Number>> gauges = new HashMap<>();
+    CacheMetrics.bindTo(cache, new MeterRegistryAdapter() {
+      @Override
+      public void gauge(String cacheName, String metricName, Supplier<Number> value) {
+        gauges.put(cacheName + "." + metricName, value);
+      }
+
+      @Override
+      public void remove(String cacheName) {
+      }
+    });
+    stats.incrementHitCount();
+    assertEquals(1L, gauges.get("metrics-cache.hitCount").get());
+    assertEquals(3L, gauges.get("metrics-cache.size").get());
+  }
+
+  @Test
+  public void registerMBean() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName objectName = CacheMetrics.registerMBean(cache);
+    stats.incrementMissCount();
+    assertTrue(server.isRegistered(objectName));
+    assertEquals(1L, server.getAttribute(objectName, "missCount"));
+    assertEquals(3L, server.getAttribute(objectName, "size"));
+    CacheMetrics.registerMBean(cache);
+    CacheMetrics.unregisterMBean(cache);
+    assertFalse(server.isRegistered(objectName));
+  }
+
+  interface MetricSourceCache extends Cache<Object, Object>, MetricSource {
+
+  }
+}
@@ -16,6 +16,9 @@
 package com.cetsoft.imcache.cache.search;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import com.cetsoft.imcache.cache.search.criteria.Criteria;
 import com.cetsoft.imcache.cache.search.criteria.ETCriteria;
@@ -33,4 +36,32 @@ public class CacheQueryTest {
     assertEquals(etCriteria, query.getCriteria());
     assertEquals(ltFilter, query.getFilter());
   }
+
+  @Test
+  public void cacheQueryPaging() {
+    Query query = CacheQuery.newQuery();
+    assertEquals(Integer.MAX_VALUE, query.getLimit());
+    assertEquals(0, query.getOffset());
+    assertNull(query.getOrderBy());
+    query.setLimit(10).setOffset(20).orderByDescending("age");
+    assertEquals(10, query.getLimit());
+    assertEquals(20, query.getOffset());
+    assertEquals("age", query.getOrderBy());
+    assertTrue(query.isDescending());
+    query.orderBy("id");
+    assertEquals("id", query.getOrderBy());
+    assertFalse(query.isDescending());
+    assertFalse(query.isParallel());
+    assertTrue(query.setParallel(true).isParallel());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void cacheQueryZeroLimit() {
+    CacheQuery.newQuery().setLimit(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void cacheQueryNegativeOffset() {
+    CacheQuery.newQuery().setOffset(-1);
+  }
 }
@@ -16,26 +16,46 @@
 package com.cetsoft.imcache.cache.search;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import com.cetsoft.imcache.cache.search.criteria.AndCriteria;
 import com.cetsoft.imcache.cache.search.criteria.ArithmeticCriteria;
+import com.cetsoft.imcache.cache.search.criteria.BetweenCriteria;
 import com.cetsoft.imcache.cache.search.criteria.Criteria;
 import com.cetsoft.imcache.cache.search.criteria.DiffCriteria;
+import com.cetsoft.imcache.cache.search.criteria.ETCriteria;
+import com.cetsoft.imcache.cache.search.criteria.GTCriteria;
+import com.cetsoft.imcache.cache.search.criteria.GTETCriteria;
+import com.cetsoft.imcache.cache.search.criteria.LTCriteria;
+import com.cetsoft.imcache.cache.search.criteria.LTETCriteria;
 import com.cetsoft.imcache.cache.search.criteria.OrCriteria;
+import com.cetsoft.imcache.cache.search.filter.AndFilter;
+import com.cetsoft.imcache.cache.search.filter.ETFilter;
+import com.cetsoft.imcache.cache.search.filter.Filter;
+import com.cetsoft.imcache.cache.search.filter.GTETFilter;
+import com.cetsoft.imcache.cache.search.filter.LTETFilter;
+import com.cetsoft.imcache.cache.search.filter.LTFilter;
 import com.cetsoft.imcache.cache.search.index.CacheIndex;
 import com.cetsoft.imcache.cache.search.index.IndexNotFoundException;
+import com.cetsoft.imcache.cache.search.index.IndexStorage;
 import com.cetsoft.imcache.cache.search.index.IndexType;
 import com.cetsoft.imcache.cache.search.index.NonUniqueHashIndex;
+import com.cetsoft.imcache.cache.search.index.NumericRangeIndex;
 import com.cetsoft.imcache.cache.search.index.RangeIndex;
 import com.cetsoft.imcache.cache.search.index.UniqueHashIndex;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -43,6 +63,7 @@ import java.util.Objects;
 import java.util.Set;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -104,6 +125,18 @@ public class DefaultIndexHandlerTest {
    */
   DefaultIndexHandler<Object, Object> handler;
 
+  private static class Person {
+    private final int id;
+    private final int age;
+    private final String name;
+
+    Person(int id, int age, String name) {
+      this.id = id;
+      this.age = age;
+      this.name = name;
+    }
+  }
+
   private static class MyObject{
     private String name;
 
@@ -165,6 +198,16 @@ public class DefaultIndexHandlerTest {
     verify(indexes).put(anyString(), any(RangeIndex.class));
   }
 
+  /**
+   * Adds the index numeric range.
+   */
+  @Test
+  public void addIndexNumericRange() {
+    doReturn(null).when(indexes).put(anyString(), any(CacheIndex.class));
+    handler.addIndex("a", IndexType.NUMERIC_RANGE);
+    verify(indexes).put(anyString(), any(NumericRangeIndex.class));
+  }
+
   /**
    * Adds the.
    */
@@ -243,6 +286,157 @@ public class DefaultIndexHandlerTest {
     handler.remove(object, object);
   }
 
+  /**
+   * Adds the index with an extractor.
+   */
+  @Test
+  public void addIndexWithExtractor() {
+    DefaultIndexHandler<Integer, Person> indexHandler = new DefaultIndexHandler<>();
+    indexHandler.addIndex("decade", IndexType.NON_UNIQUE_HASH, (Person person) -> person.age / 10);
+    for (int i = 0; i < 30; i++) {
+      indexHandler.add(i, new Person(i, 15 + i, "name"));
+    }
+    indexHandler.remove(10, new Person(10, 25, "name"));
+    List<Integer> keys = indexHandler.execute(CacheQuery.newQuery()
+        .setCriteria(new ETCriteria("decade", 2)));
+    assertEquals(9, keys.size());
+  }
+
+  /**
+   * Execute ordered by a range index with a limit.
+   */
+  @Test
+  public void executeOrderedWithLimit() {
+    for (IndexStorage indexStorage : IndexStorage.values()) {
+      for (IndexType indexType : Arrays.asList(IndexType.RANGE_INDEX, IndexType.NUMERIC_RANGE)) {
+        DefaultIndexHandler<Integer, Person> indexHandler = new DefaultIndexHandler<>(indexStorage);
+        indexHandler.addIndex("age", indexType);
+        indexHandler.addIndex("name", IndexType.NON_UNIQUE_HASH);
+        for (int i = 0; i < 100; i++) {
+          indexHandler.add(i, new Person(i, 1000 - i, "name" + i % 2));
+        }
+        assertEquals(Arrays.asList(99, 97, 95), indexHandler.execute(CacheQuery.newQuery()
+            .setCriteria(new ETCriteria("name", "name1")).orderBy("age").setLimit(3)));
+        assertEquals(Arrays.asList(0, 2), indexHandler.execute(CacheQuery.newQuery()
+            .setCriteria(new ETCriteria("name", "name0")).orderByDescending("age")
+            .setOffset(1).setLimit(1)));
+        assertEquals(Arrays.asList(0, 1), indexHandler.execute(CacheQuery.newQuery()
+            .orderByDescending("age").setLimit(2)));
+        assertEquals(50, indexHandler.execute(CacheQuery.newQuery()
+            .setCriteria(new ETCriteria("name", "name0")).orderBy("age")).size());
+      }
+    }
+  }
+
+  /**
+   * Execute ordered by an attribute without a range index.
+   */
+  @Test(expected = IndexNotFoundException.class)
+  public void executeOrderedWithoutRangeIndex() {
+    DefaultIndexHandler<Integer, Person> indexHandler = new DefaultIndexHandler<>();
+    indexHandler.addIndex("name", IndexType.NON_UNIQUE_HASH);
+    indexHandler.execute(CacheQuery.newQuery().orderBy("name"));
+  }
+
+  /**
+   * Plan pushes the filters on the indexed attributes down into the criteria, keeping them to
+   * check the fetched values.
+   */
+  @Test
+  public void plan() {
+    DefaultIndexHandler<Integer, Person> indexHandler = new DefaultIndexHandler<>();
+    indexHandler.addIndex("age", IndexType.RANGE_INDEX);
+    indexHandler.addIndex("name", IndexType.NON_UNIQUE_HASH);
+    indexHandler.addIndex("id", IndexType.UNIQUE_HASH, (Person person) -> person.id % 10);
+    for (int i = 0; i < 100; i++) {
+      indexHandler.add(i, new Person(i, i, "name" + i % 2));
+    }
+    Filter nameFilter = new ETFilter("name", "name1");
+    Filter idFilter = new ETFilter("id", 3);
+    Filter nameRangeFilter = new LTFilter("name", "name1");
+    Filter filter = new AndFilter(nameFilter, idFilter, nameRangeFilter);
+    Query query = indexHandler.plan(CacheQuery.newQuery().setCriteria(new GTCriteria("age", 89))
+        .setFilter(filter).setLimit(3));
+    assertSame(filter, query.getFilter());
+    assertEquals(2, ((AndCriteria) query.getCriteria()).getCriterias().length);
+    assertEquals(3, query.getLimit());
+    assertEquals(new HashSet<>(Arrays.asList(91, 93, 95, 97, 99)),
+        new HashSet<>(indexHandler.execute(query)));
+    query = indexHandler.plan(CacheQuery.newQuery()
+        .setFilter(new GTETFilter("age", 95).or(new LTETFilter("age", 1))).orderBy("age"));
+    assertTrue(query.getCriteria() instanceof OrCriteria);
+    assertEquals(Arrays.asList(0, 1, 95, 96, 97, 98, 99), indexHandler.execute(query));
+  }
+
+  /**
+   * Execute with cached query results.
+   */
+  @Test
+  public void executeWithQueryCache() {
+    for (IndexStorage indexStorage : IndexStorage.values()) {
+      DefaultIndexHandler<Integer, Person> indexHandler =
+          new DefaultIndexHandler<>(indexStorage, 10);
+      indexHandler.addIndex("age", IndexType.RANGE_INDEX);
+      indexHandler.addIndex("name", IndexType.NON_UNIQUE_HASH);
+      for (int i = 0; i < 10; i++) {
+        indexHandler.add(i, new Person(i, i, "name" + i % 2));
+      }
+      List<Integer> keys = indexHandler.execute(CacheQuery.newQuery()
+          .setCriteria(new ETCriteria("name", "name1").and(new GTCriteria("age", 4))));
+      assertEquals(new HashSet<>(Arrays.asList(5, 7, 9)), new HashSet<>(keys));
+      assertSame(keys, indexHandler.execute(CacheQuery.newQuery()
+          .setCriteria(new GTCriteria("age", 4).and(new ETCriteria("name", "name1")))));
+      indexHandler.add(11, new Person(11, 11, "name1"));
+      assertEquals(new HashSet<>(Arrays.asList(5, 7, 9, 11)), new HashSet<>(indexHandler.execute(
+          CacheQuery.newQuery()
+              .setCriteria(new ETCriteria("name", "name1").and(new GTCriteria("age", 4))))));
+      indexHandler.remove(5, new Person(5, 5, "name1"));
+      assertEquals(Arrays.asList(11, 9, 7), indexHandler.execute(CacheQuery.newQuery()
+          .setCriteria(new ETCriteria("name", "name1").and(new GTCriteria("age", 4)))
+          .orderByDescending("age")));
+    }
+  }
+
+  /**
+   * Instantiate with a negative query cache size.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void negativeQueryCacheSize() {
+    new DefaultIndexHandler<Integer, Person>(IndexStorage.KEY_SET, -1);
+  }
+
+  /**
+   * Execute with a limit.
+   */
+  @Test
+  public void executeWithLimit() {
+    DefaultIndexHandler<Integer, Person> indexHandler = new DefaultIndexHandler<>();
+    indexHandler.addIndex("name", IndexType.NON_UNIQUE_HASH);
+    for (int i = 0; i < 10; i++) {
+      indexHandler.add(i, new Person(i, i, "name"));
+    }
+    assertEquals(5, indexHandler.execute(CacheQuery.newQuery()
+        .setCriteria(new ETCriteria("name", "name")).setOffset(2).setLimit(3)).size());
+  }
+
+  /**
+   * Execute a range criteria with a limit by scanning the range index up to the limit.
+   */
+  @Test
+  public void executeRangeWithLimit() {
+    for (IndexStorage indexStorage : IndexStorage.values()) {
+      for (IndexType indexType : Arrays.asList(IndexType.RANGE_INDEX, IndexType.NUMERIC_RANGE)) {
+        DefaultIndexHandler<Integer, Person> indexHandler = new DefaultIndexHandler<>(indexStorage);
+        indexHandler.addIndex("age", indexType);
+        for (int i = 0; i < 100; i++) {
+          indexHandler.add(i, new Person(i, 100 - i, "name"));
+        }
+        assertEquals(Arrays.asList(89, 88, 87), indexHandler.execute(CacheQuery.newQuery()
+            .setCriteria(new GTCriteria("age", 10)).setOffset(1).setLimit(2)));
+      }
+    }
+  }
+
   /**
    * Clear.
    */
@@ -349,6 +543,97 @@ public class DefaultIndexHandlerTest {
     assertEquals(object2, actualObjects.get(0));
   }
 
+  /**
+   * Execute and stops at empty result.
+   */
+  @Test
+  public void executeAndStopsAtEmptyResult() {
+    List<Object> objectList = new ArrayList<Object>();
+    objectList.add(new Object());
+    doReturn(new Criteria[]{criteria, criteria}).when(andCriteria).getCriterias();
+    doReturn(new ArrayList<Object>()).doReturn(objectList).when(handler).execute(criteria);
+    List<Object> actualObjects = handler.executeAnd(andCriteria);
+    assertTrue(actualObjects.isEmpty());
+    verify(handler, times(1)).execute(criteria);
+  }
+
+  /**
+   * Execute and runs cheapest criteria first.
+   */
+  @Test
+  public void executeAndRunsCheapestCriteriaFirst() {
+    DefaultIndexHandler<Object, Object> indexHandler = spy(new DefaultIndexHandler<>());
+    indexHandler.addIndex("id", IndexType.UNIQUE_HASH);
+    indexHandler.addIndex("age", IndexType.RANGE_INDEX);
+    indexHandler.addIndex("name", IndexType.NON_UNIQUE_HASH);
+    for (int i = 0; i < 10; i++) {
+      indexHandler.add(i, new Person(i, 20 + i, "name" + i % 2));
+    }
+    Criteria ageCriteria = new GTCriteria("age", 22);
+    Criteria nameCriteria = new ETCriteria("name", "name1");
+    Criteria idCriteria = new ETCriteria("id", 5);
+    List<Object> actualObjects = indexHandler.executeAnd(
+        new AndCriteria(ageCriteria, nameCriteria, idCriteria));
+    assertEquals(1, actualObjects.size());
+    assertEquals(5, actualObjects.get(0));
+    InOrder inOrder = inOrder(indexHandler);
+    inOrder.verify(indexHandler).execute(idCriteria);
+    inOrder.verify(indexHandler).execute(nameCriteria);
+    inOrder.verify(indexHandler).execute(ageCriteria);
+  }
+
+  /**
+   * Bitmap indexes execute like key set indexes.
+   */
+  @Test
+  public void bitmapIndexesExecuteLikeKeySetIndexes() {
+    DefaultIndexHandler<Object, Object> keySetHandler = new DefaultIndexHandler<>();
+    DefaultIndexHandler<Object, Object> bitmapHandler =
+        new DefaultIndexHandler<>(IndexStorage.BITMAP);
+    for (DefaultIndexHandler<Object, Object> indexHandler : Arrays.asList(keySetHandler,
+        bitmapHandler)) {
+      indexHandler.addIndex("id", IndexType.UNIQUE_HASH);
+      indexHandler.addIndex("age", IndexType.RANGE_INDEX);
+      indexHandler.addIndex("name", IndexType.NON_UNIQUE_HASH);
+      for (int i = 0; i < 200; i++) {
+        indexHandler.add(i, new Person(i, i % 50, "name" + i % 3));
+      }
+      for (int i = 0; i < 200; i += 7) {
+        indexHandler.remove(i, new Person(i, i % 50, "name" + i % 3));
+      }
+    }
+    Criteria[] criterias = {
+        new ETCriteria("name", "name1"),
+        new ETCriteria("id", 8),
+        new ETCriteria("id", 7),
+        new BetweenCriteria("age", 10, 20),
+        new LTETCriteria("age", 5).and(new ETCriteria("name", "name2")),
+        new GTCriteria("age", 45).or(new ETCriteria("id", 3)),
+        new GTETCriteria("age", 30).diff(new ETCriteria("name", "name0")),
+        new AndCriteria(new LTCriteria("age", 40), new GTCriteria("age", 10),
+            new ETCriteria("name", "name0").or(new ETCriteria("name", "name1"))),
+        new ETCriteria("age", 1000).and(new GTCriteria("age", 1))};
+    for (Criteria criteria : criterias) {
+      Query query = CacheQuery.newQuery().setCriteria(criteria);
+      Set<Object> expected = new HashSet<>(keySetHandler.execute(query));
+      expected.remove(null);
+      assertEquals(expected, new HashSet<>(bitmapHandler.execute(query)));
+    }
+  }
+
+  /**
+   * Execute diff skips right criteria when left result is empty.
+   */
+  @Test
+  public void executeDiffSkipsRightCriteriaWhenLeftResultIsEmpty() {
+    Criteria rightCriteria = mock(Criteria.class);
+    doReturn(criteria).when(diffCriteria).getLeftCriteria();
+    doReturn(rightCriteria).when(diffCriteria).getRightCriteria();
+    doReturn(new ArrayList<Object>()).when(handler).execute(criteria);
+    assertTrue(handler.executeDiff(diffCriteria).isEmpty());
+    verify(handler, never()).execute(rightCriteria);
+  }
+
   /**
    * Execute diff.
    */
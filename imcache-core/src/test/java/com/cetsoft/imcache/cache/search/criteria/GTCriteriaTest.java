@@ -20,6 +20,8 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.verify;
 
 import com.cetsoft.imcache.cache.search.index.CacheIndex;
+import com.cetsoft.imcache.cache.search.index.RangeIndex;
+import java.util.Arrays;
 import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
@@ -69,4 +71,19 @@ public class GTCriteriaTest {
     assertEquals(result, actualResult);
   }
 
+  /**
+   * Meets a sorted index up to the limit.
+   */
+  @Test
+  public void meetsWithLimit() {
+    RangeIndex rangeIndex = new RangeIndex();
+    for (int i = 0; i < 10; i++) {
+      rangeIndex.put(i, i);
+    }
+    assertEquals(Arrays.<Object>asList(4, 5), new GTCriteria("a", 3).meets(rangeIndex, 2));
+    doReturn(Arrays.<Object>asList(1, 2, 3)).when(cacheIndex).greaterThan(expectedValue);
+    assertEquals(Arrays.<Object>asList(1, 2),
+        new GTCriteria("a", expectedValue).meets(cacheIndex, 2));
+  }
+
 }
@@ -16,6 +16,7 @@
 package com.cetsoft.imcache.cache.search.filter;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.mockito.Mockito.anyList;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
@@ -72,4 +73,14 @@ public class AndFilterTest {
     assertEquals(object2, actualObjects.get(0));
   }
 
+  /**
+   * Matches.
+   */
+  @Test
+  public void matches() {
+    Object object = new Object();
+    doReturn(true).doReturn(false).when(filter).matches(object);
+    assertFalse(andFilter.matches(object));
+  }
+
 }
@@ -15,8 +15,11 @@
  */
 package com.cetsoft.imcache.cache.search.filter;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Test;
 import org.mockito.Mock;
 
@@ -32,4 +35,22 @@ public class LogicalFilterTest {
     assertTrue(betweenFilter.and(filter) instanceof AndFilter);
     assertTrue(betweenFilter.diff(filter) instanceof DiffFilter);
   }
+
+  @Test
+  public void matchesByFiltering() {
+    LogicalFilter evenFilter = new LogicalFilter() {
+
+      public List<Object> filter(List<Object> objects) {
+        List<Object> result = new ArrayList<Object>();
+        for (Object object : objects) {
+          if ((Integer) object % 2 == 0) {
+            result.add(object);
+          }
+        }
+        return result;
+      }
+    };
+    assertTrue(evenFilter.matches(2));
+    assertFalse(evenFilter.matches(3));
+  }
 }
@@ -74,4 +74,14 @@ public class OrFilterTest {
     assertTrue(actualObjects.contains(object3));
   }
 
+  /**
+   * Matches.
+   */
+  @Test
+  public void matches() {
+    Object object = new Object();
+    doReturn(false).doReturn(true).when(filter).matches(object);
+    assertTrue(orFilter.matches(object));
+  }
+
 }
@@ -0,0 +1,103 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache.search.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The Class BitmapRangeIndexTest.
+ */
+public class BitmapRangeIndexTest {
+
+  KeyIds keyIds;
+
+  BitmapRangeIndex rangeIndex;
+
+  BitmapHashIndex hashIndex;
+
+  @Before
+  public void setup() {
+    keyIds = new KeyIds();
+    rangeIndex = new BitmapRangeIndex(keyIds);
+    hashIndex = new BitmapHashIndex(keyIds);
+    for (int i = 0; i < 10; i++) {
+      keyIds.acquire("key" + i);
+      rangeIndex.put(i, "key" + i);
+      hashIndex.put(i % 2, "key" + i);
+    }
+  }
+
+  @Test
+  public void ranges() {
+    assertEquals(keys(0, 1, 2), sorted(rangeIndex.lessThan(3)));
+    assertEquals(keys(0, 1, 2, 3), sorted(rangeIndex.lessThanOrEqualsTo(3)));
+    assertEquals(keys(8, 9), sorted(rangeIndex.greaterThan(7)));
+    assertEquals(keys(7, 8, 9), sorted(rangeIndex.greaterThanOrEqualsTo(7)));
+    assertEquals(keys(4, 5, 6), sorted(rangeIndex.between(3, 7)));
+    assertTrue(rangeIndex.between(7, 3).isEmpty());
+    assertEquals(keys(5), rangeIndex.equalsTo(5));
+  }
+
+  @Test
+  public void rangeWithLimit() {
+    assertEquals(keys(3, 4, 5), rangeIndex.range(3, true, null, false, 3));
+    assertEquals(keys(0, 1), rangeIndex.range(null, false, 8, true, 2));
+    assertEquals(keys(4, 5, 6), rangeIndex.range(3, false, 7, false, RangeIndex.NO_LIMIT));
+    assertTrue(rangeIndex.range(5, false, 5, true, 2).isEmpty());
+  }
+
+  @Test
+  public void hash() {
+    assertEquals(keys(1, 3, 5, 7, 9), sorted(hashIndex.equalsTo(1)));
+    assertTrue(hashIndex.equalsTo(2).isEmpty());
+  }
+
+  @Test
+  public void remove() {
+    rangeIndex.remove(5, "key5");
+    hashIndex.remove(1, "key5");
+    assertTrue(rangeIndex.equalsTo(5).isEmpty());
+    assertTrue(!rangeIndex.getMap().containsKey(5));
+    assertEquals(keys(1, 3, 7, 9), sorted(hashIndex.equalsTo(1)));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void putWithoutIdThrowsIllegalStateException() {
+    rangeIndex.put(1, "unknown");
+  }
+
+  private static List<Object> keys(int... numbers) {
+    List<Object> keys = new ArrayList<>();
+    for (int number : numbers) {
+      keys.add("key" + number);
+    }
+    return keys;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static List<Object> sorted(List<Object> keys) {
+    List sorted = new ArrayList<>(keys);
+    Collections.sort(sorted);
+    return sorted;
+  }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache.search.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * The Class CompressedBitmapTest.
+ */
+public class CompressedBitmapTest {
+
+  /**
+   * Adds, removes and contains.
+   */
+  @Test
+  public void addRemoveContains() {
+    CompressedBitmap bitmap = new CompressedBitmap();
+    assertTrue(bitmap.isEmpty());
+    assertTrue(bitmap.add(5));
+    assertFalse(bitmap.add(5));
+    assertTrue(bitmap.add(1 << 20));
+    assertTrue(bitmap.contains(5));
+    assertTrue(bitmap.contains(1 << 20));
+    assertFalse(bitmap.contains(6));
+    assertEquals(2, bitmap.getCardinality());
+    assertTrue(bitmap.remove(5));
+    assertFalse(bitmap.remove(5));
+    assertTrue(bitmap.remove(1 << 20));
+    assertTrue(bitmap.isEmpty());
+  }
+
+  /**
+   * Dense chunks switch to bitmaps and back.
+   */
+  @Test
+  public void denseChunks() {
+    CompressedBitmap bitmap = new CompressedBitmap();
+    BitSet expected = new BitSet();
+    for (int i = 0; i < 3 * CompressedBitmap.MAX_ARRAY_SIZE; i += 2) {
+      bitmap.add(i);
+      expected.set(i);
+    }
+    assertEquals(toBitSet(bitmap), expected);
+    for (int i = 0; i < 3 * CompressedBitmap.MAX_ARRAY_SIZE; i += 4) {
+      bitmap.remove(i);
+      expected.clear(i);
+    }
+    assertEquals(toBitSet(bitmap), expected);
+    assertEquals(expected.cardinality(), bitmap.getCardinality());
+  }
+
+  /**
+   * Operations match bit sets.
+   */
+  @Test
+  public void operationsMatchBitSets() {
+    Random random = new Random(42);
+    int[] bounds = {100, 70000, 300000};
+    for (int round = 0; round < 20; round++) {
+      int bound = bounds[round % bounds.length];
+      BitSet firstExpected = new BitSet();
+      BitSet secondExpected = new BitSet();
+      CompressedBitmap first = randomBitmap(random, bound, firstExpected);
+      CompressedBitmap second = randomBitmap(random, bound, secondExpected);
+
+      BitSet and = (BitSet) firstExpected.clone();
+      and.and(secondExpected);
+      assertEquals(and, toBitSet(CompressedBitmap.and(first, second)));
+
+      BitSet or = (BitSet) firstExpected.clone();
+      or.or(secondExpected);
+      assertEquals(or, toBitSet(CompressedBitmap.or(first, second)));
+      CompressedBitmap union = first.copy();
+      union.addAll(second);
+      assertEquals(CompressedBitmap.or(first, second), union);
+
+      BitSet andNot = (BitSet) firstExpected.clone();
+      andNot.andNot(secondExpected);
+      assertEquals(andNot, toBitSet(CompressedBitmap.andNot(first, second)));
+
+      assertEquals(firstExpected, toBitSet(first));
+      assertEquals(secondExpected, toBitSet(second));
+    }
+  }
+
+  /**
+   * For each is ascending.
+   */
+  @Test
+  public void forEachIsAscending() {
+    CompressedBitmap bitmap = new CompressedBitmap();
+    bitmap.add(70000);
+    bitmap.add(3);
+    bitmap.add(65536);
+    List<Integer> values = new ArrayList<>();
+    bitmap.forEach(values::add);
+    assertEquals("[3, 65536, 70000]", values.toString());
+    assertEquals("[3,65536,70000]", bitmap.toString());
+  }
+
+  private static CompressedBitmap randomBitmap(Random random, int bound, BitSet expected) {
+    CompressedBitmap bitmap = new CompressedBitmap();
+    int count = random.nextInt(bound / 2 + 1);
+    for (int i = 0; i < count; i++) {
+      int value = random.nextInt(bound);
+      bitmap.add(value);
+      expected.set(value);
+    }
+    return bitmap;
+  }
+
+  private static BitSet toBitSet(CompressedBitmap bitmap) {
+    BitSet bitSet = new BitSet();
+    bitmap.forEach(bitSet::set);
+    return bitSet;
+  }
+}
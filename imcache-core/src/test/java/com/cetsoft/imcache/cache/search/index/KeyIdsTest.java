@@ -0,0 +1,64 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache.search.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ * The Class KeyIdsTest.
+ */
+public class KeyIdsTest {
+
+  /**
+   * Acquire and release.
+   */
+  @Test
+  public void acquireAndRelease() {
+    KeyIds keyIds = new KeyIds();
+    assertEquals(0, keyIds.acquire("a"));
+    assertEquals(1, keyIds.acquire("b"));
+    assertEquals(0, keyIds.acquire("a"));
+    keyIds.release("a");
+    assertEquals(0, keyIds.getId("a"));
+    keyIds.release("a");
+    assertEquals(-1, keyIds.getId("a"));
+    assertNull(keyIds.getKey(0));
+    assertEquals(0, keyIds.acquire("c"));
+    assertEquals("c", keyIds.getKey(0));
+    assertEquals(2, keyIds.size());
+  }
+
+  /**
+   * Keys and ids are converted.
+   */
+  @Test
+  public void keysAndIds() {
+    KeyIds keyIds = new KeyIds();
+    for (int i = 0; i < 100; i++) {
+      keyIds.acquire(i);
+    }
+    CompressedBitmap ids = keyIds.getIds(Arrays.<Object>asList(3, 99, null, 1000));
+    assertEquals("[3,99]", ids.toString());
+    assertEquals(Arrays.<Object>asList(3, 99), keyIds.getKeys(ids));
+    keyIds.clear();
+    assertEquals(0, keyIds.size());
+    assertEquals(0, keyIds.acquire("a"));
+  }
+}
@@ -76,6 +76,15 @@ public class NonUniqueHashIndexTest {
     verify(map).remove(object);
   }
 
+  @Test
+  public void removeDropsIndexedValue() {
+    index.put("value", "key");
+    index.remove("value", "key");
+    verify(map).remove("value");
+    verify(map, times(0)).remove("key");
+    assertTrue(index.equalsTo("value").isEmpty());
+  }
+
   @Test
   public void equalsToEmptyResult() {
     Object object = new Object();
@@ -0,0 +1,172 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache.search.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * The Class NumericRangeIndexTest.
+ */
+public class NumericRangeIndexTest {
+
+  /**
+   * Asserts that the keys are the expected ones regardless of order.
+   *
+   * @param expected the expected keys
+   * @param keys the keys
+   */
+  private void assertKeys(List<Object> expected, List<Object> keys) {
+    assertEquals(expected.size(), keys.size());
+    assertEquals(new HashSet<Object>(expected), new HashSet<Object>(keys));
+  }
+
+  /**
+   * Ranges on longs are the same as the ranges of a range index, across many blocks.
+   */
+  @Test
+  public void rangesOnLongsMatchRangeIndex() {
+    NumericRangeIndex numericIndex = new NumericRangeIndex();
+    RangeIndex rangeIndex = new RangeIndex();
+    Random random = new Random(42);
+    long[] values = new long[5000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = random.nextInt(1000) - 500;
+      numericIndex.put(values[i], i);
+      rangeIndex.put(values[i], i);
+    }
+    for (int i = 0; i < values.length; i += 3) {
+      numericIndex.remove(values[i], i);
+      rangeIndex.remove(values[i], i);
+    }
+    for (int i = 0; i < 50; i++) {
+      long lower = random.nextInt(1200) - 600;
+      long upper = lower + random.nextInt(300);
+      assertKeys(rangeIndex.lessThan(lower), numericIndex.lessThan(lower));
+      assertKeys(rangeIndex.lessThanOrEqualsTo(lower), numericIndex.lessThanOrEqualsTo(lower));
+      assertKeys(rangeIndex.greaterThan(upper), numericIndex.greaterThan(upper));
+      assertKeys(rangeIndex.greaterThanOrEqualsTo(upper),
+          numericIndex.greaterThanOrEqualsTo(upper));
+      assertKeys(rangeIndex.between(lower, upper), numericIndex.between(lower, upper));
+      assertKeys(rangeIndex.equalsTo(lower), numericIndex.equalsTo(lower));
+    }
+  }
+
+  /**
+   * Ranges on doubles keep the order of negative and positive numbers.
+   */
+  @Test
+  public void rangesOnDoubles() {
+    NumericRangeIndex index = new NumericRangeIndex();
+    index.put(-2.5d, "a");
+    index.put(-0.0d, "b");
+    index.put(0.0d, "c");
+    index.put(1.25d, "d");
+    index.put(3d, "e");
+    assertKeys(Arrays.<Object>asList("a"), index.lessThan(-1));
+    assertKeys(Arrays.<Object>asList("b", "c", "d"), index.between(-2.5d, 3));
+    assertKeys(Arrays.<Object>asList("b", "c"), index.equalsTo(0));
+    assertKeys(Arrays.<Object>asList("d", "e"), index.greaterThanOrEqualsTo(1.25d));
+    assertKeys(Arrays.<Object>asList("e"), index.greaterThan(1.25d));
+  }
+
+  /**
+   * Fractional bounds on integers.
+   */
+  @Test
+  public void fractionalBoundsOnIntegers() {
+    NumericRangeIndex index = new NumericRangeIndex();
+    for (int i = 0; i < 10; i++) {
+      index.put(i, i);
+    }
+    assertKeys(Arrays.<Object>asList(3, 4, 5), index.between(2.5d, 6));
+    assertKeys(Arrays.<Object>asList(0, 1, 2), index.lessThanOrEqualsTo(2.5d));
+    assertKeys(Arrays.<Object>asList(8, 9), index.greaterThan(7.0d));
+    assertTrue(index.equalsTo(2.5d).isEmpty());
+  }
+
+  /**
+   * Range stops at the limit in the order of the values.
+   */
+  @Test
+  public void rangeLimit() {
+    NumericRangeIndex index = new NumericRangeIndex();
+    for (int i = 1000; i > 0; i--) {
+      index.put(i, i);
+    }
+    assertEquals(Arrays.<Object>asList(11, 12, 13),
+        index.range(10, false, null, false, 3));
+  }
+
+  /**
+   * Bounds at the ends of longs.
+   */
+  @Test
+  public void boundsAtTheEnds() {
+    NumericRangeIndex index = new NumericRangeIndex();
+    index.put(Long.MAX_VALUE, "max");
+    index.put(Long.MIN_VALUE, "min");
+    assertTrue(index.greaterThan(Long.MAX_VALUE).isEmpty());
+    assertTrue(index.lessThan(Long.MIN_VALUE).isEmpty());
+    assertKeys(Arrays.<Object>asList("max", "min"), index.between(null, null));
+  }
+
+  /**
+   * Empty index.
+   */
+  @Test
+  public void emptyIndex() {
+    NumericRangeIndex index = new NumericRangeIndex();
+    index.remove(1, "a");
+    assertTrue(index.lessThan(1).isEmpty());
+  }
+
+  /**
+   * Put throws illegal argument exception for values that aren't numbers.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void putNotNumber() {
+    NumericRangeIndex index = new NumericRangeIndex();
+    index.put(1, "a");
+    index.put("b", "b");
+  }
+
+  /**
+   * Scan visits the keys in order across blocks until the visitor stops.
+   */
+  @Test
+  public void scan() {
+    NumericRangeIndex index = new NumericRangeIndex();
+    for (int i = 0; i < 2000; i++) {
+      index.put(i, i);
+    }
+    List<Object> keys = new ArrayList<Object>();
+    index.scan(false, key -> keys.add(key) && keys.size() < 2000);
+    for (int i = 0; i < keys.size(); i++) {
+      assertEquals(i, keys.get(i));
+    }
+    keys.clear();
+    index.scan(true, key -> keys.add(key) && keys.size() < 2);
+    assertEquals(Arrays.<Object>asList(1999, 1998), keys);
+  }
+}
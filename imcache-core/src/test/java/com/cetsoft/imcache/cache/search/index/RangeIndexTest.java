@@ -16,23 +16,17 @@
 package com.cetsoft.imcache.cache.search.index;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
-import static org.mockito.Mockito.doNothing;
-import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.spy;
-import static org.mockito.Mockito.verify;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map.Entry;
-import java.util.NavigableMap;
 import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.Mock;
-import org.mockito.MockitoAnnotations;
-import org.mockito.Spy;
 
 /**
  * The Class RangeIndexTest.
@@ -45,121 +39,111 @@ public class RangeIndexTest {
   RangeIndex rangeIndex;
 
   /**
-   * The upper bound.
+   * Setup.
    */
-  @Mock
-  Comparable<Object> comparable, lowerBound, upperBound;
+  @Before
+  public void setup() {
+    rangeIndex = new RangeIndex();
+    for (int i = 0; i < 10; i++) {
+      rangeIndex.put(i, "key" + i);
+    }
+    rangeIndex.put(5, "other5");
+  }
 
   /**
-   * The map.
+   * Asserts that the keys are the expected ones regardless of order.
+   *
+   * @param keys the keys
+   * @param expected the expected keys
    */
-  @Mock
-  NavigableMap<Object, Set<Object>> map;
+  private void assertKeys(List<Object> keys, Object... expected) {
+    assertEquals(expected.length, keys.size());
+    assertEquals(new HashSet<Object>(Arrays.asList(expected)), new HashSet<Object>(keys));
+  }
 
   /**
-   * The entry.
+   * Less than.
    */
-  @Mock
-  Entry<Object, Set<Object>> entry;
+  @Test
+  public void lessThan() {
+    assertKeys(rangeIndex.lessThan(3), "key0", "key1", "key2");
+  }
 
   /**
-   * The result.
+   * Less than or equals to.
    */
-  @Spy
-  List<Object> result = new ArrayList<Object>();
+  @Test
+  public void lessThanOrEqualsTo() {
+    assertKeys(rangeIndex.lessThanOrEqualsTo(2), "key0", "key1", "key2");
+  }
 
   /**
-   * Setup.
+   * Greater than.
    */
-  @Before
-  public void setup() {
-    MockitoAnnotations.initMocks(this);
-    rangeIndex = spy(new RangeIndex());
-    rangeIndex.map = map;
+  @Test
+  public void greaterThan() {
+    assertKeys(rangeIndex.greaterThan(7), "key8", "key9");
   }
 
   /**
-   * Less than.
+   * Greater than or equals to.
    */
   @Test
-  public void lessThan() {
-    Object value = new Object();
-    doReturn(entry).when(map).lowerEntry(value);
-    doReturn(result).when(rangeIndex).lower(map, entry);
-    rangeIndex.lessThan(value);
-    verify(rangeIndex).lower(map, entry);
+  public void greaterThanOrEqualsTo() {
+    assertKeys(rangeIndex.greaterThanOrEqualsTo(8), "key8", "key9");
   }
 
   /**
-   * Less than or equals to.
+   * Between.
    */
   @Test
-  public void lessThanOrEqualsTo() {
-    Object value = new Object();
-    doReturn(entry).when(map).lowerEntry(value);
-    doReturn(result).when(rangeIndex).lessThan(value);
-    doNothing().when(rangeIndex).equalsTo(value, result);
-    rangeIndex.lessThanOrEqualsTo(value);
-    verify(rangeIndex).lessThan(value);
-    verify(rangeIndex).equalsTo(value, result);
+  public void between() {
+    assertKeys(rangeIndex.between(3, 6), "key4", "key5", "other5");
   }
 
   /**
-   * Lower.
+   * Between with bounds in reverse order.
    */
   @Test
-  public void lower() {
-    Object key = new Object();
-    Object value = new Object();
-    Set<Object> set = new HashSet<Object>();
-    set.add(value);
-    doReturn(set).when(entry).getValue();
-    doReturn(key).when(entry).getKey();
-    doReturn(null).when(map).lowerEntry(key);
-    List<Object> actualObjects = rangeIndex.lower(map, entry);
-    assertEquals(value, actualObjects.get(0));
+  public void betweenReversedBounds() {
+    assertTrue(rangeIndex.between(6, 3).isEmpty());
+    assertTrue(rangeIndex.between(5, 5).isEmpty());
   }
 
   /**
-   * Greater than.
+   * Range with inclusive bounds.
    */
   @Test
-  public void greaterThan() {
-    Object value = new Object();
-    doReturn(entry).when(map).higherEntry(value);
-    doReturn(result).when(rangeIndex).higher(map, entry);
-    rangeIndex.greaterThan(value);
-    verify(rangeIndex).higher(map, entry);
+  public void rangeInclusive() {
+    assertKeys(rangeIndex.range(4, true, 5, true, RangeIndex.NO_LIMIT), "key4", "key5", "other5");
+    assertKeys(rangeIndex.range(5, true, 5, true, RangeIndex.NO_LIMIT), "key5", "other5");
   }
 
   /**
-   * Greater than or equals to.
+   * Range without bounds.
    */
   @Test
-  public void greaterThanOrEqualsTo() {
-    Object value = new Object();
-    doReturn(entry).when(map).higherEntry(value);
-    doReturn(result).when(rangeIndex).greaterThan(value);
-    doNothing().when(rangeIndex).equalsTo(value, result);
-    rangeIndex.greaterThanOrEqualsTo(value);
-    verify(rangeIndex).greaterThan(value);
-    verify(rangeIndex).equalsTo(value, result);
+  public void rangeUnbounded() {
+    assertEquals(11, rangeIndex.range(null, false, null, false, RangeIndex.NO_LIMIT).size());
+  }
+
+  /**
+   * Range stops at the limit in the order of the indexed values.
+   */
+  @Test
+  public void rangeLimit() {
+    List<Object> keys = rangeIndex.range(null, false, 9, true, 3);
+    assertEquals(Arrays.<Object>asList("key0", "key1", "key2"), keys);
   }
 
   /**
-   * Higher.
+   * Range doesn't return a key twice.
    */
   @Test
-  public void higher() {
-    Object key = new Object();
-    Object value = new Object();
-    Set<Object> set = new HashSet<Object>();
-    set.add(value);
-    doReturn(set).when(entry).getValue();
-    doReturn(key).when(entry).getKey();
-    doReturn(null).when(map).higherEntry(key);
-    List<Object> actualObjects = rangeIndex.higher(map, entry);
-    assertEquals(value, actualObjects.get(0));
+  public void rangeDistinct() {
+    rangeIndex.put(8, "key1");
+    assertKeys(rangeIndex.range(0, true, 8, true, RangeIndex.NO_LIMIT), "key0", "key1", "key2",
+        "key3", "key4", "key5", "other5", "key6", "key7", "key8");
   }
 
   /**
@@ -167,31 +151,51 @@ public class RangeIndexTest {
    */
   @Test
   public void equalsTo() {
-    List<Object> list = new ArrayList<Object>();
-    Object value = new Object();
-    Set<Object> set = new HashSet<Object>();
-    set.add(value);
-    doReturn(set).when(map).get(value);
-    rangeIndex.equalsTo(value, list);
-    assertTrue(list.contains(value));
+    assertKeys(rangeIndex.equalsTo(5), "key5", "other5");
   }
 
   /**
-   * Between.
+   * Remove drops the indexed value once its last key is removed, even when the key and the indexed
+   * value can't be compared.
    */
   @Test
-  public void between() {
-    Comparable<Object> key = comparable;
-    Object value = new Object();
-    Set<Object> set = new HashSet<Object>();
-    set.add(value);
-    doReturn(set).when(entry).getValue();
-    doReturn(key).when(entry).getKey();
-    doReturn(entry).when(map).higherEntry(lowerBound);
-    doReturn(-1).doReturn(1).when(key).compareTo(upperBound);
-    doReturn(null).when(map).higherEntry(key);
-    List<Object> list = rangeIndex.between(lowerBound, upperBound);
-    assertTrue(list.contains(value));
+  public void removeLastKeyOfIndexedValue() {
+    rangeIndex.remove(3, "key3");
+    assertFalse(rangeIndex.map.containsKey(3));
+    assertKeys(rangeIndex.lessThan(5), "key0", "key1", "key2", "key4");
+  }
+
+  /**
+   * Put doesn't add to a set which a concurrent remove has already detached from the map.
+   */
+  @Test
+  public void putRetriesOnDetachedSet() {
+    final Set<Object> detached = new HashSet<Object>();
+    rangeIndex.map = new ConcurrentSkipListMap<Object, Set<Object>>(rangeIndex.map) {
+      private boolean stale = true;
+
+      @Override
+      public Set<Object> get(Object key) {
+        if (stale) {
+          stale = false;
+          return detached;
+        }
+        return super.get(key);
+      }
+    };
+    rangeIndex.put(20, "key20");
+    assertTrue(detached.isEmpty());
+    assertKeys(rangeIndex.equalsTo(20), "key20");
+  }
+
+  /**
+   * Scan visits the keys in order until the visitor stops.
+   */
+  @Test
+  public void scan() {
+    List<Object> keys = new ArrayList<Object>();
+    rangeIndex.scan(true, key -> keys.add(key) && keys.size() < 3);
+    assertEquals(Arrays.<Object>asList("key9", "key8", "key7"), keys);
   }
 
 }
@@ -0,0 +1,67 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.cache.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.cetsoft.imcache.cache.search.AttributeException;
+import java.util.function.Function;
+import org.junit.Test;
+
+public class ReflectionUtilsTest {
+
+  private static class Item {
+    private final int size;
+
+    Item(int size) {
+      this.size = size;
+    }
+  }
+
+  private static class Box {
+    private final String size;
+
+    Box(String size) {
+      this.size = size;
+    }
+  }
+
+  @Test
+  public void getFieldValue() {
+    assertEquals(3, ReflectionUtils.getFieldValue("size", new Item(3)));
+  }
+
+  @Test(expected = AttributeException.class)
+  public void getFieldValueThrowsAttributeException() {
+    ReflectionUtils.getFieldValue("weight", new Item(3));
+  }
+
+  @Test
+  public void getFieldAccessorIsCached() {
+    Function<Object, Object> accessor = ReflectionUtils.getFieldAccessor(Item.class, "size");
+    assertSame(accessor, ReflectionUtils.getFieldAccessor(Item.class, "size"));
+    assertEquals(5, accessor.apply(new Item(5)));
+  }
+
+  @Test
+  public void fieldAccessorReadsDifferentClasses() {
+    Function<Object, Object> accessor = ReflectionUtils.fieldAccessor("size");
+    assertEquals(1, accessor.apply(new Item(1)));
+    assertEquals("large", accessor.apply(new Box("large")));
+    assertEquals(2, accessor.apply(new Item(2)));
+  }
+}
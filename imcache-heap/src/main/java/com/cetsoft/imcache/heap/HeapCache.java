@@ -17,7 +17,9 @@ package com.cetsoft.imcache.heap;
 
 import com.cetsoft.imcache.cache.AbstractSearchableCache;
 import com.cetsoft.imcache.cache.CacheLoader;
+import com.cetsoft.imcache.cache.CacheOperation;
 import com.cetsoft.imcache.cache.CacheStats;
+import com.cetsoft.imcache.cache.EvictionCause;
 import com.cetsoft.imcache.cache.EvictionListener;
 import com.cetsoft.imcache.cache.search.IndexHandler;
 import com.cetsoft.imcache.concurrent.ConcurrentCacheStats;
@@ -25,7 +27,10 @@ import com.github.benmanes.caffeine.cache.CacheWriter;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.Expiry;
 import com.github.benmanes.caffeine.cache.RemovalCause;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -54,9 +59,28 @@ public class HeapCache<K, V> extends AbstractSearchableCache<K, V> {
   public HeapCache(final String name, final CacheLoader<K, V> cacheLoader,
       final EvictionListener<K, V> evictionListener, final IndexHandler<K, V> indexHandler,
       final long limit, final TimeUnit expiryUnit, final long expiry) {
+    this(name, cacheLoader, evictionListener, indexHandler, limit, null, expiryUnit, expiry);
+  }
+
+  /**
+   * Instantiates a new abstract cache. If the weigher is not null, the limit is the maximum total
+   * weight of the entries, otherwise it is the maximum number of entries.
+   *
+   * @param name the cache name
+   * @param cacheLoader the cache loader
+   * @param evictionListener the eviction listener
+   * @param indexHandler the index handler
+   * @param limit the limit
+   * @param weigher the weigher
+   * @param expiryUnit the time unit
+   * @param expiry the duration
+   */
+  public HeapCache(final String name, final CacheLoader<K, V> cacheLoader,
+      final EvictionListener<K, V> evictionListener, final IndexHandler<K, V> indexHandler,
+      final long limit, final Weigher<K, V> weigher, final TimeUnit expiryUnit,
+      final long expiry) {
     super(name, cacheLoader, evictionListener, indexHandler);
-    this.caffeine = Caffeine.newBuilder()
-        .maximumSize(limit)
+    Caffeine<K, V> builder = Caffeine.newBuilder()
         .expireAfter(new Expiry<K, V>() {
           public long expireAfterCreate(K key, V value, long currentTime) {
             return currentTime + expiryUnit.MILLISECONDS.toMillis(expiry);
@@ -69,15 +93,22 @@ public class HeapCache<K, V> extends AbstractSearchableCache<K, V> {
           public long expireAfterRead(K key, V value, long currentTime, long currentDuration) {
             return Long.MAX_VALUE;
           }
-        })
+        });
+    if (weigher != null) {
+      builder = builder.maximumWeight(limit).weigher(weigher::weigh);
+    } else {
+      builder = builder.maximumSize(limit);
+    }
+    this.caffeine = builder
         .removalListener((key, value, cause) -> {
           evictionListener.onEviction(key, value);
-          stats.incrementEvictionCount();
+          stats.incrementEvictionCount(toEvictionCause(cause));
         })
         .writer(new CacheWriter<K, V>() {
           @Override
           public void write(@NonNull K key, @NonNull V value) {
             indexHandler.add(key, value);
+            stats.recordPut(0);
           }
 
           @Override
@@ -90,16 +121,94 @@ public class HeapCache<K, V> extends AbstractSearchableCache<K, V> {
 
   @Override
   public void put(final K key, final V value) {
-    caffeine.put(key, value);
+    final long start = startTiming();
+    caffeine.asMap().compute(key, (k, oldValue) -> reindex(k, oldValue, value));
+    recordLatency(CacheOperation.PUT, start);
   }
 
   @Override
   public void put(final K key, final V value, final TimeUnit timeUnit, final long duration) {
-    caffeine.policy().expireVariably().get().put(key, value, duration, timeUnit);
+    final long start = startTiming();
+    caffeine.asMap().compute(key, (k, oldValue) -> reindex(k, oldValue, value));
+    caffeine.policy().expireVariably().get().setExpiresAfter(key, duration, timeUnit);
+    recordLatency(CacheOperation.PUT, start);
+  }
+
+  @Override
+  public V putIfAbsent(final K key, final V value) {
+    return caffeine.asMap().putIfAbsent(key, value);
+  }
+
+  @Override
+  public boolean replace(final K key, final V oldValue, final V newValue) {
+    final boolean[] replaced = new boolean[1];
+    caffeine.asMap().computeIfPresent(key, (k, value) -> {
+      if (!Objects.equals(value, oldValue)) {
+        return value;
+      }
+      replaced[0] = true;
+      return reindex(k, value, newValue);
+    });
+    return replaced[0];
+  }
+
+  @Override
+  public V computeIfAbsent(final K key, final Function<? super K, ? extends V> mappingFunction) {
+    // Caffeine doesn't call the cache writer for computations, so indexes are updated here.
+    return caffeine.asMap().computeIfAbsent(key, k -> {
+      final V value = mappingFunction.apply(k);
+      if (value != null) {
+        indexHandler.add(k, value);
+        stats.recordPut(0);
+      }
+      return value;
+    });
+  }
+
+  @Override
+  public V compute(final K key,
+      final BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+    return caffeine.asMap().compute(key,
+        (k, value) -> reindex(k, value, remappingFunction.apply(k, value)));
+  }
+
+  /**
+   * Replaces the old value of the key with the new value in the indexes. The cache writer isn't
+   * given the value it overwrites, so overwrites are computed and indexed here instead.
+   *
+   * @param key the key
+   * @param oldValue the old value, or null
+   * @param newValue the new value, or null
+   * @return the new value
+   */
+  private V reindex(final K key, final V oldValue, final V newValue) {
+    if (oldValue != null) {
+      indexHandler.remove(key, oldValue);
+    }
+    if (newValue != null) {
+      indexHandler.add(key, newValue);
+      stats.recordPut(0);
+    }
+    return newValue;
   }
 
   @Override
   public V get(final K key) {
+    final long start = startTiming();
+    try {
+      return getOrLoad(key);
+    } finally {
+      recordLatency(CacheOperation.GET, start);
+    }
+  }
+
+  /**
+   * Gets the value, loading it with the cache loader if it is not in the cache.
+   *
+   * @param key the key
+   * @return the value
+   */
+  private V getOrLoad(final K key) {
     V value = caffeine.getIfPresent(key);
     if (value != null) {
       stats.incrementHitCount();
@@ -108,19 +217,33 @@ public class HeapCache<K, V> extends AbstractSearchableCache<K, V> {
     stats.incrementMissCount();
     //Explicitly not locking at the cost of loading item once more
     if (cacheLoader != null) {
-      value = cacheLoader.load(key);
+      final long start = System.nanoTime();
+      try {
+        value = cacheLoader.load(key);
+      } catch (RuntimeException e) {
+        stats.recordLoadFailure(System.nanoTime() - start);
+        throw e;
+      } finally {
+        recordLatency(CacheOperation.LOAD, start);
+      }
       if (value != null) {
+        stats.recordLoadSuccess(System.nanoTime() - start);
         this.put(key, value);
-        stats.incrementLoadCount();
         return value;
       }
+      stats.recordLoadFailure(System.nanoTime() - start);
     }
     return null;
   }
 
   @Override
   public V invalidate(final K key) {
-    return caffeine.asMap().remove(key);
+    final long start = startTiming();
+    try {
+      return caffeine.asMap().remove(key);
+    } finally {
+      recordLatency(CacheOperation.INVALIDATE, start);
+    }
   }
 
   @Override
@@ -141,8 +264,39 @@ public class HeapCache<K, V> extends AbstractSearchableCache<K, V> {
     return caffeine.estimatedSize();
   }
 
+  /**
+   * Returns estimated total weight of the elements in this cache if it is bounded by weight,
+   * otherwise returns -1.
+   *
+   * @return the total weight of the elements
+   */
+  public long weightedSize() {
+    return caffeine.policy().eviction()
+        .map(eviction -> eviction.weightedSize().orElse(-1))
+        .orElse(-1L);
+  }
+
   @Override
   public CacheStats stats() {
     return stats;
   }
+
+  /**
+   * Maps the removal cause of caffeine to the eviction cause.
+   *
+   * @param cause the removal cause
+   * @return the eviction cause
+   */
+  private static EvictionCause toEvictionCause(final RemovalCause cause) {
+    switch (cause) {
+      case EXPLICIT:
+        return EvictionCause.EXPLICIT;
+      case REPLACED:
+        return EvictionCause.REPLACED;
+      case EXPIRED:
+        return EvictionCause.EXPIRED;
+      default:
+        return EvictionCause.SIZE;
+    }
+  }
 }
@@ -0,0 +1,47 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.heap;
+
+import com.cetsoft.imcache.serialization.Serializer;
+
+/**
+ * The Class SerializedSizeWeigher weighs entries by the size of their serialized values in bytes.
+ * It is an estimate of the memory held by the value and costs a serialization for each write.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class SerializedSizeWeigher<K, V> implements Weigher<K, V> {
+
+  /**
+   * The serializer.
+   */
+  private final Serializer<V> serializer;
+
+  /**
+   * Instantiates a new serialized size weigher.
+   *
+   * @param serializer the serializer
+   */
+  public SerializedSizeWeigher(final Serializer<V> serializer) {
+    this.serializer = serializer;
+  }
+
+  @Override
+  public int weigh(final K key, final V value) {
+    return serializer.serialize(value).length;
+  }
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.heap;
+
+/**
+ * The Weigher interface calculates the weight of cache entries. The total weight of the entries in
+ * a heap cache is bounded by its maximum weight, so entries of very different sizes can be kept
+ * within a memory budget.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+  /**
+   * Returns the weight of the entry. The weight must not be negative.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the weight
+   */
+  int weigh(K key, V value);
+}
@@ -16,17 +16,22 @@
 package com.cetsoft.imcache.heap;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 
+import com.cetsoft.imcache.cache.CacheLatencies;
 import com.cetsoft.imcache.cache.CacheLoader;
+import com.cetsoft.imcache.cache.CacheOperation;
 import com.cetsoft.imcache.cache.EvictionListener;
 import com.cetsoft.imcache.cache.search.IndexHandler;
 import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -53,6 +58,12 @@ public class HeapCacheTest {
   @Mock
   IndexHandler<String, String> indexHandler;
 
+  /**
+   * The weigher.
+   */
+  @Mock
+  Weigher<String, String> weigher;
+
   /**
    * The cache.
    */
@@ -105,6 +116,35 @@ public class HeapCacheTest {
     verify(indexHandler).add("c", "d");
   }
 
+  @Test
+  public void getRecordsLoadStats() {
+    doReturn("d").when(cacheLoader).load("c");
+
+    cache.get("c");
+    cache.get("e");
+
+    assertEquals(1, cache.stats().getLoadCount());
+    assertEquals(1, cache.stats().getLoadFailureCount());
+    assertEquals(1, cache.stats().getPutCount());
+    assertTrue(cache.stats().getTotalLoadTime() >= 0);
+  }
+
+  @Test
+  public void recordsLatencies() {
+    doReturn("d").when(cacheLoader).load("c");
+    cache.setLatencies(new CacheLatencies());
+
+    cache.put("a", "b");
+    cache.get("a");
+    cache.get("c");
+    cache.invalidate("a");
+
+    assertEquals(2, cache.getLatencies().snapshot(CacheOperation.GET).getCount());
+    assertEquals(2, cache.getLatencies().snapshot(CacheOperation.PUT).getCount());
+    assertEquals(1, cache.getLatencies().snapshot(CacheOperation.LOAD).getCount());
+    assertEquals(1, cache.getLatencies().snapshot(CacheOperation.INVALIDATE).getCount());
+  }
+
   @Test
   public void invalidate() {
     cache.put("a", "b");
@@ -115,6 +155,57 @@ public class HeapCacheTest {
   }
 
 
+  @Test
+  public void putIfAbsent() {
+    assertEquals(null, cache.putIfAbsent("a", "b"));
+    assertEquals("b", cache.putIfAbsent("a", "c"));
+
+    assertEquals("b", cache.get("a"));
+  }
+
+  @Test
+  public void putRemovesOverwrittenValueFromIndexes() {
+    cache.put("a", "b");
+    cache.put("a", "c");
+
+    InOrder inOrder = inOrder(indexHandler);
+    inOrder.verify(indexHandler).add("a", "b");
+    inOrder.verify(indexHandler).remove("a", "b");
+    inOrder.verify(indexHandler).add("a", "c");
+  }
+
+  @Test
+  public void replace() {
+    cache.put("a", "b");
+
+    assertFalse(cache.replace("a", "c", "d"));
+    assertTrue(cache.replace("a", "b", "d"));
+
+    assertEquals("d", cache.get("a"));
+    verify(indexHandler).remove("a", "b");
+    verify(indexHandler).add("a", "d");
+  }
+
+  @Test
+  public void computeIfAbsent() {
+    assertEquals("b", cache.computeIfAbsent("a", key -> "b"));
+    assertEquals("b", cache.computeIfAbsent("a", key -> "c"));
+
+    verify(indexHandler).add("a", "b");
+  }
+
+  @Test
+  public void compute() {
+    cache.put("a", "b");
+
+    assertEquals("bc", cache.compute("a", (key, value) -> value + "c"));
+    assertEquals(null, cache.compute("a", (key, value) -> null));
+
+    assertFalse(cache.contains("a"));
+    verify(indexHandler).add("a", "bc");
+    verify(indexHandler).remove("a", "bc");
+  }
+
   /**
    * Contains.
    */
@@ -144,4 +235,23 @@ public class HeapCacheTest {
     assertEquals(cache.size(), 3);
   }
 
+  @Test
+  public void weigher() {
+    doReturn(3).when(weigher).weigh("a", "abc");
+    HeapCache<String, String> weightedCache = new HeapCache<>("weighted-cache", cacheLoader,
+        evictionListener, indexHandler, 100, weigher, TimeUnit.SECONDS, 10000);
+
+    weightedCache.put("a", "abc");
+
+    assertEquals("abc", weightedCache.get("a"));
+    verify(weigher).weigh("a", "abc");
+  }
+
+  @Test
+  public void weightedSizeOfUnweightedCache() {
+    cache.put("a", "b");
+
+    assertEquals(-1, cache.weightedSize());
+  }
+
 }
@@ -0,0 +1,59 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.heap;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doReturn;
+
+import com.cetsoft.imcache.serialization.Serializer;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * The Class SerializedSizeWeigherTest.
+ */
+public class SerializedSizeWeigherTest {
+
+  /**
+   * The serializer.
+   */
+  @Mock
+  Serializer<String> serializer;
+
+  /**
+   * The weigher.
+   */
+  SerializedSizeWeigher<String, String> weigher;
+
+  /**
+   * Setup.
+   */
+  @Before
+  public void setup() {
+    MockitoAnnotations.initMocks(this);
+    weigher = new SerializedSizeWeigher<>(serializer);
+  }
+
+  @Test
+  public void weigh() {
+    doReturn(new byte[12]).when(serializer).serialize("value");
+
+    assertEquals(12, weigher.weigh("key", "value"));
+  }
+
+}
@@ -17,8 +17,11 @@ package com.cetsoft.imcache.offheap;
 
 import com.cetsoft.imcache.cache.AbstractSearchableCache;
 import com.cetsoft.imcache.cache.CacheLoader;
+import com.cetsoft.imcache.cache.CacheOperation;
 import com.cetsoft.imcache.cache.CacheStats;
+import com.cetsoft.imcache.cache.EvictionCause;
 import com.cetsoft.imcache.cache.EvictionListener;
+import com.cetsoft.imcache.cache.metrics.MetricSource;
 import com.cetsoft.imcache.cache.search.IndexHandler;
 import com.cetsoft.imcache.cache.util.ThreadUtils;
 import com.cetsoft.imcache.concurrent.ConcurrentCacheStats;
@@ -29,8 +32,10 @@ import com.cetsoft.imcache.offheap.bytebuffer.Pointer;
 import com.cetsoft.imcache.serialization.Serializer;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -38,6 +43,10 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * The Class OffHeapCache is a cache that uses offheap byte buffers to store or retrieve data by
@@ -48,7 +57,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @param <K> the key type
  * @param <V> the value type
  */
-public class OffHeapCache<K, V> extends AbstractSearchableCache<K, V> {
+public class OffHeapCache<K, V> extends AbstractSearchableCache<K, V> implements MetricSource {
 
   /**
    * The default buffer cleaner period which is 10 minutes.
@@ -99,6 +108,26 @@ public class OffHeapCache<K, V> extends AbstractSearchableCache<K, V> {
    * The read write lock.
    */
   private StripedReadWriteLock readWriteLock;
+  /**
+   * The number of buffer cleaner runs that moved items out of dirty buffers.
+   */
+  private final AtomicLong compactionCount = new AtomicLong();
+  /**
+   * The number of buffers freed by the buffer cleaner.
+   */
+  private final AtomicLong compactedBufferCount = new AtomicLong();
+  /**
+   * The number of eviction scans.
+   */
+  private final AtomicLong evictionScanCount = new AtomicLong();
+  /**
+   * The total duration of eviction scans in nanoseconds.
+   */
+  private final AtomicLong evictionScanTime = new AtomicLong();
+  /**
+   * The duration of the last eviction scan in nanoseconds.
+   */
+  private volatile long lastEvictionScanDuration;
 
   /**
    * Instantiates a new offheap cache.
@@ -170,41 +199,206 @@ public class OffHeapCache<K, V> extends AbstractSearchableCache<K, V> {
 
   @Override
   public void put(final K key, final V value, final TimeUnit timeUnit, final long duration) {
+    final long start = startTiming();
     final long expiry = System.currentTimeMillis() + timeUnit.toMillis(duration);
-    Pointer pointer = pointerMap.get(key);
     writeLock(key);
     try {
-      final byte[] bytes = serializer.serialize(value);
-      if (pointer == null) {
-        pointer = bufferStore.store(bytes, expiry);
-      } else {
-        pointer = bufferStore.update(pointer, bytes, expiry);
+      final Pointer pointer = pointerMap.get(key);
+      final V oldValue = pointer == null ? null : getValue(pointer);
+      store(key, value, pointer, expiry);
+      if (oldValue != null) {
+        indexHandler.remove(key, oldValue);
       }
-      pointerMap.put(key, pointer);
       indexHandler.add(key, value);
+    } finally {
+      writeUnlock(key);
+      recordLatency(CacheOperation.PUT, start);
+    }
+  }
+
+  @Override
+  public V putIfAbsent(final K key, final V value) {
+    writeLock(key);
+    try {
+      final Pointer pointer = pointerMap.get(key);
+      if (pointer != null) {
+        return getValue(pointer);
+      }
+      store(key, value, null, defaultExpiry());
+      indexHandler.add(key, value);
+      return null;
+    } finally {
+      writeUnlock(key);
+    }
+  }
+
+  @Override
+  public boolean replace(final K key, final V oldValue, final V newValue) {
+    writeLock(key);
+    try {
+      final Pointer pointer = pointerMap.get(key);
+      if (pointer == null) {
+        return false;
+      }
+      final V value = getValue(pointer);
+      if (!Objects.equals(value, oldValue)) {
+        return false;
+      }
+      store(key, newValue, pointer, defaultExpiry());
+      indexHandler.remove(key, value);
+      indexHandler.add(key, newValue);
+      return true;
     } finally {
       writeUnlock(key);
     }
   }
 
+  @Override
+  public V computeIfAbsent(final K key, final Function<? super K, ? extends V> mappingFunction) {
+    writeLock(key);
+    try {
+      final Pointer pointer = pointerMap.get(key);
+      if (pointer != null) {
+        return getValue(pointer);
+      }
+      final V value = mappingFunction.apply(key);
+      if (value != null) {
+        store(key, value, null, defaultExpiry());
+        indexHandler.add(key, value);
+      }
+      return value;
+    } finally {
+      writeUnlock(key);
+    }
+  }
+
+  @Override
+  public V compute(final K key,
+      final BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+    return compute(key, remappingFunction, TimeUnit.MILLISECONDS, evictionPeriod * 3);
+  }
+
+  /**
+   * Computes a new value for the specified key from its current value with the given ttl value. The
+   * current value is read, remapped and written back while holding the write lock of the key.
+   *
+   * @param key the key
+   * @param remappingFunction the remapping function
+   * @param timeUnit the time unit
+   * @param duration time to live
+   * @return the new value, or null
+   */
+  public V compute(final K key,
+      final BiFunction<? super K, ? super V, ? extends V> remappingFunction,
+      final TimeUnit timeUnit, final long duration) {
+    final long expiry = System.currentTimeMillis() + timeUnit.toMillis(duration);
+    writeLock(key);
+    try {
+      final Pointer pointer = pointerMap.get(key);
+      final V value = pointer == null ? null : getValue(pointer);
+      final V newValue = remappingFunction.apply(key, value);
+      if (newValue == null) {
+        if (pointer != null) {
+          bufferStore.remove(pointer);
+          pointerMap.remove(key);
+          indexHandler.remove(key, value);
+        }
+        return null;
+      }
+      store(key, newValue, pointer, expiry);
+      if (value != null) {
+        indexHandler.remove(key, value);
+      }
+      indexHandler.add(key, newValue);
+      return newValue;
+    } finally {
+      writeUnlock(key);
+    }
+  }
+
+  /**
+   * Serializes and stores the value, updating the given pointer if there is one. The write lock for
+   * the key must be held by the caller.
+   *
+   * @param key the key
+   * @param value the value
+   * @param pointer the current pointer of the key, or null
+   * @param expiry the expiry
+   */
+  protected void store(final K key, final V value, final Pointer pointer, final long expiry) {
+    final byte[] bytes = serializer.serialize(value);
+    final Pointer newPointer;
+    if (pointer == null) {
+      newPointer = bufferStore.store(bytes, expiry);
+    } else {
+      newPointer = bufferStore.update(pointer, bytes, expiry);
+    }
+    pointerMap.put(key, newPointer);
+    stats.recordPut(bytes.length);
+  }
+
+  /**
+   * Retrieves and deserializes the value the pointer points to.
+   *
+   * @param pointer the pointer
+   * @return the value
+   */
+  protected V getValue(final Pointer pointer) {
+    return serializer.deserialize(bufferStore.retrieve(pointer));
+  }
+
+  /**
+   * Returns the expiry used by puts without a ttl value.
+   *
+   * @return the expiry
+   */
+  private long defaultExpiry() {
+    return System.currentTimeMillis() + evictionPeriod * 3;
+  }
+
 
   public V get(K key) {
+    final long start = startTiming();
+    try {
+      return getOrLoad(key);
+    } finally {
+      recordLatency(CacheOperation.GET, start);
+    }
+  }
+
+  /**
+   * Gets the value, loading it with the cache loader if it is not in the cache.
+   *
+   * @param key the key
+   * @return the value
+   */
+  private V getOrLoad(final K key) {
     final Pointer pointer = pointerMap.get(key);
     if (pointer != null) {
       readLock(key);
       try {
         stats.incrementHitCount();
-        final byte[] payload = bufferStore.retrieve(pointer);
-        return serializer.deserialize(payload);
+        return getValue(pointer);
       } finally {
         readUnlock(key);
       }
     } else {
       stats.incrementMissCount();
-      final V value = cacheLoader.load(key);
+      final long start = System.nanoTime();
+      final V value;
+      try {
+        value = cacheLoader.load(key);
+      } catch (RuntimeException e) {
+        stats.recordLoadFailure(System.nanoTime() - start);
+        throw e;
+      } finally {
+        recordLatency(CacheOperation.LOAD, start);
+      }
       if (value != null) {
-        stats.incrementLoadCount();
+        stats.recordLoadSuccess(System.nanoTime() - start);
         put(key, value);
+      } else {
+        stats.recordLoadFailure(System.nanoTime() - start);
       }
       return value;
     }
@@ -212,6 +406,7 @@ public class OffHeapCache<K, V> extends AbstractSearchableCache<K, V> {
 
 
   public V invalidate(K key) {
+    final long start = startTiming();
     writeLock(key);
     try {
       final Pointer pointer = pointerMap.get(key);
@@ -224,6 +419,7 @@ public class OffHeapCache<K, V> extends AbstractSearchableCache<K, V> {
       }
     } finally {
       writeUnlock(key);
+      recordLatency(CacheOperation.INVALIDATE, start);
     }
     return null;
   }
@@ -323,6 +519,10 @@ public class OffHeapCache<K, V> extends AbstractSearchableCache<K, V> {
     for (final int bufferIndex : buffersToBeCleaned) {
       bufferStore.free(bufferIndex);
     }
+    if (!buffersToBeCleaned.isEmpty()) {
+      compactionCount.incrementAndGet();
+      compactedBufferCount.addAndGet(buffersToBeCleaned.size());
+    }
   }
 
   /**
@@ -343,14 +543,62 @@ public class OffHeapCache<K, V> extends AbstractSearchableCache<K, V> {
    * Do eviction.
    */
   protected void doEviction() {
+    final long start = System.nanoTime();
     final Set<Entry<K, Pointer>> entries = pointerMap.entrySet();
     for (final Entry<K, Pointer> entry : entries) {
       if (entry.getValue().isExpired()) {
         final V value = invalidate(entry.getKey());
         evictionListener.onEviction(entry.getKey(), value);
-        stats.incrementEvictionCount();
+        stats.incrementEvictionCount(EvictionCause.EXPIRED);
       }
     }
+    final long duration = System.nanoTime() - start;
+    lastEvictionScanDuration = duration;
+    evictionScanTime.addAndGet(duration);
+    evictionScanCount.incrementAndGet();
+  }
+
+  /**
+   * Gets the number of buffer cleaner runs that moved items out of dirty buffers.
+   *
+   * @return the compaction count
+   */
+  public long getCompactionCount() {
+    return compactionCount.get();
+  }
+
+  /**
+   * Gets the number of eviction scans.
+   *
+   * @return the eviction scan count
+   */
+  public long getEvictionScanCount() {
+    return evictionScanCount.get();
+  }
+
+  /**
+   * Gets the total duration of eviction scans in nanoseconds.
+   *
+   * @return the eviction scan time
+   */
+  public long getEvictionScanTime() {
+    return evictionScanTime.get();
+  }
+
+  @Override
+  public Map<String, Supplier<Number>> metrics() {
+    final Map<String, Supplier<Number>> metrics = new LinkedHashMap<>();
+    metrics.put("usedMemory", bufferStore::usedMemory);
+    metrics.put("dirtyMemory", bufferStore::dirtyMemory);
+    metrics.put("freeMemory", bufferStore::freeMemory);
+    metrics.put("bufferCount", bufferStore::getBufferCount);
+    metrics.put("availableBufferCount", bufferStore::getAvailableBufferCount);
+    metrics.put("compactionCount", compactionCount::get);
+    metrics.put("compactedBufferCount", compactedBufferCount::get);
+    metrics.put("evictionScanCount", evictionScanCount::get);
+    metrics.put("evictionScanTime", evictionScanTime::get);
+    metrics.put("lastEvictionScanDuration", () -> lastEvictionScanDuration);
+    return metrics;
   }
 
 }
@@ -21,15 +21,21 @@ import com.cetsoft.imcache.cache.EvictionListener;
 import com.cetsoft.imcache.cache.SearchableCache;
 import com.cetsoft.imcache.cache.SimpleItem;
 import com.cetsoft.imcache.cache.VersionedItem;
+import com.cetsoft.imcache.cache.metrics.MetricSource;
 import com.cetsoft.imcache.cache.search.IndexHandler;
 import com.cetsoft.imcache.cache.search.Query;
+import com.cetsoft.imcache.cache.search.QueryPlanner;
 import com.cetsoft.imcache.cache.search.index.IndexType;
 import com.cetsoft.imcache.cache.util.SerializationUtils;
-import com.cetsoft.imcache.concurrent.StripedReadWriteLock;
 import com.cetsoft.imcache.offheap.bytebuffer.OffHeapByteBufferStore;
 import com.cetsoft.imcache.serialization.Serializer;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * The Class VersionedOffHeapCache is a type of offheap cache where cache items have versions that
@@ -38,18 +44,14 @@ import java.util.concurrent.TimeUnit;
  * @param <K> the key type
  * @param <V> the value type
  */
-public class VersionedOffHeapCache<K, V> implements SearchableCache<K, VersionedItem<V>> {
+public class VersionedOffHeapCache<K, V> implements SearchableCache<K, VersionedItem<V>>,
+    MetricSource {
 
   /**
    * The off heap cache.
    */
   protected OffHeapCache<K, VersionedItem<V>> offHeapCache;
 
-  /**
-   * The read write lock.
-   */
-  private StripedReadWriteLock readWriteLock;
-
   /**
    * Instantiates a new versioned off heap cache.
    *
@@ -74,7 +76,6 @@ public class VersionedOffHeapCache<K, V> implements SearchableCache<K, Versioned
     offHeapCache = new OffHeapCache<>(name, cacheLoader, evictionListener,
         indexHandler, byteBufferStore, serializer, bufferCleanerPeriod,
         bufferCleanerThreshold, concurrencyLevel, evictionPeriod);
-    this.readWriteLock = new StripedReadWriteLock(concurrencyLevel);
   }
 
   /**
@@ -106,57 +107,55 @@ public class VersionedOffHeapCache<K, V> implements SearchableCache<K, Versioned
 
 
   public void put(K key, VersionedItem<V> value) {
-    putInternal(key, value, versionedItem -> offHeapCache.put(key, versionedItem));
+    offHeapCache.compute(key, versionCheck(value));
   }
 
   @Override
   public void put(final K key, VersionedItem<V> value, final TimeUnit timeUnit,
       final long duration) {
-    putInternal(key, value,
-        versionedItem -> offHeapCache.put(key, versionedItem, timeUnit, duration));
+    offHeapCache.compute(key, versionCheck(value), timeUnit, duration);
   }
 
-  @FunctionalInterface
-  private interface PutOperation<V> {
-
-    void put(VersionedItem<V> versionedItem);
-  }
-
-  protected void putInternal(final K key, final VersionedItem<V> value,
-      final PutOperation<V> putOperation) {
+  /**
+   * Returns a remapping function that replaces the existing item with the given one unless the
+   * existing item has a greater version. Since the function runs under the write lock of the key,
+   * the version check and the put are atomic.
+   *
+   * @param value the value
+   * @return the remapping function
+   */
+  protected BiFunction<K, VersionedItem<V>, VersionedItem<V>> versionCheck(
+      final VersionedItem<V> value) {
     final int version = value.getVersion();
-    VersionedItem<V> exValue = get(key);
-    if (exValue != null && version < exValue.getVersion()) {
-      throw new StaleItemException(version, exValue.getVersion());
-    }
-    writeLock(key);
-    try {
-      exValue = get(key);
+    return (key, exValue) -> {
       if (exValue != null && version < exValue.getVersion()) {
         throw new StaleItemException(version, exValue.getVersion());
       }
-      putOperation.put(value);
-    } finally {
-      writeUnlock(key);
-    }
+      return value;
+    };
   }
 
-  /**
-   * Write Lock for key is locked.
-   *
-   * @param key the key
-   */
-  protected void writeLock(K key) {
-    readWriteLock.writeLock(Math.abs(key.hashCode()));
+  @Override
+  public VersionedItem<V> putIfAbsent(K key, VersionedItem<V> value) {
+    return offHeapCache.putIfAbsent(key, value);
   }
 
-  /**
-   * Write Lock for key is unlocked.
-   *
-   * @param key the key
-   */
-  protected void writeUnlock(K key) {
-    readWriteLock.writeUnlock(Math.abs(key.hashCode()));
+  @Override
+  public boolean replace(K key, VersionedItem<V> oldValue, VersionedItem<V> newValue) {
+    return offHeapCache.replace(key, oldValue, newValue);
+  }
+
+  @Override
+  public VersionedItem<V> computeIfAbsent(K key,
+      Function<? super K, ? extends VersionedItem<V>> mappingFunction) {
+    return offHeapCache.computeIfAbsent(key, mappingFunction);
+  }
+
+  @Override
+  public VersionedItem<V> compute(K key,
+      BiFunction<? super K, ? super VersionedItem<V>, ? extends VersionedItem<V>>
+          remappingFunction) {
+    return offHeapCache.compute(key, remappingFunction);
   }
 
 
@@ -190,6 +189,11 @@ public class VersionedOffHeapCache<K, V> implements SearchableCache<K, Versioned
   }
 
 
+  public Stream<VersionedItem<V>> stream(Query query) {
+    return offHeapCache.stream(query);
+  }
+
+
   public String getName() {
     return this.offHeapCache.getName();
   }
@@ -199,6 +203,11 @@ public class VersionedOffHeapCache<K, V> implements SearchableCache<K, Versioned
     return offHeapCache.stats();
   }
 
+  @Override
+  public Map<String, Supplier<Number>> metrics() {
+    return offHeapCache.metrics();
+  }
+
   /**
    * The listener interface for receiving cacheItemEviction events. The class that is interested in
    * processing a cacheItemEviction event implements this interface, and the object created with
@@ -308,12 +317,14 @@ public class VersionedOffHeapCache<K, V> implements SearchableCache<K, Versioned
   }
 
   /**
-   * The Class CacheItemIndexHandler.
+   * The Class CacheItemIndexHandler indexes the values of the versioned items and forwards query
+   * planning to the wrapped index handler if it is a query planner.
    *
    * @param <K> the key type
    * @param <V> the value type
    */
-  protected static class CacheItemIndexHandler<K, V> implements IndexHandler<K, VersionedItem<V>> {
+  protected static class CacheItemIndexHandler<K, V> implements IndexHandler<K, VersionedItem<V>>,
+      QueryPlanner {
 
     /**
      * The query executor.
@@ -354,6 +365,14 @@ public class VersionedOffHeapCache<K, V> implements SearchableCache<K, Versioned
       return indexHandler.execute(query);
     }
 
+
+    public Query plan(Query query) {
+      if (indexHandler instanceof QueryPlanner) {
+        return ((QueryPlanner) indexHandler).plan(query);
+      }
+      return query;
+    }
+
   }
 
 }
@@ -169,6 +169,24 @@ public class OffHeapByteBufferStore implements OffHeapStore {
     return freeMemory;
   }
 
+  /**
+   * Gets the number of buffers.
+   *
+   * @return the buffer count
+   */
+  public int getBufferCount() {
+    return bufferSize;
+  }
+
+  /**
+   * Gets the number of buffers that are not written to yet.
+   *
+   * @return the available buffer count
+   */
+  public int getAvailableBufferCount() {
+    return availableBuffers.size();
+  }
+
   /**
    * Free.
    */
@@ -16,10 +16,12 @@
 package com.cetsoft.imcache.offheap;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -29,9 +31,12 @@ import com.cetsoft.imcache.cache.EvictionListener;
 import com.cetsoft.imcache.cache.search.IndexHandler;
 import com.cetsoft.imcache.offheap.bytebuffer.OffHeapByteBufferStore;
 import com.cetsoft.imcache.serialization.Serializer;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.Spy;
@@ -130,6 +135,58 @@ public class OffHeapCacheTest {
   }
 
 
+  @Test
+  public void putIfAbsent() {
+    assertEquals(null, cache.putIfAbsent("a", "b"));
+    assertEquals("b", cache.putIfAbsent("a", "c"));
+
+    assertEquals("b", cache.get("a"));
+    verify(indexHandler).add("a", "b");
+  }
+
+  @Test
+  public void putRemovesOverwrittenValueFromIndexes() {
+    cache.put("a", "b");
+    cache.put("a", "c");
+
+    InOrder inOrder = inOrder(indexHandler);
+    inOrder.verify(indexHandler).add("a", "b");
+    inOrder.verify(indexHandler).remove("a", "b");
+    inOrder.verify(indexHandler).add("a", "c");
+  }
+
+  @Test
+  public void replace() {
+    cache.put("a", "b");
+
+    assertFalse(cache.replace("a", "c", "d"));
+    assertTrue(cache.replace("a", "b", "d"));
+
+    assertEquals("d", cache.get("a"));
+    verify(indexHandler).remove("a", "b");
+    verify(indexHandler).add("a", "d");
+  }
+
+  @Test
+  public void computeIfAbsent() {
+    assertEquals("b", cache.computeIfAbsent("a", key -> "b"));
+    assertEquals("b", cache.computeIfAbsent("a", key -> "c"));
+    assertEquals(null, cache.computeIfAbsent("c", key -> null));
+
+    assertFalse(cache.contains("c"));
+  }
+
+  @Test
+  public void compute() {
+    cache.put("a", "b");
+
+    assertEquals("bc", cache.compute("a", (key, value) -> value + "c"));
+    assertEquals(null, cache.compute("a", (key, value) -> null));
+
+    assertFalse(cache.contains("a"));
+    verify(indexHandler).remove("a", "bc");
+  }
+
   /**
    * Contains.
    */
@@ -191,6 +248,24 @@ public class OffHeapCacheTest {
     verify(bufferStore, times(2)).retrieve(any());
   }
 
+  @Test
+  public void metrics() {
+    cache.put("a", "b");
+    cache.put("a", "ab");
+    cache.put("c", "d");
+    cache.put("c", "cd");
+    cache.cleanBuffers(0.01f);
+    cache.doEviction();
+
+    Map<String, Supplier<Number>> metrics = cache.metrics();
+    assertEquals(2, metrics.get("bufferCount").get());
+    assertEquals(bufferStore.usedMemory(), metrics.get("usedMemory").get());
+    assertEquals(1L, metrics.get("compactionCount").get());
+    assertEquals(1L, metrics.get("evictionScanCount").get());
+    assertEquals(1, cache.getEvictionScanCount());
+    assertTrue(cache.getEvictionScanTime() >= 0);
+  }
+
   /**
    * Inits the throws exception.
    */
@@ -16,18 +16,27 @@
 package com.cetsoft.imcache.offheap;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 
 import com.cetsoft.imcache.cache.CacheLoader;
 import com.cetsoft.imcache.cache.EvictionListener;
 import com.cetsoft.imcache.cache.SimpleItem;
+import com.cetsoft.imcache.cache.search.CacheQuery;
+import com.cetsoft.imcache.cache.search.DefaultIndexHandler;
 import com.cetsoft.imcache.cache.search.IndexHandler;
+import com.cetsoft.imcache.cache.search.Query;
 import com.cetsoft.imcache.offheap.bytebuffer.OffHeapByteBufferStore;
 import com.cetsoft.imcache.serialization.Serializer;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -99,12 +108,14 @@ public class VersionedOffHeapCacheTest {
    * Put.
    */
   @Test
+  @SuppressWarnings("unchecked")
   public void put() {
     final String key = "key1", value = "valueA";
 
     cache.put(key, new SimpleItem(value));
 
-    verify(cache.offHeapCache).put(key, new SimpleItem<>(0, value));
+    verify(cache.offHeapCache).compute(eq(key), any(BiFunction.class));
+    assertEquals(new SimpleItem<>(0, value), cache.get(key));
   }
 
   /**
@@ -183,14 +194,56 @@ public class VersionedOffHeapCacheTest {
   }
 
   /**
-   * Put version race condition.
+   * Put checks version without reading the item beforehand.
    */
-  @Test(expected = StaleItemException.class)
-  public void putVersionRaceCondition() {
+  @Test
+  public void putDoesNotReadItemBeforehand() {
     final String key = "key3", value = "valueA";
 
-    doReturn(null).doReturn(new SimpleItem<>(2, value)).when(cache).get(key);
+    cache.put(key, new SimpleItem<>(value));
+    cache.put(key, new SimpleItem<>(1, value));
+
+    verify(cache, never()).get(key);
+    verify(cache.offHeapCache, never()).get(key);
+  }
+
+  /**
+   * Put if absent.
+   */
+  @Test
+  public void putIfAbsent() {
+    final String key = "key4", value = "valueA";
+
+    assertEquals(null, cache.putIfAbsent(key, new SimpleItem<>(value)));
+    assertEquals(new SimpleItem<>(0, value), cache.putIfAbsent(key, new SimpleItem<>(1, value)));
+  }
+
+  /**
+   * Compute updates the version.
+   */
+  @Test
+  public void compute() {
+    final String key = "key5", value = "valueA";
 
     cache.put(key, new SimpleItem<>(value));
+    cache.compute(key, (k, item) -> item.update("valueB"));
+
+    assertEquals(new SimpleItem<>(1, "valueB"), cache.get(key));
   }
+
+  /**
+   * The index handler forwards query planning to the wrapped index handler.
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void indexHandlerForwardsPlan() {
+    DefaultIndexHandler<String, String> planner = mock(DefaultIndexHandler.class);
+    Query query = CacheQuery.newQuery();
+    Query plannedQuery = CacheQuery.newQuery();
+    doReturn(plannedQuery).when(planner).plan(query);
+
+    assertSame(plannedQuery,
+        new VersionedOffHeapCache.CacheItemIndexHandler<>(planner).plan(query));
+  }
+
 }
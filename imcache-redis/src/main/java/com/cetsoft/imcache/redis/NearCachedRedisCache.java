@@ -0,0 +1,277 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis;
+
+import com.cetsoft.imcache.cache.Cache;
+import com.cetsoft.imcache.cache.CacheLoader;
+import com.cetsoft.imcache.cache.EvictionListener;
+import com.cetsoft.imcache.redis.client.Client;
+import com.cetsoft.imcache.redis.client.InvalidationListener;
+import com.cetsoft.imcache.redis.client.InvalidationSubscriber;
+import com.cetsoft.imcache.serialization.Serializer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * The Class NearCachedRedisCache is a redis cache keeping the values it reads in a bounded near
+ * cache in the JVM, so reads of hot keys don't go over the network. The near cache is kept
+ * coherent by invalidation subscribers, which report the keys modified on the redis servers by
+ * any client. Values are read from and kept in the near cache only while all subscribers are
+ * subscribed, and the near cache is cleared whenever a subscription is lost or made again.
+ *
+ * <p>A value read from redis is only kept if its key isn't invalidated while it is read, so an
+ * invalidation racing with the read can't leave a stale value behind. Invalidations of keys that
+ * don't deserialize with the serializer of the cache are ignored.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class NearCachedRedisCache<K, V> extends RedisCache<K, V>
+    implements InvalidationListener {
+
+  /**
+   * The near cache.
+   */
+  private final Cache<K, V> nearCache;
+
+  /**
+   * The invalidation subscribers.
+   */
+  private final List<InvalidationSubscriber> subscribers;
+
+  /**
+   * The tokens of the reads in progress by their keys. Invalidating a key removes its token, so
+   * the read doesn't keep the value it got.
+   */
+  private final ConcurrentMap<K, Object> reads = new ConcurrentHashMap<>();
+
+  /**
+   * Instantiates a new near cached redis cache and starts the invalidation subscribers.
+   *
+   * @param name the cache name
+   * @param cacheLoader the cache loader
+   * @param evictionListener the eviction listener
+   * @param serializer the serializer
+   * @param client the client
+   * @param nearCache the near cache, which should be bounded
+   * @param subscribers the invalidation subscribers of the redis servers of the client
+   */
+  public NearCachedRedisCache(final String name, final CacheLoader<K, V> cacheLoader,
+      final EvictionListener<K, V> evictionListener, final Serializer<Object> serializer,
+      final Client client, final Cache<K, V> nearCache,
+      final List<InvalidationSubscriber> subscribers) {
+    super(name, cacheLoader, evictionListener, serializer, client);
+    this.nearCache = nearCache;
+    this.subscribers = new ArrayList<>(subscribers);
+    for (final InvalidationSubscriber subscriber : this.subscribers) {
+      subscriber.start(this);
+    }
+  }
+
+  @Override
+  public V get(final K key) {
+    final boolean subscribed = isSubscribed();
+    if (subscribed) {
+      final V value = nearCache.get(key);
+      if (value != null) {
+        stats.incrementHitCount();
+        return value;
+      }
+    }
+    final Object token = new Object();
+    reads.put(key, token);
+    try {
+      final V value = super.get(key);
+      if (value != null && subscribed) {
+        // Kept first and dropped if invalidated, so a concurrent invalidation is never missed.
+        nearCache.put(key, value);
+        if (!reads.remove(key, token)) {
+          nearCache.invalidate(key);
+        }
+      }
+      return value;
+    } finally {
+      reads.remove(key, token);
+    }
+  }
+
+  @Override
+  public void put(final K key, final V value) {
+    try {
+      super.put(key, value);
+    } finally {
+      invalidateNear(key);
+    }
+  }
+
+  @Override
+  public void put(final K key, final V value, final TimeUnit timeUnit, final long duration) {
+    try {
+      super.put(key, value, timeUnit, duration);
+    } finally {
+      invalidateNear(key);
+    }
+  }
+
+  @Override
+  public V putIfAbsent(final K key, final V value) {
+    try {
+      return super.putIfAbsent(key, value);
+    } finally {
+      invalidateNear(key);
+    }
+  }
+
+  @Override
+  public boolean replace(final K key, final V oldValue, final V newValue) {
+    try {
+      return super.replace(key, oldValue, newValue);
+    } finally {
+      invalidateNear(key);
+    }
+  }
+
+  @Override
+  public V computeIfAbsent(final K key, final Function<? super K, ? extends V> mappingFunction) {
+    try {
+      return super.computeIfAbsent(key, mappingFunction);
+    } finally {
+      invalidateNear(key);
+    }
+  }
+
+  @Override
+  public V compute(final K key,
+      final BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+    try {
+      return super.compute(key, remappingFunction);
+    } finally {
+      invalidateNear(key);
+    }
+  }
+
+  @Override
+  public void putAll(final Map<? extends K, ? extends V> values) {
+    try {
+      super.putAll(values);
+    } finally {
+      for (final K key : values.keySet()) {
+        invalidateNear(key);
+      }
+    }
+  }
+
+  @Override
+  public boolean contains(final K key) {
+    return isSubscribed() && nearCache.contains(key) || super.contains(key);
+  }
+
+  @Override
+  public V invalidate(final K key) {
+    try {
+      return super.invalidate(key);
+    } finally {
+      invalidateNear(key);
+    }
+  }
+
+  @Override
+  public void clear() {
+    try {
+      super.clear();
+    } finally {
+      invalidateNear();
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void onInvalidation(final List<byte[]> keys) {
+    if (keys == null) {
+      invalidateNear();
+      return;
+    }
+    for (final byte[] serializedKey : keys) {
+      final K key;
+      try {
+        key = (K) serializer.deserialize(serializedKey);
+      } catch (RuntimeException e) {
+        // Keys of other applications may not deserialize, they can't be in the near cache.
+        continue;
+      }
+      if (key != null) {
+        invalidateNear(key);
+      }
+    }
+  }
+
+  /**
+   * Gets the near cache.
+   *
+   * @return the near cache
+   */
+  public Cache<K, V> getNearCache() {
+    return nearCache;
+  }
+
+  /**
+   * Stops the invalidation subscribers and clears the near cache, which isn't used afterwards.
+   */
+  public void close() {
+    for (final InvalidationSubscriber subscriber : subscribers) {
+      subscriber.close();
+    }
+    invalidateNear();
+  }
+
+  /**
+   * Checks if all invalidation subscribers are subscribed.
+   *
+   * @return true, if the near cache can be used
+   */
+  private boolean isSubscribed() {
+    for (final InvalidationSubscriber subscriber : subscribers) {
+      if (!subscriber.isSubscribed()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Drops the key from the near cache and from the reads in progress.
+   *
+   * @param key the key
+   */
+  private void invalidateNear(final K key) {
+    reads.remove(key);
+    nearCache.invalidate(key);
+  }
+
+  /**
+   * Drops all keys from the near cache and from the reads in progress.
+   */
+  private void invalidateNear() {
+    reads.clear();
+    nearCache.clear();
+  }
+}
@@ -17,25 +17,40 @@ package com.cetsoft.imcache.redis;
 
 import com.cetsoft.imcache.cache.AbstractCache;
 import com.cetsoft.imcache.cache.CacheLoader;
+import com.cetsoft.imcache.cache.CacheOperation;
 import com.cetsoft.imcache.cache.CacheStats;
+import com.cetsoft.imcache.cache.EvictionCause;
 import com.cetsoft.imcache.cache.EvictionListener;
 import com.cetsoft.imcache.concurrent.ConcurrentCacheStats;
 import com.cetsoft.imcache.redis.client.Client;
 import com.cetsoft.imcache.redis.client.ConnectionException;
 import com.cetsoft.imcache.serialization.Serializer;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * The Class RedisCache is a cache that uses redis server. to store or retrieve data by serializing
  * items into bytes. To do so, RedisCache uses a redis client to talk to redis server. Any operation
- * within this cache is a command to redis.
+ * within this cache is a command to redis. Atomic operations compare values in their serialized
+ * form, so the serializer must produce the same bytes for equal values.
  *
  * @param <K> the key type
  * @param <V> the value type
  */
 public class RedisCache<K, V> extends AbstractCache<K, V> {
 
+  /**
+   * The maximum number of attempts of compute before it gives up on a contended key.
+   */
+  static final int MAX_COMPUTE_ATTEMPTS = 16;
+
   /**
    * The client.
    */
@@ -71,29 +86,139 @@ public class RedisCache<K, V> extends AbstractCache<K, V> {
 
   @Override
   public void put(final K key, final V value) {
+    final long start = startTiming();
     try {
-      client.set(serializer.serialize(key), serializer.serialize(value));
+      final byte[] serializedValue = serializer.serialize(value);
+      client.set(serializer.serialize(key), serializedValue);
+      stats.recordPut(serializedValue.length);
     } catch (ConnectionException e) {
       throw new RedisCacheException(e);
     } catch (IOException e) {
       throw new RedisCacheException(e);
+    } finally {
+      recordLatency(CacheOperation.PUT, start);
     }
   }
 
   @Override
   public void put(final K key, final V value, final TimeUnit timeUnit, final long duration) {
+    final long start = startTiming();
     try {
-      client.set(serializer.serialize(key), serializer.serialize(value),
-          TimeUnit.MILLISECONDS.toMillis(duration));
+      final byte[] serializedValue = serializer.serialize(value);
+      client.set(serializer.serialize(key), serializedValue, timeUnit.toMillis(duration));
+      stats.recordPut(serializedValue.length);
     } catch (ConnectionException|IOException e) {
       throw new RedisCacheException(e);
+    } finally {
+      recordLatency(CacheOperation.PUT, start);
     }
   }
 
 
+  @Override
+  public V putIfAbsent(final K key, final V value) {
+    try {
+      final byte[] serializedValue = serializer.serialize(value);
+      final V existingValue = deserialize(
+          client.setIfAbsent(serializer.serialize(key), serializedValue));
+      if (existingValue == null) {
+        stats.recordPut(serializedValue.length);
+      }
+      return existingValue;
+    } catch (ConnectionException | IOException e) {
+      throw new RedisCacheException(e);
+    }
+  }
+
+  @Override
+  public boolean replace(final K key, final V oldValue, final V newValue) {
+    try {
+      final byte[] serializedValue = serializer.serialize(newValue);
+      final boolean replaced = client.compareAndSet(serializer.serialize(key),
+          serializer.serialize(oldValue), serializedValue);
+      if (replaced) {
+        stats.recordPut(serializedValue.length);
+      }
+      return replaced;
+    } catch (ConnectionException | IOException e) {
+      throw new RedisCacheException(e);
+    }
+  }
+
+  @Override
+  public V computeIfAbsent(final K key, final Function<? super K, ? extends V> mappingFunction) {
+    try {
+      final byte[] serializedKey = serializer.serialize(key);
+      final V existingValue = deserialize(client.get(serializedKey));
+      if (existingValue != null) {
+        return existingValue;
+      }
+      final V value = mappingFunction.apply(key);
+      if (value == null) {
+        return null;
+      }
+      final byte[] serializedValue = serializer.serialize(value);
+      final V concurrentValue = deserialize(client.setIfAbsent(serializedKey, serializedValue));
+      if (concurrentValue != null) {
+        return concurrentValue;
+      }
+      stats.recordPut(serializedValue.length);
+      return value;
+    } catch (ConnectionException | IOException e) {
+      throw new RedisCacheException(e);
+    }
+  }
+
+  @Override
+  public V compute(final K key,
+      final BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+    try {
+      final byte[] serializedKey = serializer.serialize(key);
+      // Optimistically retries until no other client changes the value in between.
+      for (int attempt = 0; attempt < MAX_COMPUTE_ATTEMPTS; attempt++) {
+        final byte[] serializedValue = client.get(serializedKey);
+        final V value = deserialize(serializedValue);
+        final V newValue = remappingFunction.apply(key, value);
+        if (newValue == null) {
+          if (serializedValue == null || client.compareAndDelete(serializedKey, serializedValue)) {
+            return null;
+          }
+        } else {
+          final byte[] serializedNewValue = serializer.serialize(newValue);
+          final boolean stored = serializedValue == null
+              ? client.setIfAbsent(serializedKey, serializedNewValue) == null
+              : client.compareAndSet(serializedKey, serializedValue, serializedNewValue);
+          if (stored) {
+            stats.recordPut(serializedNewValue.length);
+            return newValue;
+          }
+        }
+      }
+      throw new RedisCacheException("value of the key kept changing during "
+          + MAX_COMPUTE_ATTEMPTS + " attempts to compute it");
+    } catch (ConnectionException | IOException e) {
+      throw new RedisCacheException(e);
+    }
+  }
+
+  /**
+   * Deserializes the value if there is one.
+   *
+   * @param serializedValue the serialized value
+   * @return the value, or null
+   */
+  @SuppressWarnings("unchecked")
+  protected V deserialize(final byte[] serializedValue) {
+    if (serializedValue == null || serializedValue.length == 0) {
+      return null;
+    }
+    return (V) serializer.deserialize(serializedValue);
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public V get(final K key) {
+    final long start = startTiming();
     try {
       final byte[] serializedKey = serializer.serialize(key);
       byte[] serializedValue = client.get(serializedKey);
@@ -103,11 +228,11 @@ public class RedisCache<K, V> extends AbstractCache<K, V> {
       }
       if (value == null) {
         stats.incrementMissCount();
-        value = cacheLoader.load(key);
+        value = load(key);
         if (value != null) {
           serializedValue = serializer.serialize(value);
           client.set(serializedKey, serializedValue);
-          stats.incrementLoadCount();
+          stats.recordPut(serializedValue.length);
         }
       } else {
         stats.incrementHitCount();
@@ -115,6 +240,8 @@ public class RedisCache<K, V> extends AbstractCache<K, V> {
       return value;
     } catch (ConnectionException|IOException e) {
       throw new RedisCacheException(e);
+    } finally {
+      recordLatency(CacheOperation.GET, start);
     }
   }
 
@@ -122,22 +249,126 @@ public class RedisCache<K, V> extends AbstractCache<K, V> {
   @Override
   @SuppressWarnings("unchecked")
   public V invalidate(final K key) {
+    final long start = startTiming();
     try {
       byte[] serializedKey = serializer.serialize(key);
-      byte[] serializedValue = client.expire(serializedKey);
+      byte[] serializedValue = client.getDel(serializedKey);
       V value = (V) serializer.deserialize(serializedValue);
       evictionListener.onEviction(key, value);
-      stats.incrementEvictionCount();
+      stats.incrementEvictionCount(EvictionCause.EXPLICIT);
       return value;
     } catch (ConnectionException|IOException e) {
       throw new RedisCacheException(e);
+    } finally {
+      recordLatency(CacheOperation.INVALIDATE, start);
     }
   }
 
 
   @Override
   public boolean contains(final K key) {
-    return get(key) != null;
+    try {
+      return client.exists(serializer.serialize(key));
+    } catch (ConnectionException | IOException e) {
+      throw new RedisCacheException(e);
+    }
+  }
+
+  /**
+   * Gets the values of the keys with a single MGET. The values missing from redis are loaded with
+   * the cache loader and stored with a single MSET.
+   *
+   * @param keys the keys
+   * @return the values by their keys, without the keys having no value
+   */
+  public Map<K, V> getAll(final Collection<? extends K> keys) {
+    final Map<K, V> values = new LinkedHashMap<>();
+    if (keys.isEmpty()) {
+      return values;
+    }
+    try {
+      final List<K> keyList = new ArrayList<>(keys);
+      final byte[][] serializedKeys = new byte[keyList.size()][];
+      for (int i = 0; i < serializedKeys.length; i++) {
+        serializedKeys[i] = serializer.serialize(keyList.get(i));
+      }
+      final List<byte[]> serializedValues = client.mget(serializedKeys);
+      final List<byte[]> loadedKeysAndValues = new ArrayList<>();
+      for (int i = 0; i < serializedKeys.length; i++) {
+        final K key = keyList.get(i);
+        V value = deserialize(serializedValues.get(i));
+        if (value != null) {
+          stats.incrementHitCount();
+        } else {
+          stats.incrementMissCount();
+          value = load(key);
+          if (value == null) {
+            continue;
+          }
+          final byte[] serializedValue = serializer.serialize(value);
+          loadedKeysAndValues.add(serializedKeys[i]);
+          loadedKeysAndValues.add(serializedValue);
+          stats.recordPut(serializedValue.length);
+        }
+        values.put(key, value);
+      }
+      if (!loadedKeysAndValues.isEmpty()) {
+        client.mset(loadedKeysAndValues.toArray(new byte[loadedKeysAndValues.size()][]));
+      }
+      return values;
+    } catch (ConnectionException | IOException e) {
+      throw new RedisCacheException(e);
+    }
+  }
+
+  /**
+   * Puts the values with a single MSET.
+   *
+   * @param values the values by their keys
+   */
+  public void putAll(final Map<? extends K, ? extends V> values) {
+    if (values.isEmpty()) {
+      return;
+    }
+    try {
+      final byte[][] keysAndValues = new byte[values.size() * 2][];
+      int i = 0;
+      for (final Map.Entry<? extends K, ? extends V> entry : values.entrySet()) {
+        keysAndValues[i++] = serializer.serialize(entry.getKey());
+        keysAndValues[i++] = serializer.serialize(entry.getValue());
+      }
+      client.mset(keysAndValues);
+      for (i = 1; i < keysAndValues.length; i += 2) {
+        stats.recordPut(keysAndValues[i].length);
+      }
+    } catch (ConnectionException | IOException e) {
+      throw new RedisCacheException(e);
+    }
+  }
+
+  /**
+   * Loads the value with the cache loader, recording the load in the stats.
+   *
+   * @param key the key
+   * @return the value, or null if the cache loader doesn't have it
+   */
+  private V load(final K key) {
+    final long loadStart = System.nanoTime();
+    final V value;
+    try {
+      value = cacheLoader.load(key);
+    } catch (RuntimeException e) {
+      stats.recordLoadFailure(System.nanoTime() - loadStart);
+      throw e;
+    } finally {
+      recordLatency(CacheOperation.LOAD, loadStart);
+    }
+    if (value != null) {
+      stats.recordLoadSuccess(System.nanoTime() - loadStart);
+    } else {
+      stats.recordLoadFailure(System.nanoTime() - loadStart);
+    }
+    return value;
   }
 
 
@@ -34,4 +34,13 @@ public class RedisCacheException extends RuntimeException {
     super(exception);
   }
 
+  /**
+   * Instantiates a new redis cache exception.
+   *
+   * @param message the message
+   */
+  public RedisCacheException(String message) {
+    super(message);
+  }
+
 }
@@ -16,6 +16,7 @@
 package com.cetsoft.imcache.redis.client;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * The Interface Client provides redis commands. Methods in this interface have corresponding redis
@@ -38,7 +39,8 @@ public interface Client {
   void set(byte[] key, byte[] value) throws ConnectionException, IOException;
 
   /**
-   * Set key to hold the value. If key already holds a value, it is overwritten.
+   * Set key to hold the value with a timeout, in a single SET command. If key already holds a
+   * value, it is overwritten.
    *
    * @param key the key
    * @param value the value
@@ -46,6 +48,39 @@ public interface Client {
    */
   void set(byte[] key, byte[] value, long expiryInMillis) throws ConnectionException, IOException;
 
+  /**
+   * Set key to hold the value if key does not exist. The check and the set are done atomically on
+   * the server.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the existing value, or null if the value was set
+   */
+  byte[] setIfAbsent(byte[] key, byte[] value) throws ConnectionException, IOException;
+
+  /**
+   * Set key to hold the new value only if it currently holds the expected value. The check and the
+   * set are done atomically on the server.
+   *
+   * @param key the key
+   * @param expectedValue the expected value
+   * @param newValue the new value
+   * @return true, if the value was set
+   */
+  boolean compareAndSet(byte[] key, byte[] expectedValue, byte[] newValue)
+      throws ConnectionException, IOException;
+
+  /**
+   * Delete key only if it currently holds the expected value. The check and the delete are done
+   * atomically on the server.
+   *
+   * @param key the key
+   * @param expectedValue the expected value
+   * @return true, if the key was deleted
+   */
+  boolean compareAndDelete(byte[] key, byte[] expectedValue)
+      throws ConnectionException, IOException;
+
   /**
    * Get the value of key. If the key does not exist the special value null is returned.
    *
@@ -62,6 +97,46 @@ public interface Client {
    */
   byte[] expire(byte[] key) throws ConnectionException, IOException;
 
+  /**
+   * Get the value of key and delete the key.
+   *
+   * @param key the key
+   * @return the value, or null if the key does not exist
+   */
+  byte[] getDel(byte[] key) throws ConnectionException, IOException;
+
+  /**
+   * Check if key exists.
+   *
+   * @param key the key
+   * @return true, if the key exists
+   */
+  boolean exists(byte[] key) throws ConnectionException, IOException;
+
+  /**
+   * Delete the keys. Their memory is reclaimed in another thread on the server, so deleting large
+   * values doesn't block the server.
+   *
+   * @param keys the keys
+   * @return the number of keys deleted
+   */
+  int unlink(byte[]... keys) throws ConnectionException, IOException;
+
+  /**
+   * Get the values of the keys.
+   *
+   * @param keys the keys
+   * @return the values in the order of the keys, null for the keys that do not exist
+   */
+  List<byte[]> mget(byte[]... keys) throws ConnectionException, IOException;
+
+  /**
+   * Set the keys to hold the values.
+   *
+   * @param keysAndValues the keys, each followed by its value
+   */
+  void mset(byte[]... keysAndValues) throws ConnectionException, IOException;
+
   /**
    * Delete all the keys of the currently selected DB.
    */
@@ -0,0 +1,40 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The Interface CommandChannel sends commands to redis without waiting for their replies, so many
+ * threads can share it.
+ */
+public interface CommandChannel {
+
+  /**
+   * Sends the command. The future is completed with the reply, or completed exceptionally with a
+   * connection exception if redis replies with an error or the connection fails.
+   *
+   * @param command the command
+   * @param args the arguments
+   * @return the future of the reply
+   */
+  CompletableFuture<Object> send(ByteCommand command, byte[]... args);
+
+  /**
+   * Closes the channel and fails the commands waiting for replies.
+   */
+  void close();
+}
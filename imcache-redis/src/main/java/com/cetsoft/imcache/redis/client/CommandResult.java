@@ -16,6 +16,7 @@
 package com.cetsoft.imcache.redis.client;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * The Interface CommandResult returns the byte result of an executed command.
@@ -49,4 +50,13 @@ public interface CommandResult {
    */
   int getInt() throws ConnectionException, IOException;
 
+  /**
+   * Gets the returned bytes of each element of the array returned by an executed command.
+   *
+   * @return the list of byte[], null elements for nil replies
+   * @throws ConnectionException the connection exception
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  List<byte[]> getBytesList() throws ConnectionException, IOException;
+
 }
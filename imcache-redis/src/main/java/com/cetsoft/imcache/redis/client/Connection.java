@@ -16,6 +16,8 @@
 package com.cetsoft.imcache.redis.client;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 
@@ -69,6 +71,11 @@ public class Connection {
    */
   Socket socket;
 
+  /**
+   * The stream reader of the socket, created on first use.
+   */
+  private RedisStreamReader streamReader;
+
   /**
    * Instantiates a new connection.
    */
@@ -158,6 +165,7 @@ public class Connection {
     if (!isConnected()) {
       try {
         socket = createSocket();
+        streamReader = null;
         socket.setReuseAddress(true);
         // Monitor TCP connection.
         socket.setKeepAlive(true);
@@ -206,6 +214,26 @@ public class Connection {
     }
   }
 
+  /**
+   * Gets the input stream of the socket.
+   *
+   * @return the input stream
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public InputStream getInputStream() throws IOException {
+    return socket.getInputStream();
+  }
+
+  /**
+   * Gets the output stream of the socket.
+   *
+   * @return the output stream
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public OutputStream getOutputStream() throws IOException {
+    return socket.getOutputStream();
+  }
+
   /**
    * Gets the stream writer.
    *
@@ -216,12 +244,17 @@ public class Connection {
   }
 
   /**
-   * Gets the stream reader.
+   * Gets the stream reader. The same reader is returned for the socket, since it keeps the bytes
+   * read ahead of the current reply.
    *
-   * @return the input stream
+   * @return the stream reader
+   * @throws IOException Signals that an I/O exception has occurred.
    */
   public RedisStreamReader getStreamReader() throws IOException {
-    return new RedisStreamReader(this.socket.getInputStream());
+    if (streamReader == null) {
+      streamReader = new RedisStreamReader(this.socket.getInputStream());
+    }
+    return streamReader;
   }
 
 }
@@ -0,0 +1,243 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * The Class ConsistentHashRing maps keys to nodes over a hash ring. Every node is placed on the
+ * ring as many virtual nodes as its weight times the number of virtual nodes per weight, and a key
+ * belongs to the first virtual node after its hash. Adding or removing a node only moves the keys
+ * between that node's virtual nodes and their predecessors, so about 1/n of the keys move. The
+ * ring is rebuilt on changes and read without locking.
+ *
+ * @param <N> the node type
+ */
+public class ConsistentHashRing<N> {
+
+  /**
+   * The Constant DEFAULT_VIRTUAL_NODES is the number of virtual nodes per weight.
+   */
+  public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+  /**
+   * The number of virtual nodes per weight.
+   */
+  private final int virtualNodes;
+
+  /**
+   * The nodes with their weights by their names, guarded by the ring.
+   */
+  private final Map<String, WeightedNode<N>> nodes = new TreeMap<>();
+
+  /**
+   * The virtual nodes.
+   */
+  private volatile VirtualNodes placement = new VirtualNodes(new long[0], new Object[0]);
+
+  /**
+   * Instantiates a new consistent hash ring.
+   */
+  public ConsistentHashRing() {
+    this(DEFAULT_VIRTUAL_NODES);
+  }
+
+  /**
+   * Instantiates a new consistent hash ring.
+   *
+   * @param virtualNodes the number of virtual nodes per weight
+   */
+  public ConsistentHashRing(final int virtualNodes) {
+    if (virtualNodes < 1) {
+      throw new IllegalArgumentException("Virtual nodes must be positive but it was "
+          + virtualNodes);
+    }
+    this.virtualNodes = virtualNodes;
+  }
+
+  /**
+   * Adds the node, replacing the node with the same name.
+   *
+   * @param name the name, which places the node on the ring
+   * @param node the node
+   * @param weight the weight
+   */
+  public synchronized void add(final String name, final N node, final int weight) {
+    if (weight < 1) {
+      throw new IllegalArgumentException("Weight must be positive but it was " + weight);
+    }
+    nodes.put(name, new WeightedNode<>(node, weight));
+    rebuild();
+  }
+
+  /**
+   * Removes the node.
+   *
+   * @param name the name
+   * @return the removed node, or null if there isn't a node with the name
+   */
+  public synchronized N remove(final String name) {
+    final WeightedNode<N> removed = nodes.remove(name);
+    if (removed == null) {
+      return null;
+    }
+    rebuild();
+    return removed.node;
+  }
+
+  /**
+   * Gets the nodes.
+   *
+   * @return the nodes
+   */
+  public synchronized Collection<N> getNodes() {
+    final List<N> nodeList = new ArrayList<>(nodes.size());
+    for (final WeightedNode<N> weightedNode : nodes.values()) {
+      nodeList.add(weightedNode.node);
+    }
+    return Collections.unmodifiableList(nodeList);
+  }
+
+  /**
+   * Gets the node of the key.
+   *
+   * @param key the key
+   * @return the node
+   * @throws IllegalStateException if the ring has no nodes
+   */
+  @SuppressWarnings("unchecked")
+  public N get(final byte[] key) {
+    final VirtualNodes placement = this.placement;
+    final long[] hashes = placement.hashes;
+    if (hashes.length == 0) {
+      throw new IllegalStateException("Ring has no nodes");
+    }
+    int index = Arrays.binarySearch(hashes, hash(key));
+    if (index < 0) {
+      index = -index - 1;
+    }
+    return (N) placement.owners[index == hashes.length ? 0 : index];
+  }
+
+  /**
+   * Rebuilds the ring from the nodes. Nodes are placed in the order of their names, so the ring
+   * doesn't depend on the order nodes are added in.
+   */
+  private void rebuild() {
+    final TreeMap<Long, N> ring = new TreeMap<>();
+    for (final Entry<String, WeightedNode<N>> entry : nodes.entrySet()) {
+      final WeightedNode<N> weightedNode = entry.getValue();
+      final int count = virtualNodes * weightedNode.weight;
+      for (int i = 0; i < count; i++) {
+        final byte[] virtualNode = (entry.getKey() + "#" + i).getBytes(StandardCharsets.UTF_8);
+        ring.putIfAbsent(hash(virtualNode), weightedNode.node);
+      }
+    }
+    final long[] newHashes = new long[ring.size()];
+    final Object[] newOwners = new Object[ring.size()];
+    int index = 0;
+    for (final Entry<Long, N> entry : ring.entrySet()) {
+      newHashes[index] = entry.getKey();
+      newOwners[index++] = entry.getValue();
+    }
+    placement = new VirtualNodes(newHashes, newOwners);
+  }
+
+  /**
+   * Hashes the bytes with 64 bit FNV-1a followed by the MurmurHash3 finalizer, which spreads
+   * similar keys over the whole ring.
+   *
+   * @param bytes the bytes
+   * @return the hash
+   */
+  static long hash(final byte[] bytes) {
+    long hash = 0xcbf29ce484222325L;
+    for (final byte theByte : bytes) {
+      hash ^= theByte & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  /**
+   * The Class VirtualNodes holds the virtual nodes of the ring, which are replaced as a whole.
+   */
+  private static class VirtualNodes {
+
+    /**
+     * The hashes of the virtual nodes in ascending order.
+     */
+    final long[] hashes;
+
+    /**
+     * The nodes of the virtual nodes, in the order of their hashes.
+     */
+    final Object[] owners;
+
+    /**
+     * Instantiates new virtual nodes.
+     *
+     * @param hashes the hashes
+     * @param owners the owners
+     */
+    VirtualNodes(final long[] hashes, final Object[] owners) {
+      this.hashes = hashes;
+      this.owners = owners;
+    }
+  }
+
+  /**
+   * The Class WeightedNode is a node with its weight.
+   *
+   * @param <N> the node type
+   */
+  private static class WeightedNode<N> {
+
+    /**
+     * The node.
+     */
+    final N node;
+
+    /**
+     * The weight.
+     */
+    final int weight;
+
+    /**
+     * Instantiates a new weighted node.
+     *
+     * @param node the node
+     * @param weight the weight
+     */
+    WeightedNode(final N node, final int weight) {
+      this.node = node;
+      this.weight = weight;
+    }
+  }
+}
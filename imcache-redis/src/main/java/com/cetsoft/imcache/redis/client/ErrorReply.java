@@ -0,0 +1,50 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+/**
+ * The Class ErrorReply is an error reply of redis server.
+ */
+public class ErrorReply {
+
+  /**
+   * The message.
+   */
+  private final String message;
+
+  /**
+   * Instantiates a new error reply.
+   *
+   * @param message the message
+   */
+  public ErrorReply(final String message) {
+    this.message = message;
+  }
+
+  /**
+   * Gets the message.
+   *
+   * @return the message
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  @Override
+  public String toString() {
+    return message;
+  }
+}
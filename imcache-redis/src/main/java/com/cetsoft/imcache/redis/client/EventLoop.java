@@ -0,0 +1,246 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import com.cetsoft.imcache.cache.util.ThreadUtils;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The Class EventLoop runs a selector over non-blocking channels in a single thread. Channels and
+ * their handlers are only touched by this thread, other threads hand work over to it with
+ * {@link #execute(Runnable)}.
+ */
+public class EventLoop implements Runnable {
+
+  /**
+   * The selector.
+   */
+  private final Selector selector;
+
+  /**
+   * The tasks submitted by other threads.
+   */
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+  /**
+   * The scheduled tasks ordered by their deadlines, only touched by the event loop thread.
+   */
+  private final PriorityQueue<ScheduledTask> scheduledTasks = new PriorityQueue<>();
+
+  /**
+   * Whether the selector is woken up since the last select.
+   */
+  private final AtomicBoolean wokenUp = new AtomicBoolean();
+
+  /**
+   * The event loop thread.
+   */
+  private final Thread thread;
+
+  /**
+   * Whether the event loop is closed.
+   */
+  private volatile boolean closed;
+
+  /**
+   * Instantiates a new event loop and starts its thread.
+   *
+   * @param threadName the thread name
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public EventLoop(final String threadName) throws IOException {
+    selector = Selector.open();
+    thread = ThreadUtils.createDaemonThread(this, threadName);
+    thread.start();
+  }
+
+  /**
+   * Runs the task in the event loop thread.
+   *
+   * @param task the task
+   */
+  public void execute(final Runnable task) {
+    tasks.add(task);
+    if (!inEventLoop() && wokenUp.compareAndSet(false, true)) {
+      selector.wakeup();
+    }
+  }
+
+  /**
+   * Runs the task in the event loop thread after the delay.
+   *
+   * @param task the task
+   * @param delay the delay
+   * @param timeUnit the time unit
+   */
+  public void schedule(final Runnable task, final long delay, final TimeUnit timeUnit) {
+    final long deadline = System.nanoTime() + timeUnit.toNanos(delay);
+    execute(() -> scheduledTasks.add(new ScheduledTask(task, deadline)));
+  }
+
+  /**
+   * Checks if the current thread is the event loop thread.
+   *
+   * @return true, if the current thread is the event loop thread
+   */
+  public boolean inEventLoop() {
+    return Thread.currentThread() == thread;
+  }
+
+  /**
+   * Registers the channel to the selector. It must be called in the event loop thread.
+   *
+   * @param channel the channel
+   * @param interestOps the interest operations
+   * @param handler the handler of the channel
+   * @return the selection key
+   * @throws ClosedChannelException if the channel is closed
+   */
+  SelectionKey register(final SelectableChannel channel, final int interestOps,
+      final SelectionHandler handler) throws ClosedChannelException {
+    return channel.register(selector, interestOps, handler);
+  }
+
+  @Override
+  public void run() {
+    while (!closed) {
+      try {
+        select();
+        wokenUp.set(false);
+        handleSelectedKeys();
+        runTasks();
+        runScheduledTasks();
+      } catch (IOException | RuntimeException e) {
+        // A failing channel or task mustn't stop the other channels.
+      }
+    }
+    for (final SelectionKey key : selector.keys()) {
+      ((SelectionHandler) key.attachment()).eventLoopClosed();
+    }
+    try {
+      selector.close();
+    } catch (IOException e) {
+      // The event loop is closed anyway.
+    }
+  }
+
+  /**
+   * Waits for selected keys, tasks or the deadline of the first scheduled task.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void select() throws IOException {
+    if (!tasks.isEmpty()) {
+      selector.selectNow();
+      return;
+    }
+    final ScheduledTask scheduledTask = scheduledTasks.peek();
+    if (scheduledTask == null) {
+      selector.select();
+      return;
+    }
+    final long timeout = TimeUnit.NANOSECONDS.toMillis(scheduledTask.deadline - System.nanoTime());
+    if (timeout > 0) {
+      selector.select(timeout);
+    } else {
+      selector.selectNow();
+    }
+  }
+
+  /**
+   * Handles the selected keys.
+   */
+  private void handleSelectedKeys() {
+    final Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+    while (iterator.hasNext()) {
+      final SelectionKey key = iterator.next();
+      iterator.remove();
+      if (key.isValid()) {
+        ((SelectionHandler) key.attachment()).handle(key);
+      }
+    }
+  }
+
+  /**
+   * Runs the submitted tasks.
+   */
+  private void runTasks() {
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      task.run();
+    }
+  }
+
+  /**
+   * Runs the scheduled tasks whose deadlines passed.
+   */
+  private void runScheduledTasks() {
+    final long now = System.nanoTime();
+    while (!scheduledTasks.isEmpty() && scheduledTasks.peek().deadline - now <= 0) {
+      scheduledTasks.poll().task.run();
+    }
+  }
+
+  /**
+   * Closes the event loop. Channels still registered are closed by their handlers.
+   */
+  public void close() {
+    closed = true;
+    selector.wakeup();
+  }
+
+  /**
+   * The Class ScheduledTask is a task with its deadline.
+   */
+  private static class ScheduledTask implements Comparable<ScheduledTask> {
+
+    /**
+     * The task.
+     */
+    final Runnable task;
+
+    /**
+     * The deadline in nanoseconds.
+     */
+    final long deadline;
+
+    /**
+     * Instantiates a new scheduled task.
+     *
+     * @param task the task
+     * @param deadline the deadline in nanoseconds
+     */
+    ScheduledTask(final Runnable task, final long deadline) {
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public int compareTo(final ScheduledTask other) {
+      return Long.compare(deadline - other.deadline, 0);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import static com.cetsoft.imcache.cache.util.ArgumentUtils.checkPositive;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Class EventLoopGroup is a small, fixed number of event loops shared by non-blocking
+ * connections. Connections are spread over the event loops in round robin order, so a few threads
+ * serve the reads and writes of many connections.
+ */
+public class EventLoopGroup {
+
+  /**
+   * The Constant DEFAULT_THREADS.
+   */
+  public static final int DEFAULT_THREADS = Math.min(4,
+      Runtime.getRuntime().availableProcessors());
+
+  /**
+   * The event loops.
+   */
+  private final EventLoop[] eventLoops;
+
+  /**
+   * The index of the next event loop.
+   */
+  private final AtomicInteger next = new AtomicInteger();
+
+  /**
+   * Instantiates a new event loop group with the default number of threads.
+   */
+  public EventLoopGroup() {
+    this(DEFAULT_THREADS);
+  }
+
+  /**
+   * Instantiates a new event loop group.
+   *
+   * @param threads the number of event loop threads
+   */
+  public EventLoopGroup(final int threads) {
+    checkPositive(threads, "number of threads must be positive");
+    eventLoops = new EventLoop[threads];
+    try {
+      for (int i = 0; i < threads; i++) {
+        eventLoops[i] = new EventLoop("imcache:redisEventLoop(" + i + ")");
+      }
+    } catch (IOException e) {
+      close();
+      throw new IllegalStateException("Couldn't open selector", e);
+    }
+  }
+
+  /**
+   * Gets the next event loop.
+   *
+   * @return the event loop
+   */
+  public EventLoop next() {
+    return eventLoops[(next.getAndIncrement() & Integer.MAX_VALUE) % eventLoops.length];
+  }
+
+  /**
+   * Creates a connection served by the next event loop. The connection is opened when the first
+   * command is sent.
+   *
+   * @param host the host
+   * @param port the port
+   * @return the connection
+   */
+  public NioConnection connect(final String host, final int port) {
+    return new NioConnection(host, port, next());
+  }
+
+  /**
+   * Closes the event loops and their connections.
+   */
+  public void close() {
+    for (final EventLoop eventLoop : eventLoops) {
+      if (eventLoop != null) {
+        eventLoop.close();
+      }
+    }
+  }
+}
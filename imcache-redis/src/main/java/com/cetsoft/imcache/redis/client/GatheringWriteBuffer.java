@@ -0,0 +1,204 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+
+/**
+ * The Class GatheringWriteBuffer encodes commands for a gathering write. The array headers, the
+ * bulk string headers and the small arguments are staged in a direct buffer, while the arguments
+ * of at least LARGE_VALUE_SIZE bytes are wrapped as segments of their own between the staged
+ * parts. All segments are written with one {@link GatheringByteChannel#write(ByteBuffer[], int,
+ * int)}, so large values are never copied into the staging buffer and no buffer is allocated for a
+ * command larger than it.
+ */
+final class GatheringWriteBuffer {
+
+  /**
+   * The Constant LARGE_VALUE_SIZE is the size of the arguments written from their own arrays.
+   */
+  static final int LARGE_VALUE_SIZE = 4096;
+
+  /**
+   * The Constant MAX_SEGMENTS is the number of segments a write gathers at most, well below the
+   * iovec limits of the operating systems.
+   */
+  static final int MAX_SEGMENTS = 512;
+
+  /**
+   * The Constant INITIAL_SEGMENTS.
+   */
+  private static final int INITIAL_SEGMENTS = 16;
+
+  /**
+   * The staging buffer.
+   */
+  private final ByteBuffer staging;
+
+  /**
+   * The segments to write.
+   */
+  private ByteBuffer[] segments = new ByteBuffer[INITIAL_SEGMENTS];
+
+  /**
+   * The index of the first segment not written entirely.
+   */
+  private int first;
+
+  /**
+   * The number of segments.
+   */
+  private int count;
+
+  /**
+   * The position of the staging buffer the bytes not yet in a segment start from.
+   */
+  private int stagedFrom;
+
+  /**
+   * Instantiates a new gathering write buffer.
+   *
+   * @param capacity the capacity of the staging buffer
+   */
+  GatheringWriteBuffer(final int capacity) {
+    staging = ByteBuffer.allocateDirect(capacity);
+  }
+
+  /**
+   * Checks if there is nothing to write.
+   *
+   * @return true, if empty
+   */
+  boolean isEmpty() {
+    return first == count && staging.position() == stagedFrom;
+  }
+
+  /**
+   * Adds the command unless the staging buffer doesn't have enough space left for it, in which
+   * case the buffer must be written before the command can be added. A command that doesn't fit
+   * into an empty staging buffer is encoded into a buffer of its own.
+   *
+   * @param command the command
+   * @param args the arguments
+   * @return true, if the command is added
+   */
+  boolean add(final ByteCommand command, final byte[]... args) {
+    final int length = RedisCommandEncoder.encodedLength(command, args);
+    int stagedLength = length;
+    int largeValues = 0;
+    for (final byte[] arg : args) {
+      if (arg.length >= LARGE_VALUE_SIZE) {
+        stagedLength -= arg.length;
+        largeValues++;
+      }
+    }
+    final int newSegments = 2 * largeValues + 1;
+    if (stagedLength > staging.remaining() || count - first + newSegments > MAX_SEGMENTS) {
+      if (!isEmpty()) {
+        return false;
+      }
+      if (stagedLength > staging.capacity() || newSegments > MAX_SEGMENTS) {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        RedisCommandEncoder.encode(buffer, command, args);
+        buffer.flip();
+        addSegment(buffer);
+        return true;
+      }
+    }
+    RedisCommandEncoder.putArrayHeader(staging, args.length + 1);
+    RedisCommandEncoder.putBulkString(staging, command.getBytes());
+    for (final byte[] arg : args) {
+      if (arg.length >= LARGE_VALUE_SIZE) {
+        RedisCommandEncoder.putBulkStringHeader(staging, arg.length);
+        addStagedSegment();
+        addSegment(ByteBuffer.wrap(arg));
+        RedisCommandEncoder.putNewLine(staging);
+      } else {
+        RedisCommandEncoder.putBulkString(staging, arg);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes the segments until the channel doesn't take more bytes.
+   *
+   * @param channel the channel
+   * @return true, if everything is written
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  boolean write(final GatheringByteChannel channel) throws IOException {
+    addStagedSegment();
+    while (first < count) {
+      final long written = channel.write(segments, first, count - first);
+      while (first < count && !segments[first].hasRemaining()) {
+        segments[first++] = null;
+      }
+      if (written == 0 && first < count) {
+        return false;
+      }
+    }
+    clear();
+    return true;
+  }
+
+  /**
+   * Drops everything not written.
+   */
+  void clear() {
+    Arrays.fill(segments, first, count, null);
+    first = 0;
+    count = 0;
+    stagedFrom = 0;
+    staging.clear();
+  }
+
+  /**
+   * Adds the bytes staged since the last segment as a segment.
+   */
+  private void addStagedSegment() {
+    final int position = staging.position();
+    if (position > stagedFrom) {
+      final ByteBuffer segment = staging.duplicate();
+      segment.limit(position);
+      segment.position(stagedFrom);
+      addSegment(segment);
+      stagedFrom = position;
+    }
+  }
+
+  /**
+   * Adds the segment.
+   *
+   * @param segment the segment
+   */
+  private void addSegment(final ByteBuffer segment) {
+    if (count == segments.length) {
+      if (first > 0) {
+        System.arraycopy(segments, first, segments, 0, count - first);
+        Arrays.fill(segments, count - first, count, null);
+        count -= first;
+        first = 0;
+      } else {
+        segments = Arrays.copyOf(segments, segments.length * 2);
+      }
+    }
+    segments[count++] = segment;
+  }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+/**
+ * The Class HashSlots maps keys to the hash slots of redis cluster. The slot of a key is the CRC16
+ * of the key modulo the number of slots. If the key has a non-empty hash tag, a part enclosed in
+ * the first pair of curly braces, only the hash tag is hashed so keys with the same tag share a
+ * slot.
+ */
+public final class HashSlots {
+
+  /**
+   * The Constant SLOTS is the number of hash slots.
+   */
+  public static final int SLOTS = 16384;
+
+  /**
+   * The CRC16 (XMODEM) lookup table.
+   */
+  private static final int[] CRC16_TABLE = new int[256];
+
+  static {
+    for (int i = 0; i < 256; i++) {
+      int crc = i << 8;
+      for (int bit = 0; bit < 8; bit++) {
+        crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+      }
+      CRC16_TABLE[i] = crc & 0xffff;
+    }
+  }
+
+  /**
+   * Instantiates a new hash slots.
+   */
+  private HashSlots() {
+  }
+
+  /**
+   * Gets the hash slot of the key.
+   *
+   * @param key the key
+   * @return the slot
+   */
+  public static int slot(final byte[] key) {
+    int start = 0;
+    int end = key.length;
+    for (int i = 0; i < key.length; i++) {
+      if (key[i] == '{') {
+        for (int j = i + 1; j < key.length; j++) {
+          if (key[j] == '}') {
+            if (j > i + 1) {
+              start = i + 1;
+              end = j;
+            }
+            break;
+          }
+        }
+        break;
+      }
+    }
+    return crc16(key, start, end) & (SLOTS - 1);
+  }
+
+  /**
+   * Computes the CRC16 of the bytes.
+   *
+   * @param bytes the bytes
+   * @param start the start index, inclusive
+   * @param end the end index, exclusive
+   * @return the crc16
+   */
+  static int crc16(final byte[] bytes, final int start, final int end) {
+    int crc = 0;
+    for (int i = start; i < end; i++) {
+      crc = ((crc << 8) ^ CRC16_TABLE[((crc >>> 8) ^ bytes[i]) & 0xff]) & 0xffff;
+    }
+    return crc;
+  }
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import java.util.List;
+
+/**
+ * The listener interface for receiving the keys invalidated on a redis server.
+ */
+public interface InvalidationListener {
+
+  /**
+   * Called when keys are modified, deleted, expired or evicted on the server.
+   *
+   * @param keys the invalidated keys, or null if all keys must be considered invalid
+   */
+  void onInvalidation(List<byte[]> keys);
+}
@@ -0,0 +1,283 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import static com.cetsoft.imcache.redis.client.RedisClient.toBytes;
+
+import com.cetsoft.imcache.cache.util.ThreadUtils;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The Class InvalidationSubscriber receives the keys invalidated on a redis server over a
+ * dedicated connection, so that copies of the values kept by the client can be dropped. It turns
+ * on client side caching in broadcasting mode, so the server reports every modified key without
+ * having to remember which keys the client read. With RESP3 the invalidations arrive as push
+ * messages on the connection itself, servers that can't switch to RESP3 redirect them to the
+ * invalidation channel the connection subscribes to.
+ *
+ * <p>Whenever the subscription is lost or made again, the listener is told that all keys are
+ * invalid, since invalidations may have been missed in between.
+ */
+public class InvalidationSubscriber {
+
+  /**
+   * The Constant INVALIDATION_CHANNEL is the channel RESP2 invalidations are published to.
+   */
+  public static final String INVALIDATION_CHANNEL = "__redis__:invalidate";
+
+  /**
+   * The Constant INITIAL_BACKOFF is the time to wait before the first resubscription in
+   * milliseconds.
+   */
+  public static final long INITIAL_BACKOFF = 100;
+
+  /**
+   * The Constant MAX_BACKOFF is the maximum time to wait before a resubscription in milliseconds.
+   */
+  public static final long MAX_BACKOFF = 5000;
+
+  /**
+   * The Constant INVALIDATE is the kind of the invalidation push messages.
+   */
+  private static final byte[] INVALIDATE = toBytes("invalidate");
+
+  /**
+   * The Constant MESSAGE is the kind of the pub/sub messages.
+   */
+  private static final byte[] MESSAGE = toBytes("message");
+
+  /**
+   * The connection.
+   */
+  private final Connection connection;
+
+  /**
+   * The listener.
+   */
+  private volatile InvalidationListener listener;
+
+  /**
+   * Whether invalidations are being received.
+   */
+  private volatile boolean subscribed;
+
+  /**
+   * Whether the subscriber is closed.
+   */
+  private volatile boolean closed;
+
+  /**
+   * Instantiates a new invalidation subscriber.
+   *
+   * @param host the host
+   * @param port the port
+   */
+  public InvalidationSubscriber(final String host, final int port) {
+    this(new Connection(host, port, Connection.DEFAULT_TIMEOUT, 0));
+  }
+
+  /**
+   * Instantiates a new invalidation subscriber. The socket timeout of the connection should be
+   * zero, otherwise the subscription is dropped whenever no key changes for a while.
+   *
+   * @param connection the connection
+   */
+  public InvalidationSubscriber(final Connection connection) {
+    this.connection = connection;
+  }
+
+  /**
+   * Starts receiving invalidations in a daemon thread.
+   *
+   * @param listener the listener
+   */
+  public void start(final InvalidationListener listener) {
+    if (this.listener != null) {
+      throw new IllegalStateException("Invalidation subscriber is already started");
+    }
+    this.listener = listener;
+    final String threadName = "imcache:redisInvalidationSubscriber(host=" + connection.getHost()
+        + ",port=" + connection.getPort() + ")";
+    ThreadUtils.createDaemonThread(this::run, threadName).start();
+  }
+
+  /**
+   * Checks if invalidations are being received. Values read while it isn't subscribed may never
+   * be invalidated.
+   *
+   * @return true, if subscribed
+   */
+  public boolean isSubscribed() {
+    return subscribed;
+  }
+
+  /**
+   * Stops receiving invalidations and closes the connection.
+   */
+  public void close() {
+    closed = true;
+    subscribed = false;
+    closeQuietly();
+  }
+
+  /**
+   * Subscribes and dispatches the invalidations until the subscriber is closed, subscribing again
+   * with exponential backoff whenever the connection fails or an invalidation can't be
+   * dispatched.
+   */
+  private void run() {
+    long backoff = INITIAL_BACKOFF;
+    while (!closed) {
+      try {
+        connection.open();
+        final RedisStreamWriter streamWriter = connection.getStreamWriter();
+        final RedisStreamReader streamReader = connection.getStreamReader();
+        subscribe(streamWriter, streamReader);
+        subscribed = true;
+        listener.onInvalidation(null);
+        backoff = INITIAL_BACKOFF;
+        while (!closed) {
+          dispatch(streamReader.readReply());
+        }
+      } catch (ConnectionException | IOException | RuntimeException e) {
+        closeQuietly();
+        if (subscribed) {
+          subscribed = false;
+          invalidateAll();
+        }
+        if (!closed) {
+          try {
+            Thread.sleep(backoff);
+          } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+          backoff = Math.min(backoff * 2, MAX_BACKOFF);
+        }
+      }
+    }
+    closeQuietly();
+  }
+
+  /**
+   * Tells the listener that all keys are invalid after the subscription is lost. A failing
+   * listener is told again once the subscription is made again.
+   */
+  private void invalidateAll() {
+    try {
+      listener.onInvalidation(null);
+    } catch (RuntimeException e) {
+      // The values aren't used until the subscription is made again.
+    }
+  }
+
+  /**
+   * Turns on client side caching in broadcasting mode, switching to RESP3 if the server supports
+   * it, otherwise redirecting the invalidations to the connection itself and subscribing to the
+   * invalidation channel.
+   *
+   * @param streamWriter the stream writer
+   * @param streamReader the stream reader
+   * @throws ConnectionException if the server refuses a command
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void subscribe(final RedisStreamWriter streamWriter,
+      final RedisStreamReader streamReader) throws ConnectionException, IOException {
+    if (!(call(streamWriter, streamReader, RedisCommands.HELLO, toBytes("3"))
+        instanceof ErrorReply)) {
+      check(call(streamWriter, streamReader, RedisCommands.CLIENT, toBytes("TRACKING"),
+          toBytes("on"), toBytes("BCAST")));
+      return;
+    }
+    final Object id = check(call(streamWriter, streamReader, RedisCommands.CLIENT, toBytes("ID")));
+    check(call(streamWriter, streamReader, RedisCommands.CLIENT, toBytes("TRACKING"),
+        toBytes("on"), toBytes("REDIRECT"), toBytes(String.valueOf(id)), toBytes("BCAST")));
+    check(call(streamWriter, streamReader, RedisCommands.SUBSCRIBE,
+        toBytes(INVALIDATION_CHANNEL)));
+  }
+
+  /**
+   * Sends the command and reads its reply, skipping push messages.
+   *
+   * @param streamWriter the stream writer
+   * @param streamReader the stream reader
+   * @param command the command
+   * @param args the args
+   * @return the reply
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static Object call(final RedisStreamWriter streamWriter,
+      final RedisStreamReader streamReader, final ByteCommand command, final byte[]... args)
+      throws IOException {
+    RedisCommandExecutor.write(streamWriter, command, args);
+    streamWriter.flush();
+    Object reply;
+    do {
+      reply = streamReader.readReply();
+    } while (reply instanceof PushReply);
+    return reply;
+  }
+
+  /**
+   * Checks that the reply isn't an error.
+   *
+   * @param reply the reply
+   * @return the reply
+   * @throws ConnectionException if the reply is an error
+   */
+  private static Object check(final Object reply) throws ConnectionException {
+    if (reply instanceof ErrorReply) {
+      throw new ConnectionException(reply.toString());
+    }
+    return reply;
+  }
+
+  /**
+   * Dispatches the keys of an invalidation push message or of an invalidation channel message to
+   * the listener, ignoring anything else.
+   *
+   * @param reply the reply
+   */
+  @SuppressWarnings("unchecked")
+  private void dispatch(final Object reply) {
+    final List<Object> elements;
+    if (reply instanceof PushReply) {
+      elements = ((PushReply) reply).getElements();
+    } else if (reply instanceof List) {
+      elements = (List<Object>) reply;
+    } else {
+      return;
+    }
+    if (elements.size() == 2 && Arrays.equals(INVALIDATE, (byte[]) elements.get(0))) {
+      listener.onInvalidation((List<byte[]>) elements.get(1));
+    } else if (elements.size() == 3 && Arrays.equals(MESSAGE, (byte[]) elements.get(0))) {
+      listener.onInvalidation((List<byte[]>) elements.get(2));
+    }
+  }
+
+  /**
+   * Closes the connection ignoring failures.
+   */
+  private void closeQuietly() {
+    try {
+      connection.close();
+    } catch (ConnectionException e) {
+      // The connection is given up anyway.
+    }
+  }
+}
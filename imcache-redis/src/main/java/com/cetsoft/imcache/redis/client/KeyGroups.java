@@ -0,0 +1,78 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The Class KeyGroups splits the arguments of multi-key commands such as MGET and MSET into the
+ * groups of keys that can be sent to the same node.
+ */
+final class KeyGroups {
+
+  /**
+   * Instantiates a new key groups.
+   */
+  private KeyGroups() {
+  }
+
+  /**
+   * Groups the indexes of the keys. The arguments hold a key followed by stride - 1 other
+   * arguments, such as its value, for each key.
+   *
+   * @param <G> the group type
+   * @param args the arguments
+   * @param stride the number of arguments per key
+   * @param groupOfKey the function giving the group of a key
+   * @return the indexes of the keys by their groups, in the order the groups are first seen
+   */
+  static <G> Map<G, List<Integer>> group(final byte[][] args, final int stride,
+      final Function<byte[], G> groupOfKey) {
+    if (args.length % stride != 0) {
+      throw new IllegalArgumentException("Expected " + stride + " arguments per key, found "
+          + args.length + " arguments");
+    }
+    final Map<G, List<Integer>> groups = new LinkedHashMap<>();
+    for (int index = 0; index < args.length / stride; index++) {
+      groups.computeIfAbsent(groupOfKey.apply(args[index * stride]), group -> new ArrayList<>())
+          .add(index);
+    }
+    return groups;
+  }
+
+  /**
+   * Selects the arguments of the keys with the indexes.
+   *
+   * @param args the arguments
+   * @param stride the number of arguments per key
+   * @param indexes the indexes of the keys
+   * @return the arguments of the keys
+   */
+  static byte[][] select(final byte[][] args, final int stride, final List<Integer> indexes) {
+    if (indexes.size() * stride == args.length) {
+      return args;
+    }
+    final byte[][] selected = new byte[indexes.size() * stride][];
+    for (int i = 0; i < indexes.size(); i++) {
+      System.arraycopy(args, indexes.get(i) * stride, selected, i * stride, stride);
+    }
+    return selected;
+  }
+}
@@ -24,7 +24,11 @@ import java.util.concurrent.atomic.AtomicInteger;
  * The Class MultiRedisClient is a container for multiple clients. Upon initialization, it creates n
  * client where n equals to concurrencyLevel. This class delegates each method call to clients that
  * it created.
+ *
+ * @deprecated a slow command holds up every command sent to its client, use {@link
+ *     RedisClientPool} instead.
  */
+@Deprecated
 public class MultiRedisClient implements Client {
 
   /**
@@ -90,6 +94,26 @@ public class MultiRedisClient implements Client {
   }
 
 
+  @Override
+  public byte[] setIfAbsent(byte[] key, byte[] value) throws ConnectionException, IOException {
+    return getClient().setIfAbsent(key, value);
+  }
+
+
+  @Override
+  public boolean compareAndSet(byte[] key, byte[] expectedValue, byte[] newValue)
+      throws ConnectionException, IOException {
+    return getClient().compareAndSet(key, expectedValue, newValue);
+  }
+
+
+  @Override
+  public boolean compareAndDelete(byte[] key, byte[] expectedValue)
+      throws ConnectionException, IOException {
+    return getClient().compareAndDelete(key, expectedValue);
+  }
+
+
   @Override
   public byte[] get(byte[] key) throws ConnectionException, IOException {
     return getClient().get(key);
@@ -102,6 +126,36 @@ public class MultiRedisClient implements Client {
   }
 
 
+  @Override
+  public byte[] getDel(byte[] key) throws ConnectionException, IOException {
+    return getClient().getDel(key);
+  }
+
+
+  @Override
+  public boolean exists(byte[] key) throws ConnectionException, IOException {
+    return getClient().exists(key);
+  }
+
+
+  @Override
+  public int unlink(byte[]... keys) throws ConnectionException, IOException {
+    return getClient().unlink(keys);
+  }
+
+
+  @Override
+  public List<byte[]> mget(byte[]... keys) throws ConnectionException, IOException {
+    return getClient().mget(keys);
+  }
+
+
+  @Override
+  public void mset(byte[]... keysAndValues) throws ConnectionException, IOException {
+    getClient().mset(keysAndValues);
+  }
+
+
   @Override
   public void flushdb() throws ConnectionException, IOException {
     getClient().flushdb();
@@ -120,7 +174,7 @@ public class MultiRedisClient implements Client {
    * @return the client
    */
   protected Client getClient() {
-    final int index = currentIndex.incrementAndGet() % redisClients.size();
+    final int index = Math.floorMod(currentIndex.incrementAndGet(), redisClients.size());
     return redisClients.get(index);
   }
 
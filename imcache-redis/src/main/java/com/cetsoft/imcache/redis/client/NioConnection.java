@@ -0,0 +1,352 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The Class NioConnection is a non-blocking connection served by an event loop. Sending threads
+ * only queue their commands, the event loop encodes the queued commands into a direct buffer,
+ * writes them together with their large arguments in one gathering write when the socket is
+ * writable and completes their futures in order as the replies are read. No thread blocks on the
+ * socket, so a few event loops can serve many connections and many threads can share a
+ * connection.
+ */
+public class NioConnection implements CommandChannel, SelectionHandler {
+
+  /**
+   * The Constant BUFFER_SIZE.
+   */
+  public static final int BUFFER_SIZE = 65536;
+
+  /**
+   * The host.
+   */
+  private final String host;
+
+  /**
+   * The port.
+   */
+  private final int port;
+
+  /**
+   * The event loop.
+   */
+  private final EventLoop eventLoop;
+
+  /**
+   * The connect timeout in milliseconds.
+   */
+  private final int connectTimeout;
+
+  /**
+   * The commands waiting to be written.
+   */
+  private final Queue<PendingCommand> pendingCommands = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Whether a flush is scheduled to the event loop.
+   */
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+  /**
+   * The flush task.
+   */
+  private final Runnable flushTask = this::flush;
+
+  /**
+   * The commands written and waiting for their replies.
+   */
+  private final Queue<PendingCommand> inFlightCommands = new ArrayDeque<>();
+
+  /**
+   * The write buffer.
+   */
+  private final GatheringWriteBuffer writeBuffer = new GatheringWriteBuffer(BUFFER_SIZE);
+
+  /**
+   * The read buffer.
+   */
+  private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+  /**
+   * The reply parser.
+   */
+  private final RedisReplyParser replyParser = new RedisReplyParser();
+
+  /**
+   * The socket channel, null if the connection isn't open.
+   */
+  private SocketChannel channel;
+
+  /**
+   * The selection key of the socket channel.
+   */
+  private SelectionKey key;
+
+  /**
+   * Whether the socket channel is connected.
+   */
+  private boolean connected;
+
+  /**
+   * Whether the connection is closed.
+   */
+  private volatile boolean closed;
+
+  /**
+   * Instantiates a new nio connection.
+   *
+   * @param host the host
+   * @param port the port
+   * @param eventLoop the event loop
+   */
+  public NioConnection(final String host, final int port, final EventLoop eventLoop) {
+    this(host, port, eventLoop, Connection.DEFAULT_TIMEOUT);
+  }
+
+  /**
+   * Instantiates a new nio connection.
+   *
+   * @param host the host
+   * @param port the port
+   * @param eventLoop the event loop
+   * @param connectTimeout the connect timeout in milliseconds
+   */
+  public NioConnection(final String host, final int port, final EventLoop eventLoop,
+      final int connectTimeout) {
+    this.host = host;
+    this.port = port;
+    this.eventLoop = eventLoop;
+    this.connectTimeout = connectTimeout;
+  }
+
+  @Override
+  public CompletableFuture<Object> send(final ByteCommand command, final byte[]... args) {
+    final PendingCommand pendingCommand = new PendingCommand(command, args);
+    if (closed) {
+      pendingCommand.fail(new ConnectionException("Connection is closed"));
+      return pendingCommand.future;
+    }
+    pendingCommands.add(pendingCommand);
+    if (flushScheduled.compareAndSet(false, true)) {
+      eventLoop.execute(flushTask);
+    }
+    return pendingCommand.future;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    eventLoop.execute(() -> fail(new ConnectionException("Connection is closed")));
+  }
+
+  @Override
+  public void eventLoopClosed() {
+    closed = true;
+    fail(new ConnectionException("Event loop is closed"));
+  }
+
+  @Override
+  public void handle(final SelectionKey key) {
+    try {
+      if (key.isConnectable()) {
+        if (!channel.finishConnect()) {
+          return;
+        }
+        connected();
+        return;
+      }
+      if (key.isWritable()) {
+        write();
+      }
+      if (key.isValid() && key.isReadable()) {
+        read();
+      }
+    } catch (IOException e) {
+      fail(new ConnectionException(e));
+    }
+  }
+
+  /**
+   * Writes the pending commands, opening the connection if it isn't open.
+   */
+  private void flush() {
+    flushScheduled.set(false);
+    if (closed) {
+      fail(new ConnectionException("Connection is closed"));
+    } else if (channel == null) {
+      connect();
+    } else if (connected) {
+      try {
+        write();
+      } catch (IOException e) {
+        fail(new ConnectionException(e));
+      }
+    }
+  }
+
+  /**
+   * Starts connecting the socket channel. The pending commands are written once it is connected.
+   */
+  private void connect() {
+    try {
+      final SocketChannel connecting = SocketChannel.open();
+      channel = connecting;
+      connecting.configureBlocking(false);
+      connecting.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      connecting.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+      key = eventLoop.register(connecting, 0, this);
+      if (connecting.connect(new InetSocketAddress(host, port))) {
+        connected();
+        return;
+      }
+      key.interestOps(SelectionKey.OP_CONNECT);
+      eventLoop.schedule(() -> {
+        if (channel == connecting && !connected) {
+          fail(new ConnectionException("Couldn't connect to " + host + ":" + port + " in "
+              + connectTimeout + " ms"));
+        }
+      }, connectTimeout, TimeUnit.MILLISECONDS);
+    } catch (IOException e) {
+      fail(new ConnectionException(e));
+    }
+  }
+
+  /**
+   * Starts reading replies and writes the pending commands after the channel is connected.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void connected() throws IOException {
+    connected = true;
+    key.interestOps(SelectionKey.OP_READ);
+    write();
+  }
+
+  /**
+   * Encodes the pending commands into the write buffer and writes them until the socket doesn't
+   * take more bytes, in which case the rest is written when the socket is writable again.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void write() throws IOException {
+    while (true) {
+      encodePendingCommands();
+      if (writeBuffer.isEmpty()) {
+        key.interestOps(SelectionKey.OP_READ);
+        return;
+      }
+      if (!writeBuffer.write(channel)) {
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Encodes the pending commands while they fit into the write buffer. Large arguments are written
+   * from their own arrays, so they don't take space in the write buffer.
+   */
+  private void encodePendingCommands() {
+    PendingCommand pendingCommand;
+    while ((pendingCommand = pendingCommands.peek()) != null
+        && writeBuffer.add(pendingCommand.command, pendingCommand.args)) {
+      pendingCommands.poll();
+      inFlightCommands.add(pendingCommand);
+    }
+  }
+
+  /**
+   * Reads the available bytes and completes the commands whose replies are read. The parser keeps
+   * the part of a reply read so far, so the read buffer is always consumed entirely.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void read() throws IOException {
+    if (channel.read(readBuffer) == -1) {
+      throw new EOFException("Connection closed by redis server");
+    }
+    readBuffer.flip();
+    Object reply;
+    while ((reply = replyParser.parse(readBuffer)) != RedisReplyParser.INCOMPLETE) {
+      if (reply instanceof PushReply) {
+        continue;
+      }
+      final PendingCommand pendingCommand = inFlightCommands.poll();
+      if (pendingCommand == null) {
+        throw new IOException("Received a reply without a command");
+      }
+      pendingCommand.complete(reply);
+    }
+    readBuffer.clear();
+  }
+
+  /**
+   * Closes the socket channel and fails the commands in flight. The pending commands are written
+   * to a new connection unless the connection couldn't be opened or is closed.
+   *
+   * @param exception the exception
+   */
+  private void fail(final ConnectionException exception) {
+    final boolean wasConnected = connected;
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // The channel is given up anyway.
+      }
+    }
+    channel = null;
+    key = null;
+    connected = false;
+    writeBuffer.clear();
+    readBuffer.clear();
+    replyParser.reset();
+    failCommands(inFlightCommands, exception);
+    if (closed || !wasConnected) {
+      failCommands(pendingCommands, exception);
+    } else if (!pendingCommands.isEmpty() && flushScheduled.compareAndSet(false, true)) {
+      eventLoop.execute(flushTask);
+    }
+  }
+
+  /**
+   * Fails the commands.
+   *
+   * @param commands the commands
+   * @param exception the exception
+   */
+  private static void failCommands(final Queue<PendingCommand> commands,
+      final ConnectionException exception) {
+    PendingCommand pendingCommand;
+    while ((pendingCommand = commands.poll()) != null) {
+      pendingCommand.fail(exception);
+    }
+  }
+}
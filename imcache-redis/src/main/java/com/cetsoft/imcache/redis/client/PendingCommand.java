@@ -0,0 +1,72 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The Class PendingCommand is a command with the future of its reply.
+ */
+class PendingCommand {
+
+  /**
+   * The command.
+   */
+  final ByteCommand command;
+
+  /**
+   * The arguments.
+   */
+  final byte[][] args;
+
+  /**
+   * The future of the reply.
+   */
+  final CompletableFuture<Object> future = new CompletableFuture<>();
+
+  /**
+   * Instantiates a new pending command.
+   *
+   * @param command the command
+   * @param args the arguments
+   */
+  PendingCommand(final ByteCommand command, final byte[][] args) {
+    this.command = command;
+    this.args = args;
+  }
+
+  /**
+   * Completes the future with the reply.
+   *
+   * @param reply the reply
+   */
+  void complete(final Object reply) {
+    if (reply instanceof ErrorReply) {
+      future.completeExceptionally(new ConnectionException(reply.toString()));
+    } else {
+      future.complete(reply);
+    }
+  }
+
+  /**
+   * Fails the future.
+   *
+   * @param exception the exception
+   */
+  void fail(final ConnectionException exception) {
+    future.completeExceptionally(exception);
+  }
+}
@@ -0,0 +1,288 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import com.cetsoft.imcache.cache.util.ThreadUtils;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The Class PipelinedConnection lets many threads send commands over one connection without
+ * waiting for each other's replies. Commands are queued by the sending threads and written by
+ * whichever thread gets to write first, so commands that queue up while a write is in progress
+ * are written together with a single flush. Redis replies in the order commands are received, so
+ * a reader thread completes the futures of the written commands in order.
+ */
+public class PipelinedConnection implements CommandChannel {
+
+  /**
+   * The Constant WRITE_BUFFER_SIZE.
+   */
+  public static final int WRITE_BUFFER_SIZE = 65536;
+
+  /**
+   * The connection.
+   */
+  private final Connection connection;
+
+  /**
+   * The commands waiting to be written.
+   */
+  private final Queue<PendingCommand> pendingCommands = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Whether a thread is writing the pending commands.
+   */
+  private final AtomicBoolean writing = new AtomicBoolean();
+
+  /**
+   * The session lock.
+   */
+  private final Object sessionLock = new Object();
+
+  /**
+   * The current session, null if the connection isn't open.
+   */
+  private Session session;
+
+  /**
+   * Whether the connection is closed.
+   */
+  private volatile boolean closed;
+
+  /**
+   * Instantiates a new pipelined connection. The socket timeout of the connection should be zero,
+   * otherwise the reader thread gives up on slow replies.
+   *
+   * @param connection the connection
+   */
+  public PipelinedConnection(final Connection connection) {
+    this.connection = connection;
+  }
+
+  @Override
+  public CompletableFuture<Object> send(final ByteCommand command, final byte[]... args) {
+    final PendingCommand pendingCommand = new PendingCommand(command, args);
+    if (closed) {
+      pendingCommand.fail(new ConnectionException("Connection is closed"));
+      return pendingCommand.future;
+    }
+    pendingCommands.add(pendingCommand);
+    flush();
+    return pendingCommand.future;
+  }
+
+  /**
+   * Writes the pending commands unless another thread is writing them.
+   */
+  protected void flush() {
+    while (!pendingCommands.isEmpty() && writing.compareAndSet(false, true)) {
+      try {
+        writePendingCommands();
+      } finally {
+        writing.set(false);
+      }
+    }
+  }
+
+  /**
+   * Writes the pending commands and flushes them at once.
+   */
+  private void writePendingCommands() {
+    final Session session;
+    try {
+      session = session();
+    } catch (ConnectionException e) {
+      PendingCommand pendingCommand;
+      while ((pendingCommand = pendingCommands.poll()) != null) {
+        pendingCommand.fail(e);
+      }
+      return;
+    }
+    try {
+      PendingCommand pendingCommand;
+      while ((pendingCommand = pendingCommands.poll()) != null) {
+        session.inFlightCommands.add(pendingCommand);
+        RedisCommandExecutor.write(session.streamWriter, pendingCommand.command,
+            pendingCommand.args);
+      }
+      session.streamWriter.flush();
+    } catch (IOException e) {
+      session.fail(new ConnectionException(e));
+    }
+    if (session.failed) {
+      session.failInFlightCommands();
+    }
+  }
+
+  /**
+   * Gets the current session, opening the connection if it isn't open.
+   *
+   * @return the session
+   * @throws ConnectionException the connection exception
+   */
+  private Session session() throws ConnectionException {
+    synchronized (sessionLock) {
+      if (closed) {
+        throw new ConnectionException("Connection is closed");
+      }
+      if (session == null) {
+        connection.open();
+        try {
+          session = new Session();
+        } catch (IOException e) {
+          closeQuietly();
+          throw new ConnectionException(e);
+        }
+        final String threadName = "imcache:redisReplyReader(host=" + connection.getHost()
+            + ",port=" + connection.getPort() + ")";
+        ThreadUtils.createDaemonThread(session, threadName).start();
+      }
+      return session;
+    }
+  }
+
+  @Override
+  public void close() {
+    final Session session;
+    synchronized (sessionLock) {
+      closed = true;
+      session = this.session;
+    }
+    if (session != null) {
+      session.fail(new ConnectionException("Connection is closed"));
+    }
+    PendingCommand pendingCommand;
+    while ((pendingCommand = pendingCommands.poll()) != null) {
+      pendingCommand.fail(new ConnectionException("Connection is closed"));
+    }
+  }
+
+  /**
+   * Closes the connection ignoring failures.
+   */
+  private void closeQuietly() {
+    try {
+      connection.close();
+    } catch (ConnectionException e) {
+      // The connection is given up anyway.
+    }
+  }
+
+  /**
+   * The Class Session holds the streams and the commands in flight of an open connection. It reads
+   * the replies until the connection fails.
+   */
+  private class Session implements Runnable {
+
+    /**
+     * The commands written and waiting for their replies.
+     */
+    final Queue<PendingCommand> inFlightCommands = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The stream writer.
+     */
+    final RedisStreamWriter streamWriter;
+
+    /**
+     * The stream reader.
+     */
+    final RedisStreamReader streamReader;
+
+    /**
+     * Whether the session failed.
+     */
+    volatile boolean failed;
+
+    /**
+     * Instantiates a new session.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    Session() throws IOException {
+      streamWriter = new RedisStreamWriter(
+          new BufferedOutputStream(connection.getOutputStream(), WRITE_BUFFER_SIZE));
+      streamReader = connection.getStreamReader();
+    }
+
+    @Override
+    public void run() {
+      while (!failed) {
+        try {
+          final Object reply = streamReader.readReply();
+          if (reply instanceof PushReply) {
+            continue;
+          }
+          final PendingCommand pendingCommand = inFlightCommands.poll();
+          if (pendingCommand == null) {
+            throw new IOException("Received a reply without a command");
+          }
+          pendingCommand.complete(reply);
+        } catch (SocketTimeoutException e) {
+          if (!inFlightCommands.isEmpty()) {
+            fail(new ConnectionException(e));
+          }
+        } catch (IOException e) {
+          fail(new ConnectionException(e));
+        }
+      }
+    }
+
+    /**
+     * Fails the session, closing its connection and failing its commands in flight.
+     *
+     * @param exception the exception
+     */
+    void fail(final ConnectionException exception) {
+      synchronized (sessionLock) {
+        if (failed) {
+          return;
+        }
+        failed = true;
+        if (session == this) {
+          session = null;
+        }
+        closeQuietly();
+      }
+      failInFlightCommands(exception);
+    }
+
+    /**
+     * Fails the commands in flight after the session failed.
+     */
+    void failInFlightCommands() {
+      failInFlightCommands(new ConnectionException("Connection failed"));
+    }
+
+    /**
+     * Fails the commands in flight.
+     *
+     * @param exception the exception
+     */
+    private void failInFlightCommands(final ConnectionException exception) {
+      PendingCommand pendingCommand;
+      while ((pendingCommand = inFlightCommands.poll()) != null) {
+        pendingCommand.fail(exception);
+      }
+    }
+  }
+}
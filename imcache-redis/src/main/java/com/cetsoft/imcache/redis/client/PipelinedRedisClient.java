@@ -0,0 +1,285 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import static com.cetsoft.imcache.redis.client.RedisClient.COMPARE_AND_DELETE_SCRIPT;
+import static com.cetsoft.imcache.redis.client.RedisClient.COMPARE_AND_SET_SCRIPT;
+import static com.cetsoft.imcache.redis.client.RedisClient.ONE_KEY;
+import static com.cetsoft.imcache.redis.client.RedisClient.PX;
+import static com.cetsoft.imcache.redis.client.RedisClient.SET_IF_ABSENT_SCRIPT;
+import static com.cetsoft.imcache.redis.client.RedisClient.toBytes;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The Class PipelinedRedisClient is a client that pipelines the commands of all threads over one
+ * command channel, either a {@link PipelinedConnection} or a {@link NioConnection}. A thread
+ * waiting for a reply doesn't stop other threads from sending their commands, so a single
+ * connection is enough for many threads. Commands can also be sent asynchronously.
+ */
+public class PipelinedRedisClient implements Client {
+
+  /**
+   * The default time to wait for a reply in milliseconds.
+   */
+  public static final long DEFAULT_TIMEOUT = 1000;
+
+  /**
+   * The Constant STATUS_OK.
+   */
+  static final String STATUS_OK = "OK";
+
+  /**
+   * The Constant STATUS_PONG.
+   */
+  private static final String STATUS_PONG = "PONG";
+
+  /**
+   * The command channel.
+   */
+  final CommandChannel channel;
+
+  /**
+   * The time to wait for a reply in milliseconds.
+   */
+  final long timeout;
+
+  /**
+   * Instantiates a new pipelined redis client.
+   */
+  public PipelinedRedisClient() {
+    this(Connection.DEFAULT_HOST, Connection.DEFAULT_PORT);
+  }
+
+  /**
+   * Instantiates a new pipelined redis client.
+   *
+   * @param host the host
+   * @param port the port
+   */
+  public PipelinedRedisClient(final String host, final int port) {
+    this(new PipelinedConnection(new Connection(host, port, Connection.DEFAULT_TIMEOUT, 0)),
+        DEFAULT_TIMEOUT);
+  }
+
+  /**
+   * Instantiates a new pipelined redis client.
+   *
+   * @param channel the command channel
+   * @param timeout the time to wait for a reply in milliseconds
+   */
+  public PipelinedRedisClient(final CommandChannel channel, final long timeout) {
+    this.channel = channel;
+    this.timeout = timeout;
+  }
+
+  /**
+   * Sends the command asynchronously.
+   *
+   * @param command the command
+   * @param args the arguments
+   * @return the future of the reply
+   */
+  public CompletableFuture<Object> execute(final ByteCommand command, final byte[]... args) {
+    return channel.send(command, args);
+  }
+
+  /**
+   * Gets the value of the key asynchronously.
+   *
+   * @param key the key
+   * @return the future of the value
+   */
+  public CompletableFuture<byte[]> getAsync(final byte[] key) {
+    return execute(RedisCommands.GET, key).thenApply(reply -> (byte[]) reply);
+  }
+
+  /**
+   * Sets the value of the key asynchronously.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the future of the completion
+   */
+  public CompletableFuture<Void> setAsync(final byte[] key, final byte[] value) {
+    return execute(RedisCommands.SET, key, value).thenAccept(reply -> {
+      if (!STATUS_OK.equals(reply)) {
+        throw new IllegalStateException("Command couldn't run successfully " + reply);
+      }
+    });
+  }
+
+  @Override
+  public void ping() throws ConnectionException, IOException {
+    checkStatus(await(execute(RedisCommands.PING)), STATUS_PONG);
+  }
+
+  @Override
+  public void set(final byte[] key, final byte[] value) throws ConnectionException, IOException {
+    checkStatus(await(execute(RedisCommands.SET, key, value)), STATUS_OK);
+  }
+
+  @Override
+  public void set(final byte[] key, final byte[] value, final long expiryInMillis)
+      throws ConnectionException, IOException {
+    checkStatus(await(execute(RedisCommands.SET, key, value, PX,
+        toBytes(Long.toString(expiryInMillis)))), STATUS_OK);
+  }
+
+  @Override
+  public byte[] setIfAbsent(final byte[] key, final byte[] value)
+      throws ConnectionException, IOException {
+    return (byte[]) await(execute(RedisCommands.EVAL, SET_IF_ABSENT_SCRIPT, ONE_KEY, key, value));
+  }
+
+  @Override
+  public boolean compareAndSet(final byte[] key, final byte[] expectedValue,
+      final byte[] newValue) throws ConnectionException, IOException {
+    return toLong(await(execute(RedisCommands.EVAL, COMPARE_AND_SET_SCRIPT, ONE_KEY, key,
+        expectedValue, newValue))) == 1;
+  }
+
+  @Override
+  public boolean compareAndDelete(final byte[] key, final byte[] expectedValue)
+      throws ConnectionException, IOException {
+    return toLong(await(execute(RedisCommands.EVAL, COMPARE_AND_DELETE_SCRIPT, ONE_KEY, key,
+        expectedValue))) == 1;
+  }
+
+  @Override
+  public byte[] get(final byte[] key) throws ConnectionException, IOException {
+    return (byte[]) await(execute(RedisCommands.GET, key));
+  }
+
+  @Override
+  public byte[] expire(final byte[] key) throws ConnectionException, IOException {
+    final CompletableFuture<Object> getReply = execute(RedisCommands.GET, key);
+    final CompletableFuture<Object> expireReply = execute(RedisCommands.EXPIRE, key,
+        new byte[]{'0'});
+    final byte[] value = (byte[]) await(getReply);
+    await(expireReply);
+    return value;
+  }
+
+  @Override
+  public byte[] getDel(final byte[] key) throws ConnectionException, IOException {
+    return (byte[]) await(execute(RedisCommands.GETDEL, key));
+  }
+
+  @Override
+  public boolean exists(final byte[] key) throws ConnectionException, IOException {
+    return toLong(await(execute(RedisCommands.EXISTS, key))) == 1;
+  }
+
+  @Override
+  public int unlink(final byte[]... keys) throws ConnectionException, IOException {
+    return (int) toLong(await(execute(RedisCommands.UNLINK, keys)));
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<byte[]> mget(final byte[]... keys) throws ConnectionException, IOException {
+    final Object reply = await(execute(RedisCommands.MGET, keys));
+    if (!(reply instanceof List)) {
+      throw new ConnectionException("Expected an array reply, found " + reply);
+    }
+    return (List<byte[]>) reply;
+  }
+
+  @Override
+  public void mset(final byte[]... keysAndValues) throws ConnectionException, IOException {
+    checkStatus(await(execute(RedisCommands.MSET, keysAndValues)), STATUS_OK);
+  }
+
+  @Override
+  public void flushdb() throws ConnectionException, IOException {
+    checkStatus(await(execute(RedisCommands.FLUSHDB)), STATUS_OK);
+  }
+
+  @Override
+  public int dbsize() throws ConnectionException, IOException {
+    return (int) toLong(await(execute(RedisCommands.DBSIZE)));
+  }
+
+  /**
+   * Closes the command channel.
+   */
+  public void close() {
+    channel.close();
+  }
+
+  /**
+   * Waits for the reply.
+   *
+   * @param <T> the reply type
+   * @param future the future of the reply
+   * @return the reply
+   * @throws ConnectionException if the command fails or times out
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  protected <T> T await(final CompletableFuture<T> future)
+      throws ConnectionException, IOException {
+    try {
+      return future.get(timeout, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof ConnectionException) {
+        throw (ConnectionException) cause;
+      } else if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new ConnectionException(String.valueOf(cause));
+    } catch (TimeoutException e) {
+      throw new ConnectionException("No reply in " + timeout + " ms");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ConnectionException("Interrupted while waiting for reply");
+    }
+  }
+
+  /**
+   * Checks the status reply.
+   *
+   * @param reply the reply
+   * @param expectedStatus the expected status
+   * @throws ConnectionException if the status isn't the expected one
+   */
+  static void checkStatus(final Object reply, final String expectedStatus)
+      throws ConnectionException {
+    if (!expectedStatus.equals(reply)) {
+      throw new ConnectionException("Command couldn't run successfully " + reply);
+    }
+  }
+
+  /**
+   * Converts the integer reply.
+   *
+   * @param reply the reply
+   * @return the long
+   * @throws ConnectionException if the reply isn't an integer
+   */
+  static long toLong(final Object reply) throws ConnectionException {
+    if (!(reply instanceof Long)) {
+      throw new ConnectionException("Expected an integer reply, found " + reply);
+    }
+    return (Long) reply;
+  }
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import java.util.List;
+
+/**
+ * The Class PushReply is an out of band message pushed by redis server over RESP3, such as a
+ * client tracking invalidation. It isn't the reply of any command.
+ */
+public class PushReply {
+
+  /**
+   * The elements.
+   */
+  private final List<Object> elements;
+
+  /**
+   * Instantiates a new push reply.
+   *
+   * @param elements the elements
+   */
+  public PushReply(final List<Object> elements) {
+    this.elements = elements;
+  }
+
+  /**
+   * Gets the elements, the first one being the kind of the message.
+   *
+   * @return the elements
+   */
+  public List<Object> getElements() {
+    return elements;
+  }
+
+  @Override
+  public String toString() {
+    return "PushReply" + elements;
+  }
+}
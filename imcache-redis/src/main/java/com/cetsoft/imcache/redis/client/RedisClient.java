@@ -19,6 +19,7 @@ import static com.cetsoft.imcache.redis.client.RedisCommands.CHARSET;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.List;
 
 /**
  * The Class RedisClient.
@@ -30,6 +31,48 @@ public class RedisClient implements Client {
    */
   private static final String STATUS_OK = "OK";
 
+  /**
+   * The Constant STATUS_PONG.
+   */
+  private static final String STATUS_PONG = "PONG";
+
+  /**
+   * The script setting the value if key does not exist, returns the existing value otherwise.
+   */
+  static final byte[] SET_IF_ABSENT_SCRIPT = toBytes(
+      "local v = redis.call('GET', KEYS[1]) "
+          + "if v then return v end "
+          + "redis.call('SET', KEYS[1], ARGV[1]) "
+          + "return false");
+
+  /**
+   * The script setting the new value if key holds the expected value, keeping the time to live of
+   * the key.
+   */
+  static final byte[] COMPARE_AND_SET_SCRIPT = toBytes(
+      "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+          + "redis.call('SET', KEYS[1], ARGV[2], 'KEEPTTL') "
+          + "return 1 end "
+          + "return 0");
+
+  /**
+   * The script deleting key if it holds the expected value.
+   */
+  static final byte[] COMPARE_AND_DELETE_SCRIPT = toBytes(
+      "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+          + "return redis.call('DEL', KEYS[1]) end "
+          + "return 0");
+
+  /**
+   * The number of keys passed to the scripts.
+   */
+  static final byte[] ONE_KEY = toBytes("1");
+
+  /**
+   * The option of SET giving the expiry in milliseconds.
+   */
+  static final byte[] PX = toBytes("PX");
+
   /**
    * The command result.
    */
@@ -94,11 +137,25 @@ public class RedisClient implements Client {
    */
   protected void runVoidCommand(final ByteCommand command, final byte[]... args)
       throws ConnectionException, IOException {
+    runStatusCommand(STATUS_OK, command, args);
+  }
+
+  /**
+   * Runs a command replying with a status.
+   *
+   * @param expectedStatus the status the command replies with when it succeeds
+   * @param command the command
+   * @param args the args
+   * @throws ConnectionException the connection exception
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void runStatusCommand(final String expectedStatus, final ByteCommand command,
+      final byte[]... args) throws ConnectionException, IOException {
     transaction.open();
     try {
       commandExecutor.execute(command, args);
       final String status = commandResult.getStatus();
-      if (!status.equals(STATUS_OK)) {
+      if (!status.equals(expectedStatus)) {
         throw new ConnectionException("Command couldn't run successfully " + command.toString());
       }
     } finally {
@@ -109,7 +166,7 @@ public class RedisClient implements Client {
 
   @Override
   public void ping() throws ConnectionException, IOException {
-    runVoidCommand(RedisCommands.PING);
+    runStatusCommand(STATUS_PONG, RedisCommands.PING);
   }
 
 
@@ -122,23 +179,64 @@ public class RedisClient implements Client {
   @Override
   public void set(final byte[] key, final byte[] value, final long expiryInMillis)
       throws ConnectionException, IOException {
+    runVoidCommand(RedisCommands.SET, key, value, PX, longToBytes(expiryInMillis));
+  }
+
+  public byte[] longToBytes(final long longToBeConverted) throws UnsupportedEncodingException {
+    return Long.toString(longToBeConverted).getBytes(CHARSET);
+  }
+
+  /**
+   * Converts the string to bytes.
+   *
+   * @param string the string
+   * @return the bytes
+   */
+  static byte[] toBytes(final String string) {
+    try {
+      return string.getBytes(CHARSET);
+    } catch (UnsupportedEncodingException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public byte[] setIfAbsent(final byte[] key, final byte[] value)
+      throws ConnectionException, IOException {
     transaction.open();
     try {
-      commandExecutor.execute(RedisCommands.SET, key, value);
-      final String setStatus = commandResult.getStatus();
-      if (!setStatus.equals(STATUS_OK)) {
-        throw new ConnectionException("Command couldn't run successfully " + setStatus);
-      }
-      //redis don't accept expiry in milliseconds, so converting to milliseconds.
-      commandExecutor.execute(RedisCommands.PEXPIRE, key, longToBytes(expiryInMillis));
-      commandResult.getInt();
+      commandExecutor.execute(RedisCommands.EVAL, SET_IF_ABSENT_SCRIPT, ONE_KEY, key, value);
+      return commandResult.getBytes();
     } finally {
       transaction.close();
     }
   }
 
-  public byte[] longToBytes(final long longToBeConverted) throws UnsupportedEncodingException {
-    return Long.toString(longToBeConverted).getBytes(CHARSET);
+  @Override
+  public boolean compareAndSet(final byte[] key, final byte[] expectedValue,
+      final byte[] newValue) throws ConnectionException, IOException {
+    transaction.open();
+    try {
+      commandExecutor
+          .execute(RedisCommands.EVAL, COMPARE_AND_SET_SCRIPT, ONE_KEY, key, expectedValue,
+              newValue);
+      return commandResult.getInt() == 1;
+    } finally {
+      transaction.close();
+    }
+  }
+
+  @Override
+  public boolean compareAndDelete(final byte[] key, final byte[] expectedValue)
+      throws ConnectionException, IOException {
+    transaction.open();
+    try {
+      commandExecutor
+          .execute(RedisCommands.EVAL, COMPARE_AND_DELETE_SCRIPT, ONE_KEY, key, expectedValue);
+      return commandResult.getInt() == 1;
+    } finally {
+      transaction.close();
+    }
   }
 
   @Override
@@ -167,6 +265,55 @@ public class RedisClient implements Client {
   }
 
 
+  @Override
+  public byte[] getDel(final byte[] key) throws ConnectionException, IOException {
+    transaction.open();
+    try {
+      commandExecutor.execute(RedisCommands.GETDEL, key);
+      return commandResult.getBytes();
+    } finally {
+      transaction.close();
+    }
+  }
+
+  @Override
+  public boolean exists(final byte[] key) throws ConnectionException, IOException {
+    transaction.open();
+    try {
+      commandExecutor.execute(RedisCommands.EXISTS, key);
+      return commandResult.getInt() == 1;
+    } finally {
+      transaction.close();
+    }
+  }
+
+  @Override
+  public int unlink(final byte[]... keys) throws ConnectionException, IOException {
+    transaction.open();
+    try {
+      commandExecutor.execute(RedisCommands.UNLINK, keys);
+      return commandResult.getInt();
+    } finally {
+      transaction.close();
+    }
+  }
+
+  @Override
+  public List<byte[]> mget(final byte[]... keys) throws ConnectionException, IOException {
+    transaction.open();
+    try {
+      commandExecutor.execute(RedisCommands.MGET, keys);
+      return commandResult.getBytesList();
+    } finally {
+      transaction.close();
+    }
+  }
+
+  @Override
+  public void mset(final byte[]... keysAndValues) throws ConnectionException, IOException {
+    runVoidCommand(RedisCommands.MSET, keysAndValues);
+  }
+
   @Override
   public void flushdb() throws ConnectionException, IOException {
     runVoidCommand(RedisCommands.FLUSHDB);
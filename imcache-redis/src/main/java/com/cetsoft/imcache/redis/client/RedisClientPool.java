@@ -0,0 +1,474 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The Class RedisClientPool is a pool of connections, each used by one thread at a time. A command
+ * borrows the idle connection with the lowest recent latency and returns it when its reply is
+ * read, so a stalled connection only holds up the command using it. If every connection is
+ * borrowed, the command waits for one at most the maximum wait. A connection that fails is closed
+ * and reopened after a backoff that grows with its consecutive failures, and connections idle for
+ * longer than the health check interval are checked with a ping before they are used.
+ */
+public class RedisClientPool implements Client {
+
+  /**
+   * The Constant DEFAULT_SIZE.
+   */
+  public static final int DEFAULT_SIZE = 3;
+
+  /**
+   * The Constant DEFAULT_MAX_WAIT in milliseconds.
+   */
+  public static final long DEFAULT_MAX_WAIT = 1000;
+
+  /**
+   * The Constant DEFAULT_HEALTH_CHECK_INTERVAL in milliseconds.
+   */
+  public static final long DEFAULT_HEALTH_CHECK_INTERVAL = 30000;
+
+  /**
+   * The Constant INITIAL_BACKOFF in milliseconds.
+   */
+  static final long INITIAL_BACKOFF = 100;
+
+  /**
+   * The Constant MAX_BACKOFF in milliseconds.
+   */
+  static final long MAX_BACKOFF = 5000;
+
+  /**
+   * The pooled clients.
+   */
+  private final PooledClient[] pooledClients;
+
+  /**
+   * The maximum time to wait for a connection in nanoseconds.
+   */
+  private final long maxWait;
+
+  /**
+   * The time a connection can be idle without a health check in nanoseconds.
+   */
+  private final long healthCheckInterval;
+
+  /**
+   * The lock guarding the states of the pooled clients.
+   */
+  private final Lock lock = new ReentrantLock();
+
+  /**
+   * The condition signalled when a connection is returned.
+   */
+  private final Condition returned = lock.newCondition();
+
+  /**
+   * Instantiates a new redis client pool.
+   *
+   * @param host the host
+   * @param port the port
+   */
+  public RedisClientPool(final String host, final int port) {
+    this(host, port, DEFAULT_SIZE);
+  }
+
+  /**
+   * Instantiates a new redis client pool.
+   *
+   * @param host the host
+   * @param port the port
+   * @param size the number of connections
+   */
+  public RedisClientPool(final String host, final int port, final int size) {
+    this(host, port, size, DEFAULT_MAX_WAIT, DEFAULT_HEALTH_CHECK_INTERVAL);
+  }
+
+  /**
+   * Instantiates a new redis client pool.
+   *
+   * @param host the host
+   * @param port the port
+   * @param size the number of connections
+   * @param maxWait the maximum time to wait for a connection in milliseconds
+   * @param healthCheckInterval the time a connection can be idle without a health check in
+   *     milliseconds
+   */
+  public RedisClientPool(final String host, final int port, final int size, final long maxWait,
+      final long healthCheckInterval) {
+    this(createPooledClients(host, port, size), maxWait, healthCheckInterval);
+  }
+
+  /**
+   * Instantiates a new redis client pool.
+   *
+   * @param pooledClients the pooled clients
+   * @param maxWait the maximum time to wait for a connection in milliseconds
+   * @param healthCheckInterval the time a connection can be idle without a health check in
+   *     milliseconds
+   */
+  RedisClientPool(final PooledClient[] pooledClients, final long maxWait,
+      final long healthCheckInterval) {
+    this.pooledClients = pooledClients;
+    this.maxWait = TimeUnit.MILLISECONDS.toNanos(maxWait);
+    this.healthCheckInterval = TimeUnit.MILLISECONDS.toNanos(healthCheckInterval);
+  }
+
+  /**
+   * Creates the pooled clients.
+   *
+   * @param host the host
+   * @param port the port
+   * @param size the number of connections
+   * @return the pooled clients
+   */
+  private static PooledClient[] createPooledClients(final String host, final int port,
+      final int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("Pool size must be positive but it was " + size);
+    }
+    final PooledClient[] pooledClients = new PooledClient[size];
+    for (int i = 0; i < size; i++) {
+      final Connection connection = new Connection(host, port);
+      pooledClients[i] = new PooledClient(connection, new RedisClient(connection));
+    }
+    return pooledClients;
+  }
+
+  @Override
+  public void ping() throws ConnectionException, IOException {
+    execute(client -> {
+      client.ping();
+      return null;
+    });
+  }
+
+  @Override
+  public void set(final byte[] key, final byte[] value) throws ConnectionException, IOException {
+    execute(client -> {
+      client.set(key, value);
+      return null;
+    });
+  }
+
+  @Override
+  public void set(final byte[] key, final byte[] value, final long expiryInMillis)
+      throws ConnectionException, IOException {
+    execute(client -> {
+      client.set(key, value, expiryInMillis);
+      return null;
+    });
+  }
+
+  @Override
+  public byte[] setIfAbsent(final byte[] key, final byte[] value)
+      throws ConnectionException, IOException {
+    return execute(client -> client.setIfAbsent(key, value));
+  }
+
+  @Override
+  public boolean compareAndSet(final byte[] key, final byte[] expectedValue,
+      final byte[] newValue) throws ConnectionException, IOException {
+    return execute(client -> client.compareAndSet(key, expectedValue, newValue));
+  }
+
+  @Override
+  public boolean compareAndDelete(final byte[] key, final byte[] expectedValue)
+      throws ConnectionException, IOException {
+    return execute(client -> client.compareAndDelete(key, expectedValue));
+  }
+
+  @Override
+  public byte[] get(final byte[] key) throws ConnectionException, IOException {
+    return execute(client -> client.get(key));
+  }
+
+  @Override
+  public byte[] expire(final byte[] key) throws ConnectionException, IOException {
+    return execute(client -> client.expire(key));
+  }
+
+  @Override
+  public byte[] getDel(final byte[] key) throws ConnectionException, IOException {
+    return execute(client -> client.getDel(key));
+  }
+
+  @Override
+  public boolean exists(final byte[] key) throws ConnectionException, IOException {
+    return execute(client -> client.exists(key));
+  }
+
+  @Override
+  public int unlink(final byte[]... keys) throws ConnectionException, IOException {
+    return execute(client -> client.unlink(keys));
+  }
+
+  @Override
+  public List<byte[]> mget(final byte[]... keys) throws ConnectionException, IOException {
+    return execute(client -> client.mget(keys));
+  }
+
+  @Override
+  public void mset(final byte[]... keysAndValues) throws ConnectionException, IOException {
+    execute(client -> {
+      client.mset(keysAndValues);
+      return null;
+    });
+  }
+
+  @Override
+  public void flushdb() throws ConnectionException, IOException {
+    execute(client -> {
+      client.flushdb();
+      return null;
+    });
+  }
+
+  @Override
+  public int dbsize() throws ConnectionException, IOException {
+    return execute(Client::dbsize);
+  }
+
+  /**
+   * Runs the command with a borrowed connection, checking the health of the connection first if
+   * it has been idle for long or failed before.
+   *
+   * @param <R> the result type
+   * @param command the command
+   * @return the result
+   * @throws ConnectionException the connection exception
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  protected <R> R execute(final PooledCommand<R> command) throws ConnectionException, IOException {
+    final long deadline = System.nanoTime() + maxWait;
+    while (true) {
+      final PooledClient pooledClient = borrow(deadline);
+      if (pooledClient.needsHealthCheck(System.nanoTime(), healthCheckInterval)) {
+        try {
+          pooledClient.client.ping();
+        } catch (ConnectionException | IOException e) {
+          release(pooledClient, true, 0);
+          continue;
+        }
+      }
+      final long start = System.nanoTime();
+      boolean failed = false;
+      try {
+        return command.execute(pooledClient.client);
+      } catch (IOException e) {
+        failed = true;
+        throw e;
+      } catch (ConnectionException e) {
+        failed = e.getCause() instanceof IOException;
+        throw e;
+      } finally {
+        release(pooledClient, failed, System.nanoTime() - start);
+      }
+    }
+  }
+
+  /**
+   * Borrows the idle connection with the lowest latency, waiting until the deadline if there
+   * isn't any. Connections backing off after failures aren't borrowed until their backoffs end.
+   *
+   * @param deadline the deadline in nanoseconds
+   * @return the pooled client
+   * @throws ConnectionException if no connection is available until the deadline
+   */
+  PooledClient borrow(final long deadline) throws ConnectionException {
+    lock.lock();
+    try {
+      while (true) {
+        final long now = System.nanoTime();
+        long wait = deadline - now;
+        PooledClient leastBusy = null;
+        for (final PooledClient pooledClient : pooledClients) {
+          if (pooledClient.borrowed) {
+            continue;
+          }
+          final long backoff = pooledClient.retryTime - now;
+          if (pooledClient.failures > 0 && backoff > 0) {
+            wait = Math.min(wait, backoff);
+          } else if (leastBusy == null || pooledClient.latency < leastBusy.latency) {
+            leastBusy = pooledClient;
+          }
+        }
+        if (leastBusy != null) {
+          leastBusy.borrowed = true;
+          return leastBusy;
+        }
+        if (deadline - now <= 0) {
+          throw new ConnectionException("No connection available in "
+              + TimeUnit.NANOSECONDS.toMillis(maxWait) + " ms");
+        }
+        returned.awaitNanos(wait);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ConnectionException("Interrupted while waiting for a connection");
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the connection to the pool. A failed connection is closed and backs off.
+   *
+   * @param pooledClient the pooled client
+   * @param failed whether the connection failed
+   * @param latency the latency of the command in nanoseconds
+   */
+  void release(final PooledClient pooledClient, final boolean failed, final long latency) {
+    if (failed) {
+      pooledClient.closeConnection();
+    }
+    lock.lock();
+    try {
+      final long now = System.nanoTime();
+      if (failed) {
+        pooledClient.failed(now);
+      } else {
+        pooledClient.succeeded(now, latency);
+      }
+      pooledClient.borrowed = false;
+      returned.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * The Interface PooledCommand is a command run with a pooled client.
+   *
+   * @param <R> the result type
+   */
+  protected interface PooledCommand<R> {
+
+    /**
+     * Executes the command.
+     *
+     * @param client the client
+     * @return the result
+     * @throws ConnectionException the connection exception
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    R execute(Client client) throws ConnectionException, IOException;
+  }
+
+  /**
+   * The Class PooledClient is a client with its connection and its state in the pool.
+   */
+  static class PooledClient {
+
+    /**
+     * The connection.
+     */
+    final Connection connection;
+
+    /**
+     * The client.
+     */
+    final Client client;
+
+    /**
+     * Whether the client is borrowed.
+     */
+    boolean borrowed;
+
+    /**
+     * The moving average of the latencies of the commands in nanoseconds.
+     */
+    long latency;
+
+    /**
+     * The number of consecutive failures.
+     */
+    int failures;
+
+    /**
+     * The time until which the client backs off after a failure in nanoseconds.
+     */
+    long retryTime;
+
+    /**
+     * The time the client was last used in nanoseconds.
+     */
+    long lastUsedTime = System.nanoTime();
+
+    /**
+     * Instantiates a new pooled client.
+     *
+     * @param connection the connection
+     * @param client the client
+     */
+    PooledClient(final Connection connection, final Client client) {
+      this.connection = connection;
+      this.client = client;
+    }
+
+    /**
+     * Checks if the client needs a health check before it's used.
+     *
+     * @param now the current time in nanoseconds
+     * @param healthCheckInterval the health check interval in nanoseconds
+     * @return true, if the client failed before or has been idle for longer than the interval
+     */
+    boolean needsHealthCheck(final long now, final long healthCheckInterval) {
+      return failures > 0 || now - lastUsedTime > healthCheckInterval;
+    }
+
+    /**
+     * Records a successful command.
+     *
+     * @param now the current time in nanoseconds
+     * @param latency the latency of the command in nanoseconds
+     */
+    void succeeded(final long now, final long latency) {
+      this.latency = this.latency - (this.latency >> 2) + (latency >> 2);
+      failures = 0;
+      lastUsedTime = now;
+    }
+
+    /**
+     * Records a failure and backs off exponentially.
+     *
+     * @param now the current time in nanoseconds
+     */
+    void failed(final long now) {
+      failures++;
+      final long backoff = Math.min(MAX_BACKOFF, INITIAL_BACKOFF << Math.min(failures - 1, 20));
+      retryTime = now + TimeUnit.MILLISECONDS.toNanos(backoff);
+      lastUsedTime = now;
+    }
+
+    /**
+     * Closes the connection ignoring failures, it is reopened by the next command.
+     */
+    void closeConnection() {
+      try {
+        connection.close();
+      } catch (ConnectionException e) {
+        // The connection is reopened anyway.
+      }
+    }
+  }
+}
@@ -0,0 +1,593 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import static com.cetsoft.imcache.redis.client.RedisClient.toBytes;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * The Class RedisClusterClient talks to redis cluster directly, without a proxy. It loads the slot
+ * map with CLUSTER SLOTS and sends each command to the master of the hash slot of its key over a
+ * pipelined connection. A MOVED redirect updates the owner of the slot and refreshes the slot map,
+ * an ASK redirect sends the command once to the importing node after ASKING, over a connection of
+ * its own so that no other command uses up the ASKING flag in between. A failed connection
+ * refreshes the slot map and retries the command on the new owner of the slot. Multi-key commands
+ * are split into one command per slot, as redis cluster refuses keys of different slots, and the
+ * commands of all the slots are sent before waiting for their replies.
+ */
+public class RedisClusterClient implements Client {
+
+  /**
+   * The Constant MAX_ATTEMPTS is the number of times a command is sent before giving up.
+   */
+  public static final int MAX_ATTEMPTS = 5;
+
+  /**
+   * The Constant MIN_REFRESH_INTERVAL is the minimum time between slot map refreshes in
+   * milliseconds.
+   */
+  public static final long MIN_REFRESH_INTERVAL = 100;
+
+  /**
+   * The Constant SLOTS.
+   */
+  private static final byte[] SLOTS = toBytes("SLOTS");
+
+  /**
+   * The addresses of the nodes to load the slot map from first.
+   */
+  private final List<String> seeds;
+
+  /**
+   * The factory creating the clients of the nodes by their addresses.
+   */
+  private final Function<String, PipelinedRedisClient> nodeClientFactory;
+
+  /**
+   * The clients of the nodes by their addresses.
+   */
+  private final ConcurrentMap<String, PipelinedRedisClient> nodeClients =
+      new ConcurrentHashMap<>();
+
+  /**
+   * The addresses of the masters of the slots.
+   */
+  private final AtomicReferenceArray<String> slotOwners =
+      new AtomicReferenceArray<>(HashSlots.SLOTS);
+
+  /**
+   * The addresses of the masters.
+   */
+  private volatile Set<String> masters = Collections.emptySet();
+
+  /**
+   * The refresh lock.
+   */
+  private final Lock refreshLock = new ReentrantLock();
+
+  /**
+   * The time of the last refresh in nanoseconds.
+   */
+  private volatile long lastRefreshTime = System.nanoTime()
+      - TimeUnit.MILLISECONDS.toNanos(MIN_REFRESH_INTERVAL);
+
+  /**
+   * Instantiates a new redis cluster client.
+   *
+   * @param seeds the addresses of some nodes of the cluster as host:port
+   */
+  public RedisClusterClient(final Collection<String> seeds) {
+    this(seeds, address -> new PipelinedRedisClient(host(address), port(address)));
+  }
+
+  /**
+   * Instantiates a new redis cluster client connecting to the nodes with non-blocking connections
+   * served by the event loop group.
+   *
+   * @param seeds the addresses of some nodes of the cluster as host:port
+   * @param eventLoopGroup the event loop group
+   */
+  public RedisClusterClient(final Collection<String> seeds, final EventLoopGroup eventLoopGroup) {
+    this(seeds, address -> new PipelinedRedisClient(eventLoopGroup.connect(host(address),
+        port(address)), PipelinedRedisClient.DEFAULT_TIMEOUT));
+  }
+
+  /**
+   * Instantiates a new redis cluster client.
+   *
+   * @param seeds the addresses of some nodes of the cluster as host:port
+   * @param nodeClientFactory the factory creating the clients of the nodes by their addresses
+   */
+  public RedisClusterClient(final Collection<String> seeds,
+      final Function<String, PipelinedRedisClient> nodeClientFactory) {
+    if (seeds.isEmpty()) {
+      throw new IllegalArgumentException("At least one seed node is required");
+    }
+    this.seeds = new ArrayList<>(seeds);
+    this.nodeClientFactory = nodeClientFactory;
+  }
+
+  @Override
+  public void ping() throws ConnectionException, IOException {
+    for (final String master : masters()) {
+      nodeClient(master).ping();
+    }
+  }
+
+  @Override
+  public void set(final byte[] key, final byte[] value) throws ConnectionException, IOException {
+    execute(key, client -> {
+      client.set(key, value);
+      return null;
+    });
+  }
+
+  @Override
+  public void set(final byte[] key, final byte[] value, final long expiryInMillis)
+      throws ConnectionException, IOException {
+    execute(key, client -> {
+      client.set(key, value, expiryInMillis);
+      return null;
+    });
+  }
+
+  @Override
+  public byte[] setIfAbsent(final byte[] key, final byte[] value)
+      throws ConnectionException, IOException {
+    return execute(key, client -> client.setIfAbsent(key, value));
+  }
+
+  @Override
+  public boolean compareAndSet(final byte[] key, final byte[] expectedValue,
+      final byte[] newValue) throws ConnectionException, IOException {
+    return execute(key, client -> client.compareAndSet(key, expectedValue, newValue));
+  }
+
+  @Override
+  public boolean compareAndDelete(final byte[] key, final byte[] expectedValue)
+      throws ConnectionException, IOException {
+    return execute(key, client -> client.compareAndDelete(key, expectedValue));
+  }
+
+  @Override
+  public byte[] get(final byte[] key) throws ConnectionException, IOException {
+    return execute(key, client -> client.get(key));
+  }
+
+  @Override
+  public byte[] expire(final byte[] key) throws ConnectionException, IOException {
+    return execute(key, client -> client.expire(key));
+  }
+
+  @Override
+  public byte[] getDel(final byte[] key) throws ConnectionException, IOException {
+    return execute(key, client -> client.getDel(key));
+  }
+
+  @Override
+  public boolean exists(final byte[] key) throws ConnectionException, IOException {
+    return execute(key, client -> client.exists(key));
+  }
+
+  @Override
+  public int unlink(final byte[]... keys) throws ConnectionException, IOException {
+    int count = 0;
+    for (final Object reply : executeBySlot(RedisCommands.UNLINK, keys, 1,
+        KeyGroups.group(keys, 1, HashSlots::slot).values())) {
+      count += (int) PipelinedRedisClient.toLong(reply);
+    }
+    return count;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<byte[]> mget(final byte[]... keys) throws ConnectionException, IOException {
+    final byte[][] values = new byte[keys.length][];
+    final Collection<List<Integer>> groups = KeyGroups.group(keys, 1, HashSlots::slot).values();
+    final List<Object> replies = executeBySlot(RedisCommands.MGET, keys, 1, groups);
+    int group = 0;
+    for (final List<Integer> indexes : groups) {
+      final Object reply = replies.get(group++);
+      if (!(reply instanceof List)) {
+        throw new ConnectionException("Expected an array reply, found " + reply);
+      }
+      final List<byte[]> slotValues = (List<byte[]>) reply;
+      for (int i = 0; i < indexes.size(); i++) {
+        values[indexes.get(i)] = slotValues.get(i);
+      }
+    }
+    return Arrays.asList(values);
+  }
+
+  @Override
+  public void mset(final byte[]... keysAndValues) throws ConnectionException, IOException {
+    for (final Object reply : executeBySlot(RedisCommands.MSET, keysAndValues, 2,
+        KeyGroups.group(keysAndValues, 2, HashSlots::slot).values())) {
+      PipelinedRedisClient.checkStatus(reply, PipelinedRedisClient.STATUS_OK);
+    }
+  }
+
+  @Override
+  public void flushdb() throws ConnectionException, IOException {
+    for (final String master : masters()) {
+      nodeClient(master).flushdb();
+    }
+  }
+
+  @Override
+  public int dbsize() throws ConnectionException, IOException {
+    int size = 0;
+    for (final String master : masters()) {
+      size += nodeClient(master).dbsize();
+    }
+    return size;
+  }
+
+  /**
+   * Closes the connections to the nodes.
+   */
+  public void close() {
+    for (final PipelinedRedisClient client : nodeClients.values()) {
+      client.close();
+    }
+    nodeClients.clear();
+  }
+
+  /**
+   * Gets the address of the master of the slot.
+   *
+   * @param slot the slot
+   * @return the address, or null if the slot map doesn't have the slot
+   */
+  public String getOwner(final int slot) {
+    return slotOwners.get(slot);
+  }
+
+  /**
+   * Runs the command of the key on the master of its slot, following redirects.
+   *
+   * @param <R> the result type
+   * @param key the key
+   * @param command the command
+   * @return the result
+   * @throws ConnectionException the connection exception
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  protected <R> R execute(final byte[] key, final NodeCommand<R> command)
+      throws ConnectionException, IOException {
+    masters();
+    final int slot = HashSlots.slot(key);
+    String address = owner(slot);
+    boolean asking = false;
+    for (int attempt = 1; ; attempt++) {
+      final boolean askingClient = asking;
+      // ASKING holds only for the next command of its connection, so it can't share one.
+      final PipelinedRedisClient client =
+          askingClient ? nodeClientFactory.apply(address) : nodeClient(address);
+      try {
+        if (askingClient) {
+          client.execute(RedisCommands.ASKING);
+        }
+        return command.execute(client);
+      } catch (ConnectionException e) {
+        final Redirect redirect = Redirect.parse(e.getMessage());
+        if (attempt == MAX_ATTEMPTS || redirect == null && !isConnectionFailure(e)) {
+          throw e;
+        }
+        if (redirect == null) {
+          refresh();
+          address = owner(slot);
+          asking = false;
+        } else {
+          if (redirect.moved) {
+            slotOwners.set(redirect.slot, redirect.address);
+            refresh();
+          }
+          address = redirect.address;
+          asking = !redirect.moved;
+        }
+      } catch (IOException e) {
+        if (attempt == MAX_ATTEMPTS) {
+          throw e;
+        }
+        refresh();
+        address = owner(slot);
+        asking = false;
+      } finally {
+        if (askingClient) {
+          client.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs the multi-key command once per slot of its keys. The commands of all the slots are sent
+   * before waiting for any reply, so the masters serve them in parallel. The command of a slot
+   * failing with a redirect or a failed connection runs again with execute, which follows it.
+   *
+   * @param command the command
+   * @param args the arguments
+   * @param stride the number of arguments per key
+   * @param groups the indexes of the keys of each slot
+   * @return the replies in the order of the groups
+   * @throws ConnectionException the connection exception
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private List<Object> executeBySlot(final ByteCommand command, final byte[][] args,
+      final int stride, final Collection<List<Integer>> groups)
+      throws ConnectionException, IOException {
+    masters();
+    final List<byte[][]> slotArgs = new ArrayList<>(groups.size());
+    final List<PipelinedRedisClient> clients = new ArrayList<>(groups.size());
+    final List<CompletableFuture<Object>> futures = new ArrayList<>(groups.size());
+    for (final List<Integer> indexes : groups) {
+      final byte[][] selectedArgs = KeyGroups.select(args, stride, indexes);
+      final PipelinedRedisClient client = nodeClient(owner(HashSlots.slot(selectedArgs[0])));
+      slotArgs.add(selectedArgs);
+      clients.add(client);
+      futures.add(client.execute(command, selectedArgs));
+    }
+    final List<Object> replies = new ArrayList<>(groups.size());
+    for (int i = 0; i < futures.size(); i++) {
+      final byte[][] selectedArgs = slotArgs.get(i);
+      final NodeCommand<Object> retry =
+          client -> client.await(client.execute(command, selectedArgs));
+      try {
+        replies.add(clients.get(i).await(futures.get(i)));
+      } catch (ConnectionException e) {
+        if (Redirect.parse(e.getMessage()) == null && !isConnectionFailure(e)) {
+          throw e;
+        }
+        replies.add(execute(selectedArgs[0], retry));
+      } catch (IOException e) {
+        replies.add(execute(selectedArgs[0], retry));
+      }
+    }
+    return replies;
+  }
+
+  /**
+   * Loads the slot map from the first node that replies, trying the known masters before the
+   * seeds.
+   *
+   * @throws ConnectionException if no node replies
+   */
+  public void refreshSlots() throws ConnectionException {
+    final Set<String> addresses = new LinkedHashSet<>(masters);
+    addresses.addAll(seeds);
+    ConnectionException failure = null;
+    for (final String address : addresses) {
+      final PipelinedRedisClient client = nodeClient(address);
+      try {
+        loadSlots(address, (List<?>) client.await(client.execute(RedisCommands.CLUSTER, SLOTS)));
+        return;
+      } catch (ConnectionException e) {
+        failure = e;
+      } catch (IOException | RuntimeException e) {
+        failure = new ConnectionException("Couldn't load slots from " + address + ": " + e);
+      }
+    }
+    throw failure;
+  }
+
+  /**
+   * Loads the slot map from the reply of CLUSTER SLOTS. Each element of the reply holds the
+   * first slot, the last slot, the master and the replicas of a slot range.
+   *
+   * @param queriedAddress the address of the node replying
+   * @param slotRanges the slot ranges
+   */
+  private void loadSlots(final String queriedAddress, final List<?> slotRanges) {
+    final Set<String> newMasters = new LinkedHashSet<>();
+    for (final Object slotRange : slotRanges) {
+      final List<?> range = (List<?>) slotRange;
+      final int first = ((Long) range.get(0)).intValue();
+      final int last = ((Long) range.get(1)).intValue();
+      final List<?> master = (List<?>) range.get(2);
+      String host = new String((byte[]) master.get(0), StandardCharsets.UTF_8);
+      if (host.isEmpty()) {
+        host = host(queriedAddress);
+      }
+      final String address = host + ":" + master.get(1);
+      newMasters.add(address);
+      for (int slot = first; slot <= last; slot++) {
+        slotOwners.set(slot, address);
+      }
+    }
+    masters = Collections.unmodifiableSet(newMasters);
+    lastRefreshTime = System.nanoTime();
+  }
+
+  /**
+   * Refreshes the slot map unless it was refreshed recently or another thread is refreshing it.
+   */
+  private void refresh() {
+    final long elapsed = System.nanoTime() - lastRefreshTime;
+    if (elapsed < TimeUnit.MILLISECONDS.toNanos(MIN_REFRESH_INTERVAL) || !refreshLock.tryLock()) {
+      return;
+    }
+    try {
+      refreshSlots();
+    } catch (ConnectionException e) {
+      // The slot map is refreshed again on the next failure.
+    } finally {
+      refreshLock.unlock();
+    }
+  }
+
+  /**
+   * Gets the masters, loading the slot map if it isn't loaded yet.
+   *
+   * @return the addresses of the masters
+   * @throws ConnectionException if the slot map can't be loaded
+   */
+  private Set<String> masters() throws ConnectionException {
+    if (masters.isEmpty()) {
+      refreshLock.lock();
+      try {
+        if (masters.isEmpty()) {
+          refreshSlots();
+        }
+      } finally {
+        refreshLock.unlock();
+      }
+    }
+    return masters;
+  }
+
+  /**
+   * Gets the owner of the slot, or any master if the slot map doesn't have the slot. The master
+   * redirects the command to the owner.
+   *
+   * @param slot the slot
+   * @return the address
+   */
+  private String owner(final int slot) {
+    final String owner = slotOwners.get(slot);
+    if (owner != null) {
+      return owner;
+    }
+    final Set<String> masters = this.masters;
+    return masters.isEmpty() ? seeds.get(0) : masters.iterator().next();
+  }
+
+  /**
+   * Gets the client of the node, creating it on first use.
+   *
+   * @param address the address
+   * @return the client
+   */
+  private PipelinedRedisClient nodeClient(final String address) {
+    return nodeClients.computeIfAbsent(address, nodeClientFactory);
+  }
+
+  /**
+   * Checks if the exception is caused by a failed connection rather than an error reply.
+   *
+   * @param e the exception
+   * @return true, if the connection failed
+   */
+  private static boolean isConnectionFailure(final ConnectionException e) {
+    return e.getCause() instanceof IOException;
+  }
+
+  /**
+   * Gets the host of the address.
+   *
+   * @param address the address
+   * @return the host
+   */
+  static String host(final String address) {
+    return address.substring(0, address.lastIndexOf(':'));
+  }
+
+  /**
+   * Gets the port of the address.
+   *
+   * @param address the address
+   * @return the port
+   */
+  static int port(final String address) {
+    return Integer.parseInt(address.substring(address.lastIndexOf(':') + 1));
+  }
+
+  /**
+   * The Interface NodeCommand is a command run with the client of a node.
+   *
+   * @param <R> the result type
+   */
+  protected interface NodeCommand<R> {
+
+    /**
+     * Executes the command.
+     *
+     * @param client the client
+     * @return the result
+     * @throws ConnectionException the connection exception
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    R execute(PipelinedRedisClient client) throws ConnectionException, IOException;
+  }
+
+  /**
+   * The Class Redirect is a MOVED or ASK redirect.
+   */
+  static class Redirect {
+
+    /**
+     * Whether the slot moved permanently.
+     */
+    final boolean moved;
+
+    /**
+     * The slot.
+     */
+    final int slot;
+
+    /**
+     * The address of the node to redirect to.
+     */
+    final String address;
+
+    /**
+     * Instantiates a new redirect.
+     *
+     * @param moved whether the slot moved permanently
+     * @param slot the slot
+     * @param address the address
+     */
+    Redirect(final boolean moved, final int slot, final String address) {
+      this.moved = moved;
+      this.slot = slot;
+      this.address = address;
+    }
+
+    /**
+     * Parses the redirect from an error message such as "MOVED 3999 127.0.0.1:6381".
+     *
+     * @param message the message
+     * @return the redirect, or null if the message isn't a redirect
+     */
+    static Redirect parse(final String message) {
+      if (message == null || !(message.startsWith("MOVED ") || message.startsWith("ASK "))) {
+        return null;
+      }
+      final String[] parts = message.split(" ");
+      if (parts.length != 3) {
+        return null;
+      }
+      return new Redirect(parts[0].equals("MOVED"), Integer.parseInt(parts[1]), parts[2]);
+    }
+  }
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The Class RedisCommandEncoder encodes commands into byte buffers as arrays of bulk strings, the
+ * same way {@link RedisCommandExecutor} writes them to streams.
+ */
+final class RedisCommandEncoder {
+
+  /**
+   * The Constant DIGITS_TABLE_SIZE is the number of non negative numbers whose digits are
+   * precomputed, which covers the lengths of most keys and values and the sizes of most commands.
+   */
+  static final int DIGITS_TABLE_SIZE = 1024;
+
+  /**
+   * The Constant DIGITS is the decimal digits of the numbers below DIGITS_TABLE_SIZE.
+   */
+  private static final byte[][] DIGITS = new byte[DIGITS_TABLE_SIZE][];
+
+  static {
+    for (int i = 0; i < DIGITS_TABLE_SIZE; i++) {
+      DIGITS[i] = Integer.toString(i).getBytes(StandardCharsets.US_ASCII);
+    }
+  }
+
+  /**
+   * Instantiates a new redis command encoder.
+   */
+  private RedisCommandEncoder() {
+  }
+
+  /**
+   * Gets the number of bytes the command is encoded into.
+   *
+   * @param command the command
+   * @param args the arguments
+   * @return the encoded length
+   */
+  static int encodedLength(final ByteCommand command, final byte[]... args) {
+    int length = 1 + digits(args.length + 1) + 2 + bulkStringLength(command.getBytes());
+    for (final byte[] arg : args) {
+      length += bulkStringLength(arg);
+    }
+    return length;
+  }
+
+  /**
+   * Encodes the command into the buffer, which must have enough space for it.
+   *
+   * @param buffer the buffer
+   * @param command the command
+   * @param args the arguments
+   */
+  static void encode(final ByteBuffer buffer, final ByteCommand command, final byte[]... args) {
+    putArrayHeader(buffer, args.length + 1);
+    putBulkString(buffer, command.getBytes());
+    for (final byte[] arg : args) {
+      putBulkString(buffer, arg);
+    }
+  }
+
+  /**
+   * Gets the number of bytes the bulk string is encoded into.
+   *
+   * @param bytes the bytes
+   * @return the encoded length
+   */
+  private static int bulkStringLength(final byte[] bytes) {
+    return 1 + digits(bytes.length) + 2 + bytes.length + 2;
+  }
+
+  /**
+   * Puts the header of an array, its size followed by CRLF.
+   *
+   * @param buffer the buffer
+   * @param size the size of the array
+   */
+  static void putArrayHeader(final ByteBuffer buffer, final int size) {
+    buffer.put(RedisBytes.ASTERISK_BYTE);
+    putNumber(buffer, size);
+  }
+
+  /**
+   * Puts the bulk string.
+   *
+   * @param buffer the buffer
+   * @param bytes the bytes
+   */
+  static void putBulkString(final ByteBuffer buffer, final byte[] bytes) {
+    putBulkStringHeader(buffer, bytes.length);
+    buffer.put(bytes);
+    putNewLine(buffer);
+  }
+
+  /**
+   * Puts the header of a bulk string, its length followed by CRLF.
+   *
+   * @param buffer the buffer
+   * @param length the length of the bulk string
+   */
+  static void putBulkStringHeader(final ByteBuffer buffer, final int length) {
+    buffer.put(RedisBytes.DOLLAR_BYTE);
+    putNumber(buffer, length);
+  }
+
+  /**
+   * Puts CRLF.
+   *
+   * @param buffer the buffer
+   */
+  static void putNewLine(final ByteBuffer buffer) {
+    buffer.put(RedisBytes.CARRIAGE_RETURN_BYTE);
+    buffer.put(RedisBytes.LINE_FEED_BYTE);
+  }
+
+  /**
+   * Puts the non negative number followed by CRLF.
+   *
+   * @param buffer the buffer
+   * @param number the number
+   */
+  private static void putNumber(final ByteBuffer buffer, final int number) {
+    if (number < DIGITS_TABLE_SIZE) {
+      buffer.put(DIGITS[number]);
+    } else {
+      int divisor = 1;
+      while (divisor <= number / 10) {
+        divisor *= 10;
+      }
+      for (; divisor > 0; divisor /= 10) {
+        buffer.put((byte) (RedisBytes.ZERO_BYTE + number / divisor % 10));
+      }
+    }
+    putNewLine(buffer);
+  }
+
+  /**
+   * Gets the decimal digits of the non negative number if they are precomputed.
+   *
+   * @param number the number
+   * @return the digits, or null if the number isn't below DIGITS_TABLE_SIZE
+   */
+  static byte[] digitsOf(final int number) {
+    return number < DIGITS_TABLE_SIZE ? DIGITS[number] : null;
+  }
+
+  /**
+   * Gets the number of digits of the non negative number.
+   *
+   * @param number the number
+   * @return the number of digits
+   */
+  private static int digits(final int number) {
+    int digits = 1;
+    for (int value = number; value >= 10; value /= 10) {
+      digits++;
+    }
+    return digits;
+  }
+}
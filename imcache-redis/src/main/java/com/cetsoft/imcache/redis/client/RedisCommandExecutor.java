@@ -41,6 +41,20 @@ public class RedisCommandExecutor implements CommandExecutor {
       throws ConnectionException, IOException {
     connection.open();
     final RedisStreamWriter streamWriter = connection.getStreamWriter();
+    write(streamWriter, command, args);
+    streamWriter.flush();
+  }
+
+  /**
+   * Writes the command with its arguments without flushing the stream writer.
+   *
+   * @param streamWriter the stream writer
+   * @param command the command
+   * @param args the arguments
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  static void write(final RedisStreamWriter streamWriter, final ByteCommand command,
+      final byte[]... args) throws IOException {
     streamWriter.write(RedisBytes.ASTERISK_BYTE);
     streamWriter.write(args.length + 1);// 1 comes from set
     streamWriter.writeNewLine();
@@ -57,7 +71,6 @@ public class RedisCommandExecutor implements CommandExecutor {
       streamWriter.write(arg);
       streamWriter.writeNewLine();
     }
-    streamWriter.flush();
   }
 
 }
@@ -16,6 +16,8 @@
 package com.cetsoft.imcache.redis.client;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The Class RedisCommandResult.
@@ -61,6 +63,18 @@ public class RedisCommandResult implements CommandResult {
     return streamReader.readInt();
   }
 
+  @Override
+  public List<byte[]> getBytesList() throws ConnectionException, IOException {
+    final RedisStreamReader streamReader = getStreamReader();
+    checkMessageType(streamReader, RedisBytes.ASTERISK_BYTE);
+    final int size = streamReader.readInt();
+    final List<byte[]> list = new ArrayList<>(Math.max(size, 0));
+    for (int i = 0; i < size; i++) {
+      list.add(getBytes());
+    }
+    return list;
+  }
+
   /**
    * Checks message type received. If it's unexpected throws an exception.
    *
@@ -73,6 +87,9 @@ public class RedisCommandResult implements CommandResult {
       throws IOException,
       ConnectionException {
     final byte actualByte = streamReader.readByte();
+    if (actualByte == RedisBytes.DASH_BYTE) {
+      throw new ConnectionException(streamReader.readString());
+    }
     if (actualByte != expectedByte) {
       throw new ConnectionException(
           "Expected(" + ((char) expectedByte) + "), Found(" + ((char) actualByte) + ").");
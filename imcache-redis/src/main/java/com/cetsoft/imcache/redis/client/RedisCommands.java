@@ -22,7 +22,8 @@ import java.io.UnsupportedEncodingException;
  */
 public enum RedisCommands implements ByteCommand {
 
-  PING, SET, GET, EXPIRE, PEXPIRE, FLUSHDB, DBSIZE;
+  PING, SET, GET, EXPIRE, PEXPIRE, FLUSHDB, DBSIZE, EVAL, CLUSTER, ASKING, HELLO, CLIENT,
+  SUBSCRIBE, GETDEL, EXISTS, UNLINK, MGET, MSET;
 
   public static final String CHARSET = "UTF-8";
 
@@ -0,0 +1,405 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Class RedisReplyParser is a resumable RESP2/RESP3 parser. It can be fed whatever bytes a
+ * read returned, it keeps the state of a partially read reply and continues from there when it is
+ * fed again, so no byte is parsed twice and bulk strings are copied once, straight into their
+ * arrays.
+ *
+ * <p>Replies are parsed into simple types. Simple strings are strings, errors and blob errors
+ * are {@link ErrorReply}, integers are longs, bulk and verbatim strings are byte arrays, arrays
+ * and sets are lists, maps are linked hash maps, doubles are doubles, booleans are booleans, big
+ * numbers are big integers and pushes are {@link PushReply}. Nulls, null bulk strings and null
+ * arrays are null. Attributes are skipped.
+ */
+public class RedisReplyParser {
+
+  /**
+   * The Constant INCOMPLETE is returned when the bytes fed so far don't complete a reply.
+   */
+  public static final Object INCOMPLETE = new Object();
+
+  /**
+   * The Constant STARTED is returned internally when an aggregate header is parsed.
+   */
+  private static final Object STARTED = new Object();
+
+  /**
+   * The Constant VERBATIM_PREFIX_LENGTH is the length of the format prefix of verbatim strings.
+   */
+  private static final int VERBATIM_PREFIX_LENGTH = 4;
+
+  /**
+   * The aggregates being parsed, the innermost one first.
+   */
+  private final Deque<Aggregate> aggregates = new ArrayDeque<>();
+
+  /**
+   * The line being read.
+   */
+  private byte[] line = new byte[64];
+
+  /**
+   * The length of the line being read.
+   */
+  private int lineLength;
+
+  /**
+   * The type of the value being parsed, zero if the type isn't read yet.
+   */
+  private byte type;
+
+  /**
+   * The bulk string being read, null if no bulk string is being read.
+   */
+  private byte[] bulk;
+
+  /**
+   * The number of bytes of the bulk string read so far.
+   */
+  private int bulkOffset;
+
+  /**
+   * The number of bytes of the CRLF after the bulk string not skipped yet.
+   */
+  private int bulkTrailingBytes;
+
+  /**
+   * The type of the bulk string being read.
+   */
+  private byte bulkType;
+
+  /**
+   * Parses the bytes of the buffer until a reply is complete, leaving the rest of the buffer for
+   * the next replies.
+   *
+   * @param buffer the buffer
+   * @return the reply, or {@link #INCOMPLETE} if the buffer is consumed without completing a reply
+   * @throws IOException if the bytes aren't a reply
+   */
+  public Object parse(final ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      final Object value = parseValue(buffer);
+      if (value == INCOMPLETE) {
+        return INCOMPLETE;
+      }
+      if (value != STARTED) {
+        final Object reply = complete(value);
+        if (reply != INCOMPLETE) {
+          return reply;
+        }
+      }
+    }
+    return INCOMPLETE;
+  }
+
+  /**
+   * Resets the parser, discarding a partially parsed reply.
+   */
+  public void reset() {
+    aggregates.clear();
+    lineLength = 0;
+    type = 0;
+    bulk = null;
+  }
+
+  /**
+   * Parses a value, a complete scalar or an aggregate header.
+   *
+   * @param buffer the buffer
+   * @return the value, {@link #STARTED} for an aggregate header, or {@link #INCOMPLETE}
+   * @throws IOException if the bytes aren't a reply
+   */
+  private Object parseValue(final ByteBuffer buffer) throws IOException {
+    if (bulk != null) {
+      return readBulk(buffer);
+    }
+    if (type == 0) {
+      type = buffer.get();
+      lineLength = 0;
+    }
+    if (!readLine(buffer)) {
+      return INCOMPLETE;
+    }
+    final byte lineType = type;
+    type = 0;
+    switch (lineType) {
+      case RedisBytes.PLUS_BYTE:
+        return lineString();
+      case RedisBytes.DASH_BYTE:
+        return new ErrorReply(lineString());
+      case RedisBytes.COLON_BYTE:
+        return lineLong();
+      case '_':
+        return null;
+      case '#':
+        return lineLength > 0 && line[0] == 't';
+      case ',':
+        return lineDouble();
+      case '(':
+        return new BigInteger(lineString());
+      case RedisBytes.DOLLAR_BYTE:
+      case '!':
+      case '=':
+        return startBulk(lineType, buffer);
+      case RedisBytes.ASTERISK_BYTE:
+      case '~':
+      case '>':
+      case '%':
+      case '|':
+        return startAggregate(lineType);
+      default:
+        throw new IOException("Unknown reply type " + (char) lineType);
+    }
+  }
+
+  /**
+   * Starts reading a bulk string whose length is in the line.
+   *
+   * @param bulkType the bulk type
+   * @param buffer the buffer
+   * @return the bulk string, null, or {@link #INCOMPLETE}
+   */
+  private Object startBulk(final byte bulkType, final ByteBuffer buffer) {
+    final long length = lineLong();
+    if (length < 0) {
+      return null;
+    }
+    this.bulkType = bulkType;
+    bulk = new byte[(int) length];
+    bulkOffset = 0;
+    bulkTrailingBytes = 2;
+    return readBulk(buffer);
+  }
+
+  /**
+   * Reads the bulk string and the CRLF after it.
+   *
+   * @param buffer the buffer
+   * @return the bulk string, or {@link #INCOMPLETE}
+   */
+  private Object readBulk(final ByteBuffer buffer) {
+    final int count = Math.min(bulk.length - bulkOffset, buffer.remaining());
+    buffer.get(bulk, bulkOffset, count);
+    bulkOffset += count;
+    while (bulkOffset == bulk.length && bulkTrailingBytes > 0 && buffer.hasRemaining()) {
+      buffer.get();
+      bulkTrailingBytes--;
+    }
+    if (bulkTrailingBytes > 0) {
+      return INCOMPLETE;
+    }
+    final byte[] bytes = bulk;
+    bulk = null;
+    if (bulkType == '!') {
+      return new ErrorReply(new String(bytes, StandardCharsets.UTF_8));
+    } else if (bulkType == '=' && bytes.length >= VERBATIM_PREFIX_LENGTH) {
+      return Arrays.copyOfRange(bytes, VERBATIM_PREFIX_LENGTH, bytes.length);
+    }
+    return bytes;
+  }
+
+  /**
+   * Starts an aggregate whose size is in the line.
+   *
+   * @param aggregateType the aggregate type
+   * @return the empty aggregate, null, or {@link #STARTED}
+   */
+  private Object startAggregate(final byte aggregateType) {
+    final long size = lineLong();
+    if (size < 0) {
+      return null;
+    }
+    final boolean pairs = aggregateType == '%' || aggregateType == '|';
+    final Aggregate aggregate = new Aggregate(aggregateType, (int) (pairs ? size * 2 : size));
+    if (aggregate.isComplete()) {
+      return aggregateType == '|' ? STARTED : aggregate.value();
+    }
+    aggregates.push(aggregate);
+    return STARTED;
+  }
+
+  /**
+   * Adds the value to the aggregates it completes.
+   *
+   * @param value the value
+   * @return the reply if the value completes it, otherwise {@link #INCOMPLETE}
+   */
+  private Object complete(Object value) {
+    while (true) {
+      final Aggregate aggregate = aggregates.peek();
+      if (aggregate == null) {
+        return value;
+      }
+      aggregate.add(value);
+      if (!aggregate.isComplete()) {
+        return INCOMPLETE;
+      }
+      aggregates.pop();
+      if (aggregate.type == '|') {
+        return INCOMPLETE;
+      }
+      value = aggregate.value();
+    }
+  }
+
+  /**
+   * Reads the line up to its CRLF.
+   *
+   * @param buffer the buffer
+   * @return true, if the line is complete
+   */
+  private boolean readLine(final ByteBuffer buffer) {
+    while (buffer.hasRemaining()) {
+      final byte theByte = buffer.get();
+      if (theByte == RedisBytes.LINE_FEED_BYTE && lineLength > 0
+          && line[lineLength - 1] == RedisBytes.CARRIAGE_RETURN_BYTE) {
+        lineLength--;
+        return true;
+      }
+      if (lineLength == line.length) {
+        line = Arrays.copyOf(line, line.length * 2);
+      }
+      line[lineLength++] = theByte;
+    }
+    return false;
+  }
+
+  /**
+   * Gets the line as a string.
+   *
+   * @return the string
+   */
+  private String lineString() {
+    return new String(line, 0, lineLength, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Gets the line as a number.
+   *
+   * @return the number
+   */
+  private long lineLong() {
+    final boolean negative = lineLength > 0 && line[0] == RedisBytes.DASH_BYTE;
+    long number = 0;
+    for (int i = negative ? 1 : 0; i < lineLength; i++) {
+      number = number * 10 + (line[i] - RedisBytes.ZERO_BYTE);
+    }
+    return negative ? -number : number;
+  }
+
+  /**
+   * Gets the line as a double.
+   *
+   * @return the double
+   */
+  private double lineDouble() {
+    final String value = lineString();
+    switch (value) {
+      case "inf":
+        return Double.POSITIVE_INFINITY;
+      case "-inf":
+        return Double.NEGATIVE_INFINITY;
+      case "nan":
+        return Double.NaN;
+      default:
+        return Double.parseDouble(value);
+    }
+  }
+
+  /**
+   * The Class Aggregate is an array, set, push, map or attribute being parsed.
+   */
+  private static final class Aggregate {
+
+    /**
+     * The type.
+     */
+    final byte type;
+
+    /**
+     * The number of elements, counting both keys and values of maps.
+     */
+    final int size;
+
+    /**
+     * The elements.
+     */
+    final List<Object> elements;
+
+    /**
+     * Instantiates a new aggregate.
+     *
+     * @param type the type
+     * @param size the size
+     */
+    Aggregate(final byte type, final int size) {
+      this.type = type;
+      this.size = size;
+      this.elements = new ArrayList<>(Math.min(size, 1024));
+    }
+
+    /**
+     * Adds the element.
+     *
+     * @param element the element
+     */
+    void add(final Object element) {
+      elements.add(element);
+    }
+
+    /**
+     * Checks if all of the elements are added.
+     *
+     * @return true, if is complete
+     */
+    boolean isComplete() {
+      return elements.size() == size;
+    }
+
+    /**
+     * Gets the value of the aggregate.
+     *
+     * @return the value
+     */
+    Object value() {
+      if (type == '>') {
+        return new PushReply(elements);
+      } else if (type == '%') {
+        final Map<Object, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i += 2) {
+          map.put(elements.get(i), elements.get(i + 1));
+        }
+        return map;
+      }
+      return elements;
+    }
+  }
+}
@@ -16,11 +16,17 @@
 package com.cetsoft.imcache.redis.client;
 
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
- * The Class RedisStreamReader.
+ * The Class RedisStreamReader reads replies from an input stream through a reusable buffer. It
+ * never reads past what it is asked for from its buffer, so the bytes of the next replies stay in
+ * the buffer for the next reads. The same reader must be used for all the replies of a stream.
  */
 public class RedisStreamReader implements Closeable {
 
@@ -34,6 +40,32 @@ public class RedisStreamReader implements Closeable {
    */
   private final InputStream inputStream;
 
+  /**
+   * The buffer.
+   */
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+
+  /**
+   * The byte buffer wrapping the buffer, its remaining bytes are the unread ones.
+   */
+  private final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, 0);
+
+  /**
+   * The reply parser.
+   */
+  private final RedisReplyParser replyParser = new RedisReplyParser();
+
+  /**
+   * The line being read.
+   */
+  private byte[] line = new byte[64];
+
+  /**
+   * Whether the line feed after the last line is to be skipped. Lines are returned as soon as
+   * their carriage returns are read, their line feeds are skipped by the next read.
+   */
+  private boolean skipLineFeed;
+
   /**
    * Instantiates a new redis stream reader.
    *
@@ -43,6 +75,24 @@ public class RedisStreamReader implements Closeable {
     this.inputStream = inputStream;
   }
 
+  /**
+   * Reads a whole reply of any type, see {@link RedisReplyParser} for the types replies are read
+   * into.
+   *
+   * @return the reply
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public Object readReply() throws IOException {
+    skipLineFeed();
+    while (true) {
+      fill();
+      final Object reply = replyParser.parse(byteBuffer);
+      if (reply != RedisReplyParser.INCOMPLETE) {
+        return reply;
+      }
+    }
+  }
+
   /**
    * Reads byte.
    *
@@ -50,62 +100,40 @@ public class RedisStreamReader implements Closeable {
    * @throws IOException Signals that an I/O exception has occurred.
    */
   public byte readByte() throws IOException {
-    final byte[] bytes = new byte[1];
-    inputStream.read(bytes);
-    return bytes[0];
+    skipLineFeed();
+    fill();
+    return byteBuffer.get();
   }
 
   /**
-   * Reads string.
+   * Reads a line without its CRLF as a string.
    *
    * @return the string
    * @throws IOException Signals that an I/O exception has occurred.
    */
   public String readString() throws IOException {
-    int noOfBytesRead, newLength;
-    byte[] bytes = new byte[0];
-    final byte[] tempBytes = new byte[BUFFER_SIZE];
-    do {
-      noOfBytesRead = inputStream.read(tempBytes);
-      newLength = noOfBytesRead
-          - (noOfBytesRead > 1 && tempBytes[noOfBytesRead - 2] == RedisBytes.CARRIAGE_RETURN_BYTE
-          ? 2 : 0)
-          - (noOfBytesRead > 0 && tempBytes[noOfBytesRead - 1] == RedisBytes.CARRIAGE_RETURN_BYTE
-          ? 1 : 0);
-      byte[] newBytes = new byte[newLength + bytes.length];
-      System.arraycopy(bytes, 0, newBytes, 0, bytes.length);
-      System.arraycopy(tempBytes, 0, newBytes, bytes.length, newLength);
-      bytes = newBytes;
-    } while (noOfBytesRead != -1 && newLength == noOfBytesRead);
-    return new String(bytes);
+    final int length = readLine();
+    return new String(line, 0, length, StandardCharsets.UTF_8);
   }
 
   /**
-   * Read int.
+   * Reads a number terminated by CRLF.
    *
    * @return the int
    * @throws IOException Signals that an I/O exception has occurred.
    */
   public int readInt() throws IOException {
-    int length = 0;
-    final byte[] allIntBytes = new byte[13]; // maximum integer length + minus symbol + CR + LF = 13
-    while ((allIntBytes[length++] = readByte()) != RedisBytes.CARRIAGE_RETURN_BYTE) {
-      ;
-    }
-    //Read Line feed byte
-    readByte();
+    final int length = readLine();
+    final boolean negative = length > 0 && line[0] == RedisBytes.DASH_BYTE;
     int number = 0;
-    final boolean negative = allIntBytes.length > 0 && allIntBytes[0] == RedisBytes.DASH_BYTE;
-    //We don't read last value if it's negative
-    for (int i = length - 2, j = 0; i > (negative ? 0 : -1); i--, j++) {
-      number += (int) (Math.pow(10, j) * (allIntBytes[i] - RedisBytes.ZERO_BYTE));
+    for (int i = negative ? 1 : 0; i < length; i++) {
+      number = number * 10 + (line[i] - RedisBytes.ZERO_BYTE);
     }
-    number = number * (negative ? -1 : 1);
-    return number;
+    return negative ? -number : number;
   }
 
   /**
-   * Reads bytes with given length.
+   * Reads bytes with given length and the CRLF after them.
    *
    * @param length the length
    * @return the byte[]
@@ -115,13 +143,84 @@ public class RedisStreamReader implements Closeable {
     if (length == -1) {
       return null;
     }
+    skipLineFeed();
     final byte[] bytes = new byte[length];
-    inputStream.read(bytes);
+    int offset = 0;
+    while (offset < length) {
+      fill();
+      final int count = Math.min(length - offset, byteBuffer.remaining());
+      byteBuffer.get(bytes, offset, count);
+      offset += count;
+    }
     //Remove Carriage Return and Line Feed
-    inputStream.read(new byte[2]);
+    readByte();
+    readByte();
     return bytes;
   }
 
+  /**
+   * Reads a line up to its carriage return into the line buffer.
+   *
+   * @return the length of the line
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private int readLine() throws IOException {
+    skipLineFeed();
+    int length = 0;
+    while (true) {
+      fill();
+      final int position = byteBuffer.position();
+      final int limit = byteBuffer.limit();
+      int index = position;
+      while (index < limit && buffer[index] != RedisBytes.CARRIAGE_RETURN_BYTE) {
+        index++;
+      }
+      final int count = index - position;
+      if (length + count > line.length) {
+        line = Arrays.copyOf(line, Math.max(line.length * 2, length + count));
+      }
+      System.arraycopy(buffer, position, line, length, count);
+      length += count;
+      if (index < limit) {
+        byteBuffer.position(index + 1);
+        skipLineFeed = true;
+        return length;
+      }
+      byteBuffer.position(limit);
+    }
+  }
+
+  /**
+   * Skips the line feed after the last line.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void skipLineFeed() throws IOException {
+    if (skipLineFeed) {
+      skipLineFeed = false;
+      fill();
+      if (buffer[byteBuffer.position()] == RedisBytes.LINE_FEED_BYTE) {
+        byteBuffer.get();
+      }
+    }
+  }
+
+  /**
+   * Fills the buffer if all of its bytes are read.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void fill() throws IOException {
+    while (!byteBuffer.hasRemaining()) {
+      final int count = inputStream.read(buffer);
+      if (count == -1) {
+        throw new EOFException("Connection closed by redis server");
+      }
+      byteBuffer.limit(count);
+      byteBuffer.position(0);
+    }
+  }
+
   @Override
   public void close() throws IOException {
     inputStream.close();
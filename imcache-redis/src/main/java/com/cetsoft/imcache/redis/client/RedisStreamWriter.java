@@ -28,6 +28,15 @@ public class RedisStreamWriter implements Closeable {
    * The Constant BUFFER_SIZE.
    */
   public static final int BUFFER_SIZE = 8192;
+  /**
+   * The Constant LARGE_VALUE_SIZE is the size of the byte arrays written straight to the output
+   * stream instead of being copied into the buffer.
+   */
+  public static final int LARGE_VALUE_SIZE = 4096;
+  /**
+   * The Constant MAX_INT_LENGTH is the number of bytes an int is written into at most.
+   */
+  private static final int MAX_INT_LENGTH = 11;
   /**
    * The buffer.
    */
@@ -74,18 +83,35 @@ public class RedisStreamWriter implements Closeable {
   }
 
   /**
-   * Writes an int value.
+   * Writes an int value. The digits of small values are taken from a precomputed table, the others
+   * are formatted straight into the buffer.
    *
    * @param value the value
    * @throws IOException Signals that an I/O exception has occurred.
    */
   public void write(int value) throws IOException {
-    if (value < 0) {
-      write(RedisBytes.DASH_BYTE);
-      value = -value;
+    if (value >= 0) {
+      final byte[] digits = RedisCommandEncoder.digitsOf(value);
+      if (digits != null) {
+        write(digits);
+        return;
+      }
+    }
+    if (buffer.length - position < MAX_INT_LENGTH) {
+      flushBuffer();
+    }
+    long number = value;
+    if (number < 0) {
+      buffer[position++] = RedisBytes.DASH_BYTE;
+      number = -number;
+    }
+    long divisor = 1;
+    while (divisor <= number / 10) {
+      divisor *= 10;
+    }
+    for (; divisor > 0; divisor /= 10) {
+      buffer[position++] = (byte) (RedisBytes.ZERO_BYTE + number / divisor % 10);
     }
-    byte[] intValue = ("" + value).getBytes("UTF-8");
-    write(intValue);
   }
 
   /**
@@ -99,22 +125,30 @@ public class RedisStreamWriter implements Closeable {
   }
 
   /**
-   * Writes given bytes.
+   * Writes given bytes. Bytes of at least LARGE_VALUE_SIZE are written straight to the output
+   * stream after the buffer is flushed, the others are copied into the buffer, which is flushed
+   * whenever it gets full.
    *
    * @param bytes the bytes
    * @throws IOException Signals that an I/O exception has occurred.
    */
   public void write(byte[] bytes) throws IOException {
+    if (bytes.length >= LARGE_VALUE_SIZE) {
+      if (position > 0) {
+        flushBuffer();
+      }
+      outputStream.write(bytes);
+      return;
+    }
     int offset = 0;
     while (offset != bytes.length) {
-      int length = bytes.length - offset;
-      if (buffer.length - position < bytes.length - offset) {
-        length = buffer.length - position;
+      if (position == buffer.length) {
+        flushBuffer();
       }
+      final int length = Math.min(bytes.length - offset, buffer.length - position);
       write(bytes, offset, length);
       offset += length;
       position += length;
-      flushBuffer();
     }
   }
 
@@ -0,0 +1,36 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import java.nio.channels.SelectionKey;
+
+/**
+ * The Interface SelectionHandler handles the events of a channel registered to an event loop.
+ */
+interface SelectionHandler {
+
+  /**
+   * Handles the ready operations of the selection key.
+   *
+   * @param key the selection key
+   */
+  void handle(SelectionKey key);
+
+  /**
+   * Called in the event loop thread when the event loop is closed, so the channel can be closed.
+   */
+  void eventLoopClosed();
+}
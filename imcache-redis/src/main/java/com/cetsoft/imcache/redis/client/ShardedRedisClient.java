@@ -0,0 +1,215 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Class ShardedRedisClient spreads keys over several redis nodes with a consistent hash ring.
+ * Commands on a key go to the node of the key, commands on the whole database go to every node.
+ * Multi-key commands are split into one command per node, so they aren't atomic across nodes.
+ * Nodes can be added and removed while the client is used, which moves only the keys of the ring
+ * segments that change owners.
+ */
+public class ShardedRedisClient implements Client {
+
+  /**
+   * The Constant DEFAULT_WEIGHT.
+   */
+  public static final int DEFAULT_WEIGHT = 1;
+
+  /**
+   * The ring of the node clients.
+   */
+  final ConsistentHashRing<Client> ring;
+
+  /**
+   * Instantiates a new sharded redis client.
+   */
+  public ShardedRedisClient() {
+    this(ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+  }
+
+  /**
+   * Instantiates a new sharded redis client.
+   *
+   * @param virtualNodes the number of virtual nodes per weight
+   */
+  public ShardedRedisClient(final int virtualNodes) {
+    this.ring = new ConsistentHashRing<>(virtualNodes);
+  }
+
+  /**
+   * Adds the node with the default weight.
+   *
+   * @param name the name of the node, such as its host and port
+   * @param client the client of the node
+   * @return the sharded redis client
+   */
+  public ShardedRedisClient addNode(final String name, final Client client) {
+    return addNode(name, client, DEFAULT_WEIGHT);
+  }
+
+  /**
+   * Adds the node. A node with twice the weight of another gets about twice as many keys.
+   *
+   * @param name the name of the node, such as its host and port
+   * @param client the client of the node
+   * @param weight the weight
+   * @return the sharded redis client
+   */
+  public ShardedRedisClient addNode(final String name, final Client client, final int weight) {
+    ring.add(name, client, weight);
+    return this;
+  }
+
+  /**
+   * Removes the node.
+   *
+   * @param name the name of the node
+   * @return the client of the node, or null if there isn't a node with the name
+   */
+  public Client removeNode(final String name) {
+    return ring.remove(name);
+  }
+
+  /**
+   * Gets the client of the node the key belongs to.
+   *
+   * @param key the key
+   * @return the client
+   */
+  public Client getClient(final byte[] key) {
+    return ring.get(key);
+  }
+
+  /**
+   * Gets the clients of all nodes.
+   *
+   * @return the clients
+   */
+  public Collection<Client> getClients() {
+    return ring.getNodes();
+  }
+
+  @Override
+  public void ping() throws ConnectionException, IOException {
+    for (final Client client : getClients()) {
+      client.ping();
+    }
+  }
+
+  @Override
+  public void set(final byte[] key, final byte[] value) throws ConnectionException, IOException {
+    getClient(key).set(key, value);
+  }
+
+  @Override
+  public void set(final byte[] key, final byte[] value, final long expiryInMillis)
+      throws ConnectionException, IOException {
+    getClient(key).set(key, value, expiryInMillis);
+  }
+
+  @Override
+  public byte[] setIfAbsent(final byte[] key, final byte[] value)
+      throws ConnectionException, IOException {
+    return getClient(key).setIfAbsent(key, value);
+  }
+
+  @Override
+  public boolean compareAndSet(final byte[] key, final byte[] expectedValue,
+      final byte[] newValue) throws ConnectionException, IOException {
+    return getClient(key).compareAndSet(key, expectedValue, newValue);
+  }
+
+  @Override
+  public boolean compareAndDelete(final byte[] key, final byte[] expectedValue)
+      throws ConnectionException, IOException {
+    return getClient(key).compareAndDelete(key, expectedValue);
+  }
+
+  @Override
+  public byte[] get(final byte[] key) throws ConnectionException, IOException {
+    return getClient(key).get(key);
+  }
+
+  @Override
+  public byte[] expire(final byte[] key) throws ConnectionException, IOException {
+    return getClient(key).expire(key);
+  }
+
+  @Override
+  public byte[] getDel(final byte[] key) throws ConnectionException, IOException {
+    return getClient(key).getDel(key);
+  }
+
+  @Override
+  public boolean exists(final byte[] key) throws ConnectionException, IOException {
+    return getClient(key).exists(key);
+  }
+
+  @Override
+  public int unlink(final byte[]... keys) throws ConnectionException, IOException {
+    int count = 0;
+    for (final Map.Entry<Client, List<Integer>> group
+        : KeyGroups.group(keys, 1, this::getClient).entrySet()) {
+      count += group.getKey().unlink(KeyGroups.select(keys, 1, group.getValue()));
+    }
+    return count;
+  }
+
+  @Override
+  public List<byte[]> mget(final byte[]... keys) throws ConnectionException, IOException {
+    final byte[][] values = new byte[keys.length][];
+    for (final Map.Entry<Client, List<Integer>> group
+        : KeyGroups.group(keys, 1, this::getClient).entrySet()) {
+      final List<Integer> indexes = group.getValue();
+      final List<byte[]> groupValues = group.getKey().mget(KeyGroups.select(keys, 1, indexes));
+      for (int i = 0; i < indexes.size(); i++) {
+        values[indexes.get(i)] = groupValues.get(i);
+      }
+    }
+    return Arrays.asList(values);
+  }
+
+  @Override
+  public void mset(final byte[]... keysAndValues) throws ConnectionException, IOException {
+    for (final Map.Entry<Client, List<Integer>> group
+        : KeyGroups.group(keysAndValues, 2, this::getClient).entrySet()) {
+      group.getKey().mset(KeyGroups.select(keysAndValues, 2, group.getValue()));
+    }
+  }
+
+  @Override
+  public void flushdb() throws ConnectionException, IOException {
+    for (final Client client : getClients()) {
+      client.flushdb();
+    }
+  }
+
+  @Override
+  public int dbsize() throws ConnectionException, IOException {
+    int size = 0;
+    for (final Client client : getClients()) {
+      size += client.dbsize();
+    }
+    return size;
+  }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.cetsoft.imcache.cache.search.DefaultIndexHandler;
+import com.cetsoft.imcache.heap.HeapCache;
+import com.cetsoft.imcache.redis.client.Client;
+import com.cetsoft.imcache.redis.client.ConnectionException;
+import com.cetsoft.imcache.redis.client.InvalidationSubscriber;
+import com.cetsoft.imcache.serialization.Serializer;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class NearCachedRedisCacheTest {
+
+  @Mock
+  Client client;
+
+  @Mock
+  InvalidationSubscriber subscriber;
+
+  //This serializes just integers for testing purposes
+  Serializer<Object> serializer = new Serializer<Object>() {
+
+    @Override
+    public byte[] serialize(Object value) {
+      return new byte[]{(byte) (int) (Integer) value};
+    }
+
+    @Override
+    public Object deserialize(byte[] payload) {
+      return (int) payload[0];
+    }
+  };
+
+  HeapCache<Integer, Integer> nearCache;
+
+  NearCachedRedisCache<Integer, Integer> cache;
+
+  @Before
+  public void setup() throws ConnectionException, IOException {
+    MockitoAnnotations.initMocks(this);
+    doReturn(true).when(subscriber).isSubscribed();
+    doReturn(new byte[]{5}).when(client).get(new byte[]{1});
+    nearCache = new HeapCache<>("near-cache", key -> null, (key, value) -> {
+    }, new DefaultIndexHandler<>(), 100, TimeUnit.MILLISECONDS, 5680281600L);
+    cache = new NearCachedRedisCache<>("near-cached-redis-cache", key -> null, (key, value) -> {
+    }, serializer, client, nearCache, Collections.singletonList(subscriber));
+  }
+
+  @Test
+  public void startsSubscribers() {
+    verify(subscriber).start(cache);
+  }
+
+  @Test
+  public void readsFromNearCache() throws ConnectionException, IOException {
+    assertEquals(5, (int) cache.get(1));
+    assertEquals(5, (int) cache.get(1));
+    verify(client, times(1)).get(new byte[]{1});
+    assertEquals(5, (int) nearCache.get(1));
+    assertEquals(2, cache.stats().getHitCount());
+  }
+
+  @Test
+  public void bypassesNearCacheWhenNotSubscribed() throws ConnectionException, IOException {
+    doReturn(false).when(subscriber).isSubscribed();
+    assertEquals(5, (int) cache.get(1));
+    assertEquals(5, (int) cache.get(1));
+    verify(client, times(2)).get(new byte[]{1});
+    assertNull(nearCache.get(1));
+  }
+
+  @Test
+  public void invalidationDropsKey() throws ConnectionException, IOException {
+    cache.get(1);
+    cache.onInvalidation(Arrays.asList(new byte[]{1}, new byte[0]));
+    assertNull(nearCache.get(1));
+    cache.get(1);
+    verify(client, times(2)).get(new byte[]{1});
+  }
+
+  @Test
+  public void invalidationOfAllKeys() {
+    cache.get(1);
+    cache.onInvalidation(null);
+    assertNull(nearCache.get(1));
+  }
+
+  @Test
+  public void invalidationDuringReadIsNotMissed() throws ConnectionException, IOException {
+    doAnswer(invocation -> {
+      cache.onInvalidation(Collections.singletonList(new byte[]{1}));
+      return new byte[]{5};
+    }).when(client).get(new byte[]{1});
+    assertEquals(5, (int) cache.get(1));
+    assertNull(nearCache.get(1));
+  }
+
+  @Test
+  public void writesDropKey() throws ConnectionException, IOException {
+    cache.get(1);
+    cache.put(1, 6);
+    verify(client).set(new byte[]{1}, new byte[]{6});
+    assertNull(nearCache.get(1));
+    cache.get(1);
+    doReturn(new byte[]{5}).when(client).getDel(new byte[]{1});
+    cache.invalidate(1);
+    assertNull(nearCache.get(1));
+  }
+
+  @Test
+  public void clearDropsAllKeys() throws ConnectionException, IOException {
+    cache.get(1);
+    cache.clear();
+    verify(client).flushdb();
+    assertNull(nearCache.get(1));
+  }
+
+  @Test
+  public void close() {
+    cache.get(1);
+    cache.close();
+    verify(subscriber).close();
+    assertNull(nearCache.get(1));
+  }
+}
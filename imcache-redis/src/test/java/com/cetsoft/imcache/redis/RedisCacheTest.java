@@ -16,10 +16,15 @@
 package com.cetsoft.imcache.redis;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyVararg;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import com.cetsoft.imcache.cache.CacheLoader;
@@ -28,6 +33,10 @@ import com.cetsoft.imcache.redis.client.Client;
 import com.cetsoft.imcache.redis.client.ConnectionException;
 import com.cetsoft.imcache.serialization.Serializer;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Test;
@@ -118,6 +127,15 @@ public class RedisCacheTest {
     verify(client).set(serializer.serialize(key), serializer.serialize(value));
   }
 
+  @Test
+  public void putRecordsStats() {
+    int key = 3;
+    int value = 5;
+    cache.put(key, value);
+    assertEquals(1, cache.stats().getPutCount());
+    assertEquals(serializer.serialize(value).length, cache.stats().getBytesWritten());
+  }
+
   @Test
   public void putWithTimeout() throws ConnectionException, IOException {
     int key = 3;
@@ -126,6 +144,14 @@ public class RedisCacheTest {
     verify(client).set(serializer.serialize(key), serializer.serialize(value), 100);
   }
 
+  @Test
+  public void putWithTimeoutConvertsTimeUnit() throws ConnectionException, IOException {
+    int key = 3;
+    int value = 5;
+    cache.put(key, value, TimeUnit.SECONDS, 2);
+    verify(client).set(serializer.serialize(key), serializer.serialize(value), 2000);
+  }
+
   @Test(expected = RedisCacheException.class)
   public void putWithTimeoutThrowsIOException() throws ConnectionException, IOException {
     int key = 3;
@@ -151,7 +177,7 @@ public class RedisCacheTest {
   public void invalidate() throws ConnectionException, IOException {
     int key = 3;
     int value = 5;
-    doReturn(serializer.serialize(value)).when(client).expire(serializer.serialize(key));
+    doReturn(serializer.serialize(value)).when(client).getDel(serializer.serialize(key));
     int actualValue = cache.invalidate(key);
     assertEquals(value, actualValue);
     verify(evictionListener).onEviction(key, value);
@@ -160,14 +186,14 @@ public class RedisCacheTest {
   @Test(expected = RedisCacheException.class)
   public void invalidateConnectionException() throws ConnectionException, IOException {
     int key = 3;
-    doThrow(new ConnectionException("")).when(client).expire(serializer.serialize(key));
+    doThrow(new ConnectionException("")).when(client).getDel(serializer.serialize(key));
     cache.invalidate(key);
   }
 
   @Test(expected = RedisCacheException.class)
   public void invalidateThrowIOException() throws ConnectionException, IOException {
     int key = 3;
-    doThrow(new IOException("")).when(client).expire(serializer.serialize(key));
+    doThrow(new IOException("")).when(client).getDel(serializer.serialize(key));
     cache.invalidate(key);
   }
 
@@ -206,11 +232,117 @@ public class RedisCacheTest {
   }
 
   @Test
-  public void contains() throws ConnectionException, IOException {
+  public void putIfAbsent() throws ConnectionException, IOException {
     int key = 3;
     int value = 5;
-    doReturn(serializer.serialize(value)).when(client).get(serializer.serialize(key));
+    doReturn(null).when(client).setIfAbsent(serializer.serialize(key), serializer.serialize(value));
+    assertNull(cache.putIfAbsent(key, value));
+  }
+
+  @Test
+  public void putIfAbsentReturnsExistingValue() throws ConnectionException, IOException {
+    int key = 3;
+    int value = 5;
+    doReturn(serializer.serialize(4)).when(client)
+        .setIfAbsent(serializer.serialize(key), serializer.serialize(value));
+    assertEquals(4, (int) cache.putIfAbsent(key, value));
+  }
+
+  @Test
+  public void replace() throws ConnectionException, IOException {
+    int key = 3;
+    doReturn(true).when(client)
+        .compareAndSet(serializer.serialize(key), serializer.serialize(4), serializer.serialize(5));
+    assertTrue(cache.replace(key, 4, 5));
+    assertFalse(cache.replace(key, 5, 6));
+  }
+
+  @Test
+  public void computeIfAbsent() throws ConnectionException, IOException {
+    int key = 3;
+    int value = 5;
+    doReturn(null).when(client).get(serializer.serialize(key));
+    assertEquals(value, (int) cache.computeIfAbsent(key, k -> value));
+    verify(client).setIfAbsent(serializer.serialize(key), serializer.serialize(value));
+  }
+
+  @Test
+  public void computeRetriesOnConcurrentUpdate() throws ConnectionException, IOException {
+    int key = 3;
+    doReturn(serializer.serialize(4)).doReturn(serializer.serialize(5)).when(client)
+        .get(serializer.serialize(key));
+    doReturn(false).when(client)
+        .compareAndSet(serializer.serialize(key), serializer.serialize(4), serializer.serialize(5));
+    doReturn(true).when(client)
+        .compareAndSet(serializer.serialize(key), serializer.serialize(5), serializer.serialize(6));
+    assertEquals(6, (int) cache.compute(key, (k, value) -> value + 1));
+  }
+
+  @Test(expected = RedisCacheException.class)
+  public void computeGivesUpOnContendedKey() throws ConnectionException, IOException {
+    int key = 3;
+    doReturn(serializer.serialize(4)).when(client).get(serializer.serialize(key));
+    doReturn(false).when(client)
+        .compareAndSet(serializer.serialize(key), serializer.serialize(4), serializer.serialize(5));
+    try {
+      cache.compute(key, (k, value) -> value + 1);
+    } finally {
+      verify(client, times(RedisCache.MAX_COMPUTE_ATTEMPTS)).get(serializer.serialize(key));
+    }
+  }
+
+  @Test
+  public void computeRemovesValue() throws ConnectionException, IOException {
+    int key = 3;
+    doReturn(serializer.serialize(4)).when(client).get(serializer.serialize(key));
+    doReturn(true).when(client).compareAndDelete(serializer.serialize(key), serializer.serialize(4));
+    assertNull(cache.compute(key, (k, value) -> null));
+  }
+
+  @Test
+  public void contains() throws ConnectionException, IOException {
+    int key = 3;
+    doReturn(true).when(client).exists(serializer.serialize(key));
     assertTrue(cache.contains(key));
+    assertFalse(cache.contains(4));
+    verify(client, never()).get((byte[]) any());
+  }
+
+  @Test
+  public void getAll() throws ConnectionException, IOException {
+    doReturn(Arrays.asList(serializer.serialize(5), null, null)).when(client)
+        .mget(serializer.serialize(1), serializer.serialize(2), serializer.serialize(3));
+    doReturn(6).when(cacheLoader).load(2);
+    Map<Integer, Integer> values = cache.getAll(Arrays.asList(1, 2, 3));
+    assertEquals(2, values.size());
+    assertEquals(5, (int) values.get(1));
+    assertEquals(6, (int) values.get(2));
+    verify(client).mset(serializer.serialize(2), serializer.serialize(6));
+    assertEquals(1, cache.stats().getHitCount());
+    assertEquals(2, cache.stats().getMissCount());
+  }
+
+  @Test
+  public void getAllWithoutKeys() throws ConnectionException, IOException {
+    assertTrue(cache.getAll(Collections.<Integer>emptyList()).isEmpty());
+    verify(client, never()).mget((byte[][]) anyVararg());
+  }
+
+  @Test
+  public void putAll() throws ConnectionException, IOException {
+    Map<Integer, Integer> values = new LinkedHashMap<>();
+    values.put(1, 5);
+    values.put(2, 6);
+    cache.putAll(values);
+    verify(client).mset(serializer.serialize(1), serializer.serialize(5), serializer.serialize(2),
+        serializer.serialize(6));
+    assertEquals(2, cache.stats().getPutCount());
+  }
+
+  @Test(expected = RedisCacheException.class)
+  public void putAllThrowsIOException() throws ConnectionException, IOException {
+    doThrow(new IOException("")).when(client).mset((byte[][]) anyVararg());
+    cache.putAll(Collections.singletonMap(1, 5));
   }
 
   @Test
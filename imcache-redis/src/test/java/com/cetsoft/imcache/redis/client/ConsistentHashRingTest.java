@@ -0,0 +1,109 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class ConsistentHashRingTest {
+
+  static final int KEYS = 20000;
+
+  @Test
+  public void keysAreSpreadEvenly() {
+    ConsistentHashRing<String> ring = ring("a", "b", "c", "d");
+    Map<String, Integer> counts = count(ring);
+    for (int count : counts.values()) {
+      assertTrue("count " + count, Math.abs(count - KEYS / 4) < KEYS / 4 * 0.2);
+    }
+  }
+
+  @Test
+  public void weightedNodeGetsMoreKeys() {
+    ConsistentHashRing<String> ring = ring("a", "b");
+    ring.add("c", "c", 2);
+    Map<String, Integer> counts = count(ring);
+    double ratio = counts.get("c") / (double) counts.get("a");
+    assertTrue("ratio " + ratio, ratio > 1.6 && ratio < 2.4);
+  }
+
+  @Test
+  public void addingNodeMovesKeysOnlyToIt() {
+    ConsistentHashRing<String> ring = ring("a", "b", "c", "d");
+    Map<Integer, String> before = owners(ring);
+    ring.add("e", "e", 1);
+    Map<Integer, String> after = owners(ring);
+    int moved = 0;
+    for (int i = 0; i < KEYS; i++) {
+      if (!before.get(i).equals(after.get(i))) {
+        assertEquals("e", after.get(i));
+        moved++;
+      }
+    }
+    assertTrue("moved " + moved, Math.abs(moved - KEYS / 5) < KEYS / 5 * 0.2);
+    ring.remove("e");
+    assertEquals(before, owners(ring));
+  }
+
+  @Test
+  public void placementDoesNotDependOnOrder() {
+    assertEquals(owners(ring("a", "b", "c")), owners(ring("c", "a", "b")));
+  }
+
+  @Test
+  public void removeMissingNode() {
+    assertNull(ring("a").remove("b"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void getThrowsIllegalStateWithoutNodes() {
+    new ConsistentHashRing<String>().get(new byte[]{1});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void addThrowsIllegalArgumentForWeight() {
+    new ConsistentHashRing<String>().add("a", "a", 0);
+  }
+
+  private static ConsistentHashRing<String> ring(String... names) {
+    ConsistentHashRing<String> ring = new ConsistentHashRing<>();
+    for (String name : names) {
+      ring.add(name, name, 1);
+    }
+    return ring;
+  }
+
+  private static Map<Integer, String> owners(ConsistentHashRing<String> ring) {
+    Map<Integer, String> owners = new HashMap<>();
+    for (int i = 0; i < KEYS; i++) {
+      owners.put(i, ring.get(("key" + i).getBytes()));
+    }
+    return owners;
+  }
+
+  private static Map<String, Integer> count(ConsistentHashRing<String> ring) {
+    Map<String, Integer> counts = new HashMap<>();
+    for (String owner : owners(ring).values()) {
+      counts.merge(owner, 1, Integer::sum);
+    }
+    return counts;
+  }
+}
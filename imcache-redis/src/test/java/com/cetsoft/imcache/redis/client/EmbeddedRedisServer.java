@@ -0,0 +1,789 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class EmbeddedRedisServer is an in-process stand-in for a redis server, so the clients can
+ * be tested and benchmarked end to end without an external redis. It serves all connections from
+ * one selector thread, parses whatever requests a read returned and writes their replies back
+ * with a single write, so pipelined commands are served in batches like redis does.
+ *
+ * <p>It supports the commands the clients send: PING, SET with PX or EX, GET, GETDEL, EXISTS,
+ * DEL, UNLINK, MGET, MSET, EXPIRE, PEXPIRE, DBSIZE, FLUSHDB and EVAL of the scripts of
+ * {@link RedisClient}. Keys expire lazily when they are accessed. A latency can be set to delay
+ * every reply, to see how the clients behave over a slower network.
+ */
+public class EmbeddedRedisServer implements Closeable {
+
+  /**
+   * The Constant READ_BUFFER_SIZE.
+   */
+  private static final int READ_BUFFER_SIZE = 16384;
+
+  /**
+   * The Constant NO_EXPIRY.
+   */
+  private static final long NO_EXPIRY = Long.MAX_VALUE;
+
+  /**
+   * The server socket channel.
+   */
+  private final ServerSocketChannel serverChannel;
+
+  /**
+   * The selector.
+   */
+  private final Selector selector;
+
+  /**
+   * The entries by their keys.
+   */
+  private final Map<ByteBuffer, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * The number of commands served.
+   */
+  private final AtomicLong commandCount = new AtomicLong();
+
+  /**
+   * The number of connections accepted.
+   */
+  private final AtomicLong connectionCount = new AtomicLong();
+
+  /**
+   * The latency of the replies in nanoseconds.
+   */
+  private volatile long latency;
+
+  /**
+   * Whether the server is closed.
+   */
+  private volatile boolean closed;
+
+  /**
+   * Instantiates a new embedded redis server listening on a free port of the loopback address.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public EmbeddedRedisServer() throws IOException {
+    this(0);
+  }
+
+  /**
+   * Instantiates a new embedded redis server listening on the port of the loopback address.
+   *
+   * @param port the port, zero for a free port
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public EmbeddedRedisServer(final int port) throws IOException {
+    selector = Selector.open();
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    serverChannel.configureBlocking(false);
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    final Thread thread = new Thread(this::run, "imcache:embeddedRedisServer(port=" + getPort()
+        + ")");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Gets the port.
+   *
+   * @return the port
+   */
+  public int getPort() {
+    return serverChannel.socket().getLocalPort();
+  }
+
+  /**
+   * Sets the latency added to every reply.
+   *
+   * @param latency the latency
+   * @param unit the unit of the latency
+   */
+  public void setLatency(final long latency, final TimeUnit unit) {
+    this.latency = unit.toNanos(latency);
+    selector.wakeup();
+  }
+
+  /**
+   * Gets the number of commands served.
+   *
+   * @return the command count
+   */
+  public long getCommandCount() {
+    return commandCount.get();
+  }
+
+  /**
+   * Gets the number of connections accepted.
+   *
+   * @return the connection count
+   */
+  public long getConnectionCount() {
+    return connectionCount.get();
+  }
+
+  /**
+   * Gets the value of the key.
+   *
+   * @param key the key
+   * @return the value, or null if the key doesn't exist
+   */
+  public byte[] getValue(final String key) {
+    final Entry entry = entry(ByteBuffer.wrap(key.getBytes(StandardCharsets.UTF_8)));
+    return entry == null ? null : entry.value;
+  }
+
+  /**
+   * Gets the number of keys.
+   *
+   * @return the number of keys
+   */
+  public int size() {
+    entries.values().removeIf(Entry::isExpired);
+    return entries.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    selector.wakeup();
+    serverChannel.close();
+  }
+
+  /**
+   * Serves the connections until the server is closed.
+   */
+  private void run() {
+    try {
+      while (!closed) {
+        final long now = System.nanoTime();
+        long timeout = 0;
+        for (final SelectionKey key : selector.keys()) {
+          if (key.attachment() != null) {
+            final long due = ((Session) key.attachment()).nextDue();
+            if (due != NO_EXPIRY) {
+              final long wait = Math.max(1, TimeUnit.NANOSECONDS.toMillis(due - now) + 1);
+              timeout = timeout == 0 ? wait : Math.min(timeout, wait);
+            }
+          }
+        }
+        selector.select(timeout);
+        final Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+        while (selectedKeys.hasNext()) {
+          final SelectionKey key = selectedKeys.next();
+          selectedKeys.remove();
+          try {
+            if (!key.isValid()) {
+              continue;
+            }
+            if (key.isAcceptable()) {
+              accept();
+            } else {
+              if (key.isReadable()) {
+                ((Session) key.attachment()).read();
+              }
+              if (key.isValid() && key.isWritable()) {
+                ((Session) key.attachment()).write();
+              }
+            }
+          } catch (IOException e) {
+            key.cancel();
+            key.channel().close();
+          }
+        }
+        for (final SelectionKey key : selector.keys()) {
+          if (key.isValid() && key.attachment() != null) {
+            try {
+              ((Session) key.attachment()).write();
+            } catch (IOException e) {
+              key.cancel();
+              key.channel().close();
+            }
+          }
+        }
+      }
+    } catch (IOException e) {
+      // The server stops.
+    } finally {
+      for (final SelectionKey key : selector.keys()) {
+        try {
+          key.channel().close();
+        } catch (IOException e) {
+          // Closing anyway.
+        }
+      }
+      try {
+        selector.close();
+      } catch (IOException e) {
+        // Closing anyway.
+      }
+    }
+  }
+
+  /**
+   * Accepts a connection.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void accept() throws IOException {
+    final SocketChannel channel = serverChannel.accept();
+    if (channel == null) {
+      return;
+    }
+    channel.configureBlocking(false);
+    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    final SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+    key.attach(new Session(channel, key));
+    connectionCount.incrementAndGet();
+  }
+
+  /**
+   * Runs the command and encodes its reply.
+   *
+   * @param request the command and its arguments
+   * @param reply the reply
+   */
+  void execute(final List<?> request, final Reply reply) {
+    commandCount.incrementAndGet();
+    final byte[][] args = new byte[request.size()][];
+    for (int i = 0; i < args.length; i++) {
+      if (!(request.get(i) instanceof byte[])) {
+        reply.error("ERR Protocol error: expected bulk strings");
+        return;
+      }
+      args[i] = (byte[]) request.get(i);
+    }
+    final String command = new String(args[0], StandardCharsets.UTF_8).toUpperCase();
+    switch (command) {
+      case "PING":
+        reply.status("PONG");
+        break;
+      case "SET":
+        set(args, reply);
+        break;
+      case "GET":
+        if (checkArity(args, 2, reply)) {
+          final Entry entry = entry(key(args[1]));
+          reply.bulk(entry == null ? null : entry.value);
+        }
+        break;
+      case "GETDEL":
+        if (checkArity(args, 2, reply)) {
+          final Entry entry = entry(key(args[1]));
+          if (entry != null) {
+            entries.remove(key(args[1]));
+          }
+          reply.bulk(entry == null ? null : entry.value);
+        }
+        break;
+      case "EXISTS":
+        reply.integer(count(args, false));
+        break;
+      case "DEL":
+      case "UNLINK":
+        reply.integer(count(args, true));
+        break;
+      case "MGET":
+        reply.arrayHeader(args.length - 1);
+        for (int i = 1; i < args.length; i++) {
+          final Entry entry = entry(key(args[i]));
+          reply.bulk(entry == null ? null : entry.value);
+        }
+        break;
+      case "MSET":
+        if (args.length < 3 || args.length % 2 == 0) {
+          reply.error("ERR wrong number of arguments for 'mset' command");
+          break;
+        }
+        for (int i = 1; i < args.length; i += 2) {
+          entries.put(key(args[i]), new Entry(args[i + 1], NO_EXPIRY));
+        }
+        reply.status("OK");
+        break;
+      case "EXPIRE":
+        expire(args, TimeUnit.SECONDS, reply);
+        break;
+      case "PEXPIRE":
+        expire(args, TimeUnit.MILLISECONDS, reply);
+        break;
+      case "DBSIZE":
+        reply.integer(size());
+        break;
+      case "FLUSHDB":
+        entries.clear();
+        reply.status("OK");
+        break;
+      case "EVAL":
+        eval(args, reply);
+        break;
+      default:
+        reply.error("ERR unknown command '" + command + "'");
+    }
+  }
+
+  /**
+   * Runs SET with an optional PX or EX expiry.
+   *
+   * @param args the arguments
+   * @param reply the reply
+   */
+  private void set(final byte[][] args, final Reply reply) {
+    if (args.length != 3 && args.length != 5) {
+      reply.error("ERR syntax error");
+      return;
+    }
+    long expiry = NO_EXPIRY;
+    if (args.length == 5) {
+      final String option = new String(args[3], StandardCharsets.UTF_8).toUpperCase();
+      final TimeUnit unit = option.equals("PX") ? TimeUnit.MILLISECONDS
+          : option.equals("EX") ? TimeUnit.SECONDS : null;
+      final long duration = toLong(args[4]);
+      if (unit == null || duration <= 0) {
+        reply.error("ERR syntax error");
+        return;
+      }
+      expiry = System.nanoTime() + unit.toNanos(duration);
+    }
+    entries.put(key(args[1]), new Entry(args[2], expiry));
+    reply.status("OK");
+  }
+
+  /**
+   * Runs EXPIRE or PEXPIRE.
+   *
+   * @param args the arguments
+   * @param unit the unit of the timeout
+   * @param reply the reply
+   */
+  private void expire(final byte[][] args, final TimeUnit unit, final Reply reply) {
+    if (!checkArity(args, 3, reply)) {
+      return;
+    }
+    final ByteBuffer key = key(args[1]);
+    final Entry entry = entry(key);
+    if (entry == null) {
+      reply.integer(0);
+      return;
+    }
+    final long timeout = toLong(args[2]);
+    if (timeout <= 0) {
+      entries.remove(key);
+    } else {
+      entries.put(key, new Entry(entry.value, System.nanoTime() + unit.toNanos(timeout)));
+    }
+    reply.integer(1);
+  }
+
+  /**
+   * Runs EVAL of the scripts of the redis client.
+   *
+   * @param args the arguments
+   * @param reply the reply
+   */
+  private void eval(final byte[][] args, final Reply reply) {
+    if (args.length < 4 || !Arrays.equals(RedisClient.ONE_KEY, args[2])) {
+      reply.error("ERR only the scripts of the client are supported");
+      return;
+    }
+    final ByteBuffer key = key(args[3]);
+    final Entry entry = entry(key);
+    final byte[] script = args[1];
+    if (Arrays.equals(RedisClient.SET_IF_ABSENT_SCRIPT, script) && args.length == 5) {
+      if (entry == null) {
+        entries.put(key, new Entry(args[4], NO_EXPIRY));
+      }
+      reply.bulk(entry == null ? null : entry.value);
+    } else if (Arrays.equals(RedisClient.COMPARE_AND_SET_SCRIPT, script) && args.length == 6) {
+      final boolean matches = entry != null && Arrays.equals(entry.value, args[4]);
+      if (matches) {
+        entries.put(key, new Entry(args[5], entry.expiry));
+      }
+      reply.integer(matches ? 1 : 0);
+    } else if (Arrays.equals(RedisClient.COMPARE_AND_DELETE_SCRIPT, script)
+        && args.length == 5) {
+      final boolean matches = entry != null && Arrays.equals(entry.value, args[4]);
+      if (matches) {
+        entries.remove(key);
+      }
+      reply.integer(matches ? 1 : 0);
+    } else {
+      reply.error("ERR only the scripts of the client are supported");
+    }
+  }
+
+  /**
+   * Counts the existing keys among the arguments, deleting them if asked to.
+   *
+   * @param args the arguments
+   * @param delete whether to delete the keys
+   * @return the count
+   */
+  private long count(final byte[][] args, final boolean delete) {
+    long count = 0;
+    for (int i = 1; i < args.length; i++) {
+      final ByteBuffer key = key(args[i]);
+      if (entry(key) != null) {
+        count++;
+        if (delete) {
+          entries.remove(key);
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Gets the entry of the key, removing it if it has expired.
+   *
+   * @param key the key
+   * @return the entry, or null if the key doesn't exist
+   */
+  private Entry entry(final ByteBuffer key) {
+    final Entry entry = entries.get(key);
+    if (entry != null && entry.isExpired()) {
+      entries.remove(key, entry);
+      return null;
+    }
+    return entry;
+  }
+
+  /**
+   * Checks the number of arguments, replying with an error if it is wrong.
+   *
+   * @param args the arguments
+   * @param arity the expected number of arguments, including the command
+   * @param reply the reply
+   * @return true, if the number of arguments is right
+   */
+  private static boolean checkArity(final byte[][] args, final int arity, final Reply reply) {
+    if (args.length != arity) {
+      reply.error("ERR wrong number of arguments for '"
+          + new String(args[0], StandardCharsets.UTF_8).toLowerCase() + "' command");
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Wraps the key so it can be looked up by its content.
+   *
+   * @param key the key
+   * @return the byte buffer
+   */
+  private static ByteBuffer key(final byte[] key) {
+    return ByteBuffer.wrap(key);
+  }
+
+  /**
+   * Parses the integer argument.
+   *
+   * @param arg the argument
+   * @return the long, or zero if it isn't an integer
+   */
+  private static long toLong(final byte[] arg) {
+    try {
+      return Long.parseLong(new String(arg, StandardCharsets.UTF_8));
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * The Class Entry is a value and the time it expires.
+   */
+  private static class Entry {
+
+    /**
+     * The value.
+     */
+    final byte[] value;
+
+    /**
+     * The time the value expires at in nanoseconds, NO_EXPIRY if it doesn't expire.
+     */
+    final long expiry;
+
+    /**
+     * Instantiates a new entry.
+     *
+     * @param value the value
+     * @param expiry the expiry
+     */
+    Entry(final byte[] value, final long expiry) {
+      this.value = value;
+      this.expiry = expiry;
+    }
+
+    /**
+     * Checks if the entry is expired.
+     *
+     * @return true, if expired
+     */
+    boolean isExpired() {
+      return expiry != NO_EXPIRY && System.nanoTime() - expiry >= 0;
+    }
+  }
+
+  /**
+   * The Class Reply encodes replies in RESP2.
+   */
+  static class Reply {
+
+    /**
+     * The Constant CRLF.
+     */
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    /**
+     * The encoded replies.
+     */
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    /**
+     * Encodes a simple string.
+     *
+     * @param status the status
+     */
+    void status(final String status) {
+      line('+', status);
+    }
+
+    /**
+     * Encodes an error.
+     *
+     * @param message the message
+     */
+    void error(final String message) {
+      line('-', message);
+    }
+
+    /**
+     * Encodes an integer.
+     *
+     * @param value the value
+     */
+    void integer(final long value) {
+      line(':', Long.toString(value));
+    }
+
+    /**
+     * Encodes a bulk string.
+     *
+     * @param value the value, null for a nil reply
+     */
+    void bulk(final byte[] value) {
+      if (value == null) {
+        line('$', "-1");
+        return;
+      }
+      line('$', Integer.toString(value.length));
+      bytes.write(value, 0, value.length);
+      bytes.write(CRLF, 0, CRLF.length);
+    }
+
+    /**
+     * Encodes the header of an array.
+     *
+     * @param size the size
+     */
+    void arrayHeader(final int size) {
+      line('*', Integer.toString(size));
+    }
+
+    /**
+     * Encodes a line.
+     *
+     * @param type the type
+     * @param line the line
+     */
+    private void line(final char type, final String line) {
+      bytes.write(type);
+      final byte[] lineBytes = line.getBytes(StandardCharsets.UTF_8);
+      bytes.write(lineBytes, 0, lineBytes.length);
+      bytes.write(CRLF, 0, CRLF.length);
+    }
+  }
+
+  /**
+   * The Class Session reads the requests of a connection and writes their replies once they are
+   * due.
+   */
+  private class Session {
+
+    /**
+     * The channel.
+     */
+    final SocketChannel channel;
+
+    /**
+     * The selection key.
+     */
+    final SelectionKey key;
+
+    /**
+     * The read buffer.
+     */
+    final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+    /**
+     * The request parser.
+     */
+    final RedisReplyParser parser = new RedisReplyParser();
+
+    /**
+     * The replies waiting for their latency to pass.
+     */
+    final Queue<DelayedReply> delayedReplies = new ArrayDeque<>();
+
+    /**
+     * The bytes being written, null if nothing is being written.
+     */
+    ByteBuffer writeBuffer;
+
+    /**
+     * Instantiates a new session.
+     *
+     * @param channel the channel
+     * @param key the key
+     */
+    Session(final SocketChannel channel, final SelectionKey key) {
+      this.channel = channel;
+      this.key = key;
+    }
+
+    /**
+     * Reads the requests and runs them, queueing their replies together.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    void read() throws IOException {
+      if (channel.read(readBuffer) < 0) {
+        throw new IOException("Connection closed by client");
+      }
+      readBuffer.flip();
+      final Reply reply = new Reply();
+      Object request;
+      while ((request = parser.parse(readBuffer)) != RedisReplyParser.INCOMPLETE) {
+        if (request instanceof List && !((List<?>) request).isEmpty()) {
+          execute((List<?>) request, reply);
+        } else {
+          reply.error("ERR Protocol error: expected an array of bulk strings");
+        }
+      }
+      readBuffer.compact();
+      if (reply.bytes.size() > 0) {
+        delayedReplies.add(new DelayedReply(System.nanoTime() + latency,
+            reply.bytes.toByteArray()));
+      }
+    }
+
+    /**
+     * Gets the time the next reply is due.
+     *
+     * @return the time in nanoseconds, NO_EXPIRY if no reply is waiting
+     */
+    long nextDue() {
+      final DelayedReply delayedReply = delayedReplies.peek();
+      return delayedReply == null ? NO_EXPIRY : delayedReply.due;
+    }
+
+    /**
+     * Writes the replies that are due, waiting for the channel to be writable if it doesn't take
+     * them all.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    void write() throws IOException {
+      if (writeBuffer == null) {
+        final long now = System.nanoTime();
+        int length = 0;
+        for (final DelayedReply delayedReply : delayedReplies) {
+          if (delayedReply.due - now > 0) {
+            break;
+          }
+          length += delayedReply.bytes.length;
+        }
+        if (length == 0) {
+          return;
+        }
+        writeBuffer = ByteBuffer.allocate(length);
+        while (writeBuffer.hasRemaining()) {
+          writeBuffer.put(delayedReplies.poll().bytes);
+        }
+        writeBuffer.flip();
+      }
+      channel.write(writeBuffer);
+      if (writeBuffer.hasRemaining()) {
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+      } else {
+        writeBuffer = null;
+        key.interestOps(SelectionKey.OP_READ);
+      }
+    }
+  }
+
+  /**
+   * The Class DelayedReply is the encoded replies of a read and the time they are due.
+   */
+  private static class DelayedReply {
+
+    /**
+     * The time the replies are due in nanoseconds.
+     */
+    final long due;
+
+    /**
+     * The encoded replies.
+     */
+    final byte[] bytes;
+
+    /**
+     * Instantiates a new delayed reply.
+     *
+     * @param due the due
+     * @param bytes the bytes
+     */
+    DelayedReply(final long due, final byte[] bytes) {
+      this.due = due;
+      this.bytes = bytes;
+    }
+  }
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EmbeddedRedisServerTest {
+
+  EmbeddedRedisServer server;
+
+  @Before
+  public void setup() throws IOException {
+    server = new EmbeddedRedisServer();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    server.close();
+  }
+
+  @Test
+  public void redisClient() throws Exception {
+    Connection connection = new Connection("localhost", server.getPort());
+    try {
+      assertCommands(new RedisClient(connection));
+    } finally {
+      connection.close();
+    }
+  }
+
+  @Test
+  public void redisClientPool() throws Exception {
+    assertCommands(new RedisClientPool("localhost", server.getPort(), 2));
+  }
+
+  @Test
+  public void pipelinedRedisClient() throws Exception {
+    PipelinedRedisClient client = new PipelinedRedisClient("localhost", server.getPort());
+    try {
+      assertCommands(client);
+    } finally {
+      client.close();
+    }
+  }
+
+  @Test
+  public void nioConnection() throws Exception {
+    EventLoopGroup eventLoopGroup = new EventLoopGroup(1);
+    PipelinedRedisClient client = new PipelinedRedisClient(
+        eventLoopGroup.connect("localhost", server.getPort()), 1000);
+    try {
+      assertCommands(client);
+    } finally {
+      client.close();
+      eventLoopGroup.close();
+    }
+  }
+
+  @Test
+  public void shardedRedisClient() throws Exception {
+    EmbeddedRedisServer secondServer = new EmbeddedRedisServer();
+    PipelinedRedisClient first = new PipelinedRedisClient("localhost", server.getPort());
+    PipelinedRedisClient second = new PipelinedRedisClient("localhost", secondServer.getPort());
+    try {
+      ShardedRedisClient client = new ShardedRedisClient().addNode("first", first)
+          .addNode("second", second);
+      assertCommands(client);
+      byte[][] keysAndValues = new byte[40][];
+      for (int i = 0; i < keysAndValues.length; i++) {
+        keysAndValues[i] = ("" + i).getBytes();
+      }
+      client.mset(keysAndValues);
+      assertEquals(20, client.dbsize());
+      assertTrue(server.size() > 0);
+      assertTrue(secondServer.size() > 0);
+    } finally {
+      first.close();
+      second.close();
+      secondServer.close();
+    }
+  }
+
+  @Test
+  public void pipelinedCommandsAreServedTogether() throws Exception {
+    server.setLatency(50, TimeUnit.MILLISECONDS);
+    PipelinedRedisClient client = new PipelinedRedisClient("localhost", server.getPort());
+    try {
+      long start = System.nanoTime();
+      List<CompletableFuture<Void>> replies = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        replies.add(client.setAsync(("" + i).getBytes(), ("" + i).getBytes()));
+      }
+      CompletableFuture.allOf(replies.toArray(new CompletableFuture[0])).get(5,
+          TimeUnit.SECONDS);
+      long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      assertTrue(elapsed >= 50);
+      assertTrue(elapsed < 100 * 50);
+      assertEquals(100, server.size());
+      assertEquals(100, server.getCommandCount());
+      assertEquals(1, server.getConnectionCount());
+    } finally {
+      client.close();
+    }
+  }
+
+  @Test
+  public void latency() throws Exception {
+    server.setLatency(30, TimeUnit.MILLISECONDS);
+    Connection connection = new Connection("localhost", server.getPort());
+    try {
+      long start = System.nanoTime();
+      new RedisClient(connection).ping();
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 30);
+    } finally {
+      connection.close();
+    }
+  }
+
+  @Test
+  public void keysExpire() throws Exception {
+    PipelinedRedisClient client = new PipelinedRedisClient("localhost", server.getPort());
+    try {
+      client.set("a".getBytes(), "1".getBytes(), 20);
+      assertArrayEquals("1".getBytes(), server.getValue("a"));
+      Thread.sleep(40);
+      assertNull(client.get("a".getBytes()));
+      assertEquals(0, server.size());
+    } finally {
+      client.close();
+    }
+  }
+
+  @Test
+  public void compareAndSetKeepsExpiry() throws Exception {
+    PipelinedRedisClient client = new PipelinedRedisClient("localhost", server.getPort());
+    try {
+      client.set("a".getBytes(), "1".getBytes(), 50);
+      assertTrue(client.compareAndSet("a".getBytes(), "1".getBytes(), "2".getBytes()));
+      assertArrayEquals("2".getBytes(), client.get("a".getBytes()));
+      Thread.sleep(100);
+      assertNull(client.get("a".getBytes()));
+    } finally {
+      client.close();
+    }
+  }
+
+  @Test
+  public void unknownCommandIsAnError() throws Exception {
+    PipelinedRedisClient client = new PipelinedRedisClient("localhost", server.getPort());
+    try {
+      client.execute(RedisCommands.CLUSTER, "SLOTS".getBytes()).get(1, TimeUnit.SECONDS);
+    } catch (Exception e) {
+      assertTrue(e.getCause().getMessage().contains("unknown command 'CLUSTER'"));
+      return;
+    } finally {
+      client.close();
+    }
+    throw new AssertionError("Expected an error reply");
+  }
+
+  private static void assertCommands(Client client) throws Exception {
+    client.flushdb();
+    client.ping();
+    client.set("a".getBytes(), "1".getBytes());
+    client.set("b".getBytes(), "2".getBytes(), 10000);
+    assertArrayEquals("1".getBytes(), client.get("a".getBytes()));
+    assertNull(client.get("c".getBytes()));
+    assertEquals(2, client.dbsize());
+    assertTrue(client.exists("b".getBytes()));
+    assertArrayEquals("2".getBytes(), client.expire("b".getBytes()));
+    assertFalse(client.exists("b".getBytes()));
+    assertNull(client.setIfAbsent("b".getBytes(), "3".getBytes()));
+    assertArrayEquals("3".getBytes(), client.setIfAbsent("b".getBytes(), "4".getBytes()));
+    assertFalse(client.compareAndSet("b".getBytes(), "4".getBytes(), "5".getBytes()));
+    assertTrue(client.compareAndSet("b".getBytes(), "3".getBytes(), "5".getBytes()));
+    assertFalse(client.compareAndDelete("b".getBytes(), "3".getBytes()));
+    assertTrue(client.compareAndDelete("b".getBytes(), "5".getBytes()));
+    assertArrayEquals("1".getBytes(), client.getDel("a".getBytes()));
+    assertEquals(0, client.dbsize());
+    client.mset("a".getBytes(), "1".getBytes(), "b".getBytes(), "2".getBytes());
+    List<byte[]> values = client.mget("a".getBytes(), "c".getBytes(), "b".getBytes());
+    assertEquals(3, values.size());
+    assertArrayEquals("1".getBytes(), values.get(0));
+    assertNull(values.get(1));
+    assertArrayEquals("2".getBytes(), values.get(2));
+    assertEquals(2, client.unlink("a".getBytes(), "b".getBytes(), "c".getBytes()));
+    assertEquals(0, client.dbsize());
+  }
+}
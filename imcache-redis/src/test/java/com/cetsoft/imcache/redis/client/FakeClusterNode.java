@@ -0,0 +1,113 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A fake redis cluster node owning some hash slots. It replies to CLUSTER SLOTS with the slots of
+ * all nodes of its cluster, redirects keys of other slots with MOVED and keys missing from a
+ * migrating slot with ASK.
+ */
+class FakeClusterNode extends FakeRedisServer {
+
+  final List<FakeClusterNode> cluster;
+
+  final BitSet slots = new BitSet(HashSlots.SLOTS);
+
+  final Map<Integer, FakeClusterNode> migrating = new ConcurrentHashMap<>();
+
+  final ThreadLocal<Boolean> asking = ThreadLocal.withInitial(() -> false);
+
+  FakeClusterNode(List<FakeClusterNode> cluster, int firstSlot, int lastSlot)
+      throws IOException {
+    this.cluster = cluster;
+    slots.set(firstSlot, lastSlot + 1);
+    cluster.add(this);
+  }
+
+  static List<FakeClusterNode> newCluster() {
+    return new CopyOnWriteArrayList<>();
+  }
+
+  String address() {
+    return "127.0.0.1:" + getPort();
+  }
+
+  @Override
+  String reply(List<?> request) {
+    String command = new String((byte[]) request.get(0));
+    if (command.equals("CLUSTER")) {
+      return clusterSlots();
+    }
+    if (command.equals("ASKING")) {
+      asking.set(true);
+      return "+OK\r\n";
+    }
+    boolean asked = asking.get();
+    asking.set(false);
+    int keyIndex = command.equals("EVAL") ? 3 : 1;
+    if (request.size() <= keyIndex) {
+      return super.reply(request);
+    }
+    byte[] key = (byte[]) request.get(keyIndex);
+    int slot = HashSlots.slot(key);
+    FakeClusterNode owner = owner(slot);
+    if (owner == this) {
+      FakeClusterNode target = migrating.get(slot);
+      if (target != null && !values.containsKey(new String(key))) {
+        return "-ASK " + slot + " " + target.address() + "\r\n";
+      }
+      return super.reply(request);
+    }
+    if (asked && owner.migrating.get(slot) == this) {
+      return super.reply(request);
+    }
+    return "-MOVED " + slot + " " + owner.address() + "\r\n";
+  }
+
+  FakeClusterNode owner(int slot) {
+    for (FakeClusterNode node : cluster) {
+      if (node.slots.get(slot)) {
+        return node;
+      }
+    }
+    throw new IllegalStateException("Slot " + slot + " isn't served");
+  }
+
+  String clusterSlots() {
+    StringBuilder ranges = new StringBuilder();
+    int count = 0;
+    for (FakeClusterNode node : cluster) {
+      for (int first = node.slots.nextSetBit(0); first >= 0;
+          first = node.slots.nextSetBit(first)) {
+        int last = node.slots.nextClearBit(first) - 1;
+        String host = node == this ? "" : "127.0.0.1";
+        ranges.append("*3\r\n:").append(first).append("\r\n:").append(last).append("\r\n*2\r\n$")
+            .append(host.length()).append("\r\n").append(host).append("\r\n:")
+            .append(node.getPort()).append("\r\n");
+        count++;
+        first = last + 1;
+      }
+    }
+    return "*" + count + "\r\n" + ranges;
+  }
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fake redis server replying to the commands of the client. Clients turning on tracking get an
+ * invalidation for every key set or expired, as a RESP3 push message or, if RESP3 is turned off,
+ * as a message of the invalidation channel.
+ */
+class FakeRedisServer {
+
+  final ServerSocket serverSocket = new ServerSocket(0);
+
+  final Map<String, byte[]> values = new ConcurrentHashMap<>();
+
+  final AtomicInteger connections = new AtomicInteger();
+
+  volatile Socket socket;
+
+  final Set<Socket> trackingClients = ConcurrentHashMap.newKeySet();
+
+  final ThreadLocal<Socket> currentSocket = new ThreadLocal<>();
+
+  volatile boolean resp3 = true;
+
+  FakeRedisServer() throws IOException {
+    Thread acceptor = new Thread(() -> {
+      try {
+        while (true) {
+          final Socket socket = serverSocket.accept();
+          this.socket = socket;
+          connections.incrementAndGet();
+          Thread handler = new Thread(() -> handle(socket));
+          handler.setDaemon(true);
+          handler.start();
+        }
+      } catch (IOException e) {
+        // Server is closed.
+      }
+    });
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  void handle(Socket socket) {
+    currentSocket.set(socket);
+    try {
+      RedisStreamReader reader = new RedisStreamReader(socket.getInputStream());
+      while (true) {
+        List<?> request = (List<?>) reader.readReply();
+        write(socket, reply(request));
+      }
+    } catch (IOException e) {
+      // Client is gone.
+    } finally {
+      trackingClients.remove(socket);
+    }
+  }
+
+  void write(Socket socket, String message) throws IOException {
+    OutputStream out = socket.getOutputStream();
+    synchronized (out) {
+      out.write(message.getBytes());
+      out.flush();
+    }
+  }
+
+  void invalidate(String key) {
+    String keys = key == null ? (resp3 ? "_\r\n" : "*-1\r\n")
+        : "*1\r\n$" + key.length() + "\r\n" + key + "\r\n";
+    String message = resp3 ? ">2\r\n$10\r\ninvalidate\r\n" + keys
+        : "*3\r\n$7\r\nmessage\r\n$20\r\n__redis__:invalidate\r\n" + keys;
+    for (Socket client : trackingClients) {
+      try {
+        write(client, message);
+      } catch (IOException e) {
+        trackingClients.remove(client);
+      }
+    }
+  }
+
+  void closeTrackingClients() throws IOException {
+    for (Socket client : trackingClients) {
+      client.close();
+    }
+  }
+
+  String reply(List<?> request) {
+    String command = new String((byte[]) request.get(0));
+    String key = request.size() > 1 ? new String((byte[]) request.get(1)) : null;
+    final String reply;
+    if (command.equals("PING")) {
+      reply = "+PONG\r\n";
+    } else if (command.equals("SET")) {
+      values.put(key, (byte[]) request.get(2));
+      invalidate(key);
+      reply = "+OK\r\n";
+    } else if (command.equals("GET")) {
+      reply = bulk(values.get(key));
+    } else if (command.equals("GETDEL")) {
+      reply = bulk(values.remove(key));
+      invalidate(key);
+    } else if (command.equals("EXISTS")) {
+      reply = ":" + (values.containsKey(key) ? 1 : 0) + "\r\n";
+    } else if (command.equals("UNLINK")) {
+      int count = 0;
+      for (int i = 1; i < request.size(); i++) {
+        String unlinkedKey = new String((byte[]) request.get(i));
+        if (values.remove(unlinkedKey) != null) {
+          count++;
+        }
+        invalidate(unlinkedKey);
+      }
+      reply = ":" + count + "\r\n";
+    } else if (command.equals("MGET")) {
+      StringBuilder builder = new StringBuilder("*" + (request.size() - 1) + "\r\n");
+      for (int i = 1; i < request.size(); i++) {
+        builder.append(bulk(values.get(new String((byte[]) request.get(i)))));
+      }
+      reply = builder.toString();
+    } else if (command.equals("MSET")) {
+      for (int i = 1; i < request.size(); i += 2) {
+        String setKey = new String((byte[]) request.get(i));
+        values.put(setKey, (byte[]) request.get(i + 1));
+        invalidate(setKey);
+      }
+      reply = "+OK\r\n";
+    } else if (command.equals("PEXPIRE")) {
+      reply = ":1\r\n";
+    } else if (command.equals("EXPIRE")) {
+      reply = ":" + (values.remove(key) == null ? 0 : 1) + "\r\n";
+      invalidate(key);
+    } else if (command.equals("DBSIZE")) {
+      reply = ":" + values.size() + "\r\n";
+    } else if (command.equals("FLUSHDB")) {
+      values.clear();
+      invalidate(null);
+      reply = "+OK\r\n";
+    } else if (command.equals("HELLO") && resp3) {
+      reply = "%1\r\n$6\r\nserver\r\n$5\r\nredis\r\n";
+    } else if (command.equals("CLIENT") && key.equals("ID")) {
+      reply = ":" + currentSocket.get().getPort() + "\r\n";
+    } else if (command.equals("CLIENT") && key.equals("TRACKING")) {
+      trackingClients.add(currentSocket.get());
+      reply = "+OK\r\n";
+    } else if (command.equals("SUBSCRIBE")) {
+      reply = "*3\r\n$9\r\nsubscribe\r\n$" + key.length() + "\r\n" + key + "\r\n:1\r\n";
+    } else {
+      reply = "-ERR unknown command '" + command + "'\r\n";
+    }
+    return reply;
+  }
+
+  static String bulk(byte[] value) {
+    return value == null ? "$-1\r\n" : "$" + value.length + "\r\n" + new String(value) + "\r\n";
+  }
+
+  void closeClients() throws IOException {
+    socket.close();
+  }
+
+  void close() throws IOException {
+    serverSocket.close();
+    if (socket != null) {
+      socket.close();
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class GatheringWriteBufferTest {
+
+  @Test
+  public void largeValuesAreWrittenFromTheirArrays() throws IOException {
+    GatheringWriteBuffer writeBuffer = new GatheringWriteBuffer(64);
+    byte[] value = new byte[GatheringWriteBuffer.LARGE_VALUE_SIZE * 4];
+    Arrays.fill(value, (byte) 'v');
+    assertTrue(writeBuffer.isEmpty());
+    assertTrue(writeBuffer.add(RedisCommands.SET, "key".getBytes(), value));
+    assertTrue(writeBuffer.add(RedisCommands.GET, "key".getBytes()));
+    assertFalse(writeBuffer.isEmpty());
+    RecordingChannel channel = new RecordingChannel(Integer.MAX_VALUE);
+    assertTrue(writeBuffer.write(channel));
+    assertTrue(writeBuffer.isEmpty());
+    assertEquals(1, channel.writes);
+    assertArrayEquals(encode(RedisCommands.SET, "key".getBytes(), value, RedisCommands.GET,
+        "key".getBytes()), channel.bytes.toByteArray());
+  }
+
+  @Test
+  public void commandsWaitForSpaceInStagingBuffer() throws IOException {
+    GatheringWriteBuffer writeBuffer = new GatheringWriteBuffer(64);
+    assertTrue(writeBuffer.add(RedisCommands.SET, "key".getBytes(), new byte[30]));
+    assertFalse(writeBuffer.add(RedisCommands.SET, "key".getBytes(), new byte[30]));
+    assertTrue(writeBuffer.write(new RecordingChannel(Integer.MAX_VALUE)));
+    assertTrue(writeBuffer.add(RedisCommands.SET, "key".getBytes(), new byte[30]));
+  }
+
+  @Test
+  public void commandLargerThanStagingBufferGetsItsOwnBuffer() throws IOException {
+    GatheringWriteBuffer writeBuffer = new GatheringWriteBuffer(64);
+    byte[][] keysAndValues = new byte[20][];
+    for (int i = 0; i < keysAndValues.length; i++) {
+      keysAndValues[i] = ("" + i).getBytes();
+    }
+    assertTrue(writeBuffer.add(RedisCommands.MSET, keysAndValues));
+    RecordingChannel channel = new RecordingChannel(Integer.MAX_VALUE);
+    assertTrue(writeBuffer.write(channel));
+    ByteBuffer expected = ByteBuffer.allocate(RedisCommandEncoder.encodedLength(
+        RedisCommands.MSET, keysAndValues));
+    RedisCommandEncoder.encode(expected, RedisCommands.MSET, keysAndValues);
+    assertArrayEquals(expected.array(), channel.bytes.toByteArray());
+  }
+
+  @Test
+  public void partialWritesAreResumed() throws IOException {
+    GatheringWriteBuffer writeBuffer = new GatheringWriteBuffer(1024);
+    byte[] value = new byte[GatheringWriteBuffer.LARGE_VALUE_SIZE];
+    Arrays.fill(value, (byte) 'v');
+    RecordingChannel channel = new RecordingChannel(1000);
+    assertTrue(writeBuffer.add(RedisCommands.SET, "a".getBytes(), value));
+    assertFalse(writeBuffer.write(channel));
+    assertTrue(writeBuffer.add(RedisCommands.SET, "b".getBytes(), value));
+    channel.capacity = Integer.MAX_VALUE;
+    assertTrue(writeBuffer.write(channel));
+    assertArrayEquals(encode(RedisCommands.SET, "a".getBytes(), value, RedisCommands.SET,
+        "b".getBytes(), value), channel.bytes.toByteArray());
+  }
+
+  @Test
+  public void clearDropsUnwrittenCommands() throws IOException {
+    GatheringWriteBuffer writeBuffer = new GatheringWriteBuffer(64);
+    assertTrue(writeBuffer.add(RedisCommands.GET, "a".getBytes()));
+    writeBuffer.clear();
+    assertTrue(writeBuffer.isEmpty());
+    assertTrue(writeBuffer.add(RedisCommands.GET, "b".getBytes()));
+    RecordingChannel channel = new RecordingChannel(Integer.MAX_VALUE);
+    assertTrue(writeBuffer.write(channel));
+    assertArrayEquals(encode(RedisCommands.GET, "b".getBytes()), channel.bytes.toByteArray());
+  }
+
+  private static byte[] encode(Object... commandsAndArgs) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    int i = 0;
+    while (i < commandsAndArgs.length) {
+      ByteCommand command = (ByteCommand) commandsAndArgs[i++];
+      int start = i;
+      while (i < commandsAndArgs.length && commandsAndArgs[i] instanceof byte[]) {
+        i++;
+      }
+      byte[][] args = Arrays.copyOfRange(commandsAndArgs, start, i, byte[][].class);
+      ByteBuffer buffer = ByteBuffer.allocate(RedisCommandEncoder.encodedLength(command, args));
+      RedisCommandEncoder.encode(buffer, command, args);
+      bytes.write(buffer.array(), 0, buffer.position());
+    }
+    return bytes.toByteArray();
+  }
+
+  static class RecordingChannel implements GatheringByteChannel {
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    int capacity;
+
+    int writes;
+
+    RecordingChannel(int capacity) {
+      this.capacity = capacity;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) {
+      writes++;
+      long written = 0;
+      for (int i = offset; i < offset + length && written < capacity; i++) {
+        while (srcs[i].hasRemaining() && written < capacity) {
+          bytes.write(srcs[i].get());
+          written++;
+        }
+      }
+      capacity -= written;
+      return written;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) {
+      return write(srcs, 0, srcs.length);
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      return (int) write(new ByteBuffer[]{src});
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class HashSlotsTest {
+
+  @Test
+  public void crc16() {
+    byte[] bytes = "123456789".getBytes();
+    assertEquals(0x31C3, HashSlots.crc16(bytes, 0, bytes.length));
+  }
+
+  @Test
+  public void slot() {
+    assertEquals(0x31C3, HashSlots.slot("123456789".getBytes()));
+    assertEquals(12182, HashSlots.slot("foo".getBytes()));
+    assertEquals(5061, HashSlots.slot("bar".getBytes()));
+  }
+
+  @Test
+  public void slotOfHashTag() {
+    assertEquals(HashSlots.slot("user1000".getBytes()),
+        HashSlots.slot("{user1000}.following".getBytes()));
+    assertEquals(HashSlots.slot("{user1000}.following".getBytes()),
+        HashSlots.slot("{user1000}.followers".getBytes()));
+    assertEquals(HashSlots.slot("bar".getBytes()), HashSlots.slot("foo{bar}{zap}".getBytes()));
+  }
+
+  @Test
+  public void slotOfEmptyHashTag() {
+    byte[] key = "foo{}{bar}".getBytes();
+    assertEquals(HashSlots.crc16(key, 0, key.length) % HashSlots.SLOTS, HashSlots.slot(key));
+  }
+
+  @Test
+  public void slotOfUnclosedHashTag() {
+    byte[] key = "foo{bar".getBytes();
+    assertEquals(HashSlots.crc16(key, 0, key.length) % HashSlots.SLOTS, HashSlots.slot(key));
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InvalidationSubscriberTest {
+
+  static final List<String> ALL_KEYS = Collections.singletonList("*");
+
+  FakeRedisServer server;
+
+  PipelinedRedisClient client;
+
+  InvalidationSubscriber subscriber;
+
+  final BlockingQueue<List<String>> invalidations = new LinkedBlockingQueue<>();
+
+  @Before
+  public void setup() throws IOException {
+    server = new FakeRedisServer();
+    client = new PipelinedRedisClient("localhost", server.getPort());
+    subscriber = new InvalidationSubscriber("localhost", server.getPort());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    subscriber.close();
+    client.close();
+    server.close();
+  }
+
+  void start() {
+    subscriber.start(keys -> {
+      if (keys == null) {
+        invalidations.add(ALL_KEYS);
+        return;
+      }
+      List<String> names = new ArrayList<>();
+      for (byte[] key : keys) {
+        names.add(new String(key));
+      }
+      invalidations.add(names);
+    });
+  }
+
+  List<String> nextInvalidation() throws InterruptedException {
+    return invalidations.poll(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void receivesPushMessages() throws Exception {
+    start();
+    assertEquals(ALL_KEYS, nextInvalidation());
+    assertTrue(subscriber.isSubscribed());
+    client.set("foo".getBytes(), "1".getBytes());
+    assertEquals(Collections.singletonList("foo"), nextInvalidation());
+    client.expire("foo".getBytes());
+    assertEquals(Collections.singletonList("foo"), nextInvalidation());
+    client.flushdb();
+    assertEquals(ALL_KEYS, nextInvalidation());
+  }
+
+  @Test
+  public void receivesChannelMessagesWithoutResp3() throws Exception {
+    server.resp3 = false;
+    start();
+    assertEquals(ALL_KEYS, nextInvalidation());
+    client.set("foo".getBytes(), "1".getBytes());
+    assertEquals(Collections.singletonList("foo"), nextInvalidation());
+    client.flushdb();
+    assertEquals(ALL_KEYS, nextInvalidation());
+  }
+
+  @Test
+  public void resubscribesAfterConnectionFailure() throws Exception {
+    start();
+    assertEquals(ALL_KEYS, nextInvalidation());
+    server.closeTrackingClients();
+    assertEquals(ALL_KEYS, nextInvalidation());
+    assertEquals(ALL_KEYS, nextInvalidation());
+    assertTrue(subscriber.isSubscribed());
+    client.set("foo".getBytes(), "1".getBytes());
+    assertEquals(Collections.singletonList("foo"), nextInvalidation());
+  }
+
+  @Test
+  public void resubscribesAfterListenerFailure() throws Exception {
+    subscriber.start(keys -> {
+      if (keys == null) {
+        invalidations.add(ALL_KEYS);
+      } else if (new String(keys.get(0)).equals("bad")) {
+        throw new IllegalStateException();
+      } else {
+        invalidations.add(Collections.singletonList(new String(keys.get(0))));
+      }
+    });
+    assertEquals(ALL_KEYS, nextInvalidation());
+    client.set("bad".getBytes(), "1".getBytes());
+    assertEquals(ALL_KEYS, nextInvalidation());
+    assertEquals(ALL_KEYS, nextInvalidation());
+    assertTrue(subscriber.isSubscribed());
+    client.set("foo".getBytes(), "1".getBytes());
+    assertEquals(Collections.singletonList("foo"), nextInvalidation());
+  }
+
+  @Test
+  public void notSubscribedWithoutServer() throws Exception {
+    server.close();
+    start();
+    Thread.sleep(InvalidationSubscriber.INITIAL_BACKOFF);
+    assertFalse(subscriber.isSubscribed());
+    assertTrue(invalidations.isEmpty());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void startTwice() {
+    start();
+    start();
+  }
+}
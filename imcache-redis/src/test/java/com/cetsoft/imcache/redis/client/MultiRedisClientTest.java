@@ -16,6 +16,7 @@
 package com.cetsoft.imcache.redis.client;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
@@ -74,6 +75,18 @@ public class MultiRedisClientTest {
     assertEquals(value, actualValue);
   }
 
+  @Test
+  public void getDel() throws ConnectionException, IOException {
+    doReturn(value).when(client).getDel(key);
+    assertEquals(value, redisClient.getDel(key));
+  }
+
+  @Test
+  public void mset() throws ConnectionException, IOException {
+    redisClient.mset(key, value);
+    verify(client).mset(key, value);
+  }
+
   @Test
   public void flushdb() throws ConnectionException, IOException {
     redisClient.flushdb();
@@ -97,4 +110,12 @@ public class MultiRedisClientTest {
     assertEquals(firstClient, redisClient.getClient());
   }
 
+  @Test
+  public void getClientAfterIndexOverflows() {
+    MultiRedisClient multiRedisClient = new MultiRedisClient("", 0, 3);
+    multiRedisClient.currentIndex.set(Integer.MAX_VALUE);
+    for (int i = 0; i < 3; i++) {
+      assertNotNull(multiRedisClient.getClient());
+    }
+  }
 }
@@ -0,0 +1,151 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NioConnectionTest {
+
+  FakeRedisServer server;
+
+  EventLoopGroup eventLoopGroup;
+
+  PipelinedRedisClient client;
+
+  @Before
+  public void setup() throws IOException {
+    server = new FakeRedisServer();
+    eventLoopGroup = new EventLoopGroup(2);
+    client = new PipelinedRedisClient(eventLoopGroup.connect("localhost", server.getPort()),
+        PipelinedRedisClient.DEFAULT_TIMEOUT);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    client.close();
+    eventLoopGroup.close();
+    server.close();
+  }
+
+  @Test
+  public void commands() throws ConnectionException, IOException {
+    client.ping();
+    client.set("a".getBytes(), "1".getBytes());
+    assertArrayEquals("1".getBytes(), client.get("a".getBytes()));
+    assertNull(client.get("b".getBytes()));
+    assertEquals(1, client.dbsize());
+    try {
+      client.setIfAbsent("a".getBytes(), "1".getBytes());
+      fail();
+    } catch (ConnectionException e) {
+      assertTrue(e.getMessage().contains("unknown command"));
+    }
+    client.flushdb();
+    assertEquals(0, client.dbsize());
+  }
+
+  @Test
+  public void largeValues() throws ConnectionException, IOException {
+    byte[] value = new byte[3 * NioConnection.BUFFER_SIZE + 7];
+    Arrays.fill(value, (byte) 'v');
+    client.set("a".getBytes(), value);
+    client.set("b".getBytes(), "1".getBytes());
+    assertArrayEquals(value, client.get("a".getBytes()));
+    assertArrayEquals("1".getBytes(), client.get("b".getBytes()));
+  }
+
+  @Test
+  public void manyThreadsShareConnection() throws Exception {
+    final int threads = 8, commands = 250;
+    final AtomicInteger failures = new AtomicInteger();
+    final CountDownLatch latch = new CountDownLatch(threads);
+    for (int i = 0; i < threads; i++) {
+      final String prefix = "thread" + i + ":";
+      new Thread(() -> {
+        try {
+          for (int j = 0; j < commands; j++) {
+            byte[] key = (prefix + j).getBytes();
+            client.setAsync(key, key);
+            if (!new String(client.get(key)).equals(prefix + j)) {
+              failures.incrementAndGet();
+            }
+          }
+        } catch (Exception e) {
+          failures.incrementAndGet();
+        }
+        latch.countDown();
+      }).start();
+    }
+    latch.await();
+    assertEquals(0, failures.get());
+    assertEquals(threads * commands, client.dbsize());
+    assertEquals(1, server.connections.get());
+  }
+
+  @Test
+  public void reconnectsAfterConnectionFails() throws Exception {
+    client.set("a".getBytes(), "1".getBytes());
+    server.closeClients();
+    try {
+      client.get("a".getBytes());
+    } catch (ConnectionException e) {
+      // The command may fail with the connection.
+    }
+    assertArrayEquals("1".getBytes(), client.get("a".getBytes()));
+    assertEquals(2, server.connections.get());
+  }
+
+  @Test
+  public void connectFailureFailsCommands() throws Exception {
+    int port;
+    try (ServerSocket serverSocket = new ServerSocket(0)) {
+      port = serverSocket.getLocalPort();
+    }
+    NioConnection connection = eventLoopGroup.connect("localhost", port);
+    try {
+      connection.send(RedisCommands.PING).get();
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof ConnectionException);
+    }
+    connection.close();
+  }
+
+  @Test
+  public void closedConnectionFailsCommands() throws Exception {
+    client.close();
+    try {
+      client.get("a".getBytes());
+      fail();
+    } catch (ConnectionException e) {
+      assertEquals("Connection is closed", e.getMessage());
+    }
+  }
+}
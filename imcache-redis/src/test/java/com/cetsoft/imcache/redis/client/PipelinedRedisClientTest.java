@@ -0,0 +1,146 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PipelinedRedisClientTest {
+
+  FakeRedisServer server;
+
+  PipelinedRedisClient client;
+
+  @Before
+  public void setup() throws IOException {
+    server = new FakeRedisServer();
+    client = new PipelinedRedisClient("localhost", server.getPort());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    client.close();
+    server.close();
+  }
+
+  @Test
+  public void commands() throws ConnectionException, IOException {
+    client.ping();
+    client.set("a".getBytes(), "1".getBytes());
+    client.set("b".getBytes(), "2".getBytes(), 1000);
+    assertArrayEquals("1".getBytes(), client.get("a".getBytes()));
+    assertNull(client.get("c".getBytes()));
+    assertEquals(2, client.dbsize());
+    assertArrayEquals("2".getBytes(), client.expire("b".getBytes()));
+    assertEquals(1, client.dbsize());
+    client.flushdb();
+    assertEquals(0, client.dbsize());
+  }
+
+  @Test
+  public void multiKeyCommands() throws ConnectionException, IOException {
+    client.mset("a".getBytes(), "1".getBytes(), "b".getBytes(), "2".getBytes());
+    List<byte[]> values = client.mget("a".getBytes(), "c".getBytes(), "b".getBytes());
+    assertArrayEquals("1".getBytes(), values.get(0));
+    assertNull(values.get(1));
+    assertArrayEquals("2".getBytes(), values.get(2));
+    assertTrue(client.exists("a".getBytes()));
+    assertArrayEquals("1".getBytes(), client.getDel("a".getBytes()));
+    assertFalse(client.exists("a".getBytes()));
+    assertEquals(1, client.unlink("a".getBytes(), "b".getBytes()));
+    assertEquals(0, client.dbsize());
+  }
+
+  @Test
+  public void errorReplyThrowsConnectionException() throws IOException {
+    try {
+      client.setIfAbsent("a".getBytes(), "1".getBytes());
+      fail();
+    } catch (ConnectionException e) {
+      assertTrue(e.getMessage().contains("unknown command"));
+    }
+  }
+
+  @Test
+  public void manyThreadsShareConnection() throws Exception {
+    final int threads = 8, commands = 500;
+    final AtomicInteger failures = new AtomicInteger();
+    final CountDownLatch latch = new CountDownLatch(threads);
+    for (int i = 0; i < threads; i++) {
+      final String prefix = "thread" + i + ":";
+      new Thread(() -> {
+        try {
+          for (int j = 0; j < commands; j++) {
+            byte[] key = (prefix + j).getBytes();
+            client.set(key, key);
+            if (!new String(client.get(key)).equals(prefix + j)) {
+              failures.incrementAndGet();
+            }
+          }
+        } catch (Exception e) {
+          failures.incrementAndGet();
+        }
+        latch.countDown();
+      }).start();
+    }
+    latch.await();
+    assertEquals(0, failures.get());
+    assertEquals(threads * commands, client.dbsize());
+    assertEquals(1, server.connections.get());
+  }
+
+  @Test
+  public void asyncCommandsArePipelined() throws Exception {
+    CompletableFuture<Void> set = client.setAsync("a".getBytes(), "1".getBytes());
+    CompletableFuture<byte[]> get = client.getAsync("a".getBytes());
+    set.get();
+    assertArrayEquals("1".getBytes(), get.get());
+  }
+
+  @Test
+  public void reconnectsAfterConnectionFails() throws Exception {
+    client.set("a".getBytes(), "1".getBytes());
+    server.closeClients();
+    try {
+      client.get("a".getBytes());
+    } catch (ConnectionException e) {
+      // The command may fail with the connection.
+    }
+    assertArrayEquals("1".getBytes(), client.get("a".getBytes()));
+    assertEquals(2, server.connections.get());
+  }
+
+  @Test
+  public void closedClientFails() throws Exception {
+    client.close();
+    CompletableFuture<byte[]> get = client.getAsync("a".getBytes());
+    assertTrue(get.isCompletedExceptionally());
+    assertFalse(server.connections.get() > 0);
+  }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Class RedisClientBenchmark measures the throughput of the clients against an embedded redis
+ * server, with an optional latency in milliseconds as its first argument to emulate a network.
+ */
+public class RedisClientBenchmark {
+
+  /**
+   * The Constant OPERATIONS.
+   */
+  private static final int OPERATIONS = 20000;
+
+  /**
+   * The Constant BATCH.
+   */
+  private static final int BATCH = 100;
+
+  /**
+   * The main method.
+   *
+   * @param args the latency in milliseconds, zero if absent
+   * @throws Exception the exception
+   */
+  public static void main(final String[] args) throws Exception {
+    final long latency = args.length > 0 ? Long.parseLong(args[0]) : 0;
+    final int operations = latency == 0 ? OPERATIONS : OPERATIONS / 100;
+    try (EmbeddedRedisServer first = new EmbeddedRedisServer();
+        EmbeddedRedisServer second = new EmbeddedRedisServer()) {
+      first.setLatency(latency, TimeUnit.MILLISECONDS);
+      second.setLatency(latency, TimeUnit.MILLISECONDS);
+      final Connection connection = new Connection("localhost", first.getPort());
+      run("RedisClient", new RedisClient(connection), operations);
+      connection.close();
+      run("RedisClientPool", new RedisClientPool("localhost", first.getPort()), operations);
+      final PipelinedRedisClient pipelined = new PipelinedRedisClient("localhost",
+          first.getPort());
+      run("PipelinedRedisClient", pipelined, operations);
+      runAsync("PipelinedRedisClient async", pipelined, operations);
+      pipelined.close();
+      final EventLoopGroup eventLoopGroup = new EventLoopGroup();
+      final PipelinedRedisClient nio = new PipelinedRedisClient(eventLoopGroup.connect(
+          "localhost", first.getPort()), 1000);
+      runAsync("NioConnection async", nio, operations);
+      nio.close();
+      eventLoopGroup.close();
+      final PipelinedRedisClient firstNode = new PipelinedRedisClient("localhost",
+          first.getPort());
+      final PipelinedRedisClient secondNode = new PipelinedRedisClient("localhost",
+          second.getPort());
+      run("ShardedRedisClient", new ShardedRedisClient().addNode("first", firstNode)
+          .addNode("second", secondNode), operations);
+      firstNode.close();
+      secondNode.close();
+    }
+  }
+
+  /**
+   * Runs sets and gets one after the other and prints their throughput.
+   *
+   * @param name the name of the client
+   * @param client the client
+   * @param operations the number of operations
+   * @throws Exception the exception
+   */
+  private static void run(final String name, final Client client, final int operations)
+      throws Exception {
+    final long start = System.nanoTime();
+    for (int i = 0; i < operations; i++) {
+      final byte[] key = Integer.toString(i % 1000).getBytes();
+      if ((i & 1) == 0) {
+        client.set(key, key);
+      } else {
+        client.get(key);
+      }
+    }
+    print(name, operations, start);
+  }
+
+  /**
+   * Runs sets in batches of pipelined commands and prints their throughput.
+   *
+   * @param name the name of the client
+   * @param client the client
+   * @param operations the number of operations
+   * @throws Exception the exception
+   */
+  private static void runAsync(final String name, final PipelinedRedisClient client,
+      final int operations) throws Exception {
+    final long start = System.nanoTime();
+    final List<CompletableFuture<Void>> replies = new ArrayList<>(BATCH);
+    for (int i = 0; i < operations; i++) {
+      final byte[] key = Integer.toString(i % 1000).getBytes();
+      replies.add(client.setAsync(key, key));
+      if (replies.size() == BATCH) {
+        CompletableFuture.allOf(replies.toArray(new CompletableFuture[0])).get();
+        replies.clear();
+      }
+    }
+    CompletableFuture.allOf(replies.toArray(new CompletableFuture[0])).get();
+    print(name, operations, start);
+  }
+
+  /**
+   * Prints the throughput.
+   *
+   * @param name the name of the client
+   * @param operations the number of operations
+   * @param start the start time in nanoseconds
+   */
+  private static void print(final String name, final int operations, final long start) {
+    final double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("%-28s %10.0f ops/s%n", name, operations / seconds);
+  }
+}
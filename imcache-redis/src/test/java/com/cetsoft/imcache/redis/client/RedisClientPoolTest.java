@@ -0,0 +1,208 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.cetsoft.imcache.redis.client.RedisClientPool.PooledClient;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class RedisClientPoolTest {
+
+  byte[] key = {'0'};
+  byte[] value = {'0'};
+
+  @Mock
+  Connection firstConnection;
+
+  @Mock
+  Connection secondConnection;
+
+  @Mock
+  Client firstClient;
+
+  @Mock
+  Client secondClient;
+
+  RedisClientPool pool;
+
+  @Before
+  public void setup() {
+    MockitoAnnotations.initMocks(this);
+    pool = new RedisClientPool(new PooledClient[]{
+        new PooledClient(firstConnection, firstClient),
+        new PooledClient(secondConnection, secondClient)}, 100,
+        RedisClientPool.DEFAULT_HEALTH_CHECK_INTERVAL);
+  }
+
+  @Test
+  public void commandsUseLeastBusyConnection() throws Exception {
+    doAnswer(invocation -> {
+      Thread.sleep(20);
+      return value;
+    }).when(firstClient).get(key);
+    doReturn(value).when(secondClient).get(key);
+    for (int i = 0; i < 3; i++) {
+      assertArrayEquals(value, pool.get(key));
+    }
+    verify(firstClient).get(key);
+    verify(secondClient, times(2)).get(key);
+  }
+
+  @Test
+  public void multiKeyCommandsUseBorrowedConnection() throws Exception {
+    doReturn(Arrays.asList(value, null)).when(firstClient).mget(key, value);
+    doReturn(Arrays.asList(value, null)).when(secondClient).mget(key, value);
+    doReturn(1).when(firstClient).unlink(key);
+    doReturn(1).when(secondClient).unlink(key);
+    assertEquals(Arrays.asList(value, null), pool.mget(key, value));
+    assertEquals(1, pool.unlink(key));
+  }
+
+  @Test
+  public void stalledConnectionDoesNotBlockOthers() throws Exception {
+    final CountDownLatch stalled = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      stalled.countDown();
+      release.await();
+      return null;
+    }).when(firstClient).flushdb();
+    doReturn(value).when(secondClient).get(key);
+    Thread thread = new Thread(() -> {
+      try {
+        pool.flushdb();
+      } catch (Exception e) {
+        // Not expected.
+      }
+    });
+    thread.start();
+    stalled.await();
+    assertArrayEquals(value, pool.get(key));
+    verify(firstClient, never()).get(key);
+    release.countDown();
+    thread.join();
+  }
+
+  @Test
+  public void borrowWaitsBoundedTime() throws Exception {
+    final CountDownLatch stalled = new CountDownLatch(2);
+    final CountDownLatch release = new CountDownLatch(1);
+    for (Client client : new Client[]{firstClient, secondClient}) {
+      doAnswer(invocation -> {
+        stalled.countDown();
+        release.await();
+        return null;
+      }).when(client).flushdb();
+    }
+    for (int i = 0; i < 2; i++) {
+      new Thread(() -> {
+        try {
+          pool.flushdb();
+        } catch (Exception e) {
+          // Not expected.
+        }
+      }).start();
+    }
+    stalled.await();
+    long start = System.currentTimeMillis();
+    try {
+      pool.get(key);
+      fail();
+    } catch (ConnectionException e) {
+      assertTrue(System.currentTimeMillis() - start >= 90);
+    }
+    release.countDown();
+  }
+
+  @Test
+  public void failedConnectionIsClosedAndBacksOff() throws Exception {
+    doThrow(new IOException()).when(firstClient).get(key);
+    doAnswer(invocation -> {
+      Thread.sleep(5);
+      return value;
+    }).when(secondClient).get(key);
+    try {
+      pool.get(key);
+      fail();
+    } catch (IOException e) {
+      // The first connection fails.
+    }
+    verify(firstConnection).close();
+    assertArrayEquals(value, pool.get(key));
+    assertArrayEquals(value, pool.get(key));
+    verify(firstClient).get(key);
+    Thread.sleep(2 * RedisClientPool.INITIAL_BACKOFF);
+    doReturn(value).when(firstClient).get(key);
+    assertArrayEquals(value, pool.get(key));
+    verify(firstClient).ping();
+  }
+
+  @Test
+  public void failingHealthCheckSkipsConnection() throws Exception {
+    pool = new RedisClientPool(new PooledClient[]{
+        new PooledClient(firstConnection, firstClient),
+        new PooledClient(secondConnection, secondClient)}, 100, 0);
+    doThrow(new ConnectionException(new IOException())).when(firstClient).ping();
+    doReturn(value).when(secondClient).get(key);
+    assertArrayEquals(value, pool.get(key));
+    verify(firstConnection).close();
+    verify(firstClient, never()).get(key);
+    verify(secondClient).ping();
+  }
+
+  @Test
+  public void errorReplyKeepsConnection() throws Exception {
+    doThrow(new ConnectionException("ERR")).when(firstClient).set(key, value);
+    try {
+      pool.set(key, value);
+      fail();
+    } catch (ConnectionException e) {
+      assertEquals("ERR", e.getMessage());
+    }
+    verify(firstConnection, never()).close();
+  }
+
+  @Test
+  public void commandsOverServer() throws Exception {
+    FakeRedisServer server = new FakeRedisServer();
+    RedisClientPool pool = new RedisClientPool("localhost", server.getPort(), 2);
+    pool.set(key, value);
+    assertArrayEquals(value, pool.get(key));
+    assertEquals(1, pool.dbsize());
+    server.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void poolThrowsIllegalArgument() {
+    new RedisClientPool("", 1, 0);
+  }
+}
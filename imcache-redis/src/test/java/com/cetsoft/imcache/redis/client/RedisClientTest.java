@@ -16,11 +16,16 @@
 package com.cetsoft.imcache.redis.client;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -51,9 +56,8 @@ public class RedisClientTest {
 
   @Test
   public void ping() throws ConnectionException, IOException {
-    doReturn("OK").when(commandResult).getStatus();
+    doReturn("PONG").when(commandResult).getStatus();
     redisClient.ping();
-    verify(redisClient).runVoidCommand(RedisCommands.PING);
     verify(commandExecutor).execute(RedisCommands.PING);
   }
 
@@ -88,8 +92,55 @@ public class RedisClientTest {
     final long millis = 10;
     doReturn("OK").when(commandResult).getStatus();
     redisClient.set(key, value, millis);
-    verify(commandExecutor).execute(RedisCommands.SET, key, value);
-    verify(commandExecutor).execute(RedisCommands.PEXPIRE, key, Long.toString(millis).getBytes());
+    verify(commandExecutor).execute(RedisCommands.SET, key, value, "PX".getBytes(),
+        Long.toString(millis).getBytes());
+    verify(commandExecutor, never()).execute(RedisCommands.PEXPIRE, key,
+        Long.toString(millis).getBytes());
+  }
+
+  @Test
+  public void getDel() throws ConnectionException, IOException {
+    byte[] key = {'1'};
+    byte[] value = {'1'};
+    doReturn(value).when(commandResult).getBytes();
+    assertEquals(value, redisClient.getDel(key));
+    verify(commandExecutor).execute(RedisCommands.GETDEL, key);
+  }
+
+  @Test
+  public void exists() throws ConnectionException, IOException {
+    byte[] key = {'1'};
+    doReturn(1).when(commandResult).getInt();
+    assertTrue(redisClient.exists(key));
+    verify(commandExecutor).execute(RedisCommands.EXISTS, key);
+  }
+
+  @Test
+  public void unlink() throws ConnectionException, IOException {
+    byte[] key = {'1'};
+    byte[] otherKey = {'2'};
+    doReturn(2).when(commandResult).getInt();
+    assertEquals(2, redisClient.unlink(key, otherKey));
+    verify(commandExecutor).execute(RedisCommands.UNLINK, key, otherKey);
+  }
+
+  @Test
+  public void mget() throws ConnectionException, IOException {
+    byte[] key = {'1'};
+    byte[] otherKey = {'2'};
+    List<byte[]> values = Arrays.asList(new byte[]{'3'}, null);
+    doReturn(values).when(commandResult).getBytesList();
+    assertEquals(values, redisClient.mget(key, otherKey));
+    verify(commandExecutor).execute(RedisCommands.MGET, key, otherKey);
+  }
+
+  @Test
+  public void mset() throws ConnectionException, IOException {
+    byte[] key = {'1'};
+    byte[] value = {'2'};
+    doReturn("OK").when(commandResult).getStatus();
+    redisClient.mset(key, value);
+    verify(commandExecutor).execute(RedisCommands.MSET, key, value);
   }
 
   @Test
@@ -122,4 +173,35 @@ public class RedisClientTest {
     verify(commandExecutor).execute(RedisCommands.EXPIRE, key, new byte[]{'0'});
     assertEquals(value, actualValue);
   }
+
+  @Test
+  public void setIfAbsent() throws ConnectionException, IOException {
+    byte[] key = {'1'};
+    byte[] value = {'1'};
+    doReturn(null).when(commandResult).getBytes();
+    assertNull(redisClient.setIfAbsent(key, value));
+    verify(commandExecutor).execute(RedisCommands.EVAL, RedisClient.SET_IF_ABSENT_SCRIPT,
+        RedisClient.ONE_KEY, key, value);
+  }
+
+  @Test
+  public void compareAndSet() throws ConnectionException, IOException {
+    byte[] key = {'1'};
+    byte[] expectedValue = {'1'};
+    byte[] newValue = {'2'};
+    doReturn(1).when(commandResult).getInt();
+    assertTrue(redisClient.compareAndSet(key, expectedValue, newValue));
+    verify(commandExecutor).execute(RedisCommands.EVAL, RedisClient.COMPARE_AND_SET_SCRIPT,
+        RedisClient.ONE_KEY, key, expectedValue, newValue);
+  }
+
+  @Test
+  public void compareAndDelete() throws ConnectionException, IOException {
+    byte[] key = {'1'};
+    byte[] expectedValue = {'1'};
+    doReturn(1).when(commandResult).getInt();
+    assertTrue(redisClient.compareAndDelete(key, expectedValue));
+    verify(commandExecutor).execute(RedisCommands.EVAL, RedisClient.COMPARE_AND_DELETE_SCRIPT,
+        RedisClient.ONE_KEY, key, expectedValue);
+  }
 }
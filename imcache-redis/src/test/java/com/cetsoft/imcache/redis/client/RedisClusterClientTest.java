@@ -0,0 +1,208 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RedisClusterClientTest {
+
+  List<FakeClusterNode> cluster;
+
+  FakeClusterNode first;
+
+  FakeClusterNode second;
+
+  RedisClusterClient client;
+
+  @Before
+  public void setup() throws IOException {
+    cluster = FakeClusterNode.newCluster();
+    first = new FakeClusterNode(cluster, 0, 8191);
+    second = new FakeClusterNode(cluster, 8192, HashSlots.SLOTS - 1);
+    client = new RedisClusterClient(Collections.singletonList(first.address()));
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    client.close();
+    first.close();
+    second.close();
+  }
+
+  @Test
+  public void keysGoToOwnerOfSlot() throws ConnectionException, IOException {
+    for (int i = 0; i < 50; i++) {
+      client.set(("key" + i).getBytes(), ("value" + i).getBytes());
+    }
+    for (int i = 0; i < 50; i++) {
+      String key = "key" + i;
+      FakeClusterNode owner = HashSlots.slot(key.getBytes()) < 8192 ? first : second;
+      assertArrayEquals(("value" + i).getBytes(), owner.values.get(key));
+      assertArrayEquals(("value" + i).getBytes(), client.get(key.getBytes()));
+    }
+    assertEquals(first.address(), client.getOwner(0));
+    assertEquals(second.address(), client.getOwner(HashSlots.SLOTS - 1));
+    assertEquals(50, client.dbsize());
+    client.flushdb();
+    assertEquals(0, client.dbsize());
+  }
+
+  @Test
+  public void multiKeyCommandsAreSplitBySlot() throws ConnectionException, IOException {
+    client.mset("foo".getBytes(), "1".getBytes(), "bar".getBytes(), "2".getBytes(),
+        "{foo}.x".getBytes(), "3".getBytes());
+    assertArrayEquals("1".getBytes(), second.values.get("foo"));
+    assertArrayEquals("3".getBytes(), second.values.get("{foo}.x"));
+    assertArrayEquals("2".getBytes(), first.values.get("bar"));
+    List<byte[]> values = client.mget("bar".getBytes(), "baz".getBytes(), "{foo}.x".getBytes(),
+        "foo".getBytes());
+    assertArrayEquals("2".getBytes(), values.get(0));
+    assertNull(values.get(1));
+    assertArrayEquals("3".getBytes(), values.get(2));
+    assertArrayEquals("1".getBytes(), values.get(3));
+    assertTrue(client.exists("foo".getBytes()));
+    assertArrayEquals("1".getBytes(), client.getDel("foo".getBytes()));
+    assertEquals(2, client.unlink("foo".getBytes(), "bar".getBytes(), "{foo}.x".getBytes()));
+    assertEquals(0, client.dbsize());
+  }
+
+  @Test
+  public void followsMovedRedirect() throws ConnectionException, IOException {
+    byte[] key = "foo".getBytes();
+    int slot = HashSlots.slot(key);
+    client.set(key, "value".getBytes());
+    second.values.remove("foo");
+    first.values.put("foo", "value".getBytes());
+    second.slots.clear(slot);
+    first.slots.set(slot);
+    assertArrayEquals("value".getBytes(), client.get(key));
+    assertEquals(first.address(), client.getOwner(slot));
+  }
+
+  @Test
+  public void multiKeyCommandsFollowMovedRedirect() throws ConnectionException, IOException {
+    int slot = HashSlots.slot("foo".getBytes());
+    client.mset("foo".getBytes(), "1".getBytes(), "bar".getBytes(), "2".getBytes());
+    first.values.put("foo", second.values.remove("foo"));
+    second.slots.clear(slot);
+    first.slots.set(slot);
+    List<byte[]> values = client.mget("foo".getBytes(), "bar".getBytes());
+    assertArrayEquals("1".getBytes(), values.get(0));
+    assertArrayEquals("2".getBytes(), values.get(1));
+    assertEquals(first.address(), client.getOwner(slot));
+    assertEquals(2, client.unlink("foo".getBytes(), "bar".getBytes()));
+  }
+
+  @Test
+  public void followsAskRedirect() throws ConnectionException, IOException {
+    byte[] key = "bar".getBytes();
+    int slot = HashSlots.slot(key);
+    client.ping();
+    first.migrating.put(slot, second);
+    second.values.put("bar", "value".getBytes());
+    assertArrayEquals("value".getBytes(), client.get(key));
+    assertEquals(first.address(), client.getOwner(slot));
+    assertNull(first.values.get("bar"));
+  }
+
+  @Test
+  public void askRedirectIsSentOverItsOwnConnection() throws ConnectionException, IOException {
+    Map<String, AtomicInteger> createdClients = new ConcurrentHashMap<>();
+    client.close();
+    client = new RedisClusterClient(Collections.singletonList(first.address()), address -> {
+      createdClients.computeIfAbsent(address, a -> new AtomicInteger()).incrementAndGet();
+      return new PipelinedRedisClient(RedisClusterClient.host(address),
+          RedisClusterClient.port(address));
+    });
+    byte[] key = "bar".getBytes();
+    client.ping();
+    first.migrating.put(HashSlots.slot(key), second);
+    second.values.put("bar", "value".getBytes());
+    assertArrayEquals("value".getBytes(), client.get(key));
+    assertArrayEquals("value".getBytes(), client.get(key));
+    assertEquals(3, createdClients.get(second.address()).get());
+    assertEquals(1, createdClients.get(first.address()).get());
+  }
+
+  @Test
+  public void askRedirectIsNotRemembered() throws ConnectionException, IOException {
+    byte[] key = "bar".getBytes();
+    int slot = HashSlots.slot(key);
+    client.ping();
+    first.migrating.put(slot, second);
+    client.set(key, "value".getBytes());
+    assertArrayEquals("value".getBytes(), second.values.get("bar"));
+    first.values.put("bar", "old".getBytes());
+    assertArrayEquals("old".getBytes(), client.get(key));
+  }
+
+  @Test
+  public void refreshesSlotsWhenNodeFails() throws Exception {
+    byte[] key = "foo".getBytes();
+    int slot = HashSlots.slot(key);
+    client.set(key, "value".getBytes());
+    second.close();
+    cluster.remove(second);
+    first.slots.set(0, HashSlots.SLOTS);
+    first.values.put("foo", "value".getBytes());
+    Thread.sleep(RedisClusterClient.MIN_REFRESH_INTERVAL);
+    assertArrayEquals("value".getBytes(), client.get(key));
+    assertEquals(first.address(), client.getOwner(slot));
+  }
+
+  @Test(expected = ConnectionException.class)
+  public void errorRepliesAreNotRetried() throws ConnectionException, IOException {
+    client.ping();
+    client.compareAndDelete("foo".getBytes(), "value".getBytes());
+  }
+
+  @Test
+  public void parseRedirect() {
+    RedisClusterClient.Redirect moved =
+        RedisClusterClient.Redirect.parse("MOVED 3999 127.0.0.1:6381");
+    assertTrue(moved.moved);
+    assertEquals(3999, moved.slot);
+    assertEquals("127.0.0.1:6381", moved.address);
+    assertFalse(RedisClusterClient.Redirect.parse("ASK 1 ::1:6380").moved);
+    assertNull(RedisClusterClient.Redirect.parse("ERR unknown command"));
+    assertNull(RedisClusterClient.Redirect.parse(null));
+  }
+
+  @Test
+  public void hostAndPort() {
+    assertEquals("::1", RedisClusterClient.host("::1:6380"));
+    assertEquals(6380, RedisClusterClient.port("::1:6380"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void seedsAreRequired() {
+    new RedisClusterClient(Collections.<String>emptyList());
+  }
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+public class RedisCommandEncoderTest {
+
+  @Test
+  public void encodeLikeStreamWriter() throws IOException {
+    byte[][] args = {"key".getBytes(), new byte[12345], new byte[0]};
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    RedisStreamWriter streamWriter = new RedisStreamWriter(outputStream);
+    RedisCommandExecutor.write(streamWriter, RedisCommands.SET, args);
+    streamWriter.flush();
+    int length = RedisCommandEncoder.encodedLength(RedisCommands.SET, args);
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    RedisCommandEncoder.encode(buffer, RedisCommands.SET, args);
+    assertFalse(buffer.hasRemaining());
+    assertArrayEquals(outputStream.toByteArray(), buffer.array());
+  }
+}
@@ -34,11 +34,14 @@ package com.cetsoft.imcache.redis.client;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -101,4 +104,14 @@ public class RedisCommandResultTest {
     assertArrayEquals(bytes, actualBytes);
   }
 
+  @Test
+  public void getBytesList() throws ConnectionException, IOException {
+    byte[] reply = "*2\r\n$1\r\na\r\n$-1\r\n".getBytes();
+    doReturn(new RedisStreamReader(new ByteArrayInputStream(reply))).when(connection)
+        .getStreamReader();
+    List<byte[]> values = commandResult.getBytesList();
+    assertEquals(2, values.size());
+    assertArrayEquals("a".getBytes(), values.get(0));
+    assertNull(values.get(1));
+  }
 }
@@ -0,0 +1,107 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class RedisReplyParserTest {
+
+  RedisReplyParser parser = new RedisReplyParser();
+
+  @Test
+  public void parseResp2() throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(("+OK\r\n-ERR wrong\r\n:-42\r\n$3\r\nabc\r\n$-1\r\n"
+        + "*2\r\n$1\r\na\r\n:1\r\n*-1\r\n*0\r\n$0\r\n\r\n").getBytes());
+    assertEquals("OK", parser.parse(buffer));
+    assertEquals("ERR wrong", ((ErrorReply) parser.parse(buffer)).getMessage());
+    assertEquals(-42L, parser.parse(buffer));
+    assertArrayEquals("abc".getBytes(), (byte[]) parser.parse(buffer));
+    assertNull(parser.parse(buffer));
+    List<?> array = (List<?>) parser.parse(buffer);
+    assertArrayEquals("a".getBytes(), (byte[]) array.get(0));
+    assertEquals(1L, array.get(1));
+    assertNull(parser.parse(buffer));
+    assertTrue(((List<?>) parser.parse(buffer)).isEmpty());
+    assertEquals(0, ((byte[]) parser.parse(buffer)).length);
+    assertSame(RedisReplyParser.INCOMPLETE, parser.parse(buffer));
+  }
+
+  @Test
+  public void parseResp3() throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(("_\r\n#t\r\n#f\r\n,1.5\r\n,-inf\r\n"
+        + "(12345678901234567890\r\n"
+        + "!5\r\nERR x\r\n=7\r\ntxt:abc\r\n%1\r\n+key\r\n:2\r\n~1\r\n:3\r\n"
+        + "|1\r\n+ttl\r\n:10\r\n:4\r\n>2\r\n+invalidate\r\n*1\r\n$1\r\nk\r\n").getBytes());
+    assertNull(parser.parse(buffer));
+    assertEquals(true, parser.parse(buffer));
+    assertEquals(false, parser.parse(buffer));
+    assertEquals(1.5, parser.parse(buffer));
+    assertEquals(Double.NEGATIVE_INFINITY, parser.parse(buffer));
+    assertEquals(new BigInteger("12345678901234567890"), parser.parse(buffer));
+    assertEquals("ERR x", parser.parse(buffer).toString());
+    assertArrayEquals("abc".getBytes(), (byte[]) parser.parse(buffer));
+    assertEquals(2L, ((Map<?, ?>) parser.parse(buffer)).get("key"));
+    assertEquals(3L, ((List<?>) parser.parse(buffer)).get(0));
+    assertEquals(4L, parser.parse(buffer));
+    PushReply pushReply = (PushReply) parser.parse(buffer);
+    assertEquals("invalidate", pushReply.getElements().get(0));
+  }
+
+  @Test
+  public void parseFedByteByByte() throws IOException {
+    byte[] replies = "*3\r\n$5\r\nhello\r\n+OK\r\n*1\r\n:100\r\n-ERR\r\n".getBytes();
+    List<Object> parsed = new ArrayList<>();
+    for (byte theByte : replies) {
+      ByteBuffer buffer = ByteBuffer.wrap(new byte[]{theByte});
+      Object reply = parser.parse(buffer);
+      assertTrue(!buffer.hasRemaining());
+      if (reply != RedisReplyParser.INCOMPLETE) {
+        parsed.add(reply);
+      }
+    }
+    assertEquals(2, parsed.size());
+    List<?> array = (List<?>) parsed.get(0);
+    assertArrayEquals("hello".getBytes(), (byte[]) array.get(0));
+    assertEquals("OK", array.get(1));
+    assertEquals(100L, ((List<?>) array.get(2)).get(0));
+    assertEquals("ERR", parsed.get(1).toString());
+  }
+
+  @Test
+  public void resetDiscardsPartialReply() throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap("*2\r\n$3\r\nab".getBytes());
+    assertSame(RedisReplyParser.INCOMPLETE, parser.parse(buffer));
+    parser.reset();
+    assertEquals(7L, parser.parse(ByteBuffer.wrap(":7\r\n".getBytes())));
+  }
+
+  @Test(expected = IOException.class)
+  public void parseThrowsIOExceptionForUnknownType() throws IOException {
+    parser.parse(ByteBuffer.wrap("?\r\n".getBytes()));
+  }
+}
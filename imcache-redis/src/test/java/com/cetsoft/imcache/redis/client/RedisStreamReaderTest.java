@@ -17,12 +17,17 @@ package com.cetsoft.imcache.redis.client;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -124,6 +129,50 @@ public class RedisStreamReaderTest {
     assertEquals(-10, actualInt);
   }
 
+  @Test
+  public void readWithPartialReads() throws IOException {
+    final byte[] bytes = new byte[3 * SIZE];
+    Arrays.fill(bytes, (byte) '*');
+    setupInputStreamRead(concat(bytes, "\r\n:12\r\n".getBytes()), 1000);
+    assertArrayEquals(bytes, reader.read(bytes.length));
+    assertEquals(':', reader.readByte());
+    assertEquals(12, reader.readInt());
+  }
+
+  @Test
+  public void readReplies() throws IOException {
+    setupInputStreamRead(("+OK\r\n-ERR wrong\r\n:-42\r\n$3\r\nabc\r\n$-1\r\n"
+        + "*2\r\n$1\r\na\r\n:1\r\n").getBytes(), 3);
+    assertEquals("OK", reader.readReply());
+    assertEquals("ERR wrong", reader.readReply().toString());
+    assertEquals(-42L, reader.readReply());
+    assertArrayEquals("abc".getBytes(), (byte[]) reader.readReply());
+    assertNull(reader.readReply());
+    List<?> array = (List<?>) reader.readReply();
+    assertArrayEquals("a".getBytes(), (byte[]) array.get(0));
+    assertEquals(1L, array.get(1));
+  }
+
+  @Test
+  public void readRepliesAfterLines() throws IOException {
+    setupInputStreamRead("+OK\r\n:5\r\n".getBytes(), 4);
+    assertEquals('+', reader.readByte());
+    assertEquals("OK", reader.readString());
+    assertEquals(5L, reader.readReply());
+  }
+
+  @Test(expected = EOFException.class)
+  public void readThrowsEOFException() throws IOException {
+    doReturn(-1).when(inputStream).read((byte[]) any());
+    reader.readReply();
+  }
+
+  private static byte[] concat(byte[] first, byte[] second) {
+    byte[] bytes = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, bytes, first.length, second.length);
+    return bytes;
+  }
+
   protected void setupInputStreamRead(final byte[] bytes, int chunkSize) throws IOException {
     Stubber stubber = null;
     for (int i = 0; i < bytes.length / chunkSize + 1; i++) {
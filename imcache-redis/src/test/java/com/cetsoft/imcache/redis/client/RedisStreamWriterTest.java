@@ -63,12 +63,24 @@ public class RedisStreamWriterTest {
     int value = -3;
     writer.position = writer.buffer.length;
     writer.write(value);
-    verify(writer, times(2)).flushBuffer();
-    assertEquals(writer.position, 0);
+    verify(writer, times(1)).flushBuffer();
+    assertEquals(writer.position, 2);
     assertEquals(writer.buffer[0], '-');
     assertEquals(writer.buffer[1], '3');
   }
 
+  @Test
+  public void writeInts() throws IOException {
+    int[] values = {0, 7, 1023, 1024, 123456789, -1024, Integer.MAX_VALUE, Integer.MIN_VALUE};
+    StringBuilder expected = new StringBuilder();
+    for (int value : values) {
+      writer.write(value);
+      writer.write((byte) ' ');
+      expected.append(value).append(' ');
+    }
+    assertEquals(expected.toString(), new String(writer.buffer, 0, writer.position));
+  }
+
   @Test
   public void writeNewLine() throws IOException {
     writer.writeNewLine();
@@ -81,9 +93,20 @@ public class RedisStreamWriterTest {
     byte[] bytes = {'1', '2', '3'};
     writer.position = writer.buffer.length - 1;
     writer.write(bytes);
-    verify(writer, times(2)).flushBuffer();
+    verify(writer, times(1)).flushBuffer();
+    assertEquals(writer.position, 2);
     assertEquals(bytes[0], writer.buffer[writer.buffer.length - 1]);
     assertEquals(bytes[1], writer.buffer[0]);
     assertEquals(bytes[2], writer.buffer[1]);
   }
+
+  @Test
+  public void writeLargeByteArray() throws IOException {
+    byte[] bytes = new byte[RedisStreamWriter.LARGE_VALUE_SIZE];
+    writer.write((byte) '$');
+    writer.write(bytes);
+    verify(outputStream).write(writer.buffer, 0, 1);
+    verify(outputStream).write(bytes);
+    assertEquals(writer.position, 0);
+  }
 }
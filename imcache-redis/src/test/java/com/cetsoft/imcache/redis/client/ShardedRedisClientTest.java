@@ -0,0 +1,121 @@
+/**
+ * Copyright © 2013 Cetsoft. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cetsoft.imcache.redis.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class ShardedRedisClientTest {
+
+  @Mock
+  Client firstClient;
+
+  @Mock
+  Client secondClient;
+
+  ShardedRedisClient client;
+
+  @Before
+  public void setup() {
+    MockitoAnnotations.initMocks(this);
+    client = new ShardedRedisClient().addNode("first", firstClient)
+        .addNode("second", secondClient);
+  }
+
+  @Test
+  public void keyCommandsGoToNodeOfKey() throws ConnectionException, IOException {
+    for (int i = 0; i < 20; i++) {
+      byte[] key = ("key" + i).getBytes();
+      byte[] value = {(byte) i};
+      Client nodeClient = client.getClient(key);
+      doReturn(value).when(nodeClient).get(key);
+      client.set(key, value);
+      verify(nodeClient).set(key, value);
+      assertArrayEquals(value, client.get(key));
+    }
+  }
+
+  @Test
+  public void databaseCommandsGoToAllNodes() throws ConnectionException, IOException {
+    doReturn(2).when(firstClient).dbsize();
+    doReturn(3).when(secondClient).dbsize();
+    assertEquals(5, client.dbsize());
+    client.flushdb();
+    verify(firstClient).flushdb();
+    verify(secondClient).flushdb();
+    client.ping();
+    verify(firstClient).ping();
+    verify(secondClient).ping();
+  }
+
+  @Test
+  public void multiKeyCommandsAreSplitByNode() throws ConnectionException, IOException {
+    FakeRedisServer firstServer = new FakeRedisServer();
+    FakeRedisServer secondServer = new FakeRedisServer();
+    PipelinedRedisClient firstNode = new PipelinedRedisClient("localhost", firstServer.getPort());
+    PipelinedRedisClient secondNode = new PipelinedRedisClient("localhost", secondServer.getPort());
+    client = new ShardedRedisClient().addNode("first", firstNode).addNode("second", secondNode);
+    try {
+      byte[][] keysAndValues = new byte[40][];
+      byte[][] keys = new byte[21][];
+      for (int i = 0; i < 20; i++) {
+        keys[i] = keysAndValues[2 * i] = ("key" + i).getBytes();
+        keysAndValues[2 * i + 1] = ("value" + i).getBytes();
+      }
+      keys[20] = "missing".getBytes();
+      client.mset(keysAndValues);
+      assertEquals(20, firstServer.values.size() + secondServer.values.size());
+      assertTrue(firstServer.values.size() > 0 && secondServer.values.size() > 0);
+      for (int i = 0; i < 20; i++) {
+        FakeRedisServer server =
+            client.getClient(keys[i]) == firstNode ? firstServer : secondServer;
+        assertArrayEquals(keysAndValues[2 * i + 1], server.values.get("key" + i));
+      }
+      List<byte[]> values = client.mget(keys);
+      for (int i = 0; i < 20; i++) {
+        assertArrayEquals(keysAndValues[2 * i + 1], values.get(i));
+      }
+      assertNull(values.get(20));
+      assertEquals(20, client.unlink(keys));
+      assertEquals(0, client.dbsize());
+    } finally {
+      firstNode.close();
+      secondNode.close();
+      firstServer.close();
+      secondServer.close();
+    }
+  }
+
+  @Test
+  public void removeNode() {
+    assertSame(secondClient, client.removeNode("second"));
+    for (int i = 0; i < 20; i++) {
+      assertSame(firstClient, client.getClient(("key" + i).getBytes()));
+    }
+  }
+}
@@ -18,13 +18,18 @@ package com.cetsoft.imcache.cache.builder;
 import static com.cetsoft.imcache.cache.util.ArgumentUtils.checkNotEmpty;
 import static com.cetsoft.imcache.cache.util.ArgumentUtils.checkNotNull;
 
+import com.cetsoft.imcache.cache.AbstractCache;
 import com.cetsoft.imcache.cache.Cache;
+import com.cetsoft.imcache.cache.CacheLatencies;
 import com.cetsoft.imcache.cache.CacheLoader;
 import com.cetsoft.imcache.cache.EvictionListener;
 import com.cetsoft.imcache.cache.ImcacheException;
+import com.cetsoft.imcache.cache.metrics.CacheMetrics;
+import com.cetsoft.imcache.cache.metrics.MeterRegistryAdapter;
 import com.cetsoft.imcache.cache.search.DefaultIndexHandler;
 import com.cetsoft.imcache.cache.search.IndexHandler;
 import com.cetsoft.imcache.cache.search.Query;
+import com.cetsoft.imcache.cache.search.index.IndexStorage;
 import com.cetsoft.imcache.cache.search.index.IndexType;
 import com.cetsoft.imcache.serialization.Serializer;
 import java.io.ByteArrayInputStream;
@@ -36,6 +41,7 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutput;
 import java.io.ObjectOutputStream;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * The type Base cache builder.
@@ -129,10 +135,30 @@ public abstract class BaseCacheBuilder {
    * The Is searchable.
    */
   protected volatile boolean isSearchable = false;
+  /**
+   * The storage of the indexes.
+   */
+  protected IndexStorage indexStorage = IndexStorage.KEY_SET;
+  /**
+   * The maximum number of cached query results, 0 if query results are not cached.
+   */
+  protected int queryCacheSize = 0;
   /**
    * The Name.
    */
   protected String name;
+  /**
+   * Whether latencies are recorded.
+   */
+  protected boolean recordLatencies = false;
+  /**
+   * Whether the cache is registered as an MBean.
+   */
+  protected boolean exportMBean = false;
+  /**
+   * The meter registry, null if metrics are not bound to a registry.
+   */
+  protected MeterRegistryAdapter meterRegistry;
 
   /**
    * Close all.
@@ -154,6 +180,51 @@ public abstract class BaseCacheBuilder {
     }
   }
 
+  /**
+   * Sets latencies to the cache if latencies are recorded and exports the metrics of the cache if
+   * they are exported.
+   *
+   * @param <C> the cache type
+   * @param cache the cache
+   * @return the cache
+   */
+  protected <C extends AbstractCache<?, ?>> C handleInstrumentation(final C cache) {
+    if (recordLatencies) {
+      cache.setLatencies(new CacheLatencies());
+    }
+    return exportMetrics(cache);
+  }
+
+  /**
+   * Exports the metrics of the cache as an MBean and to the meter registry if they are exported.
+   *
+   * @param <C> the cache type
+   * @param cache the cache
+   * @return the cache
+   */
+  protected <C extends Cache<?, ?>> C exportMetrics(final C cache) {
+    if (exportMBean) {
+      CacheMetrics.registerMBean(cache);
+    }
+    if (meterRegistry != null) {
+      CacheMetrics.bindTo(cache, meterRegistry);
+    }
+    return cache;
+  }
+
+  /**
+   * Checks that no index is added yet, as the options of the indexes are read when the index
+   * handler is created for the first index.
+   *
+   * @param option the option being set
+   * @throws IllegalStateException if an index is already added
+   */
+  protected void checkNotSearchable(final String option) {
+    if (isSearchable) {
+      throw new IllegalStateException(option + " must be set before the first index is added");
+    }
+  }
+
   /**
    * Handle index.
    *
@@ -165,11 +236,36 @@ public abstract class BaseCacheBuilder {
     checkNotNull(indexType, "index type can't be null");
     if (!isSearchable) {
       isSearchable = true;
-      indexHandler = new DefaultIndexHandler<>();
+      indexHandler = new DefaultIndexHandler<>(indexStorage, queryCacheSize);
     }
     indexHandler.addIndex(attributeName, indexType);
   }
 
+  /**
+   * Handle index whose keys are extracted by the given extractor.
+   *
+   * @param <V> the value type
+   * @param attributeName the attribute name
+   * @param indexType the index type
+   * @param extractor the extractor
+   */
+  @SuppressWarnings("unchecked")
+  protected synchronized <V> void handleIndex(final String attributeName,
+      final IndexType indexType, final Function<V, ?> extractor) {
+    checkNotEmpty(attributeName, "attribute name can't be empty");
+    checkNotNull(indexType, "index type can't be null");
+    checkNotNull(extractor, "extractor can't be null");
+    if (!isSearchable) {
+      isSearchable = true;
+      indexHandler = new DefaultIndexHandler<>(indexStorage, queryCacheSize);
+    }
+    if (!(indexHandler instanceof DefaultIndexHandler)) {
+      throw new IllegalStateException("index handler doesn't support extractors");
+    }
+    ((DefaultIndexHandler<Object, V>) (DefaultIndexHandler<?, ?>) indexHandler)
+        .addIndex(attributeName, indexType, extractor);
+  }
+
   /**
    * Build cache.
    *
@@ -21,11 +21,17 @@ import static com.cetsoft.imcache.cache.util.ArgumentUtils.checkPositive;
 
 import com.cetsoft.imcache.cache.CacheLoader;
 import com.cetsoft.imcache.cache.EvictionListener;
+import com.cetsoft.imcache.cache.metrics.MeterRegistryAdapter;
 import com.cetsoft.imcache.cache.search.IndexHandler;
+import com.cetsoft.imcache.cache.search.index.IndexStorage;
 import com.cetsoft.imcache.cache.search.index.IndexType;
 import com.cetsoft.imcache.heap.HeapCache;
+import com.cetsoft.imcache.heap.SerializedSizeWeigher;
+import com.cetsoft.imcache.heap.Weigher;
+import com.cetsoft.imcache.serialization.Serializer;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * The Class HeapCacheBuilder.
@@ -48,6 +54,14 @@ public class HeapCacheBuilder extends BaseCacheBuilder {
    * Expiry in long
    */
   private long expiry = 5680281600L; //2150
+  /**
+   * The weigher.
+   */
+  private Weigher<Object, Object> weigher;
+  /**
+   * The maximum weight, zero if the cache is bounded by capacity.
+   */
+  private long maximumWeight;
 
   /**
    * Instantiates a new Heap cache builder.
@@ -150,6 +164,111 @@ public class HeapCacheBuilder extends BaseCacheBuilder {
     return this;
   }
 
+  /**
+   * Weigher of the entries. If it is set, the cache is bounded by maximum weight instead of
+   * capacity, so maximum weight must be set as well.
+   *
+   * @param <K> the key type
+   * @param <V> the value type
+   * @param weigher the weigher
+   * @return the heap cache builder
+   */
+  @SuppressWarnings("unchecked")
+  public <K, V> HeapCacheBuilder weigher(final Weigher<K, V> weigher) {
+    checkNotNull(weigher, "weigher can't be null");
+    this.weigher = (Weigher<Object, Object>) weigher;
+    return this;
+  }
+
+  /**
+   * Maximum total weight of the entries. If no weigher is set, entries are weighed by their
+   * serialized size.
+   *
+   * @param maximumWeight the maximum weight
+   * @return the heap cache builder
+   */
+  public HeapCacheBuilder maximumWeight(final long maximumWeight) {
+    checkPositive(maximumWeight, "maximum weight must be positive");
+    this.maximumWeight = maximumWeight;
+    return this;
+  }
+
+  /**
+   * Serializer used by the default weigher.
+   *
+   * @param <V> the value type
+   * @param serializer the serializer
+   * @return the heap cache builder
+   */
+  @SuppressWarnings("unchecked")
+  public <V> HeapCacheBuilder serializer(final Serializer<V> serializer) {
+    checkNotNull(serializer, "serializer can't be null");
+    this.serializer = (Serializer<Object>) serializer;
+    return this;
+  }
+
+  /**
+   * Records latencies of the cache operations.
+   *
+   * @return the heap cache builder
+   */
+  public HeapCacheBuilder recordLatencies() {
+    this.recordLatencies = true;
+    return this;
+  }
+
+  /**
+   * Registers the cache as an MBean named after the cache.
+   *
+   * @return the heap cache builder
+   */
+  public HeapCacheBuilder exportMBean() {
+    this.exportMBean = true;
+    return this;
+  }
+
+  /**
+   * Binds the metrics of the cache to the meter registry.
+   *
+   * @param meterRegistry the meter registry
+   * @return the heap cache builder
+   */
+  public HeapCacheBuilder meterRegistry(final MeterRegistryAdapter meterRegistry) {
+    checkNotNull(meterRegistry, "meter registry can't be null");
+    this.meterRegistry = meterRegistry;
+    return this;
+  }
+
+  /**
+   * Sets how the non unique hash and range indexes store the keys of their indexed values. It
+   * must be set before the first index is added.
+   *
+   * @param indexStorage the index storage
+   * @return the heap cache builder
+   * @throws IllegalStateException if an index is already added
+   */
+  public synchronized HeapCacheBuilder indexStorage(final IndexStorage indexStorage) {
+    checkNotNull(indexStorage, "index storage can't be null");
+    checkNotSearchable("index storage");
+    this.indexStorage = indexStorage;
+    return this;
+  }
+
+  /**
+   * Caches the results of up to the given number of queries, each used until one of the indexes
+   * it was met on is modified. It must be set before the first index is added.
+   *
+   * @param queryCacheSize the maximum number of cached query results
+   * @return the heap cache builder
+   * @throws IllegalStateException if an index is already added
+   */
+  public synchronized HeapCacheBuilder queryCacheSize(final int queryCacheSize) {
+    checkPositive(queryCacheSize, "query cache size must be positive");
+    checkNotSearchable("query cache size");
+    this.queryCacheSize = queryCacheSize;
+    return this;
+  }
+
   /**
    * Adds the index.
    *
@@ -163,18 +282,44 @@ public class HeapCacheBuilder extends BaseCacheBuilder {
     return this;
   }
 
+  /**
+   * Adds the index whose keys are extracted from the values by the given extractor.
+   *
+   * @param <V> the value type
+   * @param attributeName the attribute name
+   * @param indexType the index type
+   * @param extractor the extractor
+   * @return the heap cache builder
+   */
+  public synchronized <V> HeapCacheBuilder addIndex(final String attributeName,
+      final IndexType indexType, final Function<V, ?> extractor) {
+    handleIndex(attributeName, indexType, extractor);
+    return this;
+  }
+
   /**
    * Builds the cache.
    *
    * @param <K> the key type
    * @param <V> the value type
    * @return the cache
+   * @throws IllegalStateException if a weigher is set without a maximum weight
    */
   @SuppressWarnings("unchecked")
   public <K, V> HeapCache<K, V> build() {
-    return new HeapCache<>(name, (CacheLoader<K, V>) cacheLoader,
+    if (weigher != null && maximumWeight == 0) {
+      throw new IllegalStateException("maximum weight must be set when a weigher is set");
+    }
+    if (maximumWeight > 0) {
+      Weigher<K, V> entryWeigher = weigher != null ? (Weigher<K, V>) weigher
+          : new SerializedSizeWeigher<>((Serializer<V>) serializer);
+      return handleInstrumentation(new HeapCache<>(name, (CacheLoader<K, V>) cacheLoader,
+          (EvictionListener<K, V>) evictionListener,
+          (IndexHandler<K, V>) indexHandler, maximumWeight, entryWeigher, expiryUnit, expiry));
+    }
+    return handleInstrumentation(new HeapCache<>(name, (CacheLoader<K, V>) cacheLoader,
         (EvictionListener<K, V>) evictionListener,
-        (IndexHandler<K, V>) indexHandler, capacity, expiryUnit, expiry);
+        (IndexHandler<K, V>) indexHandler, capacity, expiryUnit, expiry));
   }
 
   /**
@@ -21,12 +21,15 @@ import static com.cetsoft.imcache.cache.util.ArgumentUtils.checkPositive;
 
 import com.cetsoft.imcache.cache.CacheLoader;
 import com.cetsoft.imcache.cache.EvictionListener;
+import com.cetsoft.imcache.cache.metrics.MeterRegistryAdapter;
 import com.cetsoft.imcache.cache.search.IndexHandler;
+import com.cetsoft.imcache.cache.search.index.IndexStorage;
 import com.cetsoft.imcache.cache.search.index.IndexType;
 import com.cetsoft.imcache.offheap.OffHeapCache;
 import com.cetsoft.imcache.offheap.bytebuffer.OffHeapByteBufferStore;
 import com.cetsoft.imcache.serialization.Serializer;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * The Class OffHeapCacheBuilder.
@@ -200,6 +203,68 @@ public class OffHeapCacheBuilder extends BaseCacheBuilder {
     return this;
   }
 
+  /**
+   * Records latencies of the cache operations.
+   *
+   * @return the off heap cache builder
+   */
+  public OffHeapCacheBuilder recordLatencies() {
+    this.recordLatencies = true;
+    return this;
+  }
+
+  /**
+   * Registers the cache as an MBean named after the cache.
+   *
+   * @return the off heap cache builder
+   */
+  public OffHeapCacheBuilder exportMBean() {
+    this.exportMBean = true;
+    return this;
+  }
+
+  /**
+   * Binds the metrics of the cache to the meter registry.
+   *
+   * @param meterRegistry the meter registry
+   * @return the off heap cache builder
+   */
+  public OffHeapCacheBuilder meterRegistry(final MeterRegistryAdapter meterRegistry) {
+    checkNotNull(meterRegistry, "meter registry can't be null");
+    this.meterRegistry = meterRegistry;
+    return this;
+  }
+
+  /**
+   * Sets how the non unique hash and range indexes store the keys of their indexed values. It
+   * must be set before the first index is added.
+   *
+   * @param indexStorage the index storage
+   * @return the off heap cache builder
+   * @throws IllegalStateException if an index is already added
+   */
+  public synchronized OffHeapCacheBuilder indexStorage(final IndexStorage indexStorage) {
+    checkNotNull(indexStorage, "index storage can't be null");
+    checkNotSearchable("index storage");
+    this.indexStorage = indexStorage;
+    return this;
+  }
+
+  /**
+   * Caches the results of up to the given number of queries, each used until one of the indexes
+   * it was met on is modified. It must be set before the first index is added.
+   *
+   * @param queryCacheSize the maximum number of cached query results
+   * @return the off heap cache builder
+   * @throws IllegalStateException if an index is already added
+   */
+  public synchronized OffHeapCacheBuilder queryCacheSize(final int queryCacheSize) {
+    checkPositive(queryCacheSize, "query cache size must be positive");
+    checkNotSearchable("query cache size");
+    this.queryCacheSize = queryCacheSize;
+    return this;
+  }
+
   /**
    * Adds the index.
    *
@@ -213,6 +278,21 @@ public class OffHeapCacheBuilder extends BaseCacheBuilder {
     return this;
   }
 
+  /**
+   * Adds the index whose keys are extracted from the values by the given extractor.
+   *
+   * @param <V> the value type
+   * @param attributeName the attribute name
+   * @param indexType the index type
+   * @param extractor the extractor
+   * @return the off heap cache builder
+   */
+  public synchronized <V> OffHeapCacheBuilder addIndex(final String attributeName,
+      final IndexType indexType, final Function<V, ?> extractor) {
+    handleIndex(attributeName, indexType, extractor);
+    return this;
+  }
+
   /**
    * Builds the cache.
    *
@@ -225,11 +305,11 @@ public class OffHeapCacheBuilder extends BaseCacheBuilder {
     if (this.byteBufferStore == null) {
       throw new NecessaryArgumentException("ByteBufferStore must be set!");
     }
-    return new OffHeapCache<>(name, (CacheLoader<K, V>) cacheLoader,
+    return handleInstrumentation(new OffHeapCache<>(name, (CacheLoader<K, V>) cacheLoader,
         (EvictionListener<K, V>) evictionListener,
         (IndexHandler<K, V>) indexHandler, byteBufferStore, (Serializer<V>) serializer,
         bufferCleanerPeriod,
-        bufferCleanerThreshold, concurrencyLevel, evictionPeriod);
+        bufferCleanerThreshold, concurrencyLevel, evictionPeriod));
   }
 
   /**
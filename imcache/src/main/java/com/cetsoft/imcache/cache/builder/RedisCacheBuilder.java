@@ -21,11 +21,21 @@ import static com.cetsoft.imcache.cache.util.ArgumentUtils.checkPositive;
 
 import com.cetsoft.imcache.cache.CacheLoader;
 import com.cetsoft.imcache.cache.EvictionListener;
+import com.cetsoft.imcache.cache.metrics.MeterRegistryAdapter;
+import com.cetsoft.imcache.heap.HeapCache;
+import com.cetsoft.imcache.redis.NearCachedRedisCache;
 import com.cetsoft.imcache.redis.RedisCache;
 import com.cetsoft.imcache.redis.client.Client;
 import com.cetsoft.imcache.redis.client.Connection;
-import com.cetsoft.imcache.redis.client.MultiRedisClient;
+import com.cetsoft.imcache.redis.client.EventLoopGroup;
+import com.cetsoft.imcache.redis.client.InvalidationSubscriber;
+import com.cetsoft.imcache.redis.client.PipelinedRedisClient;
+import com.cetsoft.imcache.redis.client.RedisClientPool;
+import com.cetsoft.imcache.redis.client.RedisClusterClient;
+import com.cetsoft.imcache.redis.client.ShardedRedisClient;
 import com.cetsoft.imcache.serialization.Serializer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -47,7 +57,32 @@ public class RedisCacheBuilder extends BaseCacheBuilder {
   /**
    * The concurrency level.
    */
-  private int concurrencyLevel = MultiRedisClient.CONCURRENCY_LEVEL;
+  private int concurrencyLevel = RedisClientPool.DEFAULT_SIZE;
+
+  /**
+   * The pipelined.
+   */
+  private boolean pipelined;
+
+  /**
+   * The event loop group.
+   */
+  private EventLoopGroup eventLoopGroup;
+
+  /**
+   * The nodes to shard the keys over.
+   */
+  private final List<Node> nodes = new ArrayList<>();
+
+  /**
+   * The addresses of the cluster nodes to load the slot map from.
+   */
+  private final List<String> clusterNodes = new ArrayList<>();
+
+  /**
+   * The capacity of the near cache, zero if there is no near cache.
+   */
+  private int nearCacheCapacity;
 
   public RedisCacheBuilder() {
     name = "imcache-redis-cache-" + cacheNumber.incrementAndGet();
@@ -133,7 +168,67 @@ public class RedisCacheBuilder extends BaseCacheBuilder {
   }
 
   /**
-   * Concurrency level.
+   * Adds a node to shard the keys over with consistent hashing. If nodes are added, the host name
+   * and the port aren't used.
+   *
+   * @param hostName the host name of the node
+   * @param port the port of the node
+   * @return the redis cache builder
+   */
+  public RedisCacheBuilder node(final String hostName, final int port) {
+    return node(hostName, port, ShardedRedisClient.DEFAULT_WEIGHT);
+  }
+
+  /**
+   * Adds a node to shard the keys over with consistent hashing. A node with twice the weight of
+   * another gets about twice as many keys.
+   *
+   * @param hostName the host name of the node
+   * @param port the port of the node
+   * @param weight the weight of the node
+   * @return the redis cache builder
+   */
+  public RedisCacheBuilder node(final String hostName, final int port, final int weight) {
+    checkNotEmpty(hostName, "hostname can't be null or empty");
+    checkPositive(port, "port number must be positive");
+    checkPositive(weight, "weight must be positive");
+    nodes.add(new Node(hostName, port, weight));
+    return this;
+  }
+
+  /**
+   * Adds a node of a redis cluster to load the slot map from. If cluster nodes are added, the
+   * commands are routed to the masters of the hash slots of their keys, and the other nodes, the
+   * host name and the port aren't used.
+   *
+   * @param hostName the host name of the cluster node
+   * @param port the port of the cluster node
+   * @return the redis cache builder
+   */
+  public RedisCacheBuilder clusterNode(final String hostName, final int port) {
+    checkNotEmpty(hostName, "hostname can't be null or empty");
+    checkPositive(port, "port number must be positive");
+    clusterNodes.add(hostName + ":" + port);
+    return this;
+  }
+
+  /**
+   * Keeps up to the given number of values read in a heap cache in front of redis, so reads of
+   * hot keys don't go over the network. The near cache is kept coherent with client side caching
+   * in broadcasting mode, which needs redis 6 or later. With redis cluster, all masters must be
+   * added as cluster nodes, since each server only reports the keys it holds.
+   *
+   * @param capacity the capacity of the near cache
+   * @return the redis cache builder
+   */
+  public RedisCacheBuilder nearCache(final int capacity) {
+    checkPositive(capacity, "near cache capacity must be positive");
+    this.nearCacheCapacity = capacity;
+    return this;
+  }
+
+  /**
+   * Concurrency level, the number of pooled connections.
    *
    * @param concurrencyLevel the concurrency level
    * @return the redis cache builder
@@ -144,11 +239,87 @@ public class RedisCacheBuilder extends BaseCacheBuilder {
     return this;
   }
 
+  /**
+   * Pipelines the commands of all threads over a single connection instead of using a connection
+   * per concurrency level.
+   *
+   * @return the redis cache builder
+   */
+  public RedisCacheBuilder pipelined() {
+    this.pipelined = true;
+    return this;
+  }
+
+  /**
+   * Pipelines the commands of all threads over a non-blocking connection served by the event loop
+   * group. Caches built with the same group share its event loop threads.
+   *
+   * @param eventLoopGroup the event loop group
+   * @return the redis cache builder
+   */
+  public RedisCacheBuilder eventLoopGroup(final EventLoopGroup eventLoopGroup) {
+    checkNotNull(eventLoopGroup, "event loop group can't be null");
+    this.eventLoopGroup = eventLoopGroup;
+    return this;
+  }
+
+  /**
+   * Records latencies of the cache operations.
+   *
+   * @return the redis cache builder
+   */
+  public RedisCacheBuilder recordLatencies() {
+    this.recordLatencies = true;
+    return this;
+  }
+
+  /**
+   * Registers the cache as an MBean named after the cache.
+   *
+   * @return the redis cache builder
+   */
+  public RedisCacheBuilder exportMBean() {
+    this.exportMBean = true;
+    return this;
+  }
+
+  /**
+   * Binds the metrics of the cache to the meter registry.
+   *
+   * @param meterRegistry the meter registry
+   * @return the redis cache builder
+   */
+  public RedisCacheBuilder meterRegistry(final MeterRegistryAdapter meterRegistry) {
+    checkNotNull(meterRegistry, "meter registry can't be null");
+    this.meterRegistry = meterRegistry;
+    return this;
+  }
+
   @SuppressWarnings("unchecked")
   public <K, V> RedisCache<K, V> build() {
-    Client client = new MultiRedisClient(hostName, port, concurrencyLevel);
-    return new RedisCache<>(name, (CacheLoader<K, V>) cacheLoader,
-        (EvictionListener<K, V>) evictionListener, serializer, client);
+    final Client client;
+    if (!clusterNodes.isEmpty()) {
+      client = eventLoopGroup == null ? new RedisClusterClient(clusterNodes)
+          : new RedisClusterClient(clusterNodes, eventLoopGroup);
+    } else if (nodes.isEmpty()) {
+      client = createClient(hostName, port);
+    } else {
+      final ShardedRedisClient shardedClient = new ShardedRedisClient();
+      for (final Node node : nodes) {
+        shardedClient.addNode(node.hostName + ":" + node.port,
+            createClient(node.hostName, node.port), node.weight);
+      }
+      client = shardedClient;
+    }
+    if (nearCacheCapacity > 0) {
+      final HeapCache<K, V> nearCache = new HeapCacheBuilder().capacity(nearCacheCapacity)
+          .build(name + "-near");
+      return handleInstrumentation(new NearCachedRedisCache<>(name,
+          (CacheLoader<K, V>) cacheLoader, (EvictionListener<K, V>) evictionListener, serializer,
+          client, nearCache, createInvalidationSubscribers()));
+    }
+    return handleInstrumentation(new RedisCache<>(name, (CacheLoader<K, V>) cacheLoader,
+        (EvictionListener<K, V>) evictionListener, serializer, client));
   }
 
   @SuppressWarnings("unchecked")
@@ -156,4 +327,78 @@ public class RedisCacheBuilder extends BaseCacheBuilder {
     return name(cacheName).build();
   }
 
+  /**
+   * Creates the client of a redis server.
+   *
+   * @param hostName the host name
+   * @param port the port
+   * @return the client
+   */
+  private Client createClient(final String hostName, final int port) {
+    if (eventLoopGroup != null) {
+      return new PipelinedRedisClient(eventLoopGroup.connect(hostName, port),
+          PipelinedRedisClient.DEFAULT_TIMEOUT);
+    } else if (pipelined) {
+      return new PipelinedRedisClient(hostName, port);
+    }
+    return new RedisClientPool(hostName, port, concurrencyLevel);
+  }
+
+  /**
+   * Creates an invalidation subscriber for each redis server the keys are stored on.
+   *
+   * @return the invalidation subscribers
+   */
+  private List<InvalidationSubscriber> createInvalidationSubscribers() {
+    final List<InvalidationSubscriber> subscribers = new ArrayList<>();
+    if (!clusterNodes.isEmpty()) {
+      for (final String clusterNode : clusterNodes) {
+        final int separator = clusterNode.lastIndexOf(':');
+        subscribers.add(new InvalidationSubscriber(clusterNode.substring(0, separator),
+            Integer.parseInt(clusterNode.substring(separator + 1))));
+      }
+    } else if (nodes.isEmpty()) {
+      subscribers.add(new InvalidationSubscriber(hostName, port));
+    } else {
+      for (final Node node : nodes) {
+        subscribers.add(new InvalidationSubscriber(node.hostName, node.port));
+      }
+    }
+    return subscribers;
+  }
+
+  /**
+   * The Class Node is a redis server to shard the keys over.
+   */
+  private static class Node {
+
+    /**
+     * The host name.
+     */
+    final String hostName;
+
+    /**
+     * The port.
+     */
+    final int port;
+
+    /**
+     * The weight.
+     */
+    final int weight;
+
+    /**
+     * Instantiates a new node.
+     *
+     * @param hostName the host name
+     * @param port the port
+     * @param weight the weight
+     */
+    Node(final String hostName, final int port, final int weight) {
+      this.hostName = hostName;
+      this.port = port;
+      this.weight = weight;
+    }
+  }
+
 }
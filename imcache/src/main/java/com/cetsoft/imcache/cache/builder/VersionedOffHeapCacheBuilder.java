@@ -21,13 +21,16 @@ import static com.cetsoft.imcache.cache.util.ArgumentUtils.checkPositive;
 
 import com.cetsoft.imcache.cache.CacheLoader;
 import com.cetsoft.imcache.cache.EvictionListener;
+import com.cetsoft.imcache.cache.metrics.MeterRegistryAdapter;
 import com.cetsoft.imcache.cache.search.IndexHandler;
+import com.cetsoft.imcache.cache.search.index.IndexStorage;
 import com.cetsoft.imcache.cache.search.index.IndexType;
 import com.cetsoft.imcache.offheap.OffHeapCache;
 import com.cetsoft.imcache.offheap.VersionedOffHeapCache;
 import com.cetsoft.imcache.offheap.bytebuffer.OffHeapByteBufferStore;
 import com.cetsoft.imcache.serialization.Serializer;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * The Class VersionedOffHeapCacheBuilder.
@@ -208,6 +211,58 @@ public class VersionedOffHeapCacheBuilder extends BaseCacheBuilder {
     return this;
   }
 
+  /**
+   * Registers the cache as an MBean named after the cache.
+   *
+   * @return the versioned off heap cache builder
+   */
+  public VersionedOffHeapCacheBuilder exportMBean() {
+    this.exportMBean = true;
+    return this;
+  }
+
+  /**
+   * Binds the metrics of the cache to the meter registry.
+   *
+   * @param meterRegistry the meter registry
+   * @return the versioned off heap cache builder
+   */
+  public VersionedOffHeapCacheBuilder meterRegistry(final MeterRegistryAdapter meterRegistry) {
+    checkNotNull(meterRegistry, "meter registry can't be null");
+    this.meterRegistry = meterRegistry;
+    return this;
+  }
+
+  /**
+   * Sets how the non unique hash and range indexes store the keys of their indexed values. It
+   * must be set before the first index is added.
+   *
+   * @param indexStorage the index storage
+   * @return the versioned off heap cache builder
+   * @throws IllegalStateException if an index is already added
+   */
+  public synchronized VersionedOffHeapCacheBuilder indexStorage(final IndexStorage indexStorage) {
+    checkNotNull(indexStorage, "index storage can't be null");
+    checkNotSearchable("index storage");
+    this.indexStorage = indexStorage;
+    return this;
+  }
+
+  /**
+   * Caches the results of up to the given number of queries, each used until one of the indexes
+   * it was met on is modified. It must be set before the first index is added.
+   *
+   * @param queryCacheSize the maximum number of cached query results
+   * @return the versioned off heap cache builder
+   * @throws IllegalStateException if an index is already added
+   */
+  public synchronized VersionedOffHeapCacheBuilder queryCacheSize(final int queryCacheSize) {
+    checkPositive(queryCacheSize, "query cache size must be positive");
+    checkNotSearchable("query cache size");
+    this.queryCacheSize = queryCacheSize;
+    return this;
+  }
+
   /**
    * Adds the index.
    *
@@ -221,6 +276,21 @@ public class VersionedOffHeapCacheBuilder extends BaseCacheBuilder {
     return this;
   }
 
+  /**
+   * Adds the index whose keys are extracted from the values by the given extractor.
+   *
+   * @param <V> the value type
+   * @param attributeName the attribute name
+   * @param indexType the index type
+   * @param extractor the extractor
+   * @return the versioned off heap cache builder
+   */
+  public synchronized <V> VersionedOffHeapCacheBuilder addIndex(final String attributeName,
+      final IndexType indexType, final Function<V, ?> extractor) {
+    handleIndex(attributeName, indexType, extractor);
+    return this;
+  }
+
   /**
    * Builds the cache.
    *
@@ -233,10 +303,10 @@ public class VersionedOffHeapCacheBuilder extends BaseCacheBuilder {
     if (this.byteBufferStore == null) {
       throw new NecessaryArgumentException("ByteBufferStore must be set!");
     }
-    return new VersionedOffHeapCache<>(name, byteBufferStore,
+    return exportMetrics(new VersionedOffHeapCache<>(name, byteBufferStore,
         (Serializer<V>) serializer, (CacheLoader<K, V>) cacheLoader,
         (EvictionListener<K, V>) evictionListener, (IndexHandler<K, V>) indexHandler,
-        bufferCleanerPeriod, bufferCleanerThreshold, concurrencyLevel, evictionPeriod);
+        bufferCleanerPeriod, bufferCleanerThreshold, concurrencyLevel, evictionPeriod));
   }
 
   /**
@@ -15,13 +15,25 @@
  */
 package com.cetsoft.imcache.cache.builder;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import com.cetsoft.imcache.cache.Cache;
 import com.cetsoft.imcache.cache.SearchableCache;
+import com.cetsoft.imcache.cache.search.CacheQuery;
+import com.cetsoft.imcache.cache.search.criteria.BetweenCriteria;
+import com.cetsoft.imcache.cache.search.criteria.ETCriteria;
+import com.cetsoft.imcache.cache.search.filter.GTFilter;
+import com.cetsoft.imcache.cache.search.filter.LTFilter;
+import com.cetsoft.imcache.cache.search.index.IndexStorage;
 import com.cetsoft.imcache.cache.search.index.IndexType;
 import com.cetsoft.imcache.heap.HeapCache;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import org.junit.Test;
 
 /**
@@ -43,4 +55,170 @@ public class HeapCacheBuilderTest {
     assertTrue(cache instanceof SearchableCache);
     assertTrue(cache instanceof HeapCache);
   }
+
+  /**
+   * Build weighted.
+   */
+  @Test
+  public void buildWeighted() {
+    HeapCache<Object, Object> cache = CacheBuilder.heapCache()
+        .name("my-weighted-heap-cache").maximumWeight(1024 * 1024)
+        .serializer(BaseCacheBuilder.DEFAULT_SERIALIZER).build();
+    cache.put("a", "b");
+    assertEquals("b", cache.get("a"));
+    assertTrue(cache.weightedSize() >= 0);
+  }
+
+  /**
+   * A weigher can't be used without a maximum weight.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void buildWithWeigherWithoutMaximumWeight() {
+    CacheBuilder.heapCache().weigher((Object key, Object value) -> 1).build();
+  }
+
+  /**
+   * Build recording latencies.
+   */
+  @Test
+  public void buildRecordingLatencies() {
+    HeapCache<Object, Object> cache = CacheBuilder.heapCache().recordLatencies().build();
+    assertNotNull(cache.getLatencies());
+    assertNull(CacheBuilder.heapCache().build().getLatencies());
+  }
+
+  /**
+   * Build with bitmap indexes.
+   */
+  @Test
+  public void buildWithBitmapIndexes() {
+    HeapCache<Integer, Item> cache = CacheBuilder.heapCache()
+        .indexStorage(IndexStorage.BITMAP).addIndex("size", IndexType.RANGE_INDEX).build();
+    for (int i = 0; i < 10; i++) {
+      cache.put(i, new Item(i));
+    }
+    cache.invalidate(5);
+    List<Item> items = cache.execute(CacheQuery.newQuery()
+        .setCriteria(new BetweenCriteria("size", 3, 7)));
+    assertEquals(2, items.size());
+  }
+
+  /**
+   * Build with bitmap indexes and overwrite values.
+   */
+  @Test
+  public void buildWithBitmapIndexesOverwritingValues() {
+    HeapCache<Integer, Item> cache = CacheBuilder.heapCache()
+        .indexStorage(IndexStorage.BITMAP).addIndex("size", IndexType.RANGE_INDEX).build();
+    cache.put(1, new Item(5));
+    cache.put(1, new Item(50));
+    cache.replace(1, cache.get(1), new Item(60));
+    assertTrue(cache.execute(CacheQuery.newQuery()
+        .setCriteria(new BetweenCriteria("size", 0, 55))).isEmpty());
+    assertEquals(1, cache.execute(CacheQuery.newQuery()
+        .setCriteria(new BetweenCriteria("size", 55, 65))).size());
+  }
+
+  /**
+   * Index storage can't be set after an index is added.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void indexStorageAfterIndex() {
+    CacheBuilder.heapCache().addIndex("size", IndexType.RANGE_INDEX)
+        .indexStorage(IndexStorage.BITMAP);
+  }
+
+  /**
+   * Query cache size can't be set after an index is added.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void queryCacheSizeAfterIndex() {
+    CacheBuilder.heapCache().addIndex("size", IndexType.RANGE_INDEX).queryCacheSize(100);
+  }
+
+  /**
+   * Build with an index extractor.
+   */
+  @Test
+  public void buildWithIndexExtractor() {
+    HeapCache<Integer, Item> cache = CacheBuilder.heapCache()
+        .addIndex("parity", IndexType.NON_UNIQUE_HASH, (Item item) -> item.size % 2).build();
+    for (int i = 0; i < 10; i++) {
+      cache.put(i, new Item(i));
+    }
+    List<Item> items = cache.execute(CacheQuery.newQuery()
+        .setCriteria(new ETCriteria("parity", 1)));
+    assertEquals(5, items.size());
+  }
+
+  /**
+   * Build and execute ordered queries with offsets and limits.
+   */
+  @Test
+  public void buildWithOrderedQuery() {
+    HeapCache<Integer, Item> cache = CacheBuilder.heapCache()
+        .addIndex("size", IndexType.NUMERIC_RANGE).build();
+    for (int i = 0; i < 100; i++) {
+      cache.put(i, new Item(i));
+    }
+    List<Item> items = cache.execute(CacheQuery.newQuery()
+        .setCriteria(new BetweenCriteria("size", 9, 90)).orderByDescending("size")
+        .setOffset(5).setLimit(3));
+    assertEquals(3, items.size());
+    assertEquals(84, items.get(0).size);
+    assertEquals(82, items.get(2).size);
+    items = cache.execute(CacheQuery.newQuery().orderBy("size")
+        .setFilter(new GTFilter("size", 50)).setLimit(2));
+    assertEquals(2, items.size());
+    assertEquals(51, items.get(0).size);
+    assertEquals(52, items.get(1).size);
+  }
+
+  /**
+   * Build and stream query results lazily.
+   */
+  @Test
+  public void buildWithStreamedQuery() {
+    HeapCache<Integer, Item> cache = CacheBuilder.heapCache()
+        .addIndex("size", IndexType.RANGE_INDEX).build();
+    for (int i = 0; i < 100; i++) {
+      cache.put(i, new Item(i));
+    }
+    List<Integer> sizes = cache.stream(CacheQuery.newQuery().orderByDescending("size")
+        .setFilter(new GTFilter("size", 10).and(new LTFilter("size", 90))).setOffset(1))
+        .limit(3).map(item -> item.size).collect(Collectors.toList());
+    assertEquals(Arrays.asList(88, 87, 86), sizes);
+    assertEquals(79, cache.stream(CacheQuery.newQuery()
+        .setCriteria(new BetweenCriteria("size", 0, 90)).setFilter(new GTFilter("size", 10)))
+        .count());
+  }
+
+  /**
+   * Build with cached query results.
+   */
+  @Test
+  public void buildWithQueryCache() {
+    HeapCache<Integer, Item> cache = CacheBuilder.heapCache().queryCacheSize(100)
+        .addIndex("size", IndexType.RANGE_INDEX).build();
+    for (int i = 0; i < 10; i++) {
+      cache.put(i, new Item(i));
+    }
+    assertEquals(4, cache.execute(CacheQuery.newQuery()
+        .setCriteria(new BetweenCriteria("size", 2, 7))).size());
+    cache.invalidate(3);
+    assertEquals(3, cache.execute(CacheQuery.newQuery()
+        .setCriteria(new BetweenCriteria("size", 2, 7))).size());
+  }
+
+  /**
+   * The Class Item.
+   */
+  private static class Item {
+
+    private final int size;
+
+    Item(int size) {
+      this.size = size;
+    }
+  }
 }
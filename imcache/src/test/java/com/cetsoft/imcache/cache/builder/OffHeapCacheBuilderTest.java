@@ -15,13 +15,20 @@
  */
 package com.cetsoft.imcache.cache.builder;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import com.cetsoft.imcache.cache.Cache;
 import com.cetsoft.imcache.cache.SearchableCache;
+import com.cetsoft.imcache.cache.search.CacheQuery;
+import com.cetsoft.imcache.cache.search.criteria.BetweenCriteria;
+import com.cetsoft.imcache.cache.search.filter.LTFilter;
+import com.cetsoft.imcache.cache.search.index.IndexStorage;
 import com.cetsoft.imcache.cache.search.index.IndexType;
 import com.cetsoft.imcache.offheap.OffHeapCache;
 import com.cetsoft.imcache.offheap.bytebuffer.OffHeapByteBufferStore;
+import java.io.Serializable;
+import java.util.List;
 import org.junit.Test;
 
 /**
@@ -63,4 +70,63 @@ public class OffHeapCacheBuilderTest {
   public void buildThrowsIllegalArgumentExceptionForNegativeConcurrency() {
     CacheBuilder.offHeapCache().concurrencyLevel(-1).build("my-cache");
   }
+
+  /**
+   * Build and execute a parallel query.
+   */
+  @Test
+  public void buildWithParallelQuery() {
+    OffHeapByteBufferStore bufferStore = new OffHeapByteBufferStore(8388608, 2);
+    OffHeapCache<Integer, Item> cache = CacheBuilder.offHeapCache().storage(bufferStore)
+        .addIndex("size", IndexType.RANGE_INDEX).build();
+    for (int i = 0; i < 1000; i++) {
+      cache.put(i, new Item(i));
+    }
+    List<Item> items = cache.execute(CacheQuery.newQuery()
+        .setCriteria(new BetweenCriteria("size", 99, 900)).setFilter(new LTFilter("size", 500))
+        .orderBy("size").setOffset(10).setParallel(true));
+    assertEquals(390, items.size());
+    for (int i = 0; i < items.size(); i++) {
+      assertEquals(110 + i, items.get(i).size);
+    }
+  }
+
+  /**
+   * Build with bitmap indexes and overwrite values.
+   */
+  @Test
+  public void buildWithBitmapIndexesOverwritingValues() {
+    OffHeapByteBufferStore bufferStore = new OffHeapByteBufferStore(8388608, 2);
+    OffHeapCache<Integer, Item> cache = CacheBuilder.offHeapCache().storage(bufferStore)
+        .indexStorage(IndexStorage.BITMAP).addIndex("size", IndexType.RANGE_INDEX).build();
+    cache.put(1, new Item(5));
+    cache.put(1, new Item(50));
+    assertTrue(cache.execute(CacheQuery.newQuery()
+        .setCriteria(new BetweenCriteria("size", 0, 10))).isEmpty());
+    assertEquals(1, cache.execute(CacheQuery.newQuery()
+        .setCriteria(new BetweenCriteria("size", 40, 60))).size());
+  }
+
+  /**
+   * Index storage can't be set after an index is added.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void indexStorageAfterIndex() {
+    CacheBuilder.offHeapCache().addIndex("size", IndexType.RANGE_INDEX)
+        .indexStorage(IndexStorage.BITMAP);
+  }
+
+  /**
+   * The Class Item.
+   */
+  private static class Item implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int size;
+
+    Item(int size) {
+      this.size = size;
+    }
+  }
 }
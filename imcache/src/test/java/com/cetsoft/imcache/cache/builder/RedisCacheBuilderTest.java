@@ -18,7 +18,9 @@ package com.cetsoft.imcache.cache.builder;
 import static org.junit.Assert.assertTrue;
 
 import com.cetsoft.imcache.cache.Cache;
+import com.cetsoft.imcache.redis.NearCachedRedisCache;
 import com.cetsoft.imcache.redis.RedisCache;
+import com.cetsoft.imcache.redis.client.EventLoopGroup;
 import org.junit.Test;
 
 /**
@@ -38,4 +40,41 @@ public class RedisCacheBuilderTest {
         .hostName("localhost").port(6379).concurrencyLevel(2).build();
     assertTrue(cache instanceof RedisCache);
   }
+
+  @Test
+  public void buildPipelined() {
+    Cache<Object, Object> cache = CacheBuilder.redisCache()
+        .hostName("localhost").port(6379).pipelined().build();
+    assertTrue(cache instanceof RedisCache);
+  }
+
+  @Test
+  public void buildNonBlocking() {
+    EventLoopGroup eventLoopGroup = new EventLoopGroup(1);
+    Cache<Object, Object> cache = CacheBuilder.redisCache()
+        .hostName("localhost").port(6379).eventLoopGroup(eventLoopGroup).build();
+    assertTrue(cache instanceof RedisCache);
+    eventLoopGroup.close();
+  }
+
+  @Test
+  public void buildSharded() {
+    Cache<Object, Object> cache = CacheBuilder.redisCache()
+        .node("localhost", 6379).node("localhost", 6380, 2).build();
+    assertTrue(cache instanceof RedisCache);
+  }
+
+  @Test
+  public void buildCluster() {
+    Cache<Object, Object> cache = CacheBuilder.redisCache()
+        .clusterNode("localhost", 7000).clusterNode("localhost", 7001).build();
+    assertTrue(cache instanceof RedisCache);
+  }
+
+  @Test
+  public void buildNearCached() {
+    Cache<Object, Object> cache = CacheBuilder.redisCache().nearCache(1000).build();
+    assertTrue(cache instanceof NearCachedRedisCache);
+    ((NearCachedRedisCache<Object, Object>) cache).close();
+  }
 }
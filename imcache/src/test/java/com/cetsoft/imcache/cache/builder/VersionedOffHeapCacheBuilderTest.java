@@ -15,13 +15,22 @@
  */
 package com.cetsoft.imcache.cache.builder;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import com.cetsoft.imcache.cache.Cache;
 import com.cetsoft.imcache.cache.SearchableCache;
+import com.cetsoft.imcache.cache.metrics.CacheMetrics;
+import com.cetsoft.imcache.cache.metrics.MeterRegistryAdapter;
 import com.cetsoft.imcache.cache.search.index.IndexType;
 import com.cetsoft.imcache.offheap.VersionedOffHeapCache;
 import com.cetsoft.imcache.offheap.bytebuffer.OffHeapByteBufferStore;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import org.junit.Test;
 
 /**
@@ -46,6 +55,34 @@ public class VersionedOffHeapCacheBuilderTest {
     assertTrue(cache instanceof VersionedOffHeapCache);
   }
 
+  /**
+   * Build exports the metrics.
+   */
+  @Test
+  public void buildExportsMetrics() throws Exception {
+    final Map<String, Supplier<Number>> gauges = new HashMap<>();
+    OffHeapByteBufferStore bufferStore = new OffHeapByteBufferStore(8388608, 1);
+    Cache<Object, Object> cache = CacheBuilder.versionedOffHeapCache().storage(bufferStore)
+        .exportMBean().meterRegistry(new MeterRegistryAdapter() {
+          @Override
+          public void gauge(String cacheName, String metricName, Supplier<Number> value) {
+            gauges.put(cacheName + "." + metricName, value);
+          }
+
+          @Override
+          public void remove(String cacheName) {
+          }
+        }).build("versioned-metrics-cache");
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName objectName = CacheMetrics.objectName(cache);
+    try {
+      assertTrue(server.isRegistered(objectName));
+      assertEquals(0L, gauges.get("versioned-metrics-cache.size").get());
+    } finally {
+      CacheMetrics.unregisterMBean(cache);
+    }
+  }
+
   /**
    *
    */